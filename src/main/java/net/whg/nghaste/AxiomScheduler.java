@@ -0,0 +1,192 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The axiom scheduler chooses the order in which the axioms of an environment
+ * are checked when adaptive axiom ordering is enabled. As a graph is rejected
+ * by the first axiom which marks it as invalid, checking the axioms which
+ * reject the most graphs for the least amount of time first reduces the time
+ * spent validating graphs, without changing which graphs are valid.
+ * <p>
+ * Each search tree counts how often every axiom is called and how often it
+ * rejects a graph, and measures the time taken by the axioms for one out of
+ * every {@value #SAMPLE_INTERVAL} graphs. These counters are kept locally by
+ * each search tree and are merged into this scheduler once every
+ * {@value #REORDER_INTERVAL} graphs, after which the axioms are sorted by their
+ * number of rejections per nanosecond. Axioms which have not yet been timed
+ * often enough are checked first, so that every axiom is measured.
+ * <p>
+ * The order is only a snapshot, and the statistics of this scheduler lag behind
+ * the workers by up to {@value #REORDER_INTERVAL} graphs per worker. This class
+ * is thread safe.
+ */
+public final class AxiomScheduler
+{
+    /**
+     * The number of graphs between each timed graph of a search tree.
+     */
+    public static final int SAMPLE_INTERVAL = SampledCounters.SAMPLE_INTERVAL;
+
+    /**
+     * The number of graphs a search tree validates before merging its counters
+     * into the scheduler and reordering the axioms.
+     */
+    public static final int REORDER_INTERVAL = SampledCounters.FLUSH_INTERVAL;
+
+    /**
+     * The number of times an axiom must be timed before it is ordered by its
+     * measured score.
+     */
+    public static final int MIN_SAMPLES = 16;
+
+    private final List<IAxiom> axioms;
+    private final SampledCounters counters;
+    private volatile int[] order;
+
+    /**
+     * Creates a new axiom scheduler for the given list of axioms. The axioms are
+     * initially checked in the order of the list.
+     * 
+     * @param axioms
+     *     - The axioms of the environment.
+     */
+    AxiomScheduler(List<IAxiom> axioms)
+    {
+        this.axioms = axioms;
+
+        int count = axioms.size();
+        counters = new SampledCounters(count);
+
+        order = new int[count];
+        for (int i = 0; i < count; i++)
+            order[i] = i;
+    }
+
+    /**
+     * Gets the number of axioms being scheduled.
+     * 
+     * @return The number of axioms.
+     */
+    public int getAxiomCount()
+    {
+        return axioms.size();
+    }
+
+    /**
+     * Gets the current order in which axioms are checked.
+     * 
+     * @return A copy of the order, where each value is the index of an axiom
+     *     within {@link Environment#getAxioms()}.
+     */
+    public int[] getOrder()
+    {
+        return order.clone();
+    }
+
+    /**
+     * Gets the current order in which axioms are checked, without copying it. The
+     * returned array must not be modified.
+     */
+    int[] getCurrentOrder()
+    {
+        return order;
+    }
+
+    /**
+     * Gets the number of times the given axiom has been checked.
+     * 
+     * @param axiom
+     *     - The index of the axiom within {@link Environment#getAxioms()}.
+     * @return The number of calls.
+     */
+    public long getCallCount(int axiom)
+    {
+        return counters.getEntered(axiom);
+    }
+
+    /**
+     * Gets the number of graphs which the given axiom has rejected.
+     * 
+     * @param axiom
+     *     - The index of the axiom within {@link Environment#getAxioms()}.
+     * @return The number of rejected graphs.
+     */
+    public long getRejectionCount(int axiom)
+    {
+        return counters.getRejected(axiom);
+    }
+
+    /**
+     * Gets the average time taken by a single call of the given axiom, based on
+     * the calls which were timed.
+     * 
+     * @param axiom
+     *     - The index of the axiom within {@link Environment#getAxioms()}.
+     * @return The average time in nanoseconds, or NaN if the axiom has not been
+     *     timed yet.
+     */
+    public double getAverageNanos(int axiom)
+    {
+        return counters.getAverageNanos(axiom);
+    }
+
+    /**
+     * Gets the score of the given axiom, being the number of graphs it is
+     * expected to reject per nanosecond spent checking it.
+     * 
+     * @param axiom
+     *     - The index of the axiom within {@link Environment#getAxioms()}.
+     * @return The score, or positive infinity if the axiom has not been timed at
+     *     least {@value #MIN_SAMPLES} times.
+     */
+    public double getScore(int axiom)
+    {
+        if (counters.getSampled(axiom) < MIN_SAMPLES)
+            return Double.POSITIVE_INFINITY;
+
+        double rejectionRate = (double) counters.getRejected(axiom) / counters.getEntered(axiom);
+        double cost = Math.max(1.0, counters.getAverageNanos(axiom));
+
+        return rejectionRate / cost;
+    }
+
+    /**
+     * Sorts the axioms by their score, from highest to lowest. Axioms with equal
+     * scores keep their order within {@link Environment#getAxioms()}.
+     */
+    synchronized void reorder()
+    {
+        int count = axioms.size();
+        Integer[] sorted = new Integer[count];
+        double[] scores = new double[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            sorted[i] = i;
+            scores[i] = getScore(i);
+        }
+
+        Arrays.sort(sorted, Comparator.comparingDouble((Integer i) -> scores[i])
+                                      .reversed());
+
+        int[] newOrder = new int[count];
+        for (int i = 0; i < count; i++)
+            newOrder[i] = sorted[i];
+
+        order = newOrder;
+    }
+
+    /**
+     * Creates a new recorder for a single search tree to count axiom calls with.
+     * The axioms are reordered every time the recorder is flushed.
+     * 
+     * @return A new recorder.
+     */
+    SampledCounters.Recorder newRecorder()
+    {
+        return counters.newRecorder(this::reorder);
+    }
+}
@@ -0,0 +1,297 @@
+package net.whg.nghaste;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+
+/**
+ * A beam frontier performs a beam search over the search tree. Node graphs are
+ * grouped into levels by their number of connections, and each level keeps at
+ * most a fixed number of graphs, called the beam width. When a level is full,
+ * adding a new graph discards the graph with the lowest heuristic score within
+ * that level, which may be the new graph itself. The beam width is a hard bound,
+ * which also applies to levels which are being polled. Discarded graphs are
+ * never polled, so the search is no longer complete, but the memory usage of
+ * the frontier is limited to the beam width times the maximum depth.
+ * <p>
+ * Graphs are polled from the shallowest level first, and in the order of
+ * {@link NodeGraph#compareTo(NodeGraph)} within each level, which is by search
+ * cost for an A* search and by heuristic score otherwise. Which graphs are kept
+ * only depends on their heuristic score. As every child graph has one more
+ * connection than its parent, a level is complete once all graphs of the level
+ * above it have been processed. When multiple workers are active, a worker may
+ * still be adding graphs to a level while another worker is polling from it,
+ * in which case those graphs are polled after the rest of the level.
+ * <p>
+ * Statistics are kept for each level, so the beam width can be tuned. This
+ * class is thread safe.
+ */
+public class BeamFrontier implements IFrontier
+{
+    private final List<Level> levels = new ArrayList<>();
+    private final int beamWidth;
+    private int size;
+    private int dropped;
+
+    /**
+     * Creates a new beam frontier.
+     * 
+     * @param beamWidth
+     *     - The maximum number of graphs to keep for each level.
+     * @throws IllegalArgumentException
+     *     If the beam width is <= 0.
+     */
+    public BeamFrontier(int beamWidth)
+    {
+        if (beamWidth <= 0)
+            throw new IllegalArgumentException("Beam width must be > 0!");
+
+        this.beamWidth = beamWidth;
+    }
+
+    @Override
+    public synchronized void add(NodeGraph graph)
+    {
+        int depth = graph.getConnectionCount();
+        while (levels.size() <= depth)
+            levels.add(new Level());
+
+        if (levels.get(depth)
+                  .add(graph, beamWidth))
+            dropped++;
+        else
+            size++;
+    }
+
+    @Override
+    public synchronized NodeGraph poll()
+    {
+        for (Level level : levels)
+        {
+            NodeGraph graph = level.poll();
+
+            if (graph != null)
+            {
+                size--;
+                return graph;
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<NodeGraph> action)
+    {
+        for (Level level : levels)
+        {
+            for (int i = level.drainIndex; i < level.draining.length; i++)
+                action.accept(level.draining[i]);
+
+            level.kept.forEach(action);
+        }
+    }
+
+    @Override
+    public synchronized int drainDropped()
+    {
+        int count = dropped;
+        dropped = 0;
+
+        return count;
+    }
+
+    /**
+     * Gets the maximum number of graphs this frontier keeps for each level.
+     * 
+     * @return The beam width.
+     */
+    public int getBeamWidth()
+    {
+        return beamWidth;
+    }
+
+    /**
+     * Gets the number of levels which have been created within this frontier. This
+     * is one greater than the largest number of connections of any graph which has
+     * been added to this frontier.
+     * 
+     * @return The number of levels.
+     */
+    public synchronized int getLevelCount()
+    {
+        return levels.size();
+    }
+
+    /**
+     * Gets the number of graphs which have been added to the given level,
+     * including graphs which were discarded.
+     * 
+     * @param level
+     *     - The level, being the number of connections of the graphs within it.
+     * @return The number of added graphs, or 0 if the level does not exist.
+     */
+    public synchronized int getAddedCount(int level)
+    {
+        return level < levels.size() ? levels.get(level).added : 0;
+    }
+
+    /**
+     * Gets the number of graphs which have been discarded from the given level.
+     * 
+     * @param level
+     *     - The level, being the number of connections of the graphs within it.
+     * @return The number of discarded graphs, or 0 if the level does not exist.
+     */
+    public synchronized int getDroppedCount(int level)
+    {
+        return level < levels.size() ? levels.get(level).dropped : 0;
+    }
+
+    /**
+     * Gets the number of graphs which have been polled from the given level.
+     * 
+     * @param level
+     *     - The level, being the number of connections of the graphs within it.
+     * @return The number of polled graphs, or 0 if the level does not exist.
+     */
+    public synchronized int getPolledCount(int level)
+    {
+        return level < levels.size() ? levels.get(level).polled : 0;
+    }
+
+    /**
+     * Gets the number of graphs which are currently waiting within the given
+     * level.
+     * 
+     * @param level
+     *     - The level, being the number of connections of the graphs within it.
+     * @return The number of waiting graphs, or 0 if the level does not exist.
+     */
+    public synchronized int getLevelSize(int level)
+    {
+        if (level >= levels.size())
+            return 0;
+
+        return levels.get(level)
+                     .size();
+    }
+
+    /**
+     * A single level of the beam. Graphs are kept within a heap ordered from the
+     * lowest to the highest heuristic score, so the worst graph can be discarded
+     * quickly. Once a level starts being polled, the kept graphs are sorted in
+     * polling order, and polled in that order.
+     */
+    private static class Level
+    {
+        private static final NodeGraph[] EMPTY = new NodeGraph[0];
+
+        private final PriorityQueue<NodeGraph> kept =
+                new PriorityQueue<>(Comparator.comparingDouble(NodeGraph::getHeuristicScore));
+        private NodeGraph[] draining = EMPTY;
+        private int drainIndex;
+        private int added;
+        private int dropped;
+        private int polled;
+
+        int size()
+        {
+            return kept.size() + draining.length - drainIndex;
+        }
+
+        /**
+         * Adds a graph to this level. If the level is full, the graph with the
+         * lowest heuristic score is discarded, including graphs which are waiting
+         * to be polled from a level which is being polled.
+         * 
+         * @return True if a graph was discarded, false otherwise.
+         */
+        boolean add(NodeGraph graph, int beamWidth)
+        {
+            added++;
+
+            if (size() < beamWidth)
+            {
+                kept.add(graph);
+                return false;
+            }
+
+            dropped++;
+
+            NodeGraph worst = kept.peek();
+            int worstIndex = -1;
+
+            for (int i = drainIndex; i < draining.length; i++)
+            {
+                if (worst == null || draining[i].getHeuristicScore() < worst.getHeuristicScore())
+                {
+                    worst = draining[i];
+                    worstIndex = i;
+                }
+            }
+
+            if (graph.getHeuristicScore() <= worst.getHeuristicScore())
+                return true;
+
+            if (worstIndex == -1)
+                kept.poll();
+            else
+                removeDraining(worstIndex);
+
+            kept.add(graph);
+            return true;
+        }
+
+        /**
+         * Removes a graph which is waiting to be polled from the sorted graphs,
+         * keeping the order of the other graphs.
+         */
+        private void removeDraining(int index)
+        {
+            System.arraycopy(draining, drainIndex, draining, drainIndex + 1, index - drainIndex);
+            draining[drainIndex++] = null;
+
+            if (drainIndex == draining.length)
+            {
+                draining = EMPTY;
+                drainIndex = 0;
+            }
+        }
+
+        NodeGraph poll()
+        {
+            if (draining.length == 0)
+            {
+                if (kept.isEmpty())
+                    return null;
+
+                draining = kept.toArray(new NodeGraph[kept.size()]);
+                Arrays.sort(draining);
+                drainIndex = 0;
+                kept.clear();
+            }
+
+            NodeGraph graph = draining[drainIndex];
+            draining[drainIndex++] = null;
+            polled++;
+
+            if (drainIndex == draining.length)
+            {
+                draining = EMPTY;
+                drainIndex = 0;
+            }
+
+            return graph;
+        }
+    }
+}
@@ -0,0 +1,279 @@
+package net.whg.nghaste;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A checkpoint is a snapshot of the state of a node container, which can be
+ * written to a checkpoint directory and read back. A checkpoint consists of
+ * three files. The pending graphs of the frontier and the solutions are each
+ * stored as a graph stream using the {@link GraphFormat}. The state file stores
+ * the counters of the container, the number of graphs within each graph stream,
+ * the state of the duplicate finder, and the generation of the checkpoint. The
+ * total number of solutions found is stored as a counter, as it is larger than
+ * the number of stored solutions if solutions are not retained.
+ * <p>
+ * The graph streams of each checkpoint are written to new files named after
+ * its generation, which is a random number, so the files of an older checkpoint
+ * are never overwritten. The state file is written to a temporary file last,
+ * and then atomically moved in place, which replaces the older checkpoint as a
+ * whole. A failed checkpoint therefore leaves the older checkpoint untouched,
+ * and a checkpoint is never loaded using graph streams of another generation.
+ * The graph streams of older generations are deleted once the new state file
+ * is in place.
+ * <p>
+ * Taking a snapshot only copies references to the pending graphs and solutions,
+ * so the container only needs to be paused for as long as it takes to iterate
+ * over them. Frontiers which do not store graphs as objects decode a copy of
+ * each graph while the snapshot is taken.
+ */
+final class Checkpoint
+{
+    /**
+     * The magic number at the start of a checkpoint state file. This is the string
+     * "NGHC" in ASCII.
+     */
+    static final int MAGIC = 0x4E474843;
+
+    /**
+     * The current version of the checkpoint format.
+     */
+    static final int VERSION = 3;
+
+    static final String STATE_FILE = "state.bin";
+
+    private static final Logger logger = LoggerFactory.getLogger(Checkpoint.class);
+
+    private final List<NodeGraph> pendingGraphs;
+    private final List<NodeGraph> solutions;
+    private final int totalGraphsSearched;
+    private final int totalSolutionsFound;
+    private final byte[] duplicateFinder;
+
+    private Checkpoint(List<NodeGraph> pendingGraphs, List<NodeGraph> solutions, int totalGraphsSearched,
+            int totalSolutionsFound, byte[] duplicateFinder)
+    {
+        this.pendingGraphs = pendingGraphs;
+        this.solutions = solutions;
+        this.totalGraphsSearched = totalGraphsSearched;
+        this.totalSolutionsFound = totalSolutionsFound;
+        this.duplicateFinder = duplicateFinder;
+    }
+
+    /**
+     * Takes a snapshot of the state of the given node container. No other thread
+     * may modify the container while this method is running.
+     * 
+     * @param container
+     *     - The container to take a snapshot of.
+     * @return The snapshot.
+     */
+    static Checkpoint capture(NodeContainer container)
+    {
+        List<NodeGraph> pendingGraphs = new ArrayList<>();
+        container.forEachPendingGraph(pendingGraphs::add);
+
+        ByteArrayOutputStream duplicates = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(duplicates))
+        {
+            container.getDuplicateFinder()
+                     .write(out);
+        }
+        catch (IOException e)
+        {
+            // Not thrown when writing to memory
+            throw new UncheckedIOException(e);
+        }
+
+        return new Checkpoint(pendingGraphs, container.copySolutions(), container.getTotalGraphsSearched(),
+                container.getTotalSolutionsFound(), duplicates.toByteArray());
+    }
+
+    /**
+     * Writes this checkpoint to a checkpoint directory, replacing the checkpoint
+     * within it. Only one checkpoint may be written to the same directory at once.
+     * 
+     * @param environment
+     *     - The environment of the container.
+     * @param directory
+     *     - The checkpoint directory. This directory is created if it does not
+     *     exist.
+     * @throws IOException
+     *     If an IO error occurs.
+     */
+    void write(Environment environment, Path directory) throws IOException
+    {
+        Files.createDirectories(directory);
+
+        long generation = ThreadLocalRandom.current()
+                                           .nextLong();
+        while (Files.exists(frontierFile(directory, generation)) || Files.exists(solutionsFile(directory, generation)))
+            generation++;
+
+        writeGraphs(environment, frontierFile(directory, generation), pendingGraphs);
+        writeGraphs(environment, solutionsFile(directory, generation), solutions);
+
+        Path stateFile = directory.resolve(STATE_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(stateFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(environment.getFingerprint());
+            out.writeLong(generation);
+            out.writeInt(totalGraphsSearched);
+            out.writeInt(totalSolutionsFound);
+            out.writeLong(pendingGraphs.size());
+            out.writeInt(solutions.size());
+            out.write(duplicateFinder);
+            out.flush();
+            channel.force(true);
+        }
+
+        Files.move(stateFile, directory.resolve(STATE_FILE), StandardCopyOption.ATOMIC_MOVE,
+                StandardCopyOption.REPLACE_EXISTING);
+
+        deleteOtherGenerations(directory, generation);
+    }
+
+    /**
+     * Writes the given graphs to a new graph stream file, and forces them to disk.
+     */
+    private static void writeGraphs(Environment environment, Path file, List<NodeGraph> graphs) throws IOException
+    {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        try (GraphWriter writer = new GraphWriter(environment, channel))
+        {
+            for (NodeGraph graph : graphs)
+                writer.write(graph);
+
+            writer.flush();
+            channel.force(true);
+        }
+    }
+
+    /**
+     * Deletes the graph streams of every generation other than the given one.
+     * Failures are logged, as they do not affect the new checkpoint.
+     */
+    private static void deleteOtherGenerations(Path directory, long generation)
+    {
+        Path frontier = frontierFile(directory, generation);
+        Path solutions = solutionsFile(directory, generation);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "{frontier,solutions}-*.graphs"))
+        {
+            for (Path file : files)
+                if (!file.equals(frontier) && !file.equals(solutions))
+                    Files.deleteIfExists(file);
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to delete old checkpoint files within {}.", directory, e);
+        }
+    }
+
+    private static Path frontierFile(Path directory, long generation)
+    {
+        return directory.resolve("frontier-" + Long.toHexString(generation) + ".graphs");
+    }
+
+    private static Path solutionsFile(Path directory, long generation)
+    {
+        return directory.resolve("solutions-" + Long.toHexString(generation) + ".graphs");
+    }
+
+    /**
+     * Reads a checkpoint directory and adds its state to the given node container.
+     * The container is expected to be empty.
+     * 
+     * @param container
+     *     - The container to load the checkpoint into.
+     * @param environment
+     *     - The environment of the container. This must be the same environment the
+     *     checkpoint was created with.
+     * @param directory
+     *     - The checkpoint directory.
+     * @throws IOException
+     *     If an IO error occurs, the checkpoint was created within a different
+     *     environment, or the checkpoint files do not match each other.
+     */
+    static void load(NodeContainer container, Environment environment, Path directory) throws IOException
+    {
+        long generation;
+        int totalGraphs;
+        int totalSolutions;
+        long frontierCount;
+        int solutionCount;
+
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(directory.resolve(STATE_FILE)))))
+        {
+            if (in.readInt() != MAGIC)
+                throw new IOException("Not a checkpoint state file!");
+
+            int version = in.readInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported checkpoint version: " + version);
+
+            if (in.readLong() != environment.getFingerprint())
+                throw new IOException("Checkpoint was created by a different environment!");
+
+            generation = in.readLong();
+            totalGraphs = in.readInt();
+            totalSolutions = in.readInt();
+            frontierCount = in.readLong();
+            solutionCount = in.readInt();
+            container.getDuplicateFinder()
+                     .read(in);
+        }
+
+        long frontierRead = 0;
+        try (GraphReader reader = new GraphReader(environment,
+                FileChannel.open(frontierFile(directory, generation), StandardOpenOption.READ)))
+        {
+            NodeGraph graph;
+            while ((graph = reader.read()) != null)
+            {
+                container.addNodeGraph(graph);
+                frontierRead++;
+            }
+        }
+
+        int solutionsRead = 0;
+        try (GraphReader reader = new GraphReader(environment,
+                FileChannel.open(solutionsFile(directory, generation), StandardOpenOption.READ)))
+        {
+            NodeGraph graph;
+            while ((graph = reader.read()) != null)
+            {
+                container.restoreSolution(graph);
+                solutionsRead++;
+            }
+        }
+
+        if (frontierRead != frontierCount || solutionsRead != solutionCount)
+            throw new IOException("Checkpoint files do not match the checkpoint state!");
+
+        container.setTotalGraphsSearched(totalGraphs);
+        container.setTotalSolutionsFound(totalSolutions);
+    }
+}
@@ -0,0 +1,234 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The completion bound estimates the smallest number of connections which must
+ * still be added to a node graph before it becomes a solution. The estimate
+ * never exceeds the real number, so the search tree can safely discard graphs
+ * where the number of connections plus this estimate is larger than the
+ * maximum depth.
+ * <p>
+ * For each data type, the cost of a data type is the smallest number of
+ * connections needed to fill an open plug of that type. If a node within the
+ * graph already has an output plug of that type, the cost is one, as the plug
+ * may be connected to that node. Otherwise, a new node must be added which
+ * outputs the type, and the cost is one for the connection to the new node,
+ * plus one for each input plug of the new node, where the input plug with the
+ * most expensive type costs the full cost of its type instead. Input functions
+ * have no inputs, so they cost one. The costs are found by repeatedly applying
+ * this rule to every function until no cost changes, which finds the shortest
+ * derivation of each data type over the function table.
+ * <p>
+ * Every open plug needs a connection of its own, and nodes created to fill one
+ * plug may be reused to fill another, so the estimate of a graph is the number
+ * of open plugs minus one, plus the highest cost of any open plug. As the costs
+ * only depend on which data types are output by the nodes of a graph, they are
+ * cached for each such set of data types. Data types with an ID of 64 or higher
+ * are always assumed to be output by some node, which may lower the estimate,
+ * but never raises it above the real number.
+ * <p>
+ * This class is thread safe.
+ */
+public final class CompletionBound
+{
+    /**
+     * The cost of a data type which can never be produced, and the estimate of a
+     * graph which can never become a solution.
+     */
+    public static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    private static final int MAX_DENSE_TYPES = 12;
+
+    private final FunctionTable functionTable;
+    private final int[] baseCosts;
+    private final AtomicReferenceArray<int[]> denseCosts;
+    private final Map<Long, int[]> sparseCosts;
+
+    /**
+     * Creates a new completion bound for the given function table.
+     * 
+     * @param functionTable
+     *     - The function table of the environment.
+     */
+    CompletionBound(FunctionTable functionTable)
+    {
+        this.functionTable = functionTable;
+
+        baseCosts = calculateCosts(0L);
+
+        if (functionTable.getTypeCount() <= MAX_DENSE_TYPES)
+        {
+            denseCosts = new AtomicReferenceArray<>(1 << functionTable.getTypeCount());
+            sparseCosts = null;
+        }
+        else
+        {
+            denseCosts = null;
+            sparseCosts = new ConcurrentHashMap<>();
+        }
+    }
+
+    /**
+     * Gets the smallest number of connections needed to fill an open plug of the
+     * given data type, within a graph where no node outputs any data type.
+     * 
+     * @param typeId
+     *     - The ID of the data type.
+     * @return The cost of the data type, or {@link #UNREACHABLE} if the data type
+     *     cannot be produced from input functions.
+     */
+    public int getCost(int typeId)
+    {
+        return baseCosts[typeId];
+    }
+
+    /**
+     * Estimates the smallest number of connections which must still be added to
+     * the given graph before it becomes a solution.
+     * 
+     * @param graph
+     *     - The graph to estimate.
+     * @return The estimated number of connections, 0 if the graph has no open
+     *     plugs, or {@link #UNREACHABLE} if an open plug can never be filled.
+     */
+    public int estimateRemaining(NodeGraph graph)
+    {
+        int nodeCount = graph.getNodeCount();
+
+        long mask = 0L;
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
+        {
+            int nodeType = graph.getNodeType(nodeIndex);
+            int outputCount = functionTable.getOutputCount(nodeType);
+
+            for (int plug = 0; plug < outputCount; plug++)
+            {
+                int type = functionTable.getOutputType(nodeType, plug);
+                if (type < 64)
+                    mask |= 1L << type;
+            }
+        }
+
+        int[] costs = getCosts(mask);
+        int openPlugs = 0;
+        int highestCost = 0;
+
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
+        {
+            int nodeType = graph.getNodeType(nodeIndex);
+            int inputCount = functionTable.getInputCount(nodeType);
+
+            for (int plug = 0; plug < inputCount; plug++)
+            {
+                if (graph.isInputConnected(nodeIndex, plug))
+                    continue;
+
+                openPlugs++;
+                highestCost = Math.max(highestCost, costs[functionTable.getInputType(nodeType, plug)]);
+            }
+        }
+
+        if (openPlugs == 0)
+            return 0;
+
+        if (highestCost == UNREACHABLE)
+            return UNREACHABLE;
+
+        return openPlugs - 1 + highestCost;
+    }
+
+    /**
+     * Gets the costs of all data types within a graph where the given set of data
+     * types is output by at least one node, calculating them if they have not
+     * been cached yet.
+     */
+    private int[] getCosts(long mask)
+    {
+        if (mask == 0L)
+            return baseCosts;
+
+        if (denseCosts != null)
+        {
+            int index = (int) mask;
+            int[] costs = denseCosts.get(index);
+
+            if (costs == null)
+            {
+                costs = calculateCosts(mask);
+                denseCosts.set(index, costs);
+            }
+
+            return costs;
+        }
+
+        return sparseCosts.computeIfAbsent(mask, this::calculateCosts);
+    }
+
+    /**
+     * Calculates the costs of all data types within a graph where the given set of
+     * data types is output by at least one node.
+     */
+    private int[] calculateCosts(long mask)
+    {
+        int typeCount = functionTable.getTypeCount();
+        int[] costs = new int[typeCount];
+        Arrays.fill(costs, UNREACHABLE);
+
+        for (int type = 0; type < typeCount; type++)
+            if (type >= 64 || (mask & (1L << type)) != 0)
+                costs[type] = 1;
+
+        int functionCount = functionTable.getFunctionCount();
+        boolean changed = true;
+        while (changed)
+        {
+            changed = false;
+
+            for (int function = 0; function < functionCount; function++)
+            {
+                int cost = getFunctionCost(function, costs);
+                if (cost == UNREACHABLE)
+                    continue;
+
+                int outputCount = functionTable.getOutputCount(function);
+                for (int plug = 0; plug < outputCount; plug++)
+                {
+                    int type = functionTable.getOutputType(function, plug);
+
+                    if (cost < costs[type])
+                    {
+                        costs[type] = cost;
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        return costs;
+    }
+
+    /**
+     * Calculates the smallest number of connections needed to add a new node of
+     * the given function and connect one of its outputs, given the current costs
+     * of all data types.
+     */
+    private int getFunctionCost(int function, int[] costs)
+    {
+        int inputCount = functionTable.getInputCount(function);
+        int highestCost = 1;
+
+        for (int plug = 0; plug < inputCount; plug++)
+            highestCost = Math.max(highestCost, costs[functionTable.getInputType(function, plug)]);
+
+        if (highestCost == UNREACHABLE)
+            return UNREACHABLE;
+
+        // One connection to the new node, one for each input, and the full cost of
+        // the most expensive input instead of one
+        return inputCount == 0 ? 1 : inputCount + highestCost;
+    }
+}
@@ -1,5 +1,8 @@
 package net.whg.nghaste;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -95,19 +98,7 @@ public class DuplicateFinder
      */
     private int countOutputs(NodeGraph graph, int nodeIndex)
     {
-        int outputs = 0;
-
-        Connection connection = new Connection();
-        int connectionCount = graph.getConnectionCount();
-        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
-        {
-            graph.getConnection(connectionIndex, connection);
-
-            if (connection.getOutputNode() == nodeIndex)
-                outputs++;
-        }
-
-        return outputs;
+        return graph.getOutgoingConnectionCount(nodeIndex);
     }
 
     /**
@@ -123,16 +114,7 @@ public class DuplicateFinder
      */
     private boolean isLeafNode(NodeGraph graph, int nodeIndex)
     {
-        Connection connection = new Connection();
-        int connectionCount = graph.getConnectionCount();
-        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
-        {
-            graph.getConnection(connectionIndex, connection);
-            if (connection.getInputNode() == nodeIndex)
-                return false;
-        }
-
-        return true;
+        return graph.getIncomingConnectionCount(nodeIndex) == 0;
     }
 
     /**
@@ -154,4 +136,73 @@ public class DuplicateFinder
             return duplicates.size();
         }
     }
+
+    /**
+     * Removes all graph structures from this duplicate finder.
+     */
+    void clear()
+    {
+        synchronized (duplicates)
+        {
+            duplicates.clear();
+        }
+    }
+
+    /**
+     * Writes the state of this duplicate finder, which is every graph structure
+     * with remaining duplicates and their counters, to the given output.
+     * 
+     * @param out
+     *     - The output to write to.
+     * @throws IOException
+     *     If an IO error occurs.
+     */
+    void write(DataOutput out) throws IOException
+    {
+        synchronized (duplicates)
+        {
+            out.writeInt(duplicates.size());
+
+            for (Map.Entry<GraphHash, Integer> entry : duplicates.entrySet())
+            {
+                byte[] data = entry.getKey()
+                                   .getData();
+
+                out.writeInt(data.length);
+                out.write(data);
+                out.writeInt(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Reads a state written by {@link #write(DataOutput)} and adds it to this
+     * duplicate finder.
+     * 
+     * @param in
+     *     - The input to read from.
+     * @throws IOException
+     *     If an IO error occurs, or the state is malformed.
+     */
+    void read(DataInput in) throws IOException
+    {
+        int count = in.readInt();
+        if (count < 0)
+            throw new IOException("Invalid duplicate count: " + count);
+
+        synchronized (duplicates)
+        {
+            for (int i = 0; i < count; i++)
+            {
+                int length = in.readInt();
+                if (length < 0)
+                    throw new IOException("Invalid graph hash length: " + length);
+
+                byte[] data = new byte[length];
+                in.readFully(data);
+
+                duplicates.put(new GraphHash(data), in.readInt());
+            }
+        }
+    }
 }
@@ -17,6 +17,18 @@ public final class Environment
     private final List<IHeuristic> heuristics;
     private final List<IFunction> functions;
     private final int nDepth;
+    private final boolean persistentGraphs;
+    private final boolean compactEncoding;
+    private final boolean batchAllocation;
+    private final IPlugSelector plugSelector;
+    private final boolean adaptiveAxiomOrdering;
+    private final List<PipelineStage> pipeline;
+    private final float aStarWeight;
+    private final GraphLayout graphLayout;
+    private final FunctionTable functionTable;
+    private final StructuralConstraints structuralConstraints;
+    private final CompletionBound completionBound;
+    private final long fingerprint;
 
     /**
      * Creates a new environment object. This method creates an unmodifiable copy of
@@ -35,12 +47,34 @@ public final class Environment
      *     - The maximum depth of the search tree to use for searching for
      *     solutions. Larger values allow for more complicated solutions to be
      *     found, but use an expotentionally larger search space.
+     * @param persistentGraphs
+     *     - Whether or not node graphs should share the data of their parents
+     *     instead of copying it.
+     * @param compactEncoding
+     *     - Whether or not node graphs should be stored using the smallest number
+     *     of bits per field.
+     * @param batchAllocation
+     *     - Whether or not the children of a node graph should be allocated within
+     *     shared chunks.
+     * @param plugSelector
+     *     - The plug selector used to choose a single open plug to expand, or null
+     *     if every open plug should be expanded.
+     * @param adaptiveAxiomOrdering
+     *     - Whether or not axioms should be reordered based on their measured cost
+     *     and rejection rate.
+     * @param pipeline
+     *     - The order of the stages to run on every newly created child graph.
+     * @param aStarWeight
+     *     - The weight of the completion bound when ordering graphs for an A*
+     *     search, or 0 if graphs are only ordered by their heuristics.
      * @throws IllegalArgumentException
      *     If the functions list does not contain at least one input function and
      *     exactly one output function.
      */
     Environment(List<IFunction> functions, List<IAxiom> axioms, List<ISolutionAxiom> solutionAxioms,
-            List<IHeuristic> heuristics, int nDepth)
+            List<IHeuristic> heuristics, int nDepth, boolean persistentGraphs, boolean compactEncoding,
+            boolean batchAllocation, IPlugSelector plugSelector, boolean adaptiveAxiomOrdering,
+            List<PipelineStage> pipeline, float aStarWeight)
     {
         validateFunctions(functions);
 
@@ -49,6 +83,23 @@ public final class Environment
         this.heuristics = Collections.unmodifiableList(new ArrayList<>(heuristics));
         this.functions = Collections.unmodifiableList(new ArrayList<>(functions));
         this.nDepth = nDepth;
+        this.persistentGraphs = persistentGraphs;
+        this.compactEncoding = compactEncoding;
+        this.batchAllocation = batchAllocation;
+        this.plugSelector = plugSelector;
+        this.adaptiveAxiomOrdering = adaptiveAxiomOrdering;
+        this.pipeline = Collections.unmodifiableList(new ArrayList<>(pipeline));
+        this.aStarWeight = aStarWeight;
+
+        if (compactEncoding)
+            graphLayout = GraphLayout.compact(getMinByteCount(), functions.size(), countPlugs(), nDepth);
+        else
+            graphLayout = GraphLayout.byteAligned(getMinByteCount());
+
+        functionTable = new FunctionTable(this.functions);
+        structuralConstraints = new StructuralConstraints(functionTable, this.axioms);
+        completionBound = new CompletionBound(functionTable);
+        fingerprint = calculateFingerprint();
     }
 
     private void validateFunctions(List<IFunction> functions)
@@ -113,7 +164,7 @@ public final class Environment
      * "numSize" parameter.
      * <p>
      * The values considered at the number of functions, the number of input or
-     * output plugs on each function, and the nDepth.
+     * output plugs on each function, and the number of nodes in a graph at nDepth.
      * 
      * @return 1, 2, or 4, representing a byte, short, and int respectively.
      */
@@ -123,7 +174,7 @@ public final class Environment
 
         max = Math.max(max, functions.size());
         max = Math.max(max, countPlugs());
-        max = Math.max(max, nDepth);
+        max = Math.max(max, nDepth + 1);
 
         return countBytes(max);
     }
@@ -182,6 +233,302 @@ public final class Environment
         return nDepth;
     }
 
+    /**
+     * Checks whether node graphs within this environment are persistent. Persistent
+     * node graphs keep a reference to their parent graph and only store the
+     * changes made to it, rather than a full copy of the parent's data.
+     * 
+     * @return True if node graphs share the data of their parents, false if each
+     *     node graph stores a full copy.
+     */
+    public boolean isPersistentGraphs()
+    {
+        return persistentGraphs;
+    }
+
+    /**
+     * Checks whether node graphs within this environment use the compact, bit-packed
+     * encoding.
+     * 
+     * @return True if each field of a node graph uses the smallest number of bits
+     *     possible, false if every field uses the same number of bytes.
+     */
+    public boolean isCompactEncoding()
+    {
+        return compactEncoding;
+    }
+
+    /**
+     * Checks whether the children of a node graph are allocated within shared
+     * chunks when the graph is expanded. This setting does not affect how graphs
+     * are encoded, and is not part of the fingerprint of this environment.
+     * 
+     * @return True if child graphs are views into shared chunks, false if each
+     *     child graph allocates its own byte array.
+     */
+    public boolean isBatchAllocation()
+    {
+        return batchAllocation;
+    }
+
+    /**
+     * Gets the plug selector used by this environment. If a plug selector is used,
+     * each node graph is only expanded along the open plug chosen by the selector.
+     * As each graph can then only be built in a single order, the search tree does
+     * not need to check for duplicate graphs. This setting does not affect how
+     * graphs are encoded, and is not part of the fingerprint of this environment.
+     * 
+     * @return The plug selector, or null if every open plug of a node graph is
+     *     expanded.
+     */
+    public IPlugSelector getPlugSelector()
+    {
+        return plugSelector;
+    }
+
+    /**
+     * Checks whether the order in which axioms are checked adapts to their measured
+     * cost and rejection rate. This setting does not affect which graphs are
+     * valid, and is not part of the fingerprint of this environment.
+     * 
+     * @return True if axioms are reordered while searching, false if axioms are
+     *     always checked in the order of {@link #getAxioms()}.
+     * @see AxiomScheduler
+     */
+    public boolean isAdaptiveAxiomOrdering()
+    {
+        return adaptiveAxiomOrdering;
+    }
+
+    /**
+     * Gets the order of the stages which the search tree runs on every newly
+     * created child graph. This setting does not affect which solutions are found,
+     * and is not part of the fingerprint of this environment.
+     * 
+     * @return An unmodifiable list of every pipeline stage, in the order they are
+     *     run.
+     */
+    public List<PipelineStage> getPipeline()
+    {
+        return pipeline;
+    }
+
+    /**
+     * Gets the weight of the completion bound when ordering graphs for an A*
+     * search. This setting does not affect which solutions are found, and is not
+     * part of the fingerprint of this environment.
+     * 
+     * @return The weight, or 0 if graphs are only ordered by their heuristics.
+     */
+    public float getAStarWeight()
+    {
+        return aStarWeight;
+    }
+
+    /**
+     * Checks whether graphs are ordered for an A* search.
+     * 
+     * @return True if the A* weight is positive, false otherwise.
+     */
+    public boolean isAStarSearch()
+    {
+        return aStarWeight > 0f;
+    }
+
+    /**
+     * Calculates the A* search cost of a graph, being the number of connections
+     * of the graph plus the weighted estimate of the remaining connections.
+     * 
+     * @param connectionCount
+     *     - The number of connections within the graph.
+     * @param remaining
+     *     - The estimate of the completion bound for the graph.
+     * @return The search cost.
+     */
+    float calculateSearchCost(int connectionCount, int remaining)
+    {
+        return connectionCount + aStarWeight * remaining;
+    }
+
+    /**
+     * Gets the fingerprint of this environment. The fingerprint is a 64 bit hash
+     * of all properties of this environment which affect how node graphs are
+     * stored and validated. This includes the order of all functions and their
+     * data types, the maximum depth, the encoding of graphs, and the axiom and
+     * solution axiom set, including the parameters of each axiom as given by
+     * {@link IAxiom#getFingerprint(FunctionTable)}. Heuristics are not included,
+     * as they do not affect the meaning of a graph.
+     * <p>
+     * The fingerprint is stable between runs of the same program, as long as the
+     * hash codes of data types and the fingerprints of axioms are, and can be used
+     * to check whether a serialized graph is being loaded into the same
+     * environment that it was created in.
+     * 
+     * @return The fingerprint of this environment.
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * Calculates the fingerprint of this environment using the FNV-1a hash. Data
+     * types are identified by their ID within the function table, so data types
+     * which are equal to each other are considered the same type, and data types
+     * which are not are identified by the order in which they first appear within
+     * the function list. Data types which override {@link Object#hashCode()} also
+     * include their hash code, so types of the same class with different values
+     * are told apart. Axioms include their class and the value returned by their
+     * fingerprint method.
+     * 
+     * @return The fingerprint.
+     */
+    private long calculateFingerprint()
+    {
+        Fingerprint hash = new Fingerprint();
+
+        hash.add(functions.size());
+        for (int function = 0; function < functions.size(); function++)
+        {
+            hash.add(functions.get(function)
+                              .getClass());
+
+            hash.add(functionTable.getInputCount(function));
+            for (int plug = 0; plug < functionTable.getInputCount(function); plug++)
+                hash.add(functionTable.getInputType(function, plug));
+
+            hash.add(functionTable.getOutputCount(function));
+            for (int plug = 0; plug < functionTable.getOutputCount(function); plug++)
+                hash.add(functionTable.getOutputType(function, plug));
+        }
+
+        hash.add(functionTable.getTypeCount());
+        for (int type = 0; type < functionTable.getTypeCount(); type++)
+        {
+            IDataType dataType = functionTable.getType(type);
+            hash.add(dataType.getClass());
+            hash.add(valueHashCode(dataType));
+        }
+
+        hash.add(nDepth);
+        hash.add(compactEncoding ? 1 : 0);
+
+        hash.add(axioms.size());
+        for (IAxiom axiom : axioms)
+        {
+            hash.add(axiom.getClass());
+            hash.add(axiom.getFingerprint(functionTable));
+        }
+
+        hash.add(solutionAxioms.size());
+        for (ISolutionAxiom axiom : solutionAxioms)
+        {
+            hash.add(axiom.getClass());
+            hash.add(axiom.getFingerprint(functionTable));
+        }
+
+        return hash.value;
+    }
+
+    /**
+     * Gets the hash code of an object if its class overrides
+     * {@link Object#hashCode()}, or 0 if it uses the identity hash code, which
+     * changes between runs of the same program.
+     * 
+     * @param obj
+     *     - The object.
+     * @return The hash code of the value of the object, or 0.
+     */
+    static int valueHashCode(Object obj)
+    {
+        try
+        {
+            if (obj.getClass()
+                   .getMethod("hashCode")
+                   .getDeclaringClass() == Object.class)
+                return 0;
+        }
+        catch (NoSuchMethodException e)
+        {
+            return 0;
+        }
+
+        return obj.hashCode();
+    }
+
+    /**
+     * A small FNV-1a hash builder used for calculating environment fingerprints.
+     */
+    private static class Fingerprint
+    {
+        private long value = 0xCBF29CE484222325L;
+
+        void add(int n)
+        {
+            for (int i = 0; i < 4; i++)
+            {
+                value ^= (n >>> (i * 8)) & 0xFF;
+                value *= 0x100000001B3L;
+            }
+        }
+
+        void add(Class<?> type)
+        {
+            // Lambda class names contain a number which changes between runs
+            String name = type.getName();
+            int lambda = name.indexOf("$$Lambda");
+            if (lambda != -1)
+                name = name.substring(0, lambda);
+
+            add(name.length());
+            for (int i = 0; i < name.length(); i++)
+                add(name.charAt(i));
+        }
+    }
+
+    /**
+     * Gets the layout used for storing node graphs within this environment.
+     * 
+     * @return The graph layout.
+     */
+    GraphLayout getGraphLayout()
+    {
+        return graphLayout;
+    }
+
+    /**
+     * Gets the compiled function table of this environment, which describes the
+     * plugs of every function using interned data type IDs.
+     * 
+     * @return The function table.
+     */
+    public FunctionTable getFunctionTable()
+    {
+        return functionTable;
+    }
+
+    /**
+     * Gets the structural constraints declared by the structural axioms of this
+     * environment.
+     * 
+     * @return The structural constraints.
+     */
+    public StructuralConstraints getStructuralConstraints()
+    {
+        return structuralConstraints;
+    }
+
+    /**
+     * Gets the completion bound of this environment, which estimates the smallest
+     * number of connections needed to turn a graph into a solution.
+     * 
+     * @return The completion bound.
+     */
+    public CompletionBound getCompletionBound()
+    {
+        return completionBound;
+    }
+
     /**
      * Gets an unmodifiable list of all axioms present in this environment.
      * 
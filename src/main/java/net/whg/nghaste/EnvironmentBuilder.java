@@ -1,7 +1,10 @@
 package net.whg.nghaste;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * This class is used to build an environment object with the given settings. As
@@ -15,6 +18,13 @@ public class EnvironmentBuilder
     private final List<ISolutionAxiom> solutionAxioms = new ArrayList<>();
     private final List<IHeuristic> heuristics = new ArrayList<>();
     private int depth = 20;
+    private boolean persistentGraphs;
+    private boolean compactEncoding;
+    private boolean batchAllocation;
+    private IPlugSelector plugSelector;
+    private boolean adaptiveAxiomOrdering;
+    private List<PipelineStage> pipeline = Arrays.asList(PipelineStage.values());
+    private float aStarWeight;
 
     /**
      * Sets the maximum depth to use when transversing the search tree. In a graph,
@@ -38,6 +48,181 @@ public class EnvironmentBuilder
         return this;
     }
 
+    /**
+     * Sets whether or not node graphs created within this environment should be
+     * persistent. A persistent node graph does not copy the data of its parent
+     * when a connection is added, but instead keeps a reference to the parent
+     * graph and stores only the newly added connection and node. This greatly
+     * reduces the amount of memory used by large search frontiers, at the cost of
+     * slightly slower reads.
+     * 
+     * @param persistentGraphs
+     *     - True if node graphs should share the data of their parents. Defaults to
+     *     false.
+     * @return This object for chaining.
+     */
+    public EnvironmentBuilder setPersistentGraphs(boolean persistentGraphs)
+    {
+        this.persistentGraphs = persistentGraphs;
+
+        return this;
+    }
+
+    /**
+     * Sets whether or not node graphs created within this environment should use a
+     * compact encoding. By default, every value within a node graph is stored using
+     * the same number of whole bytes. When the compact encoding is used, each field
+     * of the node graph, such as node types or plug indices, is stored using the
+     * smallest number of bits required to represent that field within this
+     * environment.
+     * 
+     * @param compactEncoding
+     *     - True if node graphs should be bit-packed. Defaults to false.
+     * @return This object for chaining.
+     */
+    public EnvironmentBuilder setCompactEncoding(boolean compactEncoding)
+    {
+        this.compactEncoding = compactEncoding;
+
+        return this;
+    }
+
+    /**
+     * Sets whether or not the children of a node graph should be allocated in
+     * batches. When enabled, every child created while expanding a node graph is
+     * written into a shared chunk of memory, rather than allocating a byte array
+     * of its own, and children which are rejected by the search tree hand their
+     * memory back for the next child to reuse. This reduces the number of small
+     * allocations made by the workers, at the cost of chunks being kept in memory
+     * for as long as any graph within them is still in use.
+     * 
+     * @param batchAllocation
+     *     - True if child graphs should be allocated in batches. Defaults to false.
+     * @return This object for chaining.
+     */
+    public EnvironmentBuilder setBatchAllocation(boolean batchAllocation)
+    {
+        this.batchAllocation = batchAllocation;
+
+        return this;
+    }
+
+    /**
+     * Sets the plug selector to use when expanding node graphs. By default, every
+     * open input plug of a node graph is expanded, meaning the same graph is found
+     * once for every order in which its plugs can be filled, and duplicate graphs
+     * must be removed afterwards. When a plug selector is set, only the single open
+     * plug chosen by the selector is expanded. Every graph can still be reached,
+     * but only through a single order, so the duplicate check is skipped and far
+     * fewer graphs are generated.
+     * 
+     * @param plugSelector
+     *     - The plug selector to use, or null to expand every open plug. Defaults to
+     *     null.
+     * @return This object for chaining.
+     * @see net.whg.nghaste.util.LowestIndexPlugSelector
+     * @see net.whg.nghaste.util.FewestProducersPlugSelector
+     */
+    public EnvironmentBuilder setPlugSelector(IPlugSelector plugSelector)
+    {
+        this.plugSelector = plugSelector;
+
+        return this;
+    }
+
+    /**
+     * Sets whether or not the order in which axioms are checked should adapt to
+     * the search. By default, axioms are checked in the order they were added to
+     * this builder. When enabled, the workers sample how long each axiom takes to
+     * run and how often it rejects a graph, and periodically reorder the axioms so
+     * the axioms which reject the most graphs per nanosecond are checked first.
+     * The order does not affect which graphs are considered valid.
+     * 
+     * @param adaptiveAxiomOrdering
+     *     - True if axioms should be reordered based on their measured cost and
+     *     rejection rate. Defaults to false.
+     * @return This object for chaining.
+     * @see AxiomScheduler
+     */
+    public EnvironmentBuilder setAdaptiveAxiomOrdering(boolean adaptiveAxiomOrdering)
+    {
+        this.adaptiveAxiomOrdering = adaptiveAxiomOrdering;
+
+        return this;
+    }
+
+    /**
+     * Sets the order of the stages which the search tree runs on every newly
+     * created child graph. A child is rejected by the first stage it fails, so
+     * running cheap stages which reject many graphs first reduces the time spent
+     * on each child. For example, running the axioms before the duplicate check
+     * avoids hashing graphs which the axioms would reject.
+     * 
+     * @param stages
+     *     - The stages, in the order they should be run. Every stage must be given
+     *     exactly once. Defaults to {@link PipelineStage#DEPTH},
+     *     {@link PipelineStage#DUPLICATES}, {@link PipelineStage#AXIOMS},
+     *     {@link PipelineStage#SOLUTION_AXIOMS}.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If a stage is null, missing, or given more than once.
+     * @see PipelineMetrics
+     */
+    public EnvironmentBuilder setPipeline(PipelineStage... stages)
+    {
+        Set<PipelineStage> seen = EnumSet.noneOf(PipelineStage.class);
+
+        for (PipelineStage stage : stages)
+        {
+            if (stage == null)
+                throw new IllegalArgumentException("Pipeline stage cannot be null!");
+
+            if (!seen.add(stage))
+                throw new IllegalArgumentException("Pipeline stage given more than once: " + stage);
+        }
+
+        if (seen.size() != PipelineStage.values().length)
+            throw new IllegalArgumentException("Pipeline must contain every stage!");
+
+        pipeline = Arrays.asList(stages.clone());
+
+        return this;
+    }
+
+    /**
+     * Enables or disables an A* search. By default, node graphs are only ordered
+     * by the sum of their heuristics. When the weight is positive, node graphs are
+     * instead ordered by their number of connections plus the weight times the
+     * completion bound of the graph, and the sum of their heuristics is only used
+     * to break ties. Solutions are added to the frontier like any other graph, and
+     * are only reported once polled.
+     * <p>
+     * As the completion bound never overestimates the remaining number of
+     * connections, a weight of 1 guarantees that solutions are found in order of
+     * size when searching with a single worker. Larger weights search deeper
+     * graphs sooner, and find solutions which are at most weight times larger
+     * than the smallest remaining solution. This requires a frontier which orders
+     * graphs using {@link NodeGraph#compareTo(NodeGraph)}, such as the
+     * {@link PriorityFrontier}.
+     * 
+     * @param aStarWeight
+     *     - The weight of the completion bound, or 0 to disable the A* search.
+     *     Defaults to 0.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If the weight is negative, infinite, or NaN.
+     * @see CompletionBound
+     */
+    public EnvironmentBuilder setAStarWeight(float aStarWeight)
+    {
+        if (!(aStarWeight >= 0f) || Float.isInfinite(aStarWeight))
+            throw new IllegalArgumentException("A* weight must be a finite value >= 0!");
+
+        this.aStarWeight = aStarWeight;
+
+        return this;
+    }
+
     /**
      * Adds an axiom to validate newly discovered graphs. This method does not
      * validate graphs which have already been discovered and are pending
@@ -184,6 +369,8 @@ public class EnvironmentBuilder
      */
     public Environment build()
     {
-        return new Environment(functions, axioms, solutionAxioms, heuristics, depth);
+        return new Environment(functions, axioms, solutionAxioms, heuristics, depth, persistentGraphs,
+                compactEncoding, batchAllocation, plugSelector, adaptiveAxiomOrdering, pipeline,
+                aStarWeight);
     }
 }
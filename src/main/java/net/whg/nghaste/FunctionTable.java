@@ -0,0 +1,281 @@
+package net.whg.nghaste;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A function table is a compiled, read-only view of the functions within an
+ * environment. Every data type used by the functions is interned to a dense
+ * integer ID, where two data types share the same ID if they are equal to each
+ * other. The input and output plugs of every function are then stored as flat
+ * arrays of type IDs, so that the search tree can compare plug types and look
+ * up plug counts without calling {@link Object#equals(Object)} or walking the
+ * function list.
+ * <p>
+ * The table also contains a list of producers for each data type, being every
+ * function output plug which returns that type. Producers are sorted by
+ * function index, then by output plug index.
+ * <p>
+ * This class is immutable.
+ */
+public final class FunctionTable
+{
+    private final IDataType[] types;
+    private final Map<IDataType, Integer> typeIds;
+    private final int[][] inputTypes;
+    private final int[][] outputTypes;
+    private final boolean[] inputFunctions;
+    private final boolean[] outputFunctions;
+    private final int[][] producerFunctions;
+    private final int[][] producerPlugs;
+
+    /**
+     * Compiles a new function table for the given list of functions.
+     * 
+     * @param functions
+     *     - The functions of the environment, in order.
+     */
+    FunctionTable(List<IFunction> functions)
+    {
+        List<IDataType> typeList = new ArrayList<>();
+        typeIds = new HashMap<>();
+
+        int functionCount = functions.size();
+        inputTypes = new int[functionCount][];
+        outputTypes = new int[functionCount][];
+        inputFunctions = new boolean[functionCount];
+        outputFunctions = new boolean[functionCount];
+
+        for (int i = 0; i < functionCount; i++)
+        {
+            IFunction function = functions.get(i);
+            inputTypes[i] = intern(function.getInputs(), typeList);
+            outputTypes[i] = intern(function.getOutputs(), typeList);
+            inputFunctions[i] = function instanceof InputFunction;
+            outputFunctions[i] = function instanceof OutputFunction;
+        }
+
+        types = typeList.toArray(new IDataType[typeList.size()]);
+
+        int[] producerCounts = new int[types.length];
+        for (int[] outputs : outputTypes)
+            for (int type : outputs)
+                producerCounts[type]++;
+
+        producerFunctions = new int[types.length][];
+        producerPlugs = new int[types.length][];
+        for (int type = 0; type < types.length; type++)
+        {
+            producerFunctions[type] = new int[producerCounts[type]];
+            producerPlugs[type] = new int[producerCounts[type]];
+            producerCounts[type] = 0;
+        }
+
+        for (int function = 0; function < functionCount; function++)
+        {
+            for (int plug = 0; plug < outputTypes[function].length; plug++)
+            {
+                int type = outputTypes[function][plug];
+                int index = producerCounts[type]++;
+
+                producerFunctions[type][index] = function;
+                producerPlugs[type][index] = plug;
+            }
+        }
+    }
+
+    /**
+     * Converts an array of data types into an array of type IDs, assigning new IDs
+     * to data types which have not been seen yet.
+     */
+    private int[] intern(IDataType[] plugs, List<IDataType> typeList)
+    {
+        int[] ids = new int[plugs.length];
+
+        for (int i = 0; i < plugs.length; i++)
+        {
+            Integer id = typeIds.get(plugs[i]);
+            if (id == null)
+            {
+                id = typeList.size();
+                typeIds.put(plugs[i], id);
+                typeList.add(plugs[i]);
+            }
+
+            ids[i] = id;
+        }
+
+        return ids;
+    }
+
+    /**
+     * Gets the number of distinct data types used by the functions within this
+     * table.
+     * 
+     * @return The number of data types.
+     */
+    public int getTypeCount()
+    {
+        return types.length;
+    }
+
+    /**
+     * Gets the ID of the given data type.
+     * 
+     * @param type
+     *     - The data type.
+     * @return The ID of the data type, or -1 if no function uses a data type which
+     *     is equal to the given data type.
+     */
+    public int getTypeId(IDataType type)
+    {
+        Integer id = typeIds.get(type);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Gets the data type with the given ID. If multiple data type instances are
+     * equal to each other, the first instance which appeared within the function
+     * list is returned.
+     * 
+     * @param typeId
+     *     - The ID of the data type.
+     * @return The data type.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the type ID is not a valid ID within this table.
+     */
+    public IDataType getType(int typeId)
+    {
+        return types[typeId];
+    }
+
+    /**
+     * Gets the number of functions within this table.
+     * 
+     * @return The number of functions.
+     */
+    public int getFunctionCount()
+    {
+        return inputTypes.length;
+    }
+
+    /**
+     * Gets the number of input plugs on the given function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @return The number of input plugs.
+     */
+    public int getInputCount(int function)
+    {
+        return inputTypes[function].length;
+    }
+
+    /**
+     * Gets the number of output plugs on the given function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @return The number of output plugs.
+     */
+    public int getOutputCount(int function)
+    {
+        return outputTypes[function].length;
+    }
+
+    /**
+     * Gets the type ID of an input plug.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @param plug
+     *     - The index of the input plug.
+     * @return The type ID of the plug.
+     */
+    public int getInputType(int function, int plug)
+    {
+        return inputTypes[function][plug];
+    }
+
+    /**
+     * Gets the type ID of an output plug.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @param plug
+     *     - The index of the output plug.
+     * @return The type ID of the plug.
+     */
+    public int getOutputType(int function, int plug)
+    {
+        return outputTypes[function][plug];
+    }
+
+    /**
+     * Checks whether the given function is an input function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @return True if the function is an instance of {@link InputFunction}.
+     */
+    public boolean isInputFunction(int function)
+    {
+        return inputFunctions[function];
+    }
+
+    /**
+     * Checks whether the given function is the output function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @return True if the function is an instance of {@link OutputFunction}.
+     */
+    public boolean isOutputFunction(int function)
+    {
+        return outputFunctions[function];
+    }
+
+    /**
+     * Gets the number of function output plugs which return the given data type.
+     * 
+     * @param typeId
+     *     - The type ID.
+     * @return The number of producers for the type.
+     */
+    public int getProducerCount(int typeId)
+    {
+        return producerFunctions[typeId].length;
+    }
+
+    /**
+     * Gets the function index of a producer of the given data type.
+     * 
+     * @param typeId
+     *     - The type ID.
+     * @param producer
+     *     - The index of the producer, between 0 and
+     *     {@link #getProducerCount(int)}.
+     * @return The index of the function.
+     */
+    public int getProducerFunction(int typeId, int producer)
+    {
+        return producerFunctions[typeId][producer];
+    }
+
+    /**
+     * Gets the output plug index of a producer of the given data type.
+     * 
+     * @param typeId
+     *     - The type ID.
+     * @param producer
+     *     - The index of the producer, between 0 and
+     *     {@link #getProducerCount(int)}.
+     * @return The index of the output plug on the producer function.
+     */
+    public int getProducerPlug(int typeId, int producer)
+    {
+        return producerPlugs[typeId][producer];
+    }
+}
@@ -0,0 +1,111 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+
+/**
+ * A graph allocator hands out ranges of a shared byte array to newly created
+ * node graphs. Instead of each child graph of an expansion allocating its own
+ * small byte array, the children are written next to each other within a
+ * larger chunk, and each child only stores its offset and length within that
+ * chunk. Once a chunk is full, a new chunk is started, and the old chunk is
+ * kept alive by the graphs which still point into it.
+ * <p>
+ * Children which are rejected right after being created may be handed back to
+ * the allocator, in which case their range is reused by the next child. Since
+ * the index of a child is only derived once it is used, rejected children,
+ * which make up most of the children of an expansion, only leave their graph
+ * object behind, and not a copy of their data.
+ * <p>
+ * This class is not thread safe. Each search tree uses its own allocator.
+ */
+class GraphAllocator
+{
+    /**
+     * The default number of bytes within each chunk.
+     */
+    static final int DEFAULT_CHUNK_SIZE = 4096;
+
+    private final int chunkSize;
+    private byte[] chunk;
+    private int position;
+
+    /**
+     * Creates a new graph allocator using the default chunk size.
+     */
+    GraphAllocator()
+    {
+        this(DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a new graph allocator.
+     * 
+     * @param chunkSize
+     *     - The number of bytes within each chunk. Graphs which are larger than a
+     *     chunk are given a chunk of their own.
+     * @throws IllegalArgumentException
+     *     If the chunk size is <= 0.
+     */
+    GraphAllocator(int chunkSize)
+    {
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException("Chunk size must be > 0!");
+
+        this.chunkSize = chunkSize;
+        chunk = new byte[chunkSize];
+    }
+
+    /**
+     * Reserves a range of the given length. The range is taken from the chunk
+     * returned by {@link #getChunk()} directly after this call, and is filled with
+     * zeros.
+     * 
+     * @param length
+     *     - The number of bytes to reserve.
+     * @return The offset of the reserved range within the current chunk.
+     */
+    int allocate(int length)
+    {
+        if (position + length > chunk.length)
+        {
+            chunk = new byte[Math.max(chunkSize, length)];
+            position = 0;
+        }
+
+        int offset = position;
+        position += length;
+
+        return offset;
+    }
+
+    /**
+     * Gets the chunk which ranges are currently being reserved from.
+     * 
+     * @return The current chunk.
+     */
+    byte[] getChunk()
+    {
+        return chunk;
+    }
+
+    /**
+     * Hands a range back to this allocator. The range is only reused if it is the
+     * most recently reserved range of the current chunk. Otherwise, this method
+     * does nothing.
+     * 
+     * @param data
+     *     - The chunk the range was taken from.
+     * @param offset
+     *     - The offset of the range.
+     * @param length
+     *     - The length of the range.
+     */
+    void free(byte[] data, int offset, int length)
+    {
+        if (data != chunk || offset + length != position)
+            return;
+
+        Arrays.fill(chunk, offset, position, (byte) 0);
+        position = offset;
+    }
+}
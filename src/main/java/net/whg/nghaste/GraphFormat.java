@@ -0,0 +1,243 @@
+package net.whg.nghaste;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+/**
+ * The graph format describes the binary format used for storing node graphs
+ * outside of memory. A stream of graphs begins with a header containing a magic
+ * number, the format version, and the fingerprint of the environment the graphs
+ * belong to. This is followed by any number of graph records, where each record
+ * contains the heuristic score of the graph, the length of the graph data as a
+ * variable length integer, and the flat graph data itself, as laid out by the
+ * environment.
+ * <p>
+ * All values are written in big endian byte order. This class only contains the
+ * methods for reading and writing to byte buffers. See {@link GraphWriter} and
+ * {@link GraphReader} for working with channels.
+ */
+public final class GraphFormat
+{
+    /**
+     * The magic number at the start of every graph stream. This is the string
+     * "NGHG" in ASCII.
+     */
+    public static final int MAGIC = 0x4E474847;
+
+    /**
+     * The current version of the graph format.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The number of bytes in the header of a graph stream.
+     */
+    public static final int HEADER_LENGTH = 16;
+
+    private GraphFormat()
+    {}
+
+    /**
+     * Writes the header of a graph stream to the given buffer.
+     * 
+     * @param buffer
+     *     - The buffer to write to.
+     * @param environment
+     *     - The environment the graphs within the stream belong to.
+     */
+    public static void writeHeader(ByteBuffer buffer, Environment environment)
+    {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(environment.getFingerprint());
+    }
+
+    /**
+     * Reads the header of a graph stream from the given buffer, and validates it
+     * against the given environment.
+     * 
+     * @param buffer
+     *     - The buffer to read from.
+     * @param environment
+     *     - The environment the graphs are being loaded into.
+     * @throws IOException
+     *     If the header is not a valid graph stream header, the format version is
+     *     not supported, or the graphs were written using a different environment.
+     */
+    public static void readHeader(ByteBuffer buffer, Environment environment) throws IOException
+    {
+        if (buffer.remaining() < HEADER_LENGTH)
+            throw new IOException("Graph stream header is incomplete!");
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a graph stream!");
+
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("Unsupported graph format version: " + version);
+
+        long fingerprint = buffer.getLong();
+        if (fingerprint != environment.getFingerprint())
+            throw new IOException("Graphs were written by a different environment! Expected fingerprint "
+                    + Long.toHexString(environment.getFingerprint()) + ", found " + Long.toHexString(fingerprint));
+    }
+
+    /**
+     * Gets the number of bytes which would be used to write the given graph using
+     * {@link #writeGraph(ByteBuffer, NodeGraph)}.
+     * 
+     * @param graph
+     *     - The graph.
+     * @return The length of the graph record, in bytes.
+     */
+    public static int getRecordLength(NodeGraph graph)
+    {
+        int length = graph.getEncodedLength() - 4;
+        return 4 + varIntLength(length) + length;
+    }
+
+    /**
+     * Gets the length of the graph record at the current position of the given
+     * buffer, without moving the position of the buffer.
+     * 
+     * @param buffer
+     *     - The buffer containing the start of a graph record.
+     * @return The length of the graph record, in bytes, or -1 if the buffer does
+     *     not contain enough bytes to determine the length.
+     */
+    public static int peekRecordLength(ByteBuffer buffer)
+    {
+        int position = buffer.position() + 4;
+        int value = 0;
+
+        for (int shift = 0; shift < 35 && position < buffer.limit(); shift += 7)
+        {
+            byte b = buffer.get(position++);
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return position - buffer.position() + value;
+        }
+
+        return -1;
+    }
+
+    /**
+     * Writes a single graph record to the given buffer. If the graph is not
+     * persistent, the data of the graph is copied into the buffer directly without
+     * any intermediate copies.
+     * 
+     * @param buffer
+     *     - The buffer to write to.
+     * @param graph
+     *     - The graph to write.
+     */
+    public static void writeGraph(ByteBuffer buffer, NodeGraph graph)
+    {
+        buffer.putFloat(graph.getHeuristicScore());
+        writeVarInt(buffer, graph.getEncodedLength() - 4);
+        graph.writeFlatData(buffer);
+    }
+
+    /**
+     * Reads a single graph record from the given buffer. The graph data is copied
+     * from the buffer directly into the new graph.
+     * 
+     * @param buffer
+     *     - The buffer to read from.
+     * @param environment
+     *     - The environment the graph belongs to. This should be validated against
+     *     the stream header first.
+     * @return The node graph.
+     * @throws IOException
+     *     If the buffer does not contain a complete graph record, or the record is
+     *     malformed.
+     */
+    public static NodeGraph readGraph(ByteBuffer buffer, Environment environment) throws IOException
+    {
+        try
+        {
+            float heuristic = buffer.getFloat();
+            int length = readVarInt(buffer);
+
+            if (length <= 0 || length > buffer.remaining())
+                throw new IOException("Graph record is truncated!");
+
+            GraphLayout layout = environment.getGraphLayout();
+            if (length < (layout.getHeaderBits() + 7) >>> 3)
+                throw new IOException("Graph record is too short!");
+
+            byte[] data = new byte[length];
+            buffer.get(data);
+
+            int nodeCount = GraphLayout.read(data, 0, layout.getNodeCountBits());
+            int connCount = GraphLayout.read(data, layout.getNodeCountBits(), layout.getConnectionCountBits());
+
+            if (layout.getByteLength(nodeCount, connCount) != length)
+                throw new IOException("Graph record length does not match its contents!");
+
+            NodeGraph graph = NodeGraph.fromFlatData(environment, data, heuristic);
+
+            // The search cost is not stored, as it only depends on the graph
+            if (environment.isAStarSearch())
+                graph.setSearchCost(environment.calculateSearchCost(graph.getConnectionCount(),
+                        environment.getCompletionBound()
+                                   .estimateRemaining(graph)));
+
+            return graph;
+        }
+        catch (BufferUnderflowException e)
+        {
+            throw new IOException("Graph record is truncated!", e);
+        }
+    }
+
+    /**
+     * Gets the number of bytes used to write the given value as a variable length
+     * integer.
+     */
+    private static int varIntLength(int value)
+    {
+        int length = 1;
+
+        while ((value >>>= 7) != 0)
+            length++;
+
+        return length;
+    }
+
+    /**
+     * Writes an unsigned value as a variable length integer, using 7 bits per byte
+     * with the highest bit marking that more bytes follow.
+     */
+    private static void writeVarInt(ByteBuffer buffer, int value)
+    {
+        while ((value & ~0x7F) != 0)
+        {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Reads an unsigned variable length integer.
+     */
+    private static int readVarInt(ByteBuffer buffer) throws IOException
+    {
+        int value = 0;
+
+        for (int shift = 0; shift < 35; shift += 7)
+        {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0)
+                return value;
+        }
+
+        throw new IOException("Variable length integer is too long!");
+    }
+}
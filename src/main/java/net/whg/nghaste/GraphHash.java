@@ -28,6 +28,16 @@ public class GraphHash
         this.data = data;
     }
 
+    /**
+     * Gets the byte array backing this hash. This array must not be modified.
+     * 
+     * @return The byte array representing the data.
+     */
+    byte[] getData()
+    {
+        return data;
+    }
+
     @Override
     public boolean equals(Object o)
     {
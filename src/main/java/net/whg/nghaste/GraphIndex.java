@@ -0,0 +1,242 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+
+/**
+ * The graph index is a small lookup table which is derived from a node graph to
+ * answer questions about plug usage in constant time. It stores which input
+ * plugs are currently occupied, as a bitset, and the number of connections
+ * leaving each output plug, as well as the number of connections entering and
+ * leaving each node.
+ * <p>
+ * An index can either be built from scratch by scanning all connections of a
+ * graph, or derived from the index of a parent graph by applying the single
+ * connection, and optional node, which was added to the child.
+ * <p>
+ * This class is immutable.
+ */
+final class GraphIndex
+{
+    /**
+     * Builds a new index by scanning all of the connections within the given graph.
+     * 
+     * @param graph
+     *     - The graph to index.
+     * @return The newly created index.
+     */
+    static GraphIndex build(NodeGraph graph)
+    {
+        FunctionTable table = graph.getEnvironment()
+                                   .getFunctionTable();
+        int nodeCount = graph.getNodeCount();
+
+        int[] inputOffsets = new int[nodeCount + 1];
+        int[] outputOffsets = new int[nodeCount + 1];
+        for (int i = 0; i < nodeCount; i++)
+        {
+            int function = graph.getNodeType(i);
+
+            inputOffsets[i + 1] = inputOffsets[i] + table.getInputCount(function);
+            outputOffsets[i + 1] = outputOffsets[i] + table.getOutputCount(function);
+        }
+
+        GraphIndex index = new GraphIndex(inputOffsets, new long[words(inputOffsets[nodeCount])],
+                outputOffsets, new int[outputOffsets[nodeCount]], new int[nodeCount], new int[nodeCount]);
+
+        Connection connection = new Connection();
+        int connectionCount = graph.getConnectionCount();
+        for (int i = 0; i < connectionCount; i++)
+        {
+            graph.getConnection(i, connection);
+            index.apply(connection.getOutputNode(), connection.getOutputPlug(), connection.getInputNode(),
+                    connection.getInputPlug());
+        }
+
+        return index;
+    }
+
+    /**
+     * Gets the number of longs required to store a bitset of the given size.
+     */
+    private static int words(int bits)
+    {
+        return (bits + 63) >>> 6;
+    }
+
+    private final int[] inputOffsets;
+    private final long[] inputOccupied;
+    private final int[] outputOffsets;
+    private final int[] fanOut;
+    private final int[] incoming;
+    private final int[] outgoing;
+
+    private GraphIndex(int[] inputOffsets, long[] inputOccupied, int[] outputOffsets, int[] fanOut, int[] incoming,
+            int[] outgoing)
+    {
+        this.inputOffsets = inputOffsets;
+        this.inputOccupied = inputOccupied;
+        this.outputOffsets = outputOffsets;
+        this.fanOut = fanOut;
+        this.incoming = incoming;
+        this.outgoing = outgoing;
+    }
+
+    /**
+     * Records a connection within the arrays of this index. This is only used
+     * while the index is being created.
+     */
+    private void apply(int outputNode, int outputPlug, int inputNode, int inputPlug)
+    {
+        int input = inputOffsets[inputNode] + inputPlug;
+        inputOccupied[input >>> 6] |= 1L << input;
+
+        fanOut[outputOffsets[outputNode] + outputPlug]++;
+        outgoing[outputNode]++;
+        incoming[inputNode]++;
+    }
+
+    /**
+     * Creates the index for a child graph which adds a single connection between
+     * two existing nodes.
+     * 
+     * @param outputNode
+     *     - The output node of the new connection.
+     * @param outputPlug
+     *     - The output plug of the new connection.
+     * @param inputNode
+     *     - The input node of the new connection.
+     * @param inputPlug
+     *     - The input plug of the new connection.
+     * @return The index for the child graph.
+     */
+    GraphIndex deriveConnection(int outputNode, int outputPlug, int inputNode, int inputPlug)
+    {
+        GraphIndex index = new GraphIndex(inputOffsets, inputOccupied.clone(), outputOffsets, fanOut.clone(),
+                incoming.clone(), outgoing.clone());
+
+        index.apply(outputNode, outputPlug, inputNode, inputPlug);
+        return index;
+    }
+
+    /**
+     * Creates the index for a child graph which adds a new node, and a connection
+     * from the new node to an existing node.
+     * 
+     * @param inputCount
+     *     - The number of input plugs on the new node.
+     * @param outputCount
+     *     - The number of output plugs on the new node.
+     * @param outputPlug
+     *     - The output plug of the new node.
+     * @param inputNode
+     *     - The input node of the new connection.
+     * @param inputPlug
+     *     - The input plug of the new connection.
+     * @return The index for the child graph.
+     */
+    GraphIndex deriveNode(int inputCount, int outputCount, int outputPlug, int inputNode, int inputPlug)
+    {
+        int nodeCount = incoming.length;
+
+        int[] newInputOffsets = Arrays.copyOf(inputOffsets, nodeCount + 2);
+        newInputOffsets[nodeCount + 1] = inputOffsets[nodeCount] + inputCount;
+
+        int[] newOutputOffsets = Arrays.copyOf(outputOffsets, nodeCount + 2);
+        newOutputOffsets[nodeCount + 1] = outputOffsets[nodeCount] + outputCount;
+
+        GraphIndex index = new GraphIndex(newInputOffsets,
+                Arrays.copyOf(inputOccupied, words(newInputOffsets[nodeCount + 1])), newOutputOffsets,
+                Arrays.copyOf(fanOut, newOutputOffsets[nodeCount + 1]), Arrays.copyOf(incoming, nodeCount + 1),
+                Arrays.copyOf(outgoing, nodeCount + 1));
+
+        index.apply(nodeCount, outputPlug, inputNode, inputPlug);
+        return index;
+    }
+
+    /**
+     * Gets the number of nodes within the indexed graph.
+     * 
+     * @return The number of nodes.
+     */
+    int getNodeCount()
+    {
+        return incoming.length;
+    }
+
+    /**
+     * Gets the number of input plugs on the given node.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @return The number of input plugs.
+     */
+    int getInputPlugCount(int node)
+    {
+        return inputOffsets[node + 1] - inputOffsets[node];
+    }
+
+    /**
+     * Gets the number of output plugs on the given node.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @return The number of output plugs.
+     */
+    int getOutputPlugCount(int node)
+    {
+        return outputOffsets[node + 1] - outputOffsets[node];
+    }
+
+    /**
+     * Checks whether the given input plug has a connection leading into it.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @param plug
+     *     - The index of the input plug.
+     * @return True if the plug is occupied, false otherwise.
+     */
+    boolean isInputConnected(int node, int plug)
+    {
+        int input = inputOffsets[node] + plug;
+        return (inputOccupied[input >>> 6] & (1L << input)) != 0;
+    }
+
+    /**
+     * Gets the number of connections leaving the given output plug.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @param plug
+     *     - The index of the output plug.
+     * @return The number of connections.
+     */
+    int getFanOut(int node, int plug)
+    {
+        return fanOut[outputOffsets[node] + plug];
+    }
+
+    /**
+     * Gets the number of connections entering the given node.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @return The number of connections.
+     */
+    int getIncoming(int node)
+    {
+        return incoming[node];
+    }
+
+    /**
+     * Gets the number of connections leaving the given node.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @return The number of connections.
+     */
+    int getOutgoing(int node)
+    {
+        return outgoing[node];
+    }
+}
@@ -0,0 +1,307 @@
+package net.whg.nghaste;
+
+/**
+ * The graph layout describes how the values of a node graph are packed into its
+ * byte array. Each field of the graph is given its own bit width, which is
+ * calculated once per environment. A node graph is stored as a header
+ * containing the node count and connection count, followed by the type of each
+ * node, followed by each connection as an output node, output plug, input node,
+ * and input plug.
+ * <p>
+ * The default layout stores every field using the same number of whole bytes,
+ * as given by {@link Environment#getMinByteCount()}. The compact layout uses
+ * the smallest number of bits which can represent each field within the
+ * environment. Values are stored most significant bit first.
+ * <p>
+ * This class is immutable.
+ */
+final class GraphLayout
+{
+    /**
+     * Creates a new graph layout where every field is stored using the given number
+     * of bytes.
+     * 
+     * @param numSize
+     *     - The number of bytes per value.
+     * @return The new graph layout.
+     */
+    static GraphLayout byteAligned(int numSize)
+    {
+        int bits = numSize * 8;
+        return new GraphLayout(numSize, bits, bits, bits, bits, bits);
+    }
+
+    /**
+     * Creates a new graph layout where every field is stored using the smallest
+     * number of bits required to represent it.
+     * 
+     * @param numSize
+     *     - The number of bytes per value which would be used by the byte aligned
+     *     layout.
+     * @param functionCount
+     *     - The number of functions in the environment.
+     * @param plugCount
+     *     - The largest number of input or output plugs on a single function.
+     * @param maxDepth
+     *     - The maximum depth of the search tree.
+     * @return The new graph layout.
+     */
+    static GraphLayout compact(int numSize, int functionCount, int plugCount, int maxDepth)
+    {
+        // A graph at the maximum depth has maxDepth connections, and maxDepth + 1
+        // nodes, so node indices are always <= maxDepth.
+        return new GraphLayout(numSize, bitsFor(maxDepth + 1), bitsFor(maxDepth), bitsFor(functionCount - 1),
+                bitsFor(maxDepth), bitsFor(plugCount - 1));
+    }
+
+    /**
+     * Gets the number of bits required to represent the given unsigned value. This
+     * is always at least 1.
+     * 
+     * @param value
+     *     - The largest value which must be represented.
+     * @return The number of bits required.
+     */
+    static int bitsFor(int value)
+    {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(value));
+    }
+
+    private final int numSize;
+    private final int nodeCountBits;
+    private final int connectionCountBits;
+    private final int nodeTypeBits;
+    private final int nodeBits;
+    private final int plugBits;
+
+    private GraphLayout(int numSize, int nodeCountBits, int connectionCountBits, int nodeTypeBits, int nodeBits,
+            int plugBits)
+    {
+        this.numSize = numSize;
+        this.nodeCountBits = nodeCountBits;
+        this.connectionCountBits = connectionCountBits;
+        this.nodeTypeBits = nodeTypeBits;
+        this.nodeBits = nodeBits;
+        this.plugBits = plugBits;
+    }
+
+    /**
+     * Gets the number of bytes per value which would be used by the byte aligned
+     * version of this layout.
+     * 
+     * @return The number of bytes per value.
+     */
+    int getNumberSize()
+    {
+        return numSize;
+    }
+
+    /**
+     * Gets the number of bits used to store the node count.
+     * 
+     * @return The number of bits.
+     */
+    int getNodeCountBits()
+    {
+        return nodeCountBits;
+    }
+
+    /**
+     * Gets the number of bits used to store the connection count.
+     * 
+     * @return The number of bits.
+     */
+    int getConnectionCountBits()
+    {
+        return connectionCountBits;
+    }
+
+    /**
+     * Gets the number of bits used to store the type of a node.
+     * 
+     * @return The number of bits.
+     */
+    int getNodeTypeBits()
+    {
+        return nodeTypeBits;
+    }
+
+    /**
+     * Gets the number of bits used to store a node index within a connection.
+     * 
+     * @return The number of bits.
+     */
+    int getNodeBits()
+    {
+        return nodeBits;
+    }
+
+    /**
+     * Gets the number of bits used to store a plug index within a connection.
+     * 
+     * @return The number of bits.
+     */
+    int getPlugBits()
+    {
+        return plugBits;
+    }
+
+    /**
+     * Gets the number of bits used to store a single connection.
+     * 
+     * @return The number of bits.
+     */
+    int getConnectionBits()
+    {
+        return 2 * nodeBits + 2 * plugBits;
+    }
+
+    /**
+     * Gets the number of bits used by the header of a graph.
+     * 
+     * @return The number of bits.
+     */
+    int getHeaderBits()
+    {
+        return nodeCountBits + connectionCountBits;
+    }
+
+    /**
+     * Gets the bit offset of the type of the given node.
+     * 
+     * @param node
+     *     - The index of the node.
+     * @return The bit offset.
+     */
+    int getNodeTypeOffset(int node)
+    {
+        return getHeaderBits() + node * nodeTypeBits;
+    }
+
+    /**
+     * Gets the bit offset of the given connection.
+     * 
+     * @param nodeCount
+     *     - The number of nodes in the graph.
+     * @param index
+     *     - The index of the connection.
+     * @return The bit offset.
+     */
+    int getConnectionOffset(int nodeCount, int index)
+    {
+        return getHeaderBits() + nodeCount * nodeTypeBits + index * getConnectionBits();
+    }
+
+    /**
+     * Gets the number of bytes required to store a graph of the given size.
+     * 
+     * @param nodeCount
+     *     - The number of nodes in the graph.
+     * @param connectionCount
+     *     - The number of connections in the graph.
+     * @return The number of bytes.
+     */
+    int getByteLength(int nodeCount, int connectionCount)
+    {
+        return (getConnectionOffset(nodeCount, connectionCount) + 7) >>> 3;
+    }
+
+    /**
+     * Reads an unsigned value from a byte array.
+     * 
+     * @param data
+     *     - The byte array to read from.
+     * @param bitOffset
+     *     - The offset of the value, in bits.
+     * @param width
+     *     - The number of bits in the value, up to 32.
+     * @return The value.
+     */
+    static int read(byte[] data, int bitOffset, int width)
+    {
+        int pos = bitOffset >>> 3;
+        int bytes = ((bitOffset & 7) + width + 7) >>> 3;
+
+        long window = 0;
+        for (int i = 0; i < bytes; i++)
+            window = (window << 8) | (data[pos + i] & 0xFF);
+
+        int shift = bytes * 8 - (bitOffset & 7) - width;
+        return (int) ((window >>> shift) & ((1L << width) - 1));
+    }
+
+    /**
+     * Writes an unsigned value to a byte array. Bits outside of the field are not
+     * modified.
+     * 
+     * @param data
+     *     - The byte array to write to.
+     * @param bitOffset
+     *     - The offset of the value, in bits.
+     * @param width
+     *     - The number of bits in the value, up to 32.
+     * @param value
+     *     - The value to write.
+     * @throws IllegalArgumentException
+     *     If the value cannot be represented using the given number of bits.
+     */
+    static void write(byte[] data, int bitOffset, int width, int value)
+    {
+        long mask = (1L << width) - 1;
+        if ((value & 0xFFFFFFFFL & ~mask) != 0)
+            throw new IllegalArgumentException("Value " + value + " does not fit within " + width + " bits!");
+
+        int pos = bitOffset >>> 3;
+        int bytes = ((bitOffset & 7) + width + 7) >>> 3;
+        int shift = bytes * 8 - (bitOffset & 7) - width;
+
+        long window = 0;
+        for (int i = 0; i < bytes; i++)
+            window = (window << 8) | (data[pos + i] & 0xFF);
+
+        window = (window & ~(mask << shift)) | ((value & mask) << shift);
+
+        for (int i = bytes - 1; i >= 0; i--)
+        {
+            data[pos + i] = (byte) window;
+            window >>>= 8;
+        }
+    }
+
+    /**
+     * Copies a range of bits from one byte array to another.
+     * 
+     * @param src
+     *     - The byte array to copy from.
+     * @param srcOffset
+     *     - The bit offset to start reading from.
+     * @param dst
+     *     - The byte array to copy to.
+     * @param dstOffset
+     *     - The bit offset to start writing to.
+     * @param length
+     *     - The number of bits to copy.
+     */
+    static void copy(byte[] src, int srcOffset, byte[] dst, int dstOffset, int length)
+    {
+        if ((srcOffset & 7) == 0 && (dstOffset & 7) == 0)
+        {
+            System.arraycopy(src, srcOffset >>> 3, dst, dstOffset >>> 3, length >>> 3);
+
+            int copied = length & ~7;
+            srcOffset += copied;
+            dstOffset += copied;
+            length -= copied;
+        }
+
+        while (length > 0)
+        {
+            int width = Math.min(length, 32);
+            write(dst, dstOffset, width, read(src, srcOffset, width));
+
+            srcOffset += width;
+            dstOffset += width;
+            length -= width;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package net.whg.nghaste;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * A graph reader reads a stream of node graphs from a channel, as written by a
+ * {@link GraphWriter}. The stream header is read and validated against the
+ * environment when the reader is created, so graphs can only be loaded into the
+ * environment they were written from.
+ * <p>
+ * This class is not thread safe.
+ */
+public class GraphReader implements Closeable
+{
+    private final Environment environment;
+    private final ReadableByteChannel channel;
+    private ByteBuffer buffer;
+    private boolean endOfStream;
+
+    /**
+     * Creates a new graph reader using the default buffer size, and reads the
+     * stream header.
+     * 
+     * @param environment
+     *     - The environment to load graphs into.
+     * @param channel
+     *     - The channel to read from.
+     * @throws IOException
+     *     If an IO error occurs, or the stream header is not valid for the given
+     *     environment.
+     */
+    public GraphReader(Environment environment, ReadableByteChannel channel) throws IOException
+    {
+        this(environment, channel, GraphWriter.DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new graph reader, and reads the stream header.
+     * 
+     * @param environment
+     *     - The environment to load graphs into.
+     * @param channel
+     *     - The channel to read from.
+     * @param bufferSize
+     *     - The initial size of the read buffer, in bytes. The buffer grows if a
+     *     single graph does not fit within it.
+     * @throws IOException
+     *     If an IO error occurs, or the stream header is not valid for the given
+     *     environment.
+     * @throws IllegalArgumentException
+     *     If the buffer size is smaller than the stream header.
+     */
+    public GraphReader(Environment environment, ReadableByteChannel channel, int bufferSize) throws IOException
+    {
+        if (bufferSize < GraphFormat.HEADER_LENGTH)
+            throw new IllegalArgumentException("Buffer size must be at least " + GraphFormat.HEADER_LENGTH + "!");
+
+        this.environment = environment;
+        this.channel = channel;
+
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        buffer.flip();
+
+        fill(GraphFormat.HEADER_LENGTH);
+        GraphFormat.readHeader(buffer, environment);
+    }
+
+    /**
+     * Reads the next node graph from the stream.
+     * 
+     * @return The next node graph, or null if the end of the stream has been
+     *     reached.
+     * @throws IOException
+     *     If an IO error occurs, or the stream contains a malformed graph.
+     */
+    public NodeGraph read() throws IOException
+    {
+        if (!fill(1))
+            return null;
+
+        // Heuristic score and the longest possible length value
+        fill(9);
+
+        int length = GraphFormat.peekRecordLength(buffer);
+        if (length > 0)
+            fill(length);
+
+        return GraphFormat.readGraph(buffer, environment);
+    }
+
+    /**
+     * Reads from the channel until the buffer contains at least the given number
+     * of bytes, or the end of the stream is reached. The buffer is grown if it is
+     * too small.
+     * 
+     * @return True if the buffer contains at least the requested number of bytes.
+     */
+    private boolean fill(int length) throws IOException
+    {
+        if (buffer.remaining() >= length)
+            return true;
+
+        if (buffer.capacity() < length)
+        {
+            ByteBuffer larger = ByteBuffer.allocateDirect(length);
+            larger.put(buffer);
+            buffer = larger;
+        }
+        else
+            buffer.compact();
+
+        while (buffer.position() < length && !endOfStream)
+        {
+            if (channel.read(buffer) == -1)
+                endOfStream = true;
+        }
+
+        buffer.flip();
+        return buffer.remaining() >= length;
+    }
+
+    /**
+     * Closes the channel.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
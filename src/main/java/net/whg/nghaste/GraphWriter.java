@@ -0,0 +1,130 @@
+package net.whg.nghaste;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A graph writer writes a stream of node graphs to a channel using the
+ * {@link GraphFormat}. Graphs are written into a direct buffer, which is
+ * written to the channel whenever it fills up. The stream header is written
+ * when the writer is created.
+ * <p>
+ * This class is not thread safe.
+ */
+public class GraphWriter implements Closeable
+{
+    /**
+     * The default size of the write buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final WritableByteChannel channel;
+    private ByteBuffer buffer;
+    private long graphCount;
+
+    /**
+     * Creates a new graph writer using the default buffer size, and writes the
+     * stream header.
+     * 
+     * @param environment
+     *     - The environment of the graphs which will be written.
+     * @param channel
+     *     - The channel to write to.
+     */
+    public GraphWriter(Environment environment, WritableByteChannel channel)
+    {
+        this(environment, channel, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a new graph writer, and writes the stream header.
+     * 
+     * @param environment
+     *     - The environment of the graphs which will be written.
+     * @param channel
+     *     - The channel to write to.
+     * @param bufferSize
+     *     - The initial size of the write buffer, in bytes. The buffer grows if a
+     *     single graph does not fit within it.
+     * @throws IllegalArgumentException
+     *     If the buffer size is smaller than the stream header.
+     */
+    public GraphWriter(Environment environment, WritableByteChannel channel, int bufferSize)
+    {
+        if (bufferSize < GraphFormat.HEADER_LENGTH)
+            throw new IllegalArgumentException("Buffer size must be at least " + GraphFormat.HEADER_LENGTH + "!");
+
+        this.channel = channel;
+
+        buffer = ByteBuffer.allocateDirect(bufferSize);
+        GraphFormat.writeHeader(buffer, environment);
+    }
+
+    /**
+     * Writes a node graph to the stream.
+     * 
+     * @param graph
+     *     - The graph to write.
+     * @throws IOException
+     *     If an IO error occurs while writing to the channel.
+     */
+    public void write(NodeGraph graph) throws IOException
+    {
+        int length = GraphFormat.getRecordLength(graph);
+
+        if (buffer.remaining() < length)
+        {
+            flush();
+
+            if (buffer.capacity() < length)
+                buffer = ByteBuffer.allocateDirect(length);
+        }
+
+        GraphFormat.writeGraph(buffer, graph);
+        graphCount++;
+    }
+
+    /**
+     * Writes all buffered data to the channel.
+     * 
+     * @throws IOException
+     *     If an IO error occurs while writing to the channel.
+     */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+
+        buffer.clear();
+    }
+
+    /**
+     * Gets the number of graphs which have been written by this writer.
+     * 
+     * @return The number of graphs written.
+     */
+    public long getGraphCount()
+    {
+        return graphCount;
+    }
+
+    /**
+     * Flushes all buffered data and closes the channel.
+     */
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
@@ -19,4 +19,24 @@ public interface IAxiom
      * @return True if the graph is valid, false otherwise.
      */
     boolean isValid(NodeGraph graph);
+
+    /**
+     * Gets a value describing the parameters of this axiom, which is included
+     * within the fingerprint of the environment, so that checkpoints and graph
+     * streams are not loaded into an environment using the same axiom class with
+     * different parameters. Data types should be described by their ID within the
+     * function table, as their hash codes may change between runs of the same
+     * program.
+     * <p>
+     * The default implementation returns the hash code of this axiom if its class
+     * overrides {@link Object#hashCode()}, or 0 otherwise.
+     * 
+     * @param functionTable
+     *     - The function table of the environment.
+     * @return The fingerprint of the parameters of this axiom.
+     */
+    default int getFingerprint(FunctionTable functionTable)
+    {
+        return Environment.valueHashCode(this);
+    }
 }
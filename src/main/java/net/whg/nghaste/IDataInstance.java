@@ -14,4 +14,32 @@ public interface IDataInstance
      * @return The data type this instance belongs to.
      */
     IDataType getType();
+
+    /**
+     * Checks whether this data instance holds the same value as another data
+     * instance. As functions always produce the same outputs for the same inputs,
+     * this is used to reuse the outputs of a function which was already called
+     * with equal inputs. By default, this uses {@link Object#equals(Object)}, so
+     * instances which do not override it are only equal to themselves.
+     * 
+     * @param other
+     *     - The data instance to compare against.
+     * @return True if both instances hold the same value, false otherwise.
+     */
+    default boolean valueEquals(IDataInstance other)
+    {
+        return equals(other);
+    }
+
+    /**
+     * Gets the hash code of the value of this data instance. Instances which are
+     * equal according to {@link #valueEquals(IDataInstance)} must return the same
+     * hash code. By default, this uses {@link Object#hashCode()}.
+     * 
+     * @return The hash code of the value.
+     */
+    default int valueHashCode()
+    {
+        return hashCode();
+    }
 }
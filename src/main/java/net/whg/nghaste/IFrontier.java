@@ -0,0 +1,99 @@
+package net.whg.nghaste;
+
+import java.util.function.Consumer;
+
+/**
+ * A frontier is the data structure used by the node container to store node
+ * graphs which are waiting to be processed. Graphs are polled in the order of
+ * {@link NodeGraph#compareTo(NodeGraph)}, being their search cost, lowest
+ * first, and then their heuristic score, highest first, unless stated otherwise
+ * by the implementation. As an A* search relies on this order to find the
+ * smallest solutions first, implementations must keep the search cost of every
+ * graph they store. Implementations of this interface must be thread safe.
+ */
+public interface IFrontier
+{
+    /**
+     * Adds a new node graph to this frontier. The node graph is assumed to have a
+     * heuristic value assigned, and no longer edited after this point.
+     * 
+     * @param graph
+     *     - The graph to add.
+     */
+    void add(NodeGraph graph);
+
+    /**
+     * Removes and returns the node graph with the highest heuristic score within
+     * this frontier.
+     * 
+     * @return The node graph with the highest heuristic score, or null if this
+     *     frontier is empty.
+     */
+    NodeGraph poll();
+
+    /**
+     * Gets the number of node graphs currently stored within this frontier.
+     * 
+     * @return The number of node graphs.
+     */
+    int size();
+
+    /**
+     * Passes every node graph within this frontier to the given action, without
+     * removing them. The graphs are passed in no particular order. Frontiers which
+     * do not store graphs as objects pass newly decoded copies of each graph.
+     * <p>
+     * This method is used for creating checkpoints, and should only be called
+     * while no other thread is modifying this frontier.
+     * 
+     * @param action
+     *     - The action to call for each graph.
+     * @throws UnsupportedOperationException
+     *     If this frontier cannot be iterated.
+     */
+    default void forEach(Consumer<NodeGraph> action)
+    {
+        throw new UnsupportedOperationException("This frontier cannot be iterated!");
+    }
+
+    /**
+     * Gets the number of node graphs which have been discarded by this frontier
+     * since the last call to this method, and resets the counter. Frontiers with a
+     * limited capacity may discard graphs which were added to them, either when
+     * they are added or at a later point. Discarded graphs are never polled, so
+     * the node container uses this method to keep track of the number of
+     * remaining graphs.
+     * 
+     * @return The number of graphs discarded since the last call.
+     */
+    default int drainDropped()
+    {
+        return 0;
+    }
+
+    /**
+     * Sorts all node graphs within this frontier. This is called if the heuristics
+     * of the stored graphs have changed.
+     * 
+     * @throws UnsupportedOperationException
+     *     If this frontier does not keep references to the node graphs added to it.
+     */
+    default void sort()
+    {
+        throw new UnsupportedOperationException("This frontier cannot be sorted!");
+    }
+
+    /**
+     * Updates the location of a single node graph within this frontier. This is
+     * called if the heuristic of the graph has changed after being added.
+     * 
+     * @param graph
+     *     - The graph to update.
+     * @throws UnsupportedOperationException
+     *     If this frontier does not keep references to the node graphs added to it.
+     */
+    default void update(NodeGraph graph)
+    {
+        throw new UnsupportedOperationException("This frontier cannot update graphs!");
+    }
+}
@@ -0,0 +1,35 @@
+package net.whg.nghaste;
+
+/**
+ * An incremental axiom is an axiom which can validate a child graph by only
+ * looking at the difference between the child and its parent. Every child
+ * within the search tree is created by adding a single connection to a parent
+ * graph, and possibly a single new node at the output end of that connection.
+ * As the parent graph has already been validated by this axiom, only the added
+ * connection and node need to be checked.
+ * <p>
+ * When an axiom implements this interface, the search tree calls
+ * {@link #isValid(NodeGraph, Connection, int)} instead of
+ * {@link #isValid(NodeGraph)}. Both methods must return the same result for
+ * every child of a valid parent. The root graph of the search, which only
+ * contains the output node, is assumed to be valid.
+ */
+public interface IIncrementalAxiom extends IAxiom
+{
+    /**
+     * Checks whether the child graph created by adding the given connection to
+     * the parent graph is valid or not. If a new node was added, it is the output
+     * node of the connection, and has the index equal to the node count of the
+     * parent.
+     * 
+     * @param parent
+     *     - The parent graph, which is known to be valid.
+     * @param connection
+     *     - The connection which was added to the parent graph.
+     * @param addedNodeType
+     *     - The function index of the node which was added, or -1 if no node was
+     *     added.
+     * @return True if the child graph is valid, false otherwise.
+     */
+    boolean isValid(NodeGraph parent, Connection connection, int addedNodeType);
+}
@@ -0,0 +1,31 @@
+package net.whg.nghaste;
+
+/**
+ * A plug selector is used to choose which open input plug of a node graph is
+ * filled when the graph is expanded. When a plug selector is used, each graph
+ * is only expanded along a single open plug, rather than along every open plug.
+ * Every graph can still be reached, as every open plug must be filled
+ * eventually, but each graph is only built in a single order instead of every
+ * possible order. This greatly reduces the number of graphs which are generated
+ * by the search tree.
+ * <p>
+ * The plug with the lowest rank is selected. If multiple plugs share the lowest
+ * rank, the plug on the node with the lowest index is selected, followed by the
+ * plug with the lowest index. The rank of a plug must only depend on the given
+ * graph, so that the same graph is always expanded along the same plug.
+ */
+public interface IPlugSelector
+{
+    /**
+     * Ranks an open input plug within the given graph.
+     * 
+     * @param graph
+     *     - The graph being expanded.
+     * @param nodeIndex
+     *     - The index of the node the plug belongs to.
+     * @param inputPlugIndex
+     *     - The index of the open input plug.
+     * @return The rank of the plug. Lower ranks are selected first.
+     */
+    int rankPlug(NodeGraph graph, int nodeIndex, int inputPlugIndex);
+}
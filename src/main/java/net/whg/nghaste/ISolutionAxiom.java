@@ -24,4 +24,18 @@ public interface ISolutionAxiom
      * @return True if the solution is valid, false otherwise.
      */
     boolean isValid(NodeGraph graph);
+
+    /**
+     * Gets a value describing the parameters of this solution axiom, which is
+     * included within the fingerprint of the environment. See
+     * {@link IAxiom#getFingerprint(FunctionTable)}.
+     * 
+     * @param functionTable
+     *     - The function table of the environment.
+     * @return The fingerprint of the parameters of this solution axiom.
+     */
+    default int getFingerprint(FunctionTable functionTable)
+    {
+        return Environment.valueHashCode(this);
+    }
 }
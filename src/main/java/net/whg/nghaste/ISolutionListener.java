@@ -0,0 +1,36 @@
+package net.whg.nghaste;
+
+/**
+ * A solution listener receives every solution as it is found by the search.
+ * Listeners are called by a single dispatcher thread rather than by the
+ * workers, so a slow listener does not stall the search until the queue of
+ * undelivered solutions is full. Once the queue is full, workers wait for the
+ * listeners to catch up before processing more graphs.
+ * <p>
+ * Listeners may stop the search from within {@link #onSolution(NodeGraph)}
+ * by calling {@link NGHasteAlgorithm#disposeWorkers()}, which returns once the
+ * workers have stopped, without waiting for the remaining queued solutions, as
+ * those can only be delivered once the listener returns. Listeners may also
+ * call {@link NGHasteAlgorithm#awaitCompletion()}, in which case workers stop
+ * waiting for the listeners until the search run stops, and
+ * {@link NGHasteAlgorithm#saveCheckpoint(java.nio.file.Path)}, as workers never
+ * wait for the listeners while holding the checkpoint lock. Listeners must not
+ * wait for another thread which is itself waiting for the queued solutions to
+ * be delivered, such as a thread within
+ * {@link NGHasteAlgorithm#disposeWorkers()}.
+ * <p>
+ * When no workers are active, such as when a search tree is used directly,
+ * listeners are called by the thread which found the solution instead.
+ */
+public interface ISolutionListener
+{
+    /**
+     * Called once for every solution which is found by the search. Solutions are
+     * delivered in the order they were found. Any exception thrown by this method
+     * is logged and otherwise ignored.
+     * 
+     * @param solution
+     *     - The solution which was found. This graph must not be modified.
+     */
+    void onSolution(NodeGraph solution);
+}
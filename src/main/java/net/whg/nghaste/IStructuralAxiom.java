@@ -0,0 +1,26 @@
+package net.whg.nghaste;
+
+/**
+ * A structural axiom is an axiom which can describe part of what it considers
+ * invalid as simple limits on the structure of a graph, such as the maximum
+ * number of connections leaving an output plug of a given data type, or the
+ * maximum number of nodes of a given function. The search tree checks these
+ * limits before creating a child graph, so children which break them are never
+ * allocated, copied or hashed.
+ * <p>
+ * Every limit declared by an axiom must be implied by the axiom itself. That
+ * is, any graph which breaks a declared limit must also be rejected by
+ * {@link #isValid(NodeGraph)}. The axiom is still checked for every child graph
+ * which is created.
+ */
+public interface IStructuralAxiom extends IAxiom
+{
+    /**
+     * Declares the structural limits enforced by this axiom. This is called once
+     * while the environment is being created.
+     * 
+     * @param constraints
+     *     - The constraints of the environment to add limits to.
+     */
+    void declareConstraints(StructuralConstraints constraints);
+}
@@ -0,0 +1,82 @@
+package net.whg.nghaste;
+
+/**
+ * Keeps track of the current depth limit of an iterative deepening search, and
+ * starts each new iteration once the previous iteration has been exhausted.
+ * <p>
+ * While the search is active, one unprocessed graph is counted within the node
+ * container for the search itself, so that the number of remaining graphs does
+ * not reach 0 between iterations. This class is thread safe.
+ */
+final class IterativeDeepening
+{
+    private final NodeContainer container;
+    private final Environment environment;
+    private volatile int depthLimit;
+    private boolean finished;
+
+    /**
+     * Creates a new iterative deepening search. The node container should only
+     * contain the root graph of the search tree.
+     * 
+     * @param container
+     *     - The node container the search is running in.
+     * @param environment
+     *     - The environment of the search.
+     */
+    IterativeDeepening(NodeContainer container, Environment environment)
+    {
+        this.container = container;
+        this.environment = environment;
+
+        // Iterations which could not complete the root graph would find nothing
+        int bound = environment.getCompletionBound()
+                               .estimateRemaining(createRoot());
+        depthLimit = Math.min(bound, environment.getMaxDepth());
+        container.trackNodeGraph();
+    }
+
+    /**
+     * Gets the depth limit of the current iteration. This should be read after
+     * taking a graph from the container, as a new iteration may only start once
+     * all graphs of the previous iteration have been processed.
+     * 
+     * @return The current depth limit.
+     */
+    int getDepthLimit()
+    {
+        return depthLimit;
+    }
+
+    /**
+     * Starts the next iteration if all graphs of the current iteration have been
+     * processed. When the last iteration has been processed, the search is
+     * finished, and the number of remaining graphs within the node container
+     * reaches 0.
+     */
+    synchronized void advance()
+    {
+        if (finished || container.getRemainingGraphs() != 1 || container.size() != 0)
+            return;
+
+        if (depthLimit >= environment.getMaxDepth())
+        {
+            finished = true;
+            container.finishGraph();
+            return;
+        }
+
+        depthLimit++;
+        container.getDuplicateFinder()
+                 .clear();
+        container.addNodeGraph(createRoot());
+    }
+
+    /**
+     * Creates a new root graph for the search tree.
+     */
+    private NodeGraph createRoot()
+    {
+        return NodeGraph.newGraph(environment, environment.getIndexOf(environment.getOutputFunction()));
+    }
+}
@@ -1,7 +1,11 @@
 package net.whg.nghaste;
 
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.locks.Lock;
 
 /**
  * The NG-HASTE algorithm is a logic-based probleming solving algorithm. The
@@ -15,9 +19,19 @@ import java.util.List;
  */
 public class NGHasteAlgorithm
 {
-    private final NodeContainer container = new NodeContainer();
-    private final List<Worker> workers = new ArrayList<>();
+    /**
+     * The number of solutions which may wait to be delivered to the solution
+     * listeners before workers wait for the listeners to catch up.
+     */
+    public static final int SOLUTION_QUEUE_CAPACITY = SolutionDispatcher.QUEUE_CAPACITY;
+
+    private final NodeContainer container;
+    private final List<Worker> workers = Collections.synchronizedList(new ArrayList<>());
     private final Environment environment;
+    private final Object checkpointWriter = new Object();
+    private SearchMode mode;
+    private IterativeDeepening deepening;
+    private SearchRun run;
 
     /**
      * Creates a new instance of the NG-HASTE algorithm, and initializes it.
@@ -27,12 +41,90 @@ public class NGHasteAlgorithm
      *     how the algorithm should solve.
      */
     public NGHasteAlgorithm(Environment environment)
+    {
+        this(environment, new PriorityFrontier());
+    }
+
+    /**
+     * Creates a new instance of the NG-HASTE algorithm which stores pending node
+     * graphs within the given frontier, and initializes it.
+     * 
+     * @param environment
+     *     - The environment to build this instance with. This is used to determine
+     *     how the algorithm should solve.
+     * @param frontier
+     *     - The frontier to store pending node graphs in.
+     */
+    public NGHasteAlgorithm(Environment environment, IFrontier frontier)
     {
         this.environment = environment;
+        this.container = new NodeContainer(frontier);
 
         initialize();
     }
 
+    /**
+     * Creates a new instance of the NG-HASTE algorithm around an existing node
+     * container, without initializing it.
+     * 
+     * @param environment
+     *     - The environment of the node container.
+     * @param container
+     *     - The node container.
+     */
+    private NGHasteAlgorithm(Environment environment, NodeContainer container)
+    {
+        this.environment = environment;
+        this.container = container;
+    }
+
+    /**
+     * Creates a new instance of the NG-HASTE algorithm from a checkpoint created
+     * using {@link #saveCheckpoint(Path)}. The search continues exactly where it
+     * was when the checkpoint was created. Pending node graphs are stored within a
+     * {@link PriorityFrontier}.
+     * 
+     * @param environment
+     *     - The environment to build this instance with. This must be the same
+     *     environment the checkpoint was created within.
+     * @param directory
+     *     - The checkpoint directory.
+     * @return The resumed algorithm instance. No workers are started.
+     * @throws IOException
+     *     If an IO error occurs, or the checkpoint is not valid for the given
+     *     environment.
+     */
+    public static NGHasteAlgorithm resume(Environment environment, Path directory) throws IOException
+    {
+        return resume(environment, new PriorityFrontier(), directory);
+    }
+
+    /**
+     * Creates a new instance of the NG-HASTE algorithm from a checkpoint created
+     * using {@link #saveCheckpoint(Path)}. The search continues exactly where it
+     * was when the checkpoint was created.
+     * 
+     * @param environment
+     *     - The environment to build this instance with. This must be the same
+     *     environment the checkpoint was created within.
+     * @param frontier
+     *     - The empty frontier to store pending node graphs in.
+     * @param directory
+     *     - The checkpoint directory.
+     * @return The resumed algorithm instance. No workers are started.
+     * @throws IOException
+     *     If an IO error occurs, or the checkpoint is not valid for the given
+     *     environment.
+     */
+    public static NGHasteAlgorithm resume(Environment environment, IFrontier frontier, Path directory)
+            throws IOException
+    {
+        NodeContainer container = new NodeContainer(frontier);
+        Checkpoint.load(container, environment, directory);
+
+        return new NGHasteAlgorithm(environment, container);
+    }
+
     /**
      * Initializes the algorithm by adding a new node graph containing only the
      * inital output function and adds it to the node container.
@@ -45,39 +137,243 @@ public class NGHasteAlgorithm
     }
 
     /**
-     * Gets the number of workers currently active.
+     * Gets the number of workers currently active. Workers which have stopped
+     * along with their search run are not counted.
      * 
      * @return The number of active workers for this algorithm.
      */
     public int getWorkerCount()
     {
-        return workers.size();
+        synchronized (workers)
+        {
+            workers.removeIf(worker -> !worker.isAlive());
+            return workers.size();
+        }
     }
 
     /**
-     * Starts a new set of workers for this algorithm. If there are workers which
-     * are already active, this function starts adds the new workers to the current
-     * list. It is recommended to have at most one worker per logical core on the
-     * current machine.
+     * Starts a new set of workers for this algorithm, which search best first. If
+     * there are workers which are already active, this function starts adds the
+     * new workers to the current list. It is recommended to have at most one
+     * worker per logical core on the current machine.
      * 
      * @param workers
      *     - The number of new workers to start.
+     * @throws IllegalStateException
+     *     If there are active workers using a different search mode.
      */
     public void startWorkers(int workers)
     {
+        startWorkers(workers, SearchMode.BEST_FIRST);
+    }
+
+    /**
+     * Starts a new set of workers for this algorithm, using the given search mode.
+     * If there are workers which are already active, this function starts adds the
+     * new workers to the current list. It is recommended to have at most one
+     * worker per logical core on the current machine.
+     * <p>
+     * The search mode of an iterative deepening search cannot be changed once the
+     * search has started.
+     * <p>
+     * If no workers are active, or the current search run has already stopped, a
+     * new search run without a budget is started, which runs until the search
+     * space is exhausted or the workers are disposed. Otherwise, the new workers
+     * join the current search run. Graphs which were added after a search run
+     * stopped are processed by the workers of the next search run.
+     * 
+     * @param workers
+     *     - The number of new workers to start.
+     * @param mode
+     *     - The search mode to use.
+     * @throws IllegalStateException
+     *     If there are active workers using a different search mode, if an
+     *     iterative deepening search is started on a search which has already
+     *     begun, or if an iterative deepening search has already been started with
+     *     this algorithm instance and a different search mode is requested.
+     */
+    public void startWorkers(int workers, SearchMode mode)
+    {
+        retireStoppedRun();
+
+        if (this.workers.isEmpty())
+            run = null;
+
+        addWorkers(workers, mode, new SearchBudget());
+    }
+
+    /**
+     * Starts a new search run using the given number of workers, search mode, and
+     * budget. The workers stop once any limit of the budget is reached, or once
+     * the search space is exhausted. Use {@link #awaitCompletion()} to wait for
+     * the search run to stop. The workers of a search run which has already
+     * stopped do not need to be disposed first.
+     * 
+     * @param workers
+     *     - The number of workers to start.
+     * @param mode
+     *     - The search mode to use.
+     * @param budget
+     *     - The budget of the search run.
+     * @throws IllegalArgumentException
+     *     If the budget is null.
+     * @throws IllegalStateException
+     *     If there are active workers of a search run which has not stopped, or the
+     *     search mode cannot be used, as described by
+     *     {@link #startWorkers(int, SearchMode)}.
+     */
+    public void startWorkers(int workers, SearchMode mode, SearchBudget budget)
+    {
+        if (budget == null)
+            throw new IllegalArgumentException("Budget cannot be null!");
+
+        retireStoppedRun();
+
+        if (!this.workers.isEmpty())
+            throw new IllegalStateException("Workers are already active!");
+
+        run = null;
+        addWorkers(workers, mode, budget);
+    }
+
+    /**
+     * Waits for the workers of the current search run to finish and removes them,
+     * if the search run has already stopped.
+     */
+    private void retireStoppedRun()
+    {
+        if (run == null || !run.isStopped())
+            return;
+
+        List<Worker> stopped;
+        synchronized (workers)
+        {
+            stopped = new ArrayList<>(workers);
+            workers.clear();
+        }
+
+        for (Worker worker : stopped)
+            worker.dispose();
+    }
+
+    /**
+     * Adds new workers to the current search run, starting a new search run with
+     * the given budget if there is none.
+     */
+    private void addWorkers(int workers, SearchMode mode, SearchBudget budget)
+    {
+        if (!this.workers.isEmpty() && this.mode != mode)
+            throw new IllegalStateException("Workers are already active using the " + this.mode + " search mode!");
+
+        if (deepening != null && mode != SearchMode.ITERATIVE_DEEPENING)
+            throw new IllegalStateException("An iterative deepening search cannot change search modes!");
+
+        if (mode == SearchMode.ITERATIVE_DEEPENING && deepening == null)
+        {
+            if (container.getTotalGraphsSearched() > 0 || container.size() != 1)
+                throw new IllegalStateException("Iterative deepening can only be used on a new search!");
+
+            deepening = new IterativeDeepening(container, environment);
+        }
+
+        this.mode = mode;
+        container.getSolutionDispatcher()
+                 .start();
+
+        if (run == null)
+            run = new SearchRun(container, budget);
+
         for (int i = 0; i < workers; i++)
-            this.workers.add(new Worker(container));
+            this.workers.add(new Worker(container, mode, deepening, run));
+    }
+
+    /**
+     * Gets the current depth limit of the iterative deepening search.
+     * 
+     * @return The depth limit, or -1 if no iterative deepening search has been
+     *     started.
+     */
+    public int getDepthLimit()
+    {
+        return deepening == null ? -1 : deepening.getDepthLimit();
     }
 
     /**
      * Disposes all currently active workers and waits for all threads to finish.
+     * All solutions found by the workers are delivered to the solution listeners
+     * before this method returns, unless it is called by a solution listener, in
+     * which case the remaining solutions are delivered after the listener
+     * returns.
      */
     public void disposeWorkers()
     {
-        for (Worker worker : workers)
+        if (run != null)
+            run.stop(StopReason.DISPOSED);
+
+        List<Worker> stopped;
+        synchronized (workers)
+        {
+            stopped = new ArrayList<>(workers);
+            workers.clear();
+        }
+
+        for (Worker worker : stopped)
             worker.dispose();
 
-        workers.clear();
+        container.getSolutionDispatcher()
+                 .stop();
+    }
+
+    /**
+     * Waits for the current search run to stop, and disposes its workers. All
+     * solutions found by the workers are delivered to the solution listeners
+     * before this method returns, unless it is called by a solution listener, as
+     * described by {@link #disposeWorkers()}. While a listener waits here, workers
+     * no longer wait for the listeners to catch up.
+     * 
+     * @return The reason the search run stopped.
+     * @throws InterruptedException
+     *     If the thread is interrupted while waiting. The workers are not disposed
+     *     in this case.
+     * @throws IllegalStateException
+     *     If no search run has been started.
+     */
+    public StopReason awaitCompletion() throws InterruptedException
+    {
+        if (run == null)
+            throw new IllegalStateException("No search run has been started!");
+
+        SolutionDispatcher dispatcher = container.getSolutionDispatcher();
+        boolean withinListener = dispatcher.isDispatcherThread();
+
+        StopReason reason;
+        if (withinListener)
+            dispatcher.setLimited(false);
+
+        try
+        {
+            reason = run.awaitStop();
+        }
+        finally
+        {
+            if (withinListener)
+                dispatcher.setLimited(true);
+        }
+
+        disposeWorkers();
+
+        return reason;
+    }
+
+    /**
+     * Gets the reason the current search run stopped.
+     * 
+     * @return The reason the search run stopped, or null if it is still running or
+     *     no search run has been started.
+     */
+    public StopReason getStopReason()
+    {
+        return run == null ? null : run.getStopReason();
     }
 
     /**
@@ -112,6 +408,59 @@ public class NGHasteAlgorithm
         return container.getSolution(index);
     }
 
+    /**
+     * Gets the total number of solutions which have been found by this algorithm
+     * instance, including solutions which were not retained or have been removed.
+     * 
+     * @return The total number of solutions found.
+     */
+    public int getTotalSolutionsFound()
+    {
+        return container.getTotalSolutionsFound();
+    }
+
+    /**
+     * Sets whether or not solutions are stored within this algorithm instance as
+     * they are found. If solutions are not retained, they are only passed to the
+     * solution listeners, and are not included in checkpoints, so solutions may be
+     * streamed to other code without keeping them in memory. Defaults to true.
+     * 
+     * @param retainSolutions
+     *     - True if solutions should be stored, false otherwise.
+     * @see #addSolutionListener(ISolutionListener)
+     */
+    public void setRetainSolutions(boolean retainSolutions)
+    {
+        container.setRetainSolutions(retainSolutions);
+    }
+
+    /**
+     * Adds a listener to receive every solution found from now on. While workers
+     * are active, listeners are called by a separate dispatcher thread, with up to
+     * {@value #SOLUTION_QUEUE_CAPACITY} solutions waiting to be
+     * delivered. Workers wait for the listeners to catch up when this limit is
+     * reached. Does nothing if the listener is null or has already been added.
+     * 
+     * @param listener
+     *     - The listener to add.
+     */
+    public void addSolutionListener(ISolutionListener listener)
+    {
+        container.addSolutionListener(listener);
+    }
+
+    /**
+     * Removes a solution listener. Solutions which are waiting to be delivered may
+     * still be passed to the listener.
+     * 
+     * @param listener
+     *     - The listener to remove.
+     */
+    public void removeSolutionListener(ISolutionListener listener)
+    {
+        container.removeSolutionListener(listener);
+    }
+
     /**
      * Removes a solution from this algorithm instance. Graphs which are removed
      * from the solution list are no longer capable of being rediscovered.
@@ -138,4 +487,83 @@ public class NGHasteAlgorithm
     {
         return container.getRemainingGraphs();
     }
+
+    /**
+     * Gets the total number of graphs which have been searched by this algorithm
+     * instance, including graphs searched before resuming from a checkpoint.
+     * 
+     * @return The total number of graphs searched.
+     */
+    public int getTotalGraphsSearched()
+    {
+        return container.getTotalGraphsSearched();
+    }
+
+    /**
+     * Gets the pipeline metrics of this algorithm, which count the graphs entering
+     * and rejected by each stage of the graph processing pipeline.
+     * 
+     * @return The pipeline metrics.
+     * @see EnvironmentBuilder#setPipeline(PipelineStage...)
+     */
+    public PipelineMetrics getPipelineMetrics()
+    {
+        return container.getPipelineMetrics();
+    }
+
+    /**
+     * Gets the axiom scheduler of this algorithm, which contains the measured cost
+     * and rejection rate of every axiom when adaptive axiom ordering is enabled.
+     * 
+     * @return The axiom scheduler, or null if adaptive axiom ordering is disabled
+     *     or no graph has been validated yet.
+     * @see EnvironmentBuilder#setAdaptiveAxiomOrdering(boolean)
+     */
+    public AxiomScheduler getAxiomScheduler()
+    {
+        return container.getAxiomScheduler();
+    }
+
+    /**
+     * Writes the full state of this algorithm, being the pending node graphs, the
+     * solutions, the state of the duplicate finder, and all counters, to the given
+     * directory. This may be called while workers are active. Workers finish the
+     * graph they are currently processing and are paused while a snapshot of the
+     * state is taken, and continue while the snapshot is written to disk. Any
+     * previous checkpoint within the directory is replaced as a whole, and is left
+     * untouched if writing the new checkpoint fails.
+     * 
+     * @param directory
+     *     - The directory to write the checkpoint to. This directory is created if
+     *     it does not exist.
+     * @throws IOException
+     *     If an IO error occurs while writing the checkpoint.
+     * @throws UnsupportedOperationException
+     *     If the frontier of this algorithm cannot be iterated, or an iterative
+     *     deepening search has been started.
+     */
+    public void saveCheckpoint(Path directory) throws IOException
+    {
+        if (deepening != null)
+            throw new UnsupportedOperationException("Iterative deepening searches do not support checkpoints!");
+
+        synchronized (checkpointWriter)
+        {
+            Lock lock = container.getCheckpointLock()
+                                 .writeLock();
+
+            Checkpoint checkpoint;
+            lock.lock();
+            try
+            {
+                checkpoint = Checkpoint.capture(container);
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            checkpoint.write(environment, directory);
+        }
+    }
 }
@@ -2,9 +2,13 @@ package net.whg.nghaste;
 
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 /**
  * The node container object is responsible for storing a list of NodeGraphs
@@ -13,11 +17,39 @@ import java.util.concurrent.atomic.AtomicInteger;
  */
 public class NodeContainer
 {
-    private final PriorityBlockingQueue<NodeGraph> queue = new PriorityBlockingQueue<>();
     private final List<NodeGraph> solutions = Collections.synchronizedList(new ArrayList<>());
     private final DuplicateFinder duplicateFinder = new DuplicateFinder();
     private final AtomicInteger totalGraphs = new AtomicInteger(0);
+    private final AtomicInteger totalSolutions = new AtomicInteger(0);
     private final AtomicInteger unprocessedGraphs = new AtomicInteger(0);
+    private final ReadWriteLock checkpointLock = new ReentrantReadWriteLock();
+    private final List<Deque<NodeGraph>> localStacks = new CopyOnWriteArrayList<>();
+    private final IFrontier frontier;
+    private final PipelineMetrics pipelineMetrics = new PipelineMetrics();
+    private final SolutionDispatcher solutionDispatcher = new SolutionDispatcher();
+    private volatile AxiomScheduler axiomScheduler;
+    private volatile boolean retainSolutions = true;
+
+    /**
+     * Creates a new node container which stores pending node graphs within a
+     * {@link PriorityFrontier}.
+     */
+    public NodeContainer()
+    {
+        this(new PriorityFrontier());
+    }
+
+    /**
+     * Creates a new node container which stores pending node graphs within the
+     * given frontier.
+     * 
+     * @param frontier
+     *     - The frontier to store pending node graphs in.
+     */
+    public NodeContainer(IFrontier frontier)
+    {
+        this.frontier = frontier;
+    }
 
     /**
      * Adds a new NodeGraph to this node container queue. The node graph is assumed
@@ -28,8 +60,9 @@ public class NodeContainer
      */
     public void addNodeGraph(NodeGraph graph)
     {
-        queue.add(graph);
         unprocessedGraphs.incrementAndGet();
+        frontier.add(graph);
+        countDropped();
     }
 
     /**
@@ -41,7 +74,7 @@ public class NodeContainer
      */
     public NodeGraph getNodeGraph()
     {
-        NodeGraph graph = queue.poll();
+        NodeGraph graph = frontier.poll();
 
         if (graph != null)
             totalGraphs.incrementAndGet();
@@ -56,17 +89,12 @@ public class NodeContainer
      * sparingly.
      * 
      * @see {@link #update(NodeGraph)}
+     * @throws UnsupportedOperationException
+     *     If the frontier of this container does not support sorting.
      */
     public void sort()
     {
-        synchronized (queue)
-        {
-            Object[] array = queue.toArray();
-            queue.clear();
-
-            for (Object o : array)
-                queue.add((NodeGraph) o);
-        }
+        frontier.sort();
     }
 
     /**
@@ -79,14 +107,12 @@ public class NodeContainer
      * 
      * @param graph
      *     - The graph to update.
+     * @throws UnsupportedOperationException
+     *     If the frontier of this container does not support updating graphs.
      */
     public void update(NodeGraph graph)
     {
-        synchronized (queue)
-        {
-            if (queue.remove(graph))
-                queue.add(graph);
-        }
+        frontier.update(graph);
     }
 
     /**
@@ -97,7 +123,7 @@ public class NodeContainer
      */
     public int size()
     {
-        return queue.size();
+        return frontier.size();
     }
 
     /**
@@ -138,16 +164,105 @@ public class NodeContainer
     }
 
     /**
-     * Adds a new solution to this node container.
+     * Adds a new solution to this node container, and passes it to the solution
+     * listeners. The solution is only stored if solutions are retained.
      * 
      * @param solution
      *     - The solution to add.
      */
     void addSolution(NodeGraph solution)
+    {
+        totalSolutions.incrementAndGet();
+
+        if (retainSolutions)
+            solutions.add(solution);
+
+        solutionDispatcher.dispatch(solution);
+    }
+
+    /**
+     * Stores a solution which was found before this container was created, such
+     * as a solution read from a checkpoint. The solution is not counted, and is
+     * not passed to the solution listeners.
+     * 
+     * @param solution
+     *     - The solution to store.
+     */
+    void restoreSolution(NodeGraph solution)
     {
         solutions.add(solution);
     }
 
+    /**
+     * Gets the total number of solutions which have been found, including
+     * solutions which were not retained or have been removed.
+     * 
+     * @return The total number of solutions found.
+     */
+    public int getTotalSolutionsFound()
+    {
+        return totalSolutions.get();
+    }
+
+    /**
+     * Sets whether or not solutions are stored within this container as they are
+     * found. If solutions are not retained, they are only passed to the solution
+     * listeners, and are not included in checkpoints. Solutions which are already
+     * stored are kept. Defaults to true.
+     * 
+     * @param retainSolutions
+     *     - True if solutions should be stored, false otherwise.
+     */
+    public void setRetainSolutions(boolean retainSolutions)
+    {
+        this.retainSolutions = retainSolutions;
+    }
+
+    /**
+     * Checks whether or not solutions are stored within this container as they
+     * are found.
+     * 
+     * @return True if solutions are stored, false otherwise.
+     */
+    public boolean isRetainingSolutions()
+    {
+        return retainSolutions;
+    }
+
+    /**
+     * Adds a listener to receive every solution found from now on. Does nothing if
+     * the listener is null or has already been added.
+     * 
+     * @param listener
+     *     - The listener to add.
+     */
+    public void addSolutionListener(ISolutionListener listener)
+    {
+        solutionDispatcher.addListener(listener);
+    }
+
+    /**
+     * Removes a solution listener. Solutions which are waiting to be delivered may
+     * still be passed to the listener.
+     * 
+     * @param listener
+     *     - The listener to remove.
+     */
+    public void removeSolutionListener(ISolutionListener listener)
+    {
+        solutionDispatcher.removeListener(listener);
+    }
+
+    /**
+     * Gets the dispatcher which delivers solutions to the solution listeners.
+     * 
+     * @return The solution dispatcher.
+     */
+    SolutionDispatcher getSolutionDispatcher()
+    {
+        return solutionDispatcher;
+    }
+
     /**
      * This function returns the total number of graphs which have been searched, or
      * are in the middle of being searched. This value is incremented by one each
@@ -174,6 +289,54 @@ public class NodeContainer
         return duplicateFinder;
     }
 
+    /**
+     * Gets the pipeline metrics associated with this node container, which count
+     * the graphs entering and rejected by each pipeline stage of the search trees
+     * storing graphs into this container.
+     * 
+     * @return The pipeline metrics.
+     */
+    public PipelineMetrics getPipelineMetrics()
+    {
+        return pipelineMetrics;
+    }
+
+    /**
+     * Gets the axiom scheduler associated with this node container, which orders
+     * the axioms checked by the search trees when adaptive axiom ordering is
+     * enabled.
+     * 
+     * @return The axiom scheduler, or null if no graph has been validated using
+     *     adaptive axiom ordering yet.
+     */
+    public AxiomScheduler getAxiomScheduler()
+    {
+        return axiomScheduler;
+    }
+
+    /**
+     * Gets the axiom scheduler associated with this node container, creating it for
+     * the axioms of the given environment if it does not exist yet.
+     * 
+     * @param environment
+     *     - The environment being searched.
+     * @return The axiom scheduler.
+     */
+    AxiomScheduler getAxiomScheduler(Environment environment)
+    {
+        AxiomScheduler scheduler = axiomScheduler;
+        if (scheduler != null)
+            return scheduler;
+
+        synchronized (this)
+        {
+            if (axiomScheduler == null)
+                axiomScheduler = new AxiomScheduler(environment.getAxioms());
+
+            return axiomScheduler;
+        }
+    }
+
     /**
      * Gets the current number of active solutions which have not yet finished being
      * processed. This value is changed constantly as more of the search space is
@@ -199,4 +362,146 @@ public class NodeContainer
     {
         unprocessedGraphs.decrementAndGet();
     }
+
+    /**
+     * Counts a node graph which was added to the local stack of a worker, rather
+     * than to this container, as an unprocessed graph.
+     */
+    void trackNodeGraph()
+    {
+        unprocessedGraphs.incrementAndGet();
+    }
+
+    /**
+     * Counts a node graph which was taken from the local stack of a worker, rather
+     * than from this container, as a searched graph.
+     */
+    void trackSearchedGraph()
+    {
+        totalGraphs.incrementAndGet();
+    }
+
+    /**
+     * Moves a node graph from the local stack of a worker into the frontier of
+     * this container, so that it may be taken by another worker. The graph must
+     * already be counted as an unprocessed graph.
+     * 
+     * @param graph
+     *     - The graph to donate.
+     */
+    void donateNodeGraph(NodeGraph graph)
+    {
+        frontier.add(graph);
+        countDropped();
+    }
+
+    /**
+     * Removes the graphs which were discarded by the frontier from the number of
+     * unprocessed graphs.
+     */
+    private void countDropped()
+    {
+        int dropped = frontier.drainDropped();
+
+        if (dropped > 0)
+            unprocessedGraphs.addAndGet(-dropped);
+    }
+
+    /**
+     * Registers the local stack of a worker with this container, so that the
+     * graphs within it are included in checkpoints. Workers may only modify their
+     * stack while holding the read lock of the checkpoint lock.
+     * 
+     * @param stack
+     *     - The local stack.
+     */
+    void addLocalStack(Deque<NodeGraph> stack)
+    {
+        localStacks.add(stack);
+    }
+
+    /**
+     * Unregisters the local stack of a worker. Any graphs left within the stack
+     * are moved into the frontier of this container.
+     * 
+     * @param stack
+     *     - The local stack.
+     */
+    void removeLocalStack(Deque<NodeGraph> stack)
+    {
+        localStacks.remove(stack);
+
+        NodeGraph graph;
+        while ((graph = stack.pollFirst()) != null)
+            frontier.add(graph);
+
+        countDropped();
+    }
+
+    /**
+     * Passes every pending graph within the frontier of this container and within
+     * the local stacks of all workers to the given action. No worker may modify
+     * its local stack while this method is running.
+     * 
+     * @param action
+     *     - The action to perform on each pending graph.
+     * @throws UnsupportedOperationException
+     *     If the frontier of this container cannot be iterated.
+     */
+    void forEachPendingGraph(Consumer<NodeGraph> action)
+    {
+        frontier.forEach(action);
+
+        for (Deque<NodeGraph> stack : localStacks)
+            stack.forEach(action);
+    }
+
+    /**
+     * Gets a copy of the current list of solutions.
+     * 
+     * @return A new list containing all solutions.
+     */
+    List<NodeGraph> copySolutions()
+    {
+        synchronized (solutions)
+        {
+            return new ArrayList<>(solutions);
+        }
+    }
+
+    /**
+     * Gets the lock used for creating checkpoints. Workers hold the read lock while
+     * processing a graph, and snapshots for checkpoints are taken while holding
+     * the write lock, so that no graph is in the middle of being processed.
+     * 
+     * @return The checkpoint lock.
+     */
+    ReadWriteLock getCheckpointLock()
+    {
+        return checkpointLock;
+    }
+
+    /**
+     * Sets the total number of graphs which have been searched. This is used when
+     * resuming from a checkpoint.
+     * 
+     * @param total
+     *     - The total number of graphs searched.
+     */
+    void setTotalGraphsSearched(int total)
+    {
+        totalGraphs.set(total);
+    }
+
+    /**
+     * Sets the total number of solutions which have been found. This is used when
+     * resuming from a checkpoint.
+     * 
+     * @param total
+     *     - The total number of solutions found.
+     */
+    void setTotalSolutionsFound(int total)
+    {
+        totalSolutions.set(total);
+    }
 }
@@ -1,5 +1,6 @@
 package net.whg.nghaste;
 
+import java.nio.ByteBuffer;
 import java.util.Arrays;
 
 /**
@@ -17,7 +18,16 @@ import java.util.Arrays;
  * byte array to quickly retreive information. This class is semi-immuatble, and
  * all edits preformed on this object simply return a new object instead. The
  * only exception to this rule is the heurisitic value which may be assigned at
- * any time.
+ * any time.<br>
+ * <br>
+ * The way values are packed into the byte array is described by the graph
+ * layout of the environment. If the environment uses the compact encoding, each
+ * field is stored using the smallest number of bits possible.<br>
+ * <br>
+ * If the environment uses persistent graphs, a child graph does not copy the
+ * byte array of its parent. Instead, it keeps a reference to the parent graph
+ * and only stores the single connection, and optional node, which was added to
+ * it. Reads which fall within the parent are forwarded to the parent graph.
  */
 public class NodeGraph implements Comparable<NodeGraph>
 {
@@ -32,18 +42,84 @@ public class NodeGraph implements Comparable<NodeGraph>
      */
     public static NodeGraph newGraph(Environment environment, int nodeType)
     {
-        NodeGraph graph = new NodeGraph(environment, environment.getMinByteCount() * 2);
+        GraphLayout layout = environment.getGraphLayout();
+        NodeGraph graph = new NodeGraph(environment, layout.getByteLength(1, 0));
 
-        graph.writeNumber(0, 1);
-        graph.writeNumber(1, nodeType);
+        graph.writeCounts(1, 0);
+        graph.write(layout.getNodeTypeOffset(0), layout.getNodeTypeBits(), nodeType);
+
+        return graph;
+    }
+
+    /**
+     * Reads a node graph which was written using {@link #encode(ByteBuffer)}. The
+     * returned graph stores all of its own data.
+     * 
+     * @param environment
+     *     - The environment the node graph exists within.
+     * @param buffer
+     *     - The buffer to read from. The position of the buffer is moved to the end
+     *     of the graph.
+     * @param length
+     *     - The encoded length of the graph, as given by
+     *     {@link #getEncodedLength()}.
+     * @param heuristic
+     *     - The heuristic score to assign to the graph.
+     * @param searchCost
+     *     - The search cost to assign to the graph.
+     * @return The decoded node graph.
+     */
+    static NodeGraph decode(Environment environment, ByteBuffer buffer, int length, float heuristic,
+            float searchCost)
+    {
+        NodeGraph graph = new NodeGraph(environment, length - 4);
+        graph.openPlugs = buffer.getInt();
+        buffer.get(graph.data);
+        graph.heuristic = heuristic;
+        graph.searchCost = searchCost;
+
+        return graph;
+    }
+
+    /**
+     * Creates a node graph which uses the given byte array as its data. The array
+     * must be in the flat layout of the given environment, as returned by
+     * {@link #getFlatData()}, and is not copied.
+     * 
+     * @param environment
+     *     - The environment the node graph exists within.
+     * @param data
+     *     - The flat byte array of the graph.
+     * @param heuristic
+     *     - The heuristic score to assign to the graph.
+     * @return The node graph.
+     */
+    static NodeGraph fromFlatData(Environment environment, byte[] data, float heuristic)
+    {
+        NodeGraph graph = new NodeGraph(environment, 0);
+        graph.data = data;
+        graph.length = data.length;
+        graph.heuristic = heuristic;
 
         return graph;
     }
 
     private final Environment environment;
-    private final int numSize;
-    private final byte[] data;
+    private final GraphLayout layout;
+    private NodeGraph parent;
+    private byte[] data;
+    private int offset;
+    private int length;
+    private GraphIndex index;
+    private GraphIndex parentIndex;
+    private int addedOutputNode;
+    private int addedOutputPlug;
+    private int addedInputNode;
+    private int addedInputPlug;
+    private int openPlugs = -1;
     private float heuristic;
+    private float searchCost;
+    private int hash;
 
     /**
      * Creates a new, empty node graph.
@@ -54,10 +130,40 @@ public class NodeGraph implements Comparable<NodeGraph>
      *     - The size of the byte array.
      */
     private NodeGraph(Environment environment, int buffer)
+    {
+        this(environment, null, buffer, null);
+    }
+
+    /**
+     * Creates a new, empty node graph which shares the data of the given parent
+     * graph. The byte array of a persistent graph only stores the connection, and
+     * optionally the node type, which was added on top of the parent.
+     * 
+     * @param environment
+     *     - The environment this node graph exists within.
+     * @param parent
+     *     - The parent graph, or null if this graph stores all of its own data.
+     * @param buffer
+     *     - The size of the byte array.
+     * @param allocator
+     *     - The allocator to take the byte array from, or null if a new byte array
+     *     should be created.
+     */
+    private NodeGraph(Environment environment, NodeGraph parent, int buffer, GraphAllocator allocator)
     {
         this.environment = environment;
-        this.numSize = environment.getMinByteCount();
-        data = new byte[buffer];
+        this.layout = environment.getGraphLayout();
+        this.parent = parent;
+
+        if (allocator == null)
+            data = new byte[buffer];
+        else
+        {
+            offset = allocator.allocate(buffer);
+            data = allocator.getChunk();
+        }
+
+        length = buffer;
     }
 
     /**
@@ -76,8 +182,39 @@ public class NodeGraph implements Comparable<NodeGraph>
      * @throws IndexOutOfBoundsException
      *     if the input node or output node point to an element outside of the range
      *     of nodes in this graph.
+     * @throws IllegalArgumentException
+     *     If the environment uses the compact encoding, and this graph already has
+     *     as many connections as the maximum depth of the environment.
      */
     public NodeGraph addConnection(int outputNode, int outputPlug, int inputNode, int inputPlug)
+    {
+        return addConnection(outputNode, outputPlug, inputNode, inputPlug, null);
+    }
+
+    /**
+     * Adds a new connection to this node graph, taking the byte array of the new
+     * graph from the given allocator.
+     * 
+     * @param outputNode
+     *     - The output node for the connection.
+     * @param outputPlug
+     *     - The plug of the output node for the connection.
+     * @param inputNode
+     *     - The input plug for the connection.
+     * @param inputPlug
+     *     - The plug of the input node for the connection.
+     * @param allocator
+     *     - The allocator to use, or null if a new byte array should be created.
+     * @return A newly created node graph which represents a copy of this node graph
+     *     with the modification applied.
+     * @throws IndexOutOfBoundsException
+     *     if the input node or output node point to an element outside of the range
+     *     of nodes in this graph.
+     * @throws IllegalArgumentException
+     *     If the environment uses the compact encoding, and this graph already has
+     *     as many connections as the maximum depth of the environment.
+     */
+    NodeGraph addConnection(int outputNode, int outputPlug, int inputNode, int inputPlug, GraphAllocator allocator)
     {
         if (outputNode < 0 || outputNode >= getNodeCount())
             throw new IndexOutOfBoundsException("Output node out of bounds: " + outputNode);
@@ -85,15 +222,36 @@ public class NodeGraph implements Comparable<NodeGraph>
         if (inputNode < 0 || inputNode >= getNodeCount())
             throw new IndexOutOfBoundsException("Input node out of bounds: " + inputNode);
 
-        NodeGraph graph = new NodeGraph(environment, data.length + numSize * 4);
+        checkConnectionLimit();
+
+        if (environment.isPersistentGraphs())
+        {
+            NodeGraph graph =
+                    new NodeGraph(environment, this, (1 + layout.getConnectionBits() + 7) >>> 3, allocator);
+            graph.writeConnection(1, outputNode, outputPlug, inputNode, inputPlug);
+
+            recordIndexDelta(graph, outputNode, outputPlug, inputNode, inputPlug);
+
+            if (openPlugs != -1)
+                graph.openPlugs = openPlugs - 1;
+
+            return graph;
+        }
+
+        int nodeCount = getNodeCount();
+        int connCount = getConnectionCount();
+
+        NodeGraph graph = new NodeGraph(environment, null, layout.getByteLength(nodeCount, connCount + 1), allocator);
+        System.arraycopy(data, offset, graph.data, graph.offset, length);
 
-        System.arraycopy(data, 0, graph.data, 0, data.length);
+        graph.writeCounts(nodeCount, connCount + 1);
+        graph.writeConnection(layout.getConnectionOffset(nodeCount, connCount), outputNode, outputPlug, inputNode,
+                inputPlug);
 
-        int off = data.length / numSize;
-        graph.writeNumber(off++, outputNode);
-        graph.writeNumber(off++, outputPlug);
-        graph.writeNumber(off++, inputNode);
-        graph.writeNumber(off, inputPlug);
+        recordIndexDelta(graph, outputNode, outputPlug, inputNode, inputPlug);
+
+        if (openPlugs != -1)
+            graph.openPlugs = openPlugs - 1;
 
         return graph;
     }
@@ -115,43 +273,143 @@ public class NodeGraph implements Comparable<NodeGraph>
      * @throws IndexOutOfBoundsException
      *     if the input node or output node point to an element outside of the range
      *     of nodes in this graph.
+     * @throws IllegalArgumentException
+     *     If the environment uses the compact encoding, and this graph already has
+     *     as many connections as the maximum depth of the environment.
      */
     public NodeGraph addConnectionAndNode(int nodeType, int outputPlug, int inputNode, int inputPlug)
+    {
+        return addConnectionAndNode(nodeType, outputPlug, inputNode, inputPlug, null);
+    }
+
+    /**
+     * This function creates a connection to a new node, where the new node is the
+     * output node, taking the byte array of the new graph from the given
+     * allocator.
+     * 
+     * @param nodeType
+     *     - The type of the new node to add.
+     * @param outputPlug
+     *     - The plug of the new node to take the connection from.
+     * @param inputNode
+     *     - The node the connection is moving to.
+     * @param inputPlug
+     *     - The plug of the input node for the connection.
+     * @param allocator
+     *     - The allocator to use, or null if a new byte array should be created.
+     * @return A newly created node graph which represents a copy of this node graph
+     *     with the modification applied.
+     * @throws IndexOutOfBoundsException
+     *     if the input node or output node point to an element outside of the range
+     *     of nodes in this graph.
+     * @throws IllegalArgumentException
+     *     If the environment uses the compact encoding, and this graph already has
+     *     as many connections as the maximum depth of the environment.
+     */
+    NodeGraph addConnectionAndNode(int nodeType, int outputPlug, int inputNode, int inputPlug,
+            GraphAllocator allocator)
     {
         if (inputNode < 0 || inputNode >= getNodeCount())
             throw new IndexOutOfBoundsException("Input node out of bounds: " + inputNode);
 
-        NodeGraph graph = new NodeGraph(environment, data.length + 5 * numSize);
+        checkConnectionLimit();
+
+        if (environment.isPersistentGraphs())
+        {
+            int connBits = layout.getConnectionBits();
+            NodeGraph graph = new NodeGraph(environment, this, (1 + connBits + layout.getNodeTypeBits() + 7) >>> 3,
+                    allocator);
+
+            graph.write(0, 1, 1);
+            graph.writeConnection(1, getNodeCount(), outputPlug, inputNode, inputPlug);
+            graph.write(1 + connBits, layout.getNodeTypeBits(), nodeType);
+
+            deriveNodeCaches(graph, nodeType, outputPlug, inputNode, inputPlug);
+
+            return graph;
+        }
 
         int nodeCount = getNodeCount();
         int connCount = getConnectionCount();
-        int j = 0;
 
-        graph.writeNumber(j++, nodeCount + 1);
+        NodeGraph graph =
+                new NodeGraph(environment, null, layout.getByteLength(nodeCount + 1, connCount + 1), allocator);
+
+        int nodeEnd = layout.getNodeTypeOffset(nodeCount);
+        GraphLayout.copy(data, offset << 3, graph.data, graph.offset << 3, nodeEnd);
 
-        for (int i = 0; i < nodeCount; i++)
-            graph.writeNumber(j++, getNodeType(i));
-        graph.writeNumber(j++, nodeType);
+        int connStart = layout.getConnectionOffset(nodeCount + 1, 0);
+        GraphLayout.copy(data, (offset << 3) + nodeEnd, graph.data, (graph.offset << 3) + connStart,
+                connCount * layout.getConnectionBits());
 
-        for (int i = 0; i < connCount * 4; i++)
-            graph.writeNumber(j++, readNumber(nodeCount + 1 + i));
+        graph.writeCounts(nodeCount + 1, connCount + 1);
+        graph.write(nodeEnd, layout.getNodeTypeBits(), nodeType);
+        graph.writeConnection(layout.getConnectionOffset(nodeCount + 1, connCount), nodeCount, outputPlug, inputNode,
+                inputPlug);
 
-        graph.writeNumber(j++, nodeCount);
-        graph.writeNumber(j++, outputPlug);
-        graph.writeNumber(j++, inputNode);
-        graph.writeNumber(j, inputPlug);
+        deriveNodeCaches(graph, nodeType, outputPlug, inputNode, inputPlug);
 
         return graph;
     }
 
+    /**
+     * Checks that a connection may be added to this graph. The compact encoding
+     * only reserves enough bits for graphs with up to the maximum depth of the
+     * environment in connections, and as many nodes, plus the output node.
+     */
+    private void checkConnectionLimit()
+    {
+        if (environment.isCompactEncoding() && getConnectionCount() >= environment.getMaxDepth())
+            throw new IllegalArgumentException("Graphs using the compact encoding cannot have more than "
+                    + environment.getMaxDepth() + " connections!");
+    }
+
+    /**
+     * Derives the cached values of a child graph which adds a new node to this
+     * graph, for each cached value which is known for this graph.
+     */
+    private void deriveNodeCaches(NodeGraph graph, int nodeType, int outputPlug, int inputNode, int inputPlug)
+    {
+        recordIndexDelta(graph, getNodeCount(), outputPlug, inputNode, inputPlug);
+
+        if (openPlugs == -1)
+            return;
+
+        int inputCount = environment.getFunctionTable()
+                                    .getInputCount(nodeType);
+        graph.openPlugs = openPlugs + inputCount - 1;
+    }
+
+    /**
+     * If the index of this graph is known, records it on the given child graph
+     * along with the connection which was added to the child. Plug queries on the
+     * child are answered from the recorded index and connection, and the index of
+     * the child is only derived once the child itself is expanded. Children which
+     * are rejected by the pipeline therefore never copy the index.
+     */
+    private void recordIndexDelta(NodeGraph graph, int outputNode, int outputPlug, int inputNode, int inputPlug)
+    {
+        if (index == null && parentIndex == null)
+            return;
+
+        graph.parentIndex = getIndex();
+        graph.addedOutputNode = outputNode;
+        graph.addedOutputPlug = outputPlug;
+        graph.addedInputNode = inputNode;
+        graph.addedInputPlug = inputPlug;
+    }
+
     /**
      * Gets the number of bytes being used per value to represent this node graph.
+     * If the environment uses the compact encoding, values are packed into bit
+     * fields instead, and this is the number of bytes which would be used by the
+     * default encoding.
      * 
      * @return The size of a single value in this object.
      */
     public int getNumberSize()
     {
-        return numSize;
+        return layout.getNumberSize();
     }
 
     /**
@@ -161,7 +419,10 @@ public class NodeGraph implements Comparable<NodeGraph>
      */
     public int getNodeCount()
     {
-        return readNumber(0);
+        if (parent != null)
+            return parent.getNodeCount() + (addsNode() ? 1 : 0);
+
+        return read(0, layout.getNodeCountBits());
     }
 
     /**
@@ -178,7 +439,15 @@ public class NodeGraph implements Comparable<NodeGraph>
         if (node < 0 || node >= getNodeCount())
             throw new ArrayIndexOutOfBoundsException(node);
 
-        return readNumber(node + 1);
+        if (parent != null)
+        {
+            if (node < parent.getNodeCount())
+                return parent.getNodeType(node);
+
+            return read(1 + layout.getConnectionBits(), layout.getNodeTypeBits());
+        }
+
+        return read(layout.getNodeTypeOffset(node), layout.getNodeTypeBits());
     }
 
     /**
@@ -188,7 +457,10 @@ public class NodeGraph implements Comparable<NodeGraph>
      */
     public int getConnectionCount()
     {
-        return (data.length / numSize - 1 - getNodeCount()) / 4;
+        if (parent != null)
+            return parent.getConnectionCount() + 1;
+
+        return read(layout.getNodeCountBits(), layout.getConnectionCountBits());
     }
 
     /**
@@ -208,11 +480,29 @@ public class NodeGraph implements Comparable<NodeGraph>
         if (index < 0 || index >= getConnectionCount())
             throw new ArrayIndexOutOfBoundsException(index);
 
-        int nodeCount = getNodeCount();
-        int off = nodeCount + 1 + index * 4;
+        int off;
+        if (parent != null)
+        {
+            if (index < parent.getConnectionCount())
+            {
+                parent.getConnection(index, out);
+                return;
+            }
+
+            off = 1;
+        }
+        else
+            off = layout.getConnectionOffset(getNodeCount(), index);
 
-        out.set(readNumber(off + 0), readNumber(off + 1), readNumber(off + 2), readNumber(off + 3),
-                getNodeType(readNumber(off + 0)), getNodeType(readNumber(off + 2)));
+        int nodeBits = layout.getNodeBits();
+        int plugBits = layout.getPlugBits();
+
+        int outputNode = read(off, nodeBits);
+        int outputPlug = read(off + nodeBits, plugBits);
+        int inputNode = read(off + nodeBits + plugBits, nodeBits);
+        int inputPlug = read(off + 2 * nodeBits + plugBits, plugBits);
+
+        out.set(outputNode, outputPlug, inputNode, inputPlug, getNodeType(outputNode), getNodeType(inputNode));
     }
 
     /**
@@ -236,9 +526,42 @@ public class NodeGraph implements Comparable<NodeGraph>
         this.heuristic = heuristic;
     }
 
+    /**
+     * Gets the A* search cost assigned with this NodeGraph.
+     * 
+     * @return The search cost, or 0 if a search cost has not been assigned.
+     * @see Environment#isAStarSearch()
+     */
+    public float getSearchCost()
+    {
+        return searchCost;
+    }
+
+    /**
+     * Assigns the A* search cost of this NodeGraph. Graphs with a lower search
+     * cost are ordered before graphs with a higher search cost, regardless of
+     * their heuristic score.
+     * 
+     * @param searchCost
+     *     - The search cost.
+     */
+    public void setSearchCost(float searchCost)
+    {
+        this.searchCost = searchCost;
+    }
+
+    /**
+     * Orders node graphs by their search cost, from lowest to highest, and then by
+     * their heuristic score, from highest to lowest. If no search costs are
+     * assigned, graphs are only ordered by their heuristic score.
+     */
     @Override
     public int compareTo(NodeGraph o)
     {
+        int cost = Float.compare(searchCost, o.searchCost);
+        if (cost != 0)
+            return cost;
+
         return -Float.compare(heuristic, o.heuristic);
     }
 
@@ -252,69 +575,291 @@ public class NodeGraph implements Comparable<NodeGraph>
             return false;
 
         NodeGraph g = (NodeGraph) o;
-        if (!Arrays.equals(data, g.data))
+        if (Math.abs(heuristic - g.heuristic) > 0.0000001)
+            return false;
+
+        // The hash is cached, so this avoids flattening persistent graphs which
+        // cannot be equal
+        if (hashCode() != g.hashCode())
+            return false;
+
+        if (parent != null || g.parent != null)
+            return Arrays.equals(getFlatData(), g.getFlatData());
+
+        if (length != g.length)
             return false;
 
-        return Math.abs(heuristic - g.heuristic) <= 0.0000001;
+        for (int i = 0; i < length; i++)
+            if (data[offset + i] != g.data[g.offset + i])
+                return false;
+
+        return true;
     }
 
+    /**
+     * Gets the hash code of the flat data of this graph. The hash is only computed
+     * once, since the data of a graph is not modified after it has been created,
+     * and is kept when the graph is flattened.
+     */
     @Override
     public int hashCode()
     {
-        return Arrays.hashCode(data);
+        int h = hash;
+        if (h != 0)
+            return h;
+
+        if (parent != null)
+            h = Arrays.hashCode(getFlatData());
+        else
+        {
+            // Matches Arrays.hashCode(), without copying the range of a shared array
+            h = 1;
+            for (int i = 0; i < length; i++)
+                h = 31 * h + data[offset + i];
+        }
+
+        hash = h;
+        return h;
     }
 
     /**
-     * Counts the number of open input nodes in this graph.
+     * Checks whether or not this graph is a persistent graph which still depends
+     * on the data of a parent graph.
+     * 
+     * @return True if reads on this graph may be forwarded to a parent graph, false
+     *     if this graph stores all of its own data.
+     */
+    public boolean isPersistent()
+    {
+        return parent != null;
+    }
+
+    /**
+     * Converts this graph into a graph which stores all of its own data, releasing
+     * the reference to its parent graph. This does nothing if the graph is already
+     * flat. This is called on graphs which are about to be expanded, so that the
+     * children of this graph only need to forward reads a single level up.
+     * <p>
+     * This method should only be called by the thread which currently owns this
+     * graph.
+     */
+    void flatten()
+    {
+        if (parent == null)
+            return;
+
+        data = getFlatData();
+        offset = 0;
+        length = data.length;
+        parent = null;
+    }
+
+    /**
+     * Gets the byte array of this graph as if it were not persistent. If this graph
+     * is already flat and owns its entire backing array, the backing array is
+     * returned directly, and must not be modified. Otherwise, a new array is built
+     * from the parent data and the data of this graph.
+     * 
+     * @return The flat byte array for this graph.
+     */
+    byte[] getFlatData()
+    {
+        if (parent == null)
+        {
+            if (offset == 0 && length == data.length)
+                return data;
+
+            return Arrays.copyOfRange(data, offset, offset + length);
+        }
+
+        byte[] parentData = parent.getFlatData();
+        int nodeCount = parent.getNodeCount();
+        int connCount = parent.getConnectionCount();
+        int connBits = layout.getConnectionBits();
+        int newNodes = addsNode() ? 1 : 0;
+
+        byte[] flat = new byte[layout.getByteLength(nodeCount + newNodes, connCount + 1)];
+
+        int nodeEnd = layout.getNodeTypeOffset(nodeCount);
+        GraphLayout.copy(parentData, 0, flat, 0, nodeEnd);
+
+        if (newNodes > 0)
+            GraphLayout.copy(data, (offset << 3) + 1 + connBits, flat, nodeEnd, layout.getNodeTypeBits());
+
+        int connStart = layout.getConnectionOffset(nodeCount + newNodes, 0);
+        GraphLayout.copy(parentData, nodeEnd, flat, connStart, connCount * connBits);
+        GraphLayout.copy(data, (offset << 3) + 1, flat, connStart + connCount * connBits, connBits);
+
+        GraphLayout.write(flat, 0, layout.getNodeCountBits(), nodeCount + newNodes);
+        GraphLayout.write(flat, layout.getNodeCountBits(), layout.getConnectionCountBits(), connCount + 1);
+
+        return flat;
+    }
+
+    /**
+     * Gets the number of bytes which are written by {@link #encode(ByteBuffer)}.
+     * 
+     * @return The encoded length of this graph.
+     */
+    int getEncodedLength()
+    {
+        return 4 + layout.getByteLength(getNodeCount(), getConnectionCount());
+    }
+
+    /**
+     * Writes this graph to the given buffer in a flat format which can be read
+     * back using {@link #decode(Environment, ByteBuffer, int, float)}. The
+     * heuristic score of this graph is not written.
+     * 
+     * @param buffer
+     *     - The buffer to write to.
+     */
+    void encode(ByteBuffer buffer)
+    {
+        buffer.putInt(openPlugs);
+        writeFlatData(buffer);
+    }
+
+    /**
+     * Writes the flat byte array of this graph, as returned by
+     * {@link #getFlatData()}, to the given buffer. If this graph is not
+     * persistent, the data is copied into the buffer without any intermediate
+     * copies.
+     * 
+     * @param buffer
+     *     - The buffer to write to.
+     */
+    void writeFlatData(ByteBuffer buffer)
+    {
+        if (parent == null)
+            buffer.put(data, offset, length);
+        else
+            buffer.put(getFlatData());
+    }
+
+    /**
+     * Returns the byte array of this graph to the allocator it was taken from. This
+     * is called on graphs which were rejected right after being created, and must
+     * not be used afterwards. This does nothing if the graph is not the most recent
+     * allocation of the allocator.
+     * 
+     * @param allocator
+     *     - The allocator the graph was created with.
+     */
+    void release(GraphAllocator allocator)
+    {
+        allocator.free(data, offset, length);
+    }
+
+    /**
+     * Checks whether this persistent graph added a new node on top of its parent.
+     * 
+     * @return True if a node was added, false if only a connection was added.
+     */
+    private boolean addsNode()
+    {
+        return read(0, 1) == 1;
+    }
+
+    /**
+     * Counts the number of open input nodes in this graph. This value is computed
+     * once and then carried over to child graphs, which only need to apply the
+     * change caused by the new connection and node.
      * 
      * @return The number of open input plugs.
      */
     public int countOpenPlugs()
+    {
+        if (openPlugs == -1)
+            openPlugs = scanOpenPlugs();
+
+        return openPlugs;
+    }
+
+    /**
+     * Counts the number of open input plugs in this graph by checking every node.
+     * 
+     * @return The number of open input plugs.
+     */
+    private int scanOpenPlugs()
     {
         int openPlugs = -getConnectionCount();
 
+        FunctionTable table = environment.getFunctionTable();
         int nodeCount = getNodeCount();
         for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
-        {
-            IFunction nodeType = environment.getFunctions()
-                                            .get(getNodeType(nodeIndex));
-            openPlugs += nodeType.getInputs().length;
-        }
+            openPlugs += table.getInputCount(getNodeType(nodeIndex));
 
         return openPlugs;
     }
 
     /**
-     * A small utility function for writing a number to a byte array.
+     * A small utility function for writing the node count and connection count
+     * to the header of this graph.
+     * 
+     * @param nodeCount
+     *     - The number of nodes.
+     * @param connCount
+     *     - The number of connections.
+     */
+    private void writeCounts(int nodeCount, int connCount)
+    {
+        write(0, layout.getNodeCountBits(), nodeCount);
+        write(layout.getNodeCountBits(), layout.getConnectionCountBits(), connCount);
+    }
+
+    /**
+     * A small utility function for writing a connection to the byte array.
      * 
      * @param pos
-     *     - The byte position to write to.
+     *     - The bit position to write to.
+     * @param outputNode
+     *     - The output node for the connection.
+     * @param outputPlug
+     *     - The plug of the output node for the connection.
+     * @param inputNode
+     *     - The input plug for the connection.
+     * @param inputPlug
+     *     - The plug of the input node for the connection.
+     */
+    private void writeConnection(int pos, int outputNode, int outputPlug, int inputNode, int inputPlug)
+    {
+        int nodeBits = layout.getNodeBits();
+        int plugBits = layout.getPlugBits();
+
+        write(pos, nodeBits, outputNode);
+        write(pos + nodeBits, plugBits, outputPlug);
+        write(pos + nodeBits + plugBits, nodeBits, inputNode);
+        write(pos + 2 * nodeBits + plugBits, plugBits, inputPlug);
+    }
+
+    /**
+     * A small utility function for writing a number to the byte array.
+     * 
+     * @param pos
+     *     - The bit position to write to.
+     * @param width
+     *     - The number of bits in the value.
      * @param value
      *     - The value to write.
      */
-    private void writeNumber(int pos, int value)
+    private void write(int pos, int width, int value)
     {
-        pos *= numSize;
-        for (int i = numSize - 1; i >= 0; i--)
-            data[pos++] = (byte) ((value >> (i * 8)) & 0xFF);
+        GraphLayout.write(data, (offset << 3) + pos, width, value);
     }
 
     /**
-     * A small utility function for reading a number from a byte array.
+     * A small utility function for reading a number from the byte array.
      * 
      * @param pos
-     *     - The byte position to read from.
+     *     - The bit position to read from.
+     * @param width
+     *     - The number of bits in the value.
      * @return The value at the given position.
      */
-    private int readNumber(int pos)
+    private int read(int pos, int width)
     {
-        int value = 0;
-
-        pos *= numSize;
-        for (int i = numSize - 1; i >= 0; i--)
-            value |= (data[pos++] & 0xFF) << i * 8;
-
-        return value;
+        return GraphLayout.read(data, (offset << 3) + pos, width);
     }
 
     /**
@@ -342,26 +887,189 @@ public class NodeGraph implements Comparable<NodeGraph>
         return environment;
     }
 
+    /**
+     * Gets the number of connections which are being pulled from the given output
+     * plug.
+     * 
+     * @param nodeIndex
+     *     - The index of the node.
+     * @param plugIndex
+     *     - The index of the output plug on the node.
+     * @return The number of connections leaving the output plug.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the node or output plug does not exist.
+     */
     public int getOutputConnectionCount(int nodeIndex, int plugIndex)
     {
         if (nodeIndex < 0 || nodeIndex >= getNodeCount())
             throw new ArrayIndexOutOfBoundsException("Node does not exist: " + nodeIndex);
 
-        if (plugIndex < 0 || plugIndex >= getNodeAsFunction(nodeIndex).getOutputs().length)
+        GraphIndex parentIndex = getPendingParentIndex();
+        if (parentIndex != null)
+        {
+            int plugCount = environment.getFunctionTable()
+                                       .getOutputCount(getNodeType(nodeIndex));
+            if (plugIndex < 0 || plugIndex >= plugCount)
+                throw new ArrayIndexOutOfBoundsException("Output plug does not exist: " + plugIndex);
+
+            int fanOut = nodeIndex < parentIndex.getNodeCount() ? parentIndex.getFanOut(nodeIndex, plugIndex) : 0;
+            return nodeIndex == addedOutputNode && plugIndex == addedOutputPlug ? fanOut + 1 : fanOut;
+        }
+
+        GraphIndex index = getIndex();
+        if (plugIndex < 0 || plugIndex >= index.getOutputPlugCount(nodeIndex))
             throw new ArrayIndexOutOfBoundsException("Output plug does not exist: " + plugIndex);
 
-        Connection connection = new Connection();
-        int cons = 0;
+        return index.getFanOut(nodeIndex, plugIndex);
+    }
+
+    /**
+     * Checks whether the given input plug has a connection leading into it.
+     * 
+     * @param nodeIndex
+     *     - The index of the node.
+     * @param plugIndex
+     *     - The index of the input plug on the node.
+     * @return True if the input plug is connected to something, false otherwise.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the node or input plug does not exist.
+     */
+    public boolean isInputConnected(int nodeIndex, int plugIndex)
+    {
+        if (nodeIndex < 0 || nodeIndex >= getNodeCount())
+            throw new ArrayIndexOutOfBoundsException("Node does not exist: " + nodeIndex);
+
+        GraphIndex parentIndex = getPendingParentIndex();
+        if (parentIndex != null)
+        {
+            int plugCount = environment.getFunctionTable()
+                                       .getInputCount(getNodeType(nodeIndex));
+            if (plugIndex < 0 || plugIndex >= plugCount)
+                throw new ArrayIndexOutOfBoundsException("Input plug does not exist: " + plugIndex);
+
+            if (nodeIndex == addedInputNode && plugIndex == addedInputPlug)
+                return true;
+
+            return nodeIndex < parentIndex.getNodeCount() && parentIndex.isInputConnected(nodeIndex, plugIndex);
+        }
+
+        GraphIndex index = getIndex();
+        if (plugIndex < 0 || plugIndex >= index.getInputPlugCount(nodeIndex))
+            throw new ArrayIndexOutOfBoundsException("Input plug does not exist: " + plugIndex);
+
+        return index.isInputConnected(nodeIndex, plugIndex);
+    }
+
+    /**
+     * Gets the total number of connections leaving any output plug of the given
+     * node.
+     * 
+     * @param nodeIndex
+     *     - The index of the node.
+     * @return The number of outgoing connections.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the node does not exist.
+     */
+    public int getOutgoingConnectionCount(int nodeIndex)
+    {
+        if (nodeIndex < 0 || nodeIndex >= getNodeCount())
+            throw new ArrayIndexOutOfBoundsException("Node does not exist: " + nodeIndex);
+
+        GraphIndex parentIndex = getPendingParentIndex();
+        if (parentIndex != null)
+        {
+            int outgoing = nodeIndex < parentIndex.getNodeCount() ? parentIndex.getOutgoing(nodeIndex) : 0;
+            return nodeIndex == addedOutputNode ? outgoing + 1 : outgoing;
+        }
+
+        return getIndex().getOutgoing(nodeIndex);
+    }
+
+    /**
+     * Gets the total number of connections entering any input plug of the given
+     * node.
+     * 
+     * @param nodeIndex
+     *     - The index of the node.
+     * @return The number of incoming connections.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the node does not exist.
+     */
+    public int getIncomingConnectionCount(int nodeIndex)
+    {
+        if (nodeIndex < 0 || nodeIndex >= getNodeCount())
+            throw new ArrayIndexOutOfBoundsException("Node does not exist: " + nodeIndex);
 
-        int connectionCount = getConnectionCount();
-        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
+        GraphIndex parentIndex = getPendingParentIndex();
+        if (parentIndex != null)
         {
-            getConnection(connectionIndex, connection);
+            int incoming = nodeIndex < parentIndex.getNodeCount() ? parentIndex.getIncoming(nodeIndex) : 0;
+            return nodeIndex == addedInputNode ? incoming + 1 : incoming;
+        }
+
+        return getIndex().getIncoming(nodeIndex);
+    }
+
+    /**
+     * Gets the plug index for this graph, building it if it does not yet exist. If
+     * the parent of this graph had an index when this graph was created, the index
+     * is derived from the parent's index and the added connection instead.
+     * 
+     * @return The graph index.
+     */
+    GraphIndex getIndex()
+    {
+        GraphIndex index = this.index;
 
-            if (connection.getOutputNode() == nodeIndex && connection.getOutputPlug() == plugIndex)
-                cons++;
+        if (index == null)
+        {
+            index = deriveIndex();
+            this.index = index;
         }
 
-        return cons;
+        return index;
+    }
+
+    /**
+     * Gets the index of the parent graph if the index of this graph has not been
+     * created yet, so plug queries can be answered from the parent index and the
+     * added connection instead.
+     */
+    private GraphIndex getPendingParentIndex()
+    {
+        return index == null ? parentIndex : null;
+    }
+
+    /**
+     * Creates the index of this graph, deriving it from the index of the parent
+     * graph if it is known.
+     */
+    private GraphIndex deriveIndex()
+    {
+        GraphIndex parentIndex = this.parentIndex;
+        if (parentIndex == null)
+            return GraphIndex.build(this);
+
+        if (addedOutputNode < parentIndex.getNodeCount())
+            return parentIndex.deriveConnection(addedOutputNode, addedOutputPlug, addedInputNode, addedInputPlug);
+
+        FunctionTable table = environment.getFunctionTable();
+        int nodeType = getNodeType(addedOutputNode);
+
+        return parentIndex.deriveNode(table.getInputCount(nodeType), table.getOutputCount(nodeType), addedOutputPlug,
+                addedInputNode, addedInputPlug);
+    }
+
+    /**
+     * Releases any lookup tables which are cached on this graph and can be
+     * rebuilt later. This is called on graphs before they are stored for a longer
+     * period of time, such as within the node container, to reduce memory usage.
+     * The index of the parent graph, which is shared with the siblings of this
+     * graph, is kept, so the index of this graph is derived from it again instead
+     * of being rebuilt from scratch.
+     */
+    void releaseCaches()
+    {
+        index = null;
     }
 }
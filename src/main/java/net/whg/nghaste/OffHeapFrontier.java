@@ -0,0 +1,434 @@
+package net.whg.nghaste;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * An off-heap frontier stores the encoded form of each node graph within large
+ * direct byte buffers, called slabs, instead of as objects on the heap. Each
+ * graph is referred to by a long handle containing the index of the slab and
+ * the offset of the graph within that slab. The only heap memory used per graph
+ * is two floats and a long within a binary heap, which keeps the garbage
+ * collector from having to walk the frontier. The heap is ordered in the same
+ * way as {@link NodeGraph#compareTo(NodeGraph)}, by search cost and then by
+ * heuristic score, so graphs are polled in the same order as an A* search.
+ * <p>
+ * Node graphs are only rebuilt as objects when they are polled from this
+ * frontier. Slabs are reused once all graphs within them have been polled, and
+ * at most one empty slab is kept for reuse, while any others are released.
+ * Before a new slab is allocated, the remaining graphs of slabs which are at
+ * most a quarter full are packed together, so graphs which are polled late do
+ * not each keep an otherwise empty slab alive. This keeps the direct memory
+ * used by the frontier proportional to the number of graphs within it. Since
+ * the frontier does not keep references to the graphs which are added to it,
+ * graphs may not be updated or sorted after being added.
+ * <p>
+ * Slabs are allocated using {@link ByteBuffer#allocateDirect(int)}, so the
+ * total size of this frontier is limited by the maximum direct memory size of
+ * the JVM. This class is thread safe.
+ */
+public class OffHeapFrontier implements IFrontier
+{
+    /**
+     * The default size of each slab, in bytes.
+     */
+    public static final int DEFAULT_SLAB_SIZE = 64 * 1024 * 1024;
+
+    private final List<ByteBuffer> slabs = new ArrayList<>();
+    private final Deque<Integer> freeSlabs = new ArrayDeque<>();
+    private final Deque<Integer> releasedSlabs = new ArrayDeque<>();
+    private final Environment environment;
+    private final int slabSize;
+    private int[] liveGraphs = new int[4];
+    private int[] liveBytes = new int[4];
+    private int currentSlab = -1;
+    private float[] scores = new float[1024];
+    private float[] costs = new float[1024];
+    private long[] handles = new long[1024];
+    private int size;
+
+    /**
+     * Creates a new off-heap frontier using the default slab size.
+     * 
+     * @param environment
+     *     - The environment of the graphs which are stored in this frontier.
+     */
+    public OffHeapFrontier(Environment environment)
+    {
+        this(environment, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * Creates a new off-heap frontier.
+     * 
+     * @param environment
+     *     - The environment of the graphs which are stored in this frontier.
+     * @param slabSize
+     *     - The number of bytes to allocate per slab.
+     * @throws IllegalArgumentException
+     *     If the slab size is too small to store a single graph within the given
+     *     environment.
+     */
+    public OffHeapFrontier(Environment environment, int slabSize)
+    {
+        GraphLayout layout = environment.getGraphLayout();
+        int maxGraph = 8 + layout.getByteLength(environment.getMaxDepth() + 1, environment.getMaxDepth());
+
+        if (slabSize < maxGraph)
+            throw new IllegalArgumentException("Slab size must be at least " + maxGraph + " bytes!");
+
+        this.environment = environment;
+        this.slabSize = slabSize;
+    }
+
+    @Override
+    public synchronized void add(NodeGraph graph)
+    {
+        int length = graph.getEncodedLength();
+        ByteBuffer slab = reserve(length + 4);
+
+        int offset = slab.position();
+        slab.putInt(length);
+        graph.encode(slab);
+
+        liveGraphs[currentSlab]++;
+        liveBytes[currentSlab] += length + 4;
+        push(graph.getSearchCost(), graph.getHeuristicScore(), ((long) currentSlab << 32) | offset);
+    }
+
+    @Override
+    public synchronized NodeGraph poll()
+    {
+        if (size == 0)
+            return null;
+
+        float cost = costs[0];
+        float score = scores[0];
+        long handle = handles[0];
+        pop();
+
+        NodeGraph graph = decode(cost, score, handle);
+
+        release((int) (handle >>> 32), graph.getEncodedLength() + 4);
+        return graph;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<NodeGraph> action)
+    {
+        for (int i = 0; i < size; i++)
+            action.accept(decode(costs[i], scores[i], handles[i]));
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    /**
+     * Gets the number of slabs which are currently allocated by this frontier.
+     * This includes the current slab, and at most one other empty slab which is
+     * waiting to be reused.
+     * 
+     * @return The number of slabs.
+     */
+    public synchronized int getSlabCount()
+    {
+        return slabs.size() - releasedSlabs.size();
+    }
+
+    /**
+     * Gets the size of each slab within this frontier, in bytes.
+     * 
+     * @return The slab size.
+     */
+    public int getSlabSize()
+    {
+        return slabSize;
+    }
+
+    /**
+     * Rebuilds the node graph stored at the given handle.
+     */
+    private NodeGraph decode(float cost, float score, long handle)
+    {
+        ByteBuffer slab = slabs.get((int) (handle >>> 32))
+                               .duplicate();
+        slab.position((int) handle);
+
+        int length = slab.getInt();
+        return NodeGraph.decode(environment, slab, length, score, cost);
+    }
+
+    /**
+     * Gets a slab with at least the given number of bytes remaining, and makes it
+     * the current slab. A new slab is only allocated if there are no empty slabs
+     * which can be reused, and no space can be made by compacting sparse slabs.
+     */
+    private ByteBuffer reserve(int length)
+    {
+        if (currentSlab != -1)
+        {
+            ByteBuffer slab = slabs.get(currentSlab);
+
+            if (slab.remaining() >= length)
+                return slab;
+
+            if (liveGraphs[currentSlab] == 0)
+            {
+                slab.clear();
+                return slab;
+            }
+
+            if (freeSlabs.isEmpty())
+            {
+                compact();
+
+                slab = slabs.get(currentSlab);
+                if (slab.remaining() >= length)
+                    return slab;
+            }
+        }
+
+        if (!freeSlabs.isEmpty())
+        {
+            currentSlab = freeSlabs.pop();
+            return slabs.get(currentSlab);
+        }
+
+        if (!releasedSlabs.isEmpty())
+        {
+            currentSlab = releasedSlabs.pop();
+            slabs.set(currentSlab, ByteBuffer.allocateDirect(slabSize));
+            return slabs.get(currentSlab);
+        }
+
+        currentSlab = slabs.size();
+        slabs.add(ByteBuffer.allocateDirect(slabSize));
+
+        if (currentSlab == liveGraphs.length)
+        {
+            liveGraphs = Arrays.copyOf(liveGraphs, liveGraphs.length * 2);
+            liveBytes = Arrays.copyOf(liveBytes, liveBytes.length * 2);
+        }
+
+        return slabs.get(currentSlab);
+    }
+
+    /**
+     * Marks a graph within the given slab as polled. If the slab no longer
+     * contains any graphs, it is cleared so it may be reused.
+     */
+    private void release(int slabIndex, int length)
+    {
+        liveBytes[slabIndex] -= length;
+        if (--liveGraphs[slabIndex] > 0)
+            return;
+
+        slabs.get(slabIndex)
+             .clear();
+
+        if (slabIndex != currentSlab)
+            free(slabIndex);
+    }
+
+    /**
+     * Adds an empty slab to the slabs which may be reused. Only a single empty
+     * slab is kept, while the memory of any other empty slab is released. The
+     * index of a released slab is reused by the next slab which is allocated.
+     */
+    private void free(int slabIndex)
+    {
+        if (freeSlabs.isEmpty())
+        {
+            freeSlabs.push(slabIndex);
+            return;
+        }
+
+        slabs.set(slabIndex, null);
+        releasedSlabs.push(slabIndex);
+    }
+
+    /**
+     * Packs the graphs of all slabs, other than the current slab, which are at
+     * most a quarter full, into as few of these slabs as possible, and updates the
+     * handles of the moved graphs. Graphs are moved in the order of their
+     * handles, so a graph is either moved into a slab which has already been
+     * emptied, or towards the start of its own slab. The last slab which graphs
+     * were moved into becomes the current slab, and the remaining sparse slabs
+     * are freed. Nothing is done if there are less than two sparse slabs.
+     */
+    private void compact()
+    {
+        boolean[] sparse = new boolean[slabs.size()];
+        int sparseCount = 0;
+
+        for (int i = 0; i < slabs.size(); i++)
+        {
+            if (i == currentSlab || slabs.get(i) == null || liveGraphs[i] == 0 || liveBytes[i] > slabSize / 4)
+                continue;
+
+            sparse[i] = true;
+            sparseCount++;
+        }
+
+        if (sparseCount < 2)
+            return;
+
+        Integer[] moved = new Integer[size];
+        int movedCount = 0;
+
+        for (int i = 0; i < size; i++)
+            if (sparse[(int) (handles[i] >>> 32)])
+                moved[movedCount++] = i;
+
+        Arrays.sort(moved, 0, movedCount, (a, b) -> Long.compare(handles[a], handles[b]));
+
+        int[] targets = new int[sparseCount];
+        for (int i = 0, j = 0; i < sparse.length; i++)
+        {
+            if (sparse[i])
+            {
+                targets[j++] = i;
+                liveGraphs[i] = 0;
+                liveBytes[i] = 0;
+            }
+        }
+
+        int target = 0;
+        int position = 0;
+        byte[] record = new byte[0];
+
+        for (int i = 0; i < movedCount; i++)
+        {
+            int heapIndex = moved[i];
+            ByteBuffer source = slabs.get((int) (handles[heapIndex] >>> 32));
+            int offset = (int) handles[heapIndex];
+            int length = source.getInt(offset) + 4;
+
+            if (position + length > slabSize)
+            {
+                target++;
+                position = 0;
+            }
+
+            if (record.length < length)
+                record = new byte[length];
+
+            ByteBuffer in = source.duplicate();
+            in.position(offset);
+            in.get(record, 0, length);
+
+            ByteBuffer out = slabs.get(targets[target])
+                                  .duplicate();
+            out.position(position);
+            out.put(record, 0, length);
+
+            handles[heapIndex] = ((long) targets[target] << 32) | position;
+            liveGraphs[targets[target]]++;
+            liveBytes[targets[target]] += length;
+            position += length;
+        }
+
+        currentSlab = targets[target];
+        slabs.get(currentSlab)
+             .clear()
+             .position(position);
+
+        for (int i = target + 1; i < targets.length; i++)
+        {
+            slabs.get(targets[i])
+                 .clear();
+            free(targets[i]);
+        }
+    }
+
+    /**
+     * Checks whether an entry with the first search cost and heuristic score is
+     * polled before an entry with the second search cost and heuristic score.
+     */
+    private static boolean isBefore(float costA, float scoreA, float costB, float scoreB)
+    {
+        if (costA != costB)
+            return costA < costB;
+
+        return scoreA > scoreB;
+    }
+
+    /**
+     * Moves the entry at the given index of the binary heap to another index.
+     */
+    private void move(int from, int to)
+    {
+        costs[to] = costs[from];
+        scores[to] = scores[from];
+        handles[to] = handles[from];
+    }
+
+    /**
+     * Adds a new entry to the binary heap.
+     */
+    private void push(float cost, float score, long handle)
+    {
+        if (size == scores.length)
+        {
+            costs = Arrays.copyOf(costs, size * 2);
+            scores = Arrays.copyOf(scores, size * 2);
+            handles = Arrays.copyOf(handles, size * 2);
+        }
+
+        int index = size++;
+        while (index > 0)
+        {
+            int parent = (index - 1) >>> 1;
+            if (!isBefore(cost, score, costs[parent], scores[parent]))
+                break;
+
+            move(parent, index);
+            index = parent;
+        }
+
+        costs[index] = cost;
+        scores[index] = score;
+        handles[index] = handle;
+    }
+
+    /**
+     * Removes the first entry from the binary heap.
+     */
+    private void pop()
+    {
+        size--;
+        if (size == 0)
+            return;
+
+        float cost = costs[size];
+        float score = scores[size];
+        long handle = handles[size];
+
+        int index = 0;
+        int half = size >>> 1;
+        while (index < half)
+        {
+            int child = 2 * index + 1;
+            if (child + 1 < size && isBefore(costs[child + 1], scores[child + 1], costs[child], scores[child]))
+                child++;
+
+            if (!isBefore(costs[child], scores[child], cost, score))
+                break;
+
+            move(child, index);
+            index = child;
+        }
+
+        costs[index] = cost;
+        scores[index] = score;
+        handles[index] = handle;
+    }
+}
@@ -0,0 +1,98 @@
+package net.whg.nghaste;
+
+/**
+ * Pipeline metrics count how many graphs entered and were rejected by each
+ * stage of the graph processing pipeline, and estimate the time spent within
+ * each stage. The time taken by each stage is only measured for one out of
+ * every {@value #SAMPLE_INTERVAL} graphs of a search tree, and is scaled up by
+ * the number of graphs which entered the stage.
+ * <p>
+ * Each search tree keeps its own counters, which are merged into these metrics
+ * once every {@value #FLUSH_INTERVAL} graphs, and whenever the worker running
+ * the search tree becomes idle or stops. The metrics therefore lag behind the
+ * workers while they are busy. This class is thread safe.
+ * 
+ * @see PipelineStage
+ */
+public final class PipelineMetrics
+{
+    /**
+     * The number of graphs between each timed graph of a search tree.
+     */
+    public static final int SAMPLE_INTERVAL = SampledCounters.SAMPLE_INTERVAL;
+
+    /**
+     * The number of graphs a search tree processes before merging its counters
+     * into the metrics.
+     */
+    public static final int FLUSH_INTERVAL = SampledCounters.FLUSH_INTERVAL;
+
+    private final SampledCounters counters = new SampledCounters(PipelineStage.values().length);
+
+    /**
+     * Gets the number of graphs which have entered the given stage.
+     * 
+     * @param stage
+     *     - The pipeline stage.
+     * @return The number of graphs.
+     */
+    public long getEnteredCount(PipelineStage stage)
+    {
+        return counters.getEntered(stage.ordinal());
+    }
+
+    /**
+     * Gets the number of graphs which have been rejected by the given stage.
+     * 
+     * @param stage
+     *     - The pipeline stage.
+     * @return The number of graphs.
+     */
+    public long getRejectedCount(PipelineStage stage)
+    {
+        return counters.getRejected(stage.ordinal());
+    }
+
+    /**
+     * Gets the average time taken by the given stage for a single graph, based on
+     * the graphs which were timed.
+     * 
+     * @param stage
+     *     - The pipeline stage.
+     * @return The average time in nanoseconds, or NaN if the stage has not been
+     *     timed yet.
+     */
+    public double getAverageNanos(PipelineStage stage)
+    {
+        return counters.getAverageNanos(stage.ordinal());
+    }
+
+    /**
+     * Gets the estimated total time spent within the given stage, being the
+     * average time taken per graph times the number of graphs which entered the
+     * stage.
+     * 
+     * @param stage
+     *     - The pipeline stage.
+     * @return The estimated time in nanoseconds, or 0 if the stage has not been
+     *     timed yet.
+     */
+    public long getEstimatedNanos(PipelineStage stage)
+    {
+        double average = getAverageNanos(stage);
+        if (Double.isNaN(average))
+            return 0;
+
+        return (long) (average * getEnteredCount(stage));
+    }
+
+    /**
+     * Creates a new recorder for a single search tree to count stages with.
+     * 
+     * @return A new recorder.
+     */
+    SampledCounters.Recorder newRecorder()
+    {
+        return counters.newRecorder(null);
+    }
+}
@@ -0,0 +1,50 @@
+package net.whg.nghaste;
+
+/**
+ * A pipeline stage is a single check which the search tree runs on every newly
+ * created child graph. A child is rejected by the first stage it fails, and is
+ * only added to the container if it passes every stage. The order of the stages
+ * is configured for each environment, and does not change which solutions are
+ * found.
+ * <p>
+ * Stages which run before {@link #DUPLICATES} keep the graphs they reject out of
+ * the duplicate finder. As every duplicate of a graph has the same structure,
+ * all duplicates of a rejected graph are rejected as well, so this only changes
+ * which duplicate of a valid graph is kept.
+ * 
+ * @see EnvironmentBuilder#setPipeline(PipelineStage...)
+ */
+public enum PipelineStage
+{
+    /**
+     * Rejects graphs where the number of connections plus the estimated number of
+     * connections needed to complete the graph is larger than the maximum depth,
+     * or the depth limit of an iterative deepening search. During an iterative
+     * deepening search, solutions which are smaller than the depth limit are also
+     * rejected, as they were already found by an earlier iteration.
+     * 
+     * @see CompletionBound
+     */
+    DEPTH,
+
+    /**
+     * Rejects graphs which have the same structure as a graph which was already
+     * found, using the duplicate finder of the container. This stage always passes
+     * if the environment has a plug selector, as every graph is then only found
+     * once.
+     */
+    DUPLICATES,
+
+    /**
+     * Rejects graphs which are marked as invalid by at least one axiom of the
+     * environment.
+     */
+    AXIOMS,
+
+    /**
+     * Rejects solutions which are marked as invalid by at least one solution axiom
+     * of the environment. Graphs which still have open plugs always pass this
+     * stage without being checked.
+     */
+    SOLUTION_AXIOMS
+}
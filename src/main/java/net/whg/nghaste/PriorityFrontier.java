@@ -0,0 +1,60 @@
+package net.whg.nghaste;
+
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.function.Consumer;
+
+/**
+ * The default frontier implementation, which stores node graphs as objects
+ * within a priority queue on the heap. This class is thread safe.
+ */
+public class PriorityFrontier implements IFrontier
+{
+    private final PriorityBlockingQueue<NodeGraph> queue = new PriorityBlockingQueue<>();
+
+    @Override
+    public void add(NodeGraph graph)
+    {
+        queue.add(graph);
+    }
+
+    @Override
+    public NodeGraph poll()
+    {
+        return queue.poll();
+    }
+
+    @Override
+    public int size()
+    {
+        return queue.size();
+    }
+
+    @Override
+    public void forEach(Consumer<NodeGraph> action)
+    {
+        queue.forEach(action);
+    }
+
+    @Override
+    public void sort()
+    {
+        synchronized (queue)
+        {
+            Object[] array = queue.toArray();
+            queue.clear();
+
+            for (Object o : array)
+                queue.add((NodeGraph) o);
+        }
+    }
+
+    @Override
+    public void update(NodeGraph graph)
+    {
+        synchronized (queue)
+        {
+            if (queue.remove(graph))
+                queue.add(graph);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+
+/**
+ * A reachability table stores, for every node within a graph, a bitset of all
+ * nodes which can be reached from that node by following connections from
+ * output plugs to input plugs. A node can always reach itself. The table is
+ * built once per expansion, after which checking whether a new connection would
+ * create a cycle is a single bit test.
+ * <p>
+ * The buffers of this table are reused between graphs, so building the table
+ * does not allocate unless the graph is larger than any graph before it. This
+ * class is not thread safe.
+ */
+final class ReachabilityTable
+{
+    private final Connection connectionBuf = new Connection();
+    private long[] reach = new long[0];
+    private int[] firstEdge = new int[0];
+    private int[] visited = new int[0];
+    private int[] nextEdge = new int[0];
+    private int[] edgeTarget = new int[0];
+    private int words;
+    private int generation;
+
+    /**
+     * Rebuilds this table for the given graph.
+     * 
+     * @param graph
+     *     - The graph to build the table for.
+     */
+    void build(NodeGraph graph)
+    {
+        int nodeCount = graph.getNodeCount();
+        int connectionCount = graph.getConnectionCount();
+        words = (nodeCount + 63) >>> 6;
+
+        if (reach.length < nodeCount * words)
+            reach = new long[nodeCount * words];
+
+        if (firstEdge.length < nodeCount)
+        {
+            firstEdge = new int[nodeCount];
+            visited = new int[nodeCount];
+            generation = 0;
+        }
+
+        if (nextEdge.length < connectionCount)
+        {
+            nextEdge = new int[connectionCount];
+            edgeTarget = new int[connectionCount];
+        }
+
+        if (++generation == 0)
+        {
+            Arrays.fill(visited, 0);
+            generation = 1;
+        }
+
+        Arrays.fill(firstEdge, 0, nodeCount, -1);
+        for (int i = 0; i < connectionCount; i++)
+        {
+            graph.getConnection(i, connectionBuf);
+
+            int outputNode = connectionBuf.getOutputNode();
+            edgeTarget[i] = connectionBuf.getInputNode();
+            nextEdge[i] = firstEdge[outputNode];
+            firstEdge[outputNode] = i;
+        }
+
+        for (int node = 0; node < nodeCount; node++)
+            visit(node);
+    }
+
+    /**
+     * Fills the row of the given node, after filling the rows of all nodes it is
+     * connected to. Node graphs never contain cycles, so the recursion depth is
+     * limited by the number of nodes.
+     */
+    private void visit(int node)
+    {
+        if (visited[node] == generation)
+            return;
+
+        visited[node] = generation;
+
+        int row = node * words;
+        Arrays.fill(reach, row, row + words, 0L);
+        reach[row + (node >>> 6)] |= 1L << node;
+
+        for (int edge = firstEdge[node]; edge != -1; edge = nextEdge[edge])
+        {
+            int target = edgeTarget[edge];
+            visit(target);
+
+            int targetRow = target * words;
+            for (int i = 0; i < words; i++)
+                reach[row + i] |= reach[targetRow + i];
+        }
+    }
+
+    /**
+     * Checks whether the given node can be reached from another node within the
+     * graph this table was last built for. A node is always reachable from
+     * itself.
+     * 
+     * @param from
+     *     - The node to start from.
+     * @param to
+     *     - The node to check.
+     * @return True if the node can be reached, false otherwise.
+     */
+    boolean canReach(int from, int to)
+    {
+        return (reach[from * words + (to >>> 6)] & (1L << to)) != 0;
+    }
+}
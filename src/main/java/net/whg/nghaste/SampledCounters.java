@@ -0,0 +1,190 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A set of counters which measure how often each of a fixed number of checks
+ * is run, how often it rejects a graph, and how long it takes. The time taken
+ * is only measured for one out of every {@value #SAMPLE_INTERVAL} graphs, as
+ * reading the system timer costs more than many of the checks being measured.
+ * <p>
+ * Each search tree counts into its own {@link Recorder}, which is merged into
+ * the shared counters once every {@value #FLUSH_INTERVAL} graphs, so workers do
+ * not contend over shared counters for every check. This class is thread safe.
+ */
+final class SampledCounters
+{
+    /**
+     * The number of graphs between each timed graph of a recorder.
+     */
+    static final int SAMPLE_INTERVAL = 16;
+
+    /**
+     * The number of graphs a recorder counts before merging its counters into the
+     * shared counters.
+     */
+    static final int FLUSH_INTERVAL = 1024;
+
+    private final LongAdder[] entered;
+    private final LongAdder[] rejected;
+    private final LongAdder[] sampled;
+    private final LongAdder[] sampledNanos;
+
+    /**
+     * Creates a new set of counters.
+     * 
+     * @param count
+     *     - The number of checks to count.
+     */
+    SampledCounters(int count)
+    {
+        entered = newAdders(count);
+        rejected = newAdders(count);
+        sampled = newAdders(count);
+        sampledNanos = newAdders(count);
+    }
+
+    private static LongAdder[] newAdders(int count)
+    {
+        LongAdder[] adders = new LongAdder[count];
+
+        for (int i = 0; i < count; i++)
+            adders[i] = new LongAdder();
+
+        return adders;
+    }
+
+    /**
+     * Gets the number of times the given check has been run.
+     */
+    long getEntered(int check)
+    {
+        return entered[check].sum();
+    }
+
+    /**
+     * Gets the number of graphs the given check has rejected.
+     */
+    long getRejected(int check)
+    {
+        return rejected[check].sum();
+    }
+
+    /**
+     * Gets the number of times the given check has been timed.
+     */
+    long getSampled(int check)
+    {
+        return sampled[check].sum();
+    }
+
+    /**
+     * Gets the average time taken by the given check, or NaN if it has not been
+     * timed yet.
+     */
+    double getAverageNanos(int check)
+    {
+        long samples = sampled[check].sum();
+        if (samples == 0)
+            return Double.NaN;
+
+        return (double) sampledNanos[check].sum() / samples;
+    }
+
+    /**
+     * Creates a new recorder for a single search tree to count checks with.
+     * 
+     * @param onFlush
+     *     - An action to run after the recorder has been merged into the shared
+     *     counters, or null.
+     * @return A new recorder.
+     */
+    Recorder newRecorder(Runnable onFlush)
+    {
+        return new Recorder(onFlush);
+    }
+
+    /**
+     * A recorder keeps the counters of a single search tree. This class is not
+     * thread safe.
+     */
+    final class Recorder
+    {
+        private final long[] localEntered = new long[entered.length];
+        private final long[] localRejected = new long[entered.length];
+        private final long[] localSampled = new long[entered.length];
+        private final long[] localSampledNanos = new long[entered.length];
+        private final Runnable onFlush;
+        private int graphs;
+
+        private Recorder(Runnable onFlush)
+        {
+            this.onFlush = onFlush;
+        }
+
+        /**
+         * Starts checking a new graph, merging the counters of this recorder into
+         * the shared counters every {@value SampledCounters#FLUSH_INTERVAL} graphs.
+         * 
+         * @return True if the checks should be timed for this graph, false
+         *     otherwise.
+         */
+        boolean nextGraph()
+        {
+            if (++graphs == FLUSH_INTERVAL)
+                flush();
+
+            return graphs % SAMPLE_INTERVAL == 0;
+        }
+
+        /**
+         * Records a run of a check which was not timed.
+         */
+        void record(int check, boolean rejected)
+        {
+            localEntered[check]++;
+
+            if (rejected)
+                localRejected[check]++;
+        }
+
+        /**
+         * Records a run of a check which was timed.
+         */
+        void recordSample(int check, boolean rejected, long nanos)
+        {
+            record(check, rejected);
+
+            localSampled[check]++;
+            localSampledNanos[check] += nanos;
+        }
+
+        /**
+         * Merges the counters of this recorder into the shared counters and resets
+         * them. This does nothing if no graphs were checked since the last flush.
+         */
+        void flush()
+        {
+            if (graphs == 0)
+                return;
+
+            for (int i = 0; i < localEntered.length; i++)
+            {
+                entered[i].add(localEntered[i]);
+                rejected[i].add(localRejected[i]);
+                sampled[i].add(localSampled[i]);
+                sampledNanos[i].add(localSampledNanos[i]);
+            }
+
+            Arrays.fill(localEntered, 0);
+            Arrays.fill(localRejected, 0);
+            Arrays.fill(localSampled, 0);
+            Arrays.fill(localSampledNanos, 0);
+            graphs = 0;
+
+            if (onFlush != null)
+                onFlush.run();
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package net.whg.nghaste;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A search budget limits how long a search run may continue before it is
+ * stopped. Each limit is disabled by default, so a new budget allows a search
+ * to run until the search space is exhausted. Limits are counted from the
+ * moment the workers of the search run are started, so solutions and graphs
+ * found before resuming from a checkpoint are not counted.
+ * <p>
+ * Workers check the budget after every graph they process, so a search may
+ * slightly exceed a limit by the children of the graphs being processed when
+ * it is reached. The budget is copied when a search run is started, so later
+ * changes to this object do not affect running searches.
+ * 
+ * @see NGHasteAlgorithm#startWorkers(int, SearchMode, SearchBudget)
+ */
+public final class SearchBudget
+{
+    private int maxSolutions = -1;
+    private int maxGraphs = -1;
+    private long maxTimeNanos = -1;
+    private long maxHeapBytes = -1;
+
+    /**
+     * Sets the number of solutions after which the search is stopped.
+     * 
+     * @param maxSolutions
+     *     - The maximum number of solutions, or -1 to disable the limit. Defaults
+     *     to -1.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If the limit is less than -1.
+     */
+    public SearchBudget setMaxSolutions(int maxSolutions)
+    {
+        if (maxSolutions < -1)
+            throw new IllegalArgumentException("Solution limit must be >= 0, or -1!");
+
+        this.maxSolutions = maxSolutions;
+
+        return this;
+    }
+
+    /**
+     * Sets the number of processed graphs after which the search is stopped.
+     * 
+     * @param maxGraphs
+     *     - The maximum number of graphs to process, or -1 to disable the limit.
+     *     Defaults to -1.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If the limit is less than -1.
+     */
+    public SearchBudget setMaxGraphs(int maxGraphs)
+    {
+        if (maxGraphs < -1)
+            throw new IllegalArgumentException("Graph limit must be >= 0, or -1!");
+
+        this.maxGraphs = maxGraphs;
+
+        return this;
+    }
+
+    /**
+     * Sets the amount of wall-clock time after which the search is stopped.
+     * 
+     * @param time
+     *     - The maximum amount of time.
+     * @param unit
+     *     - The unit of the time.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If the time is negative, or the unit is null.
+     */
+    public SearchBudget setMaxTime(long time, TimeUnit unit)
+    {
+        if (time < 0)
+            throw new IllegalArgumentException("Time limit cannot be negative!");
+
+        if (unit == null)
+            throw new IllegalArgumentException("Time unit cannot be null!");
+
+        maxTimeNanos = unit.toNanos(time);
+
+        return this;
+    }
+
+    /**
+     * Sets the amount of used heap memory above which the search is stopped. The
+     * used heap memory is sampled periodically by the workers, and includes
+     * garbage which has not been collected yet.
+     * 
+     * @param maxHeapBytes
+     *     - The maximum amount of used heap memory in bytes, or -1 to disable the
+     *     limit. Defaults to -1.
+     * @return This object for chaining.
+     * @throws IllegalArgumentException
+     *     If the limit is less than -1.
+     */
+    public SearchBudget setMaxHeapBytes(long maxHeapBytes)
+    {
+        if (maxHeapBytes < -1)
+            throw new IllegalArgumentException("Heap limit must be >= 0, or -1!");
+
+        this.maxHeapBytes = maxHeapBytes;
+
+        return this;
+    }
+
+    /**
+     * Gets the number of solutions after which the search is stopped.
+     * 
+     * @return The maximum number of solutions, or -1 if there is no limit.
+     */
+    public int getMaxSolutions()
+    {
+        return maxSolutions;
+    }
+
+    /**
+     * Gets the number of processed graphs after which the search is stopped.
+     * 
+     * @return The maximum number of graphs, or -1 if there is no limit.
+     */
+    public int getMaxGraphs()
+    {
+        return maxGraphs;
+    }
+
+    /**
+     * Gets the amount of wall-clock time after which the search is stopped.
+     * 
+     * @return The maximum amount of time in nanoseconds, or -1 if there is no
+     *     limit.
+     */
+    public long getMaxTimeNanos()
+    {
+        return maxTimeNanos;
+    }
+
+    /**
+     * Gets the amount of used heap memory above which the search is stopped.
+     * 
+     * @return The maximum amount of used heap memory in bytes, or -1 if there is
+     *     no limit.
+     */
+    public long getMaxHeapBytes()
+    {
+        return maxHeapBytes;
+    }
+}
@@ -0,0 +1,45 @@
+package net.whg.nghaste;
+
+/**
+ * The search mode determines the order in which workers process the node
+ * graphs within the search tree.
+ */
+public enum SearchMode
+{
+    /**
+     * Node graphs are processed in order of their heuristic score, or their search
+     * cost for an A* search, using the shared frontier of the node container.
+     * Memory usage grows with the size of the frontier. This is the default search
+     * mode.
+     */
+    BEST_FIRST,
+
+    /**
+     * Each worker processes the children of its most recently processed node graph
+     * first, using a small local stack. Heuristic scores are ignored. Memory usage
+     * is limited to roughly the maximum depth times the number of children per
+     * graph, for each worker. When the shared frontier is empty, workers donate
+     * the shallowest graph on their stack to it, so that idle workers can take it.
+     * <p>
+     * The duplicate finder is used in the same way as the best first search, so
+     * the same set of solutions is found.
+     */
+    DEPTH_FIRST,
+
+    /**
+     * The search tree is searched depth first, starting over from the root graph
+     * with a larger depth limit each time the search tree is exhausted, until the
+     * maximum depth of the environment is reached. The depth limit applies to the
+     * number of connections plus the number of open plugs of each graph. Only
+     * solutions which have exactly as many connections as the current depth limit
+     * are reported, so each solution is only reported once, and solutions are
+     * found in order of size.
+     * <p>
+     * The duplicate finder is cleared at the start of each iteration, as each
+     * iteration visits every graph of the search tree which is within the depth
+     * limit again. All duplicates of a graph have the same depth, so they are
+     * always found within the same iteration. This mode can only be used on a new
+     * search, and does not support checkpoints.
+     */
+    ITERATIVE_DEEPENING
+}
@@ -0,0 +1,162 @@
+package net.whg.nghaste;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A search run is a single period of searching, from the moment workers are
+ * started until the search is stopped. The workers of a run check its budget
+ * after every graph they process, and stop as soon as any worker has stopped
+ * the run.
+ * <p>
+ * This class is thread safe.
+ */
+final class SearchRun
+{
+    /**
+     * The number of graphs each worker processes between measuring the used heap
+     * memory, as doing so costs more than checking the other limits.
+     */
+    static final int MEMORY_CHECK_INTERVAL = 64;
+
+    private final AtomicReference<StopReason> stopReason = new AtomicReference<>();
+    private final CountDownLatch stopped = new CountDownLatch(1);
+    private final AtomicInteger workers = new AtomicInteger();
+    private final NodeContainer container;
+    private final int maxSolutions;
+    private final int maxGraphs;
+    private final long maxHeapBytes;
+    private final long deadline;
+    private final boolean hasDeadline;
+    private final int solutionsAtStart;
+    private final int graphsAtStart;
+
+    /**
+     * Creates a new search run, starting now.
+     * 
+     * @param container
+     *     - The node container being searched.
+     * @param budget
+     *     - The budget of the run.
+     */
+    SearchRun(NodeContainer container, SearchBudget budget)
+    {
+        this.container = container;
+
+        maxSolutions = budget.getMaxSolutions();
+        maxGraphs = budget.getMaxGraphs();
+        maxHeapBytes = budget.getMaxHeapBytes();
+        hasDeadline = budget.getMaxTimeNanos() != -1;
+        deadline = System.nanoTime() + budget.getMaxTimeNanos();
+
+        solutionsAtStart = container.getTotalSolutionsFound();
+        graphsAtStart = container.getTotalGraphsSearched();
+    }
+
+    /**
+     * Checks whether this run has been stopped.
+     */
+    boolean isStopped()
+    {
+        return stopReason.get() != null;
+    }
+
+    /**
+     * Gets the reason this run was stopped, or null if it is still running.
+     */
+    StopReason getStopReason()
+    {
+        return stopReason.get();
+    }
+
+    /**
+     * Registers a new worker of this run.
+     */
+    void addWorker()
+    {
+        workers.incrementAndGet();
+    }
+
+    /**
+     * Marks a worker of this run as stopped. If this was the last worker, and the
+     * run is still running, the run is stopped, since no worker is left to stop
+     * it. This can only happen if every worker was interrupted.
+     */
+    void removeWorker()
+    {
+        if (workers.decrementAndGet() == 0)
+            stop(StopReason.INTERRUPTED);
+    }
+
+    /**
+     * Stops this run with the given reason. Does nothing if the run has already
+     * been stopped.
+     */
+    void stop(StopReason reason)
+    {
+        if (stopReason.compareAndSet(null, reason))
+            stopped.countDown();
+    }
+
+    /**
+     * Checks the solution, graph, and time limits of this run, stopping the run if
+     * any of them are reached.
+     */
+    void checkBudget()
+    {
+        if (maxSolutions != -1 && container.getTotalSolutionsFound() - solutionsAtStart >= maxSolutions)
+            stop(StopReason.SOLUTION_LIMIT);
+        else if (maxGraphs != -1 && container.getTotalGraphsSearched() - graphsAtStart >= maxGraphs)
+            stop(StopReason.GRAPH_LIMIT);
+        else if (hasDeadline && System.nanoTime() - deadline >= 0)
+            stop(StopReason.TIME_LIMIT);
+    }
+
+    /**
+     * Checks the heap memory limit of this run, stopping the run if the used heap
+     * memory is above it.
+     */
+    void checkMemory()
+    {
+        if (maxHeapBytes == -1)
+            return;
+
+        Runtime runtime = Runtime.getRuntime();
+        if (runtime.totalMemory() - runtime.freeMemory() > maxHeapBytes)
+            stop(StopReason.MEMORY_LIMIT);
+    }
+
+    /**
+     * Waits for this run to be stopped, or for the given amount of time to pass.
+     * 
+     * @param nanos
+     *     - The maximum time to wait, in nanoseconds.
+     * @return True if the run was stopped, false if the time passed first.
+     * @throws InterruptedException
+     *     If the thread is interrupted while waiting.
+     */
+    boolean awaitStop(long nanos) throws InterruptedException
+    {
+        return stopped.await(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Waits for this run to be stopped, stopping it once the deadline of its
+     * budget has passed.
+     * 
+     * @return The reason the run was stopped.
+     * @throws InterruptedException
+     *     If the thread is interrupted while waiting.
+     */
+    StopReason awaitStop() throws InterruptedException
+    {
+        if (!hasDeadline)
+            stopped.await();
+        else if (!stopped.await(deadline - System.nanoTime(), TimeUnit.NANOSECONDS))
+            stop(StopReason.TIME_LIMIT);
+
+        return stopReason.get();
+    }
+}
@@ -1,5 +1,9 @@
 package net.whg.nghaste;
 
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
 /**
  * The search tree class is a simple class which serves the purpose of building
  * the search tree for the NG-HASTE algorithm by finding the available children
@@ -9,9 +13,19 @@ package net.whg.nghaste;
  */
 public class SearchTree
 {
-    private final Connection connectionBuf = new Connection();
+    private final ReachabilityTable reachability = new ReachabilityTable();
     private final GraphHasher hasher = new GraphHasher();
+    private final Connection addedConnection = new Connection();
     private final NodeContainer container;
+    private final Deque<NodeGraph> stack;
+    private GraphAllocator allocator;
+    private StructuralConstraints constraints;
+    private int[] instanceCounts = new int[0];
+    private AxiomScheduler axiomScheduler;
+    private SampledCounters.Recorder axiomRecorder;
+    private SampledCounters.Recorder pipelineRecorder;
+    private int depthLimit = -1;
+    private int remainingEstimate;
 
     /**
      * Creates a new search tree object.
@@ -20,8 +34,40 @@ public class SearchTree
      *     - The container to store new graphs to.
      */
     public SearchTree(NodeContainer container)
+    {
+        this(container, null);
+    }
+
+    /**
+     * Creates a new search tree object which pushes new node graphs onto the given
+     * local stack instead of adding them to the container. Solutions are still
+     * added to the container.
+     * 
+     * @param container
+     *     - The container to store new solutions to.
+     * @param stack
+     *     - The stack to push new node graphs onto, or null if new node graphs
+     *     should be added to the container.
+     */
+    SearchTree(NodeContainer container, Deque<NodeGraph> stack)
     {
         this.container = container;
+        this.stack = stack;
+    }
+
+    /**
+     * Sets the depth limit to use for an iterative deepening search. Child graphs
+     * where the number of connections plus the number of open plugs is larger than
+     * the depth limit are discarded, and only solutions with exactly as many
+     * connections as the depth limit are added to the container.
+     * 
+     * @param depthLimit
+     *     - The depth limit, or -1 to use the maximum depth of the environment and
+     *     add all solutions.
+     */
+    void setDepthLimit(int depthLimit)
+    {
+        this.depthLimit = depthLimit;
     }
 
     /**
@@ -29,208 +75,529 @@ public class SearchTree
      * and finding all of the given child solutions of the given graph, finally
      * adding those solutions to the container. This function is the heart of the
      * NG-HASTE algorithm and calls all of the functions used to process a graph.
+     * <p>
+     * If the graph is persistent, it is flattened before being processed so that
+     * the newly created children only need to forward reads a single level up.
+     * <p>
+     * If the environment has a plug selector, only the open plug chosen by the
+     * selector is expanded. Otherwise, every open plug is expanded.
+     * <p>
+     * Children which would break the structural constraints of the environment
+     * are skipped before they are created.
+     * <p>
+     * For an A* search, solutions are added to the frontier like any other graph,
+     * and are added to the container as a solution once they are processed here.
      * 
      * @param graph
      *     - The graphs to process.
      */
     public void placeNeighbors(NodeGraph graph)
     {
+        // Solutions are reported once polled, so they are found in order of cost
+        if (graph.getEnvironment()
+                 .isAStarSearch()
+                && graph.countOpenPlugs() == 0)
+        {
+            container.addSolution(graph);
+            return;
+        }
+
+        graph.flatten();
+
+        if (allocator == null && graph.getEnvironment()
+                                      .isBatchAllocation())
+            allocator = new GraphAllocator();
+
+        FunctionTable table = graph.getEnvironment()
+                                   .getFunctionTable();
+        reachability.build(graph);
+
+        constraints = graph.getEnvironment()
+                           .getStructuralConstraints();
+        if (constraints.hasInstanceLimits())
+            countInstances(graph, table);
+
+        IPlugSelector plugSelector = graph.getEnvironment()
+                                          .getPlugSelector();
+        if (plugSelector != null)
+        {
+            placeNeighborsCanonical(graph, table, plugSelector);
+            return;
+        }
+
         int nodeCount = graph.getNodeCount();
         for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
         {
-            IFunction nodeType = graph.getNodeAsFunction(nodeIndex);
-            int inputPlugs = nodeType.getInputs().length;
+            int nodeType = graph.getNodeType(nodeIndex);
+            int inputPlugs = table.getInputCount(nodeType);
 
             for (int inputPlugIndex = 0; inputPlugIndex < inputPlugs; inputPlugIndex++)
             {
-                if (hasConnection(graph, nodeIndex, inputPlugIndex))
+                if (graph.isInputConnected(nodeIndex, inputPlugIndex))
                     continue;
 
-                addNewConnections(graph, nodeIndex, inputPlugIndex);
-                addNewNodes(graph, nodeIndex, inputPlugIndex);
+                int dataType = table.getInputType(nodeType, inputPlugIndex);
+                addNewConnections(graph, table, nodeIndex, inputPlugIndex, dataType);
+                addNewNodes(graph, table, nodeIndex, inputPlugIndex, dataType);
             }
         }
     }
 
     /**
-     * Checks if the given input plug has any connections leading to it.
+     * Counts the number of nodes of each function within the given graph.
      * 
      * @param graph
-     *     - The graph to check on.
-     * @param nodeIndex
-     *     - The index of the node the plug blongs to.
-     * @param inputPlugIndex
-     *     - The index of the plug.
-     * @return True if the given input plug is connected to something. False
-     *     otherwise.
+     *     - The graph to count the nodes of.
+     * @param table
+     *     - The function table of the environment.
      */
-    private boolean hasConnection(NodeGraph graph, int nodeIndex, int inputPlugIndex)
+    private void countInstances(NodeGraph graph, FunctionTable table)
     {
-        int connectionCount = graph.getConnectionCount();
-        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
+        int functionCount = table.getFunctionCount();
+        if (instanceCounts.length < functionCount)
+            instanceCounts = new int[functionCount];
+
+        Arrays.fill(instanceCounts, 0, functionCount, 0);
+
+        int nodeCount = graph.getNodeCount();
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
+            instanceCounts[graph.getNodeType(nodeIndex)]++;
+    }
+
+    /**
+     * Expands the given graph only along the open plug with the lowest rank, as
+     * given by the plug selector.
+     * 
+     * @param graph
+     *     - The graph to process.
+     * @param table
+     *     - The function table of the environment.
+     * @param plugSelector
+     *     - The plug selector to rank open plugs with.
+     */
+    private void placeNeighborsCanonical(NodeGraph graph, FunctionTable table, IPlugSelector plugSelector)
+    {
+        int bestNode = -1;
+        int bestPlug = -1;
+        int bestRank = Integer.MAX_VALUE;
+
+        int nodeCount = graph.getNodeCount();
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
         {
-            graph.getConnection(connectionIndex, connectionBuf);
+            int inputPlugs = table.getInputCount(graph.getNodeType(nodeIndex));
+
+            for (int inputPlugIndex = 0; inputPlugIndex < inputPlugs; inputPlugIndex++)
+            {
+                if (graph.isInputConnected(nodeIndex, inputPlugIndex))
+                    continue;
 
-            if (connectionBuf.getInputNode() == nodeIndex && connectionBuf.getInputPlug() == inputPlugIndex)
-                return true;
+                int rank = plugSelector.rankPlug(graph, nodeIndex, inputPlugIndex);
+                if (bestNode == -1 || rank < bestRank)
+                {
+                    bestNode = nodeIndex;
+                    bestPlug = inputPlugIndex;
+                    bestRank = rank;
+                }
+            }
         }
 
-        return false;
+        if (bestNode == -1)
+            return;
+
+        int dataType = table.getInputType(graph.getNodeType(bestNode), bestPlug);
+        addNewConnections(graph, table, bestNode, bestPlug, dataType);
+        addNewNodes(graph, table, bestNode, bestPlug, dataType);
     }
 
     /**
      * Finds all of the new graphs that could be creating by adding connections to
-     * the given input plug without violating circulation rules or creating new
-     * nodes. Axioms are then used to further process the children before finally
-     * adding them to the node container.
+     * the given input plug without violating circulation rules, exceeding the
+     * fan-out limits of the environment, or creating new nodes. Axioms are then
+     * used to further process the children before finally adding them to the
+     * node container.
      * 
      * @param graph
      *     - The graph to process.
+     * @param table
+     *     - The function table of the environment.
      * @param nodeIndex
      *     - The index of the node the plug belongs to.
      * @param inputPlugIndex
      *     - The index of the plug.
+     * @param dataType
+     *     - The type ID of the plug.
      */
-    private void addNewConnections(NodeGraph graph, int nodeIndex, int inputPlugIndex)
+    private void addNewConnections(NodeGraph graph, FunctionTable table, int nodeIndex, int inputPlugIndex,
+            int dataType)
     {
-        IFunction nodeType = graph.getNodeAsFunction(nodeIndex);
-        IDataType[] nodeInputs = nodeType.getInputs();
         int nodeCount = graph.getNodeCount();
 
         for (int parentNodeIndex = 0; parentNodeIndex < nodeCount; parentNodeIndex++)
         {
-            if (isParentOf(graph, nodeIndex, parentNodeIndex))
+            // Connecting a node which is downstream of this node would create a cycle
+            if (reachability.canReach(nodeIndex, parentNodeIndex))
                 continue;
 
-            IFunction parentNodeType = graph.getNodeAsFunction(parentNodeIndex);
-            IDataType[] parentOutputs = parentNodeType.getOutputs();
-
-            int parentOutputCount = parentOutputs.length;
+            int parentNodeType = graph.getNodeType(parentNodeIndex);
+            int parentOutputCount = table.getOutputCount(parentNodeType);
             for (int parentOutputIndex = 0; parentOutputIndex < parentOutputCount; parentOutputIndex++)
             {
-                if (!parentOutputs[parentOutputIndex].equals(nodeInputs[inputPlugIndex]))
+                if (table.getOutputType(parentNodeType, parentOutputIndex) != dataType)
+                    continue;
+
+                if (constraints.hasFanOutLimits() && graph.getOutputConnectionCount(parentNodeIndex,
+                        parentOutputIndex) >= constraints.getMaxFanOut(dataType))
                     continue;
 
-                processGraph(graph.addConnection(parentNodeIndex, parentOutputIndex, nodeIndex, inputPlugIndex));
+                NodeGraph child =
+                        graph.addConnection(parentNodeIndex, parentOutputIndex, nodeIndex, inputPlugIndex, allocator);
+
+                addedConnection.set(parentNodeIndex, parentOutputIndex, nodeIndex, inputPlugIndex, parentNodeType,
+                        graph.getNodeType(nodeIndex));
+
+                if (!processGraph(graph, child, -1) && allocator != null)
+                    child.release(allocator);
             }
         }
     }
 
     /**
      * Finds all of the new graphs that could be creating by adding connections to a
-     * newly created node. Axioms are then used to further process the children
-     * before finally adding them to the node container.
+     * newly created node, skipping functions which have reached their instance
+     * limit. Axioms are then used to further process the children before finally
+     * adding them to the node container.
      * 
      * @param graph
      *     - The graph to process.
+     * @param table
+     *     - The function table of the environment.
      * @param nodeIndex
      *     - The index of the node the plug belongs to.
      * @param inputPlugIndex
      *     - The index of the plug.
+     * @param dataType
+     *     - The type ID of the plug.
      */
-    private void addNewNodes(NodeGraph graph, int nodeIndex, int inputPlugIndex)
+    private void addNewNodes(NodeGraph graph, FunctionTable table, int nodeIndex, int inputPlugIndex, int dataType)
     {
-        IFunction nodeType = graph.getNodeAsFunction(nodeIndex);
-        IDataType[] nodeInputs = nodeType.getInputs();
+        if (constraints.getMaxFanOut(dataType) == 0)
+            return;
 
-        int functionCount = graph.getEnvironment()
-                                 .getFunctions()
-                                 .size();
-        for (int functionIndex = 0; functionIndex < functionCount; functionIndex++)
+        int nodeCount = graph.getNodeCount();
+        int nodeType = graph.getNodeType(nodeIndex);
+
+        int producerCount = table.getProducerCount(dataType);
+        for (int producer = 0; producer < producerCount; producer++)
         {
-            IDataType[] functionOutputs = graph.getEnvironment()
-                                               .getFunctions()
-                                               .get(functionIndex)
-                                               .getOutputs();
-            int functionOutputCount = functionOutputs.length;
-            for (int functionOutputIndex = 0; functionOutputIndex < functionOutputCount; functionOutputIndex++)
-            {
-                if (!functionOutputs[functionOutputIndex].equals(nodeInputs[inputPlugIndex]))
-                    continue;
+            int function = table.getProducerFunction(dataType, producer);
+            int plug = table.getProducerPlug(dataType, producer);
 
-                processGraph(graph.addConnectionAndNode(functionIndex, functionOutputIndex, nodeIndex, inputPlugIndex));
-            }
+            if (constraints.hasInstanceLimits() && instanceCounts[function] >= constraints.getMaxInstances(function))
+                continue;
+
+            NodeGraph child = graph.addConnectionAndNode(function, plug, nodeIndex, inputPlugIndex, allocator);
+            addedConnection.set(nodeCount, plug, nodeIndex, inputPlugIndex, function, nodeType);
+
+            if (!processGraph(graph, child, function) && allocator != null)
+                child.release(allocator);
         }
     }
 
     /**
      * Called on newly created child graphs to validate them before adding them to
-     * the container. If they are valid, they are added to the node container. If
-     * the graph is invalid, nothing happens. The graph is either added as a new
+     * the container. The graph is validated by running the pipeline stages of the
+     * environment in order, and the number of graphs entering and rejected by each
+     * stage is recorded. If they are valid, they are added to the node container.
+     * If the graph is invalid, nothing happens. The graph is either added as a new
      * node graph or a solution depending on whether open input plugs exist or not.
-     * (A solution is defined as a graph with no open input plugs.)
+     * (A solution is defined as a graph with no open input plugs.) For an A*
+     * search, solutions are also added as node graphs, with their search cost
+     * assigned.
+     * <p>
+     * Incremental axioms are only given the parent graph and the added connection,
+     * which must be stored in the added connection buffer before calling this
+     * method.
      * 
+     * @param parent
+     *     - The graph the child was created from.
      * @param graph
      *     - The child graph to process.
+     * @param addedNodeType
+     *     - The function index of the node added to the child, or -1 if only a
+     *     connection was added.
+     * @return True if the graph was added to the container, false if it was
+     *     rejected.
      */
-    private void processGraph(NodeGraph graph)
+    private boolean processGraph(NodeGraph parent, NodeGraph graph, int addedNodeType)
     {
-        int connectionCount = graph.getConnectionCount();
+        if (pipelineRecorder == null)
+            pipelineRecorder = container.getPipelineMetrics()
+                                        .newRecorder();
+
         int openPlugs = graph.countOpenPlugs();
-        if (connectionCount + openPlugs > graph.getEnvironment()
-                                               .getMaxDepth())
-            return;
+        boolean sample = pipelineRecorder.nextGraph();
 
-        if (!container.getDuplicateFinder()
-                      .isUnquie(hasher, graph))
-            return;
+        List<PipelineStage> pipeline = graph.getEnvironment()
+                                            .getPipeline();
+        for (int i = 0; i < pipeline.size(); i++)
+        {
+            PipelineStage stage = pipeline.get(i);
+            boolean passed;
 
-        for (IAxiom axiom : graph.getEnvironment()
-                                 .getAxioms())
-            if (!axiom.isValid(graph))
-                return;
+            if (sample)
+            {
+                long start = System.nanoTime();
+                passed = runStage(stage, parent, graph, addedNodeType, openPlugs);
+                pipelineRecorder.recordSample(stage.ordinal(), !passed, System.nanoTime() - start);
+            }
+            else
+            {
+                passed = runStage(stage, parent, graph, addedNodeType, openPlugs);
+                pipelineRecorder.record(stage.ordinal(), !passed);
+            }
 
-        if (openPlugs == 0)
-        {
-            for (ISolutionAxiom axiom : graph.getEnvironment()
-                                             .getSolutionAxioms())
-                if (!axiom.isValid(graph))
-                    return;
+            if (!passed)
+                return false;
+        }
 
+        Environment environment = graph.getEnvironment();
+        if (openPlugs == 0 && !environment.isAStarSearch())
+        {
+            graph.releaseCaches();
             container.addSolution(graph);
         }
         else
         {
             float heuristic = 0f;
 
-            for (IHeuristic h : graph.getEnvironment()
-                                     .getHeuristics())
+            for (IHeuristic h : environment.getHeuristics())
                 heuristic += h.estimateHeuristic(graph);
 
             graph.setHeuristicScore(heuristic);
-            container.addNodeGraph(graph);
+
+            if (environment.isAStarSearch())
+                graph.setSearchCost(environment.calculateSearchCost(graph.getConnectionCount(), remainingEstimate));
+
+            graph.releaseCaches();
+
+            if (stack == null)
+                container.addNodeGraph(graph);
+            else
+            {
+                container.trackNodeGraph();
+                stack.addLast(graph);
+            }
         }
+
+        return true;
     }
 
     /**
-     * Checks if the given node is a parent or ansestor of another node. A parent
-     * node is defined as a node which is equal to the child node, or connected
-     * through a node of 0 or more nodes to the child not, via output-to-input
-     * plugs.
+     * Runs a single pipeline stage on a child graph.
      * 
+     * @param stage
+     *     - The stage to run.
+     * @param parent
+     *     - The graph the child was created from.
      * @param graph
-     *     - The graph to check in.
-     * @param parentNode
-     *     - The node to check as a parent.
-     * @param childNode
-     *     - The node to check as a child.
-     * @return True if the node is somehow a parent of the child node.
+     *     - The child graph.
+     * @param addedNodeType
+     *     - The function index of the node added to the child, or -1 if only a
+     *     connection was added.
+     * @param openPlugs
+     *     - The number of open plugs of the child graph.
+     * @return True if the child passed the stage, false if it was rejected.
      */
-    private boolean isParentOf(NodeGraph graph, int parentNode, int childNode)
+    private boolean runStage(PipelineStage stage, NodeGraph parent, NodeGraph graph, int addedNodeType,
+            int openPlugs)
     {
-        if (parentNode == childNode)
-            return true;
+        switch (stage)
+        {
+            case DEPTH:
+                return checkDepth(graph, openPlugs);
+
+            case DUPLICATES:
+                // Graphs expanded along a single plug can only be found once
+                return graph.getEnvironment()
+                            .getPlugSelector() != null
+                        || container.getDuplicateFinder()
+                                    .isUnquie(hasher, graph);
+
+            case AXIOMS:
+                return checkAxioms(parent, graph, addedNodeType);
 
+            case SOLUTION_AXIOMS:
+                return openPlugs != 0 || checkSolutionAxioms(graph);
+
+            default:
+                throw new IllegalStateException("Unknown pipeline stage: " + stage);
+        }
+    }
+
+    /**
+     * Checks whether a child graph can still be completed within the maximum depth
+     * of the environment, or the depth limit of an iterative deepening search. The
+     * cheap check, assuming each open plug only needs a single connection, is made
+     * before the completion bound is estimated. The estimate is kept for the
+     * search cost of an A* search.
+     * 
+     * @param graph
+     *     - The child graph.
+     * @param openPlugs
+     *     - The number of open plugs of the child graph.
+     * @return True if the graph is within the depth limit, false otherwise.
+     */
+    private boolean checkDepth(NodeGraph graph, int openPlugs)
+    {
         int connectionCount = graph.getConnectionCount();
-        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
+        int maxDepth = depthLimit == -1 ? graph.getEnvironment()
+                                               .getMaxDepth()
+                : depthLimit;
+
+        if (connectionCount + openPlugs > maxDepth)
+            return false;
+
+        remainingEstimate = openPlugs == 0 ? 0
+                : graph.getEnvironment()
+                       .getCompletionBound()
+                       .estimateRemaining(graph);
+
+        if (remainingEstimate > maxDepth - connectionCount)
+            return false;
+
+        // Smaller solutions were already found by an earlier iteration
+        return openPlugs != 0 || depthLimit == -1 || connectionCount == depthLimit;
+    }
+
+    /**
+     * Checks every axiom of the environment against a child graph.
+     * 
+     * @param parent
+     *     - The graph the child was created from.
+     * @param graph
+     *     - The child graph.
+     * @param addedNodeType
+     *     - The function index of the node added to the child, or -1 if only a
+     *     connection was added.
+     * @return True if every axiom considers the child valid, false otherwise.
+     */
+    private boolean checkAxioms(NodeGraph parent, NodeGraph graph, int addedNodeType)
+    {
+        if (graph.getEnvironment()
+                 .isAdaptiveAxiomOrdering())
+            return checkAxiomsAdaptive(parent, graph, addedNodeType);
+
+        for (IAxiom axiom : graph.getEnvironment()
+                                 .getAxioms())
+            if (!checkAxiom(axiom, parent, graph, addedNodeType))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Checks every solution axiom of the environment against a solution.
+     * 
+     * @param graph
+     *     - The solution.
+     * @return True if every solution axiom considers the solution valid, false
+     *     otherwise.
+     */
+    private boolean checkSolutionAxioms(NodeGraph graph)
+    {
+        for (ISolutionAxiom axiom : graph.getEnvironment()
+                                         .getSolutionAxioms())
+            if (!axiom.isValid(graph))
+                return false;
+
+        return true;
+    }
+
+    /**
+     * Checks a single axiom against a child graph, using the incremental check if
+     * the axiom supports it.
+     * 
+     * @param axiom
+     *     - The axiom to check.
+     * @param parent
+     *     - The graph the child was created from.
+     * @param graph
+     *     - The child graph.
+     * @param addedNodeType
+     *     - The function index of the node added to the child, or -1 if only a
+     *     connection was added.
+     * @return True if the axiom considers the child valid, false otherwise.
+     */
+    private boolean checkAxiom(IAxiom axiom, NodeGraph parent, NodeGraph graph, int addedNodeType)
+    {
+        if (axiom instanceof IIncrementalAxiom)
+            return ((IIncrementalAxiom) axiom).isValid(parent, addedConnection, addedNodeType);
+
+        return axiom.isValid(graph);
+    }
+
+    /**
+     * Checks all axioms against a child graph in the order chosen by the axiom
+     * scheduler of the container, recording the result of every call.
+     * 
+     * @param parent
+     *     - The graph the child was created from.
+     * @param graph
+     *     - The child graph.
+     * @param addedNodeType
+     *     - The function index of the node added to the child, or -1 if only a
+     *     connection was added.
+     * @return True if every axiom considers the child valid, false otherwise.
+     */
+    private boolean checkAxiomsAdaptive(NodeGraph parent, NodeGraph graph, int addedNodeType)
+    {
+        Environment environment = graph.getEnvironment();
+        if (axiomRecorder == null)
+        {
+            axiomScheduler = container.getAxiomScheduler(environment);
+            axiomRecorder = axiomScheduler.newRecorder();
+        }
+
+        List<IAxiom> axioms = environment.getAxioms();
+        boolean sample = axiomRecorder.nextGraph();
+
+        for (int index : axiomScheduler.getCurrentOrder())
         {
-            graph.getConnection(connectionIndex, connectionBuf);
+            IAxiom axiom = axioms.get(index);
+            boolean valid;
 
-            if (connectionBuf.getOutputNode() == parentNode
-                    && isParentOf(graph, connectionBuf.getInputNode(), childNode))
-                return true;
+            if (sample)
+            {
+                long start = System.nanoTime();
+                valid = checkAxiom(axiom, parent, graph, addedNodeType);
+                axiomRecorder.recordSample(index, !valid, System.nanoTime() - start);
+            }
+            else
+            {
+                valid = checkAxiom(axiom, parent, graph, addedNodeType);
+                axiomRecorder.record(index, !valid);
+            }
+
+            if (!valid)
+                return false;
         }
 
-        return false;
+        return true;
+    }
+
+    /**
+     * Merges the pipeline metrics and axiom statistics recorded by this search tree
+     * into the node container. Statistics are merged automatically every
+     * {@value PipelineMetrics#FLUSH_INTERVAL} graphs, so this only needs to be
+     * called when this search tree stops being used, or is idle. Workers call this
+     * automatically.
+     */
+    public void flushStatistics()
+    {
+        if (pipelineRecorder != null)
+            pipelineRecorder.flush();
+
+        if (axiomRecorder != null)
+            axiomRecorder.flush();
     }
 }
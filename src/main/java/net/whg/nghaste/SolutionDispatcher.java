@@ -0,0 +1,293 @@
+package net.whg.nghaste;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The solution dispatcher delivers solutions to the solution listeners of a
+ * node container. While started, solutions are handed to a dispatcher thread
+ * through a queue, so workers never wait on the listeners while processing a
+ * graph. Instead, workers call {@link #awaitCapacity(long)} after each graph,
+ * and wait there while {@value #QUEUE_CAPACITY} or more solutions are waiting
+ * to be delivered. While stopped, solutions are delivered on the calling
+ * thread.
+ * <p>
+ * Listeners may stop the dispatcher from the dispatcher thread itself. In this
+ * case, {@link #stop()} returns without waiting for the queued solutions, which
+ * are delivered by the dispatcher thread once the listener returns.
+ * <p>
+ * This class is thread safe. It may only be started and stopped while no
+ * solutions are being added.
+ */
+final class SolutionDispatcher
+{
+    /**
+     * The number of solutions which may wait to be delivered before workers
+     * wait for the listeners to catch up.
+     */
+    static final int QUEUE_CAPACITY = 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(SolutionDispatcher.class);
+
+    private final CopyOnWriteArrayList<ISolutionListener> listeners = new CopyOnWriteArrayList<>();
+    private final BlockingQueue<NodeGraph> queue = new LinkedBlockingQueue<>();
+    private volatile Thread thread;
+    private volatile boolean limited = true;
+    private Thread detached;
+    private int pending;
+
+    /**
+     * Adds a listener to receive every solution which is dispatched from now on.
+     * Does nothing if the listener is null or already added.
+     */
+    void addListener(ISolutionListener listener)
+    {
+        if (listener != null)
+            listeners.addIfAbsent(listener);
+    }
+
+    /**
+     * Removes a listener. Solutions which are already queued may still be
+     * delivered to it.
+     */
+    void removeListener(ISolutionListener listener)
+    {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Delivers a solution to all listeners. If the dispatcher thread is running,
+     * the solution is queued. This method never waits for the listeners while the
+     * dispatcher thread is running, so it may be called while holding locks which
+     * listeners may need.
+     * 
+     * @param solution
+     *     - The solution to deliver.
+     */
+    void dispatch(NodeGraph solution)
+    {
+        if (listeners.isEmpty())
+            return;
+
+        if (thread == null)
+        {
+            notifyListeners(solution);
+            return;
+        }
+
+        synchronized (this)
+        {
+            pending++;
+        }
+
+        queue.add(solution);
+    }
+
+    /**
+     * Waits until fewer than {@value #QUEUE_CAPACITY} solutions are waiting to be
+     * delivered, or the given amount of time has passed. Returns at once if the
+     * dispatcher thread is not running, or is waiting within a listener for the
+     * search to stop.
+     * 
+     * @param nanos
+     *     - The maximum time to wait, in nanoseconds.
+     * @return True if there is space within the queue, false if the time passed
+     *     first.
+     * @throws InterruptedException
+     *     If the thread is interrupted while waiting.
+     */
+    synchronized boolean awaitCapacity(long nanos) throws InterruptedException
+    {
+        if (hasCapacity())
+            return true;
+
+        TimeUnit.NANOSECONDS.timedWait(this, nanos);
+        return hasCapacity();
+    }
+
+    private boolean hasCapacity()
+    {
+        return thread == null || !limited || pending < QUEUE_CAPACITY;
+    }
+
+    /**
+     * Sets whether workers wait for the listeners to catch up once the queue is
+     * full. This is disabled while a listener waits for the search to stop, as the
+     * queue cannot be emptied in the meantime.
+     */
+    synchronized void setLimited(boolean limited)
+    {
+        this.limited = limited;
+        notifyAll();
+    }
+
+    /**
+     * Checks whether the current thread is the dispatcher thread, meaning the
+     * caller is a solution listener.
+     */
+    boolean isDispatcherThread()
+    {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * Starts the dispatcher thread, if it is not already running. If the previous
+     * dispatcher thread was stopped by a listener and is still delivering its
+     * remaining solutions, this waits for it to finish first, so solutions stay in
+     * order.
+     */
+    void start()
+    {
+        Thread previous;
+
+        synchronized (this)
+        {
+            if (thread != null)
+                return;
+
+            previous = detached;
+            detached = null;
+        }
+
+        if (previous != null && previous != Thread.currentThread())
+            join(previous);
+
+        synchronized (this)
+        {
+            if (thread != null)
+                return;
+
+            thread = new Thread(this::deliverSolutions, "Solution Dispatcher");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Waits for all queued solutions to be delivered and stops the dispatcher
+     * thread. Does nothing if the dispatcher thread is not running. If called by a
+     * listener on the dispatcher thread, this returns at once, and the queued
+     * solutions are delivered once the listener returns.
+     */
+    void stop()
+    {
+        Thread current;
+
+        synchronized (this)
+        {
+            current = thread;
+            if (current == null)
+            {
+                current = detached;
+                detached = null;
+            }
+            else if (current == Thread.currentThread())
+            {
+                // Waiting here would wait on the listener which called this method
+                thread = null;
+                detached = current;
+                notifyAll();
+                return;
+            }
+            else
+            {
+                try
+                {
+                    while (pending > 0)
+                        wait();
+                }
+                catch (InterruptedException e)
+                {
+                    logger.error("Interrupted while delivering solutions!", e);
+                    Thread.currentThread()
+                          .interrupt();
+                }
+
+                thread = null;
+                notifyAll();
+                current.interrupt();
+            }
+        }
+
+        // A dispatcher stopped by a listener finishes delivering on its own
+        if (current != null && current != Thread.currentThread())
+            join(current);
+    }
+
+    private void join(Thread dispatcher)
+    {
+        try
+        {
+            dispatcher.join();
+        }
+        catch (InterruptedException e)
+        {
+            logger.error("Failed to stop solution dispatcher thread!", e);
+            Thread.currentThread()
+                  .interrupt();
+        }
+    }
+
+    /**
+     * The main loop of the dispatcher thread. If the dispatcher was stopped by a
+     * listener, the remaining solutions are delivered without waiting for new
+     * ones, unless a new dispatcher thread has already been started.
+     */
+    private void deliverSolutions()
+    {
+        Thread self = Thread.currentThread();
+
+        while (true)
+        {
+            Thread current = thread;
+            NodeGraph solution;
+
+            if (current == self)
+            {
+                try
+                {
+                    solution = queue.take();
+                }
+                catch (InterruptedException e)
+                {
+                    return;
+                }
+            }
+            else if (current == null)
+            {
+                solution = queue.poll();
+                if (solution == null)
+                    return;
+            }
+            else
+                return;
+
+            notifyListeners(solution);
+
+            synchronized (this)
+            {
+                pending--;
+                notifyAll();
+            }
+        }
+    }
+
+    private void notifyListeners(NodeGraph solution)
+    {
+        for (ISolutionListener listener : listeners)
+        {
+            try
+            {
+                listener.onSolution(solution);
+            }
+            catch (RuntimeException e)
+            {
+                logger.error("Solution listener failed!", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,435 @@
+package net.whg.nghaste;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A spilling frontier keeps node graphs on the heap until the estimated memory
+ * usage of the frontier exceeds a given budget. When this happens, the half of
+ * the frontier which would be polled last is written to memory-mapped segment
+ * files within a scratch directory. Each segment file is limited to a size
+ * which can be mapped at once, so a large spill is split over several segments.
+ * Segments are stored in polling order and paged back in graph by graph as they
+ * are polled, so the frontier as a whole is still polled in the order of
+ * {@link NodeGraph#compareTo(NodeGraph)}, by search cost and then by heuristic
+ * score. Segment files are deleted once all of their graphs have been polled.
+ * <p>
+ * This allows very large searches to complete, at the cost of disk IO, instead
+ * of running out of memory. The heap usage of each graph is estimated from the
+ * length of its encoding plus a fixed overhead, so the budget should be treated
+ * as approximate. This class is thread safe.
+ */
+public class SpillingFrontier implements IFrontier, Closeable
+{
+    /**
+     * The estimated number of heap bytes used by a node graph within this
+     * frontier, not including the graph data itself.
+     */
+    public static final int GRAPH_OVERHEAD = 64;
+
+    /**
+     * The number of bytes written to a segment file for each node graph, in
+     * addition to the encoded graph itself.
+     */
+    public static final int RECORD_HEADER = 12;
+
+    private static final Logger logger = LoggerFactory.getLogger(SpillingFrontier.class);
+
+    private final PriorityQueue<NodeGraph> memory = new PriorityQueue<>();
+    private final List<Segment> segments = new ArrayList<>();
+    private final Environment environment;
+    private final Path scratchDir;
+    private final long heapBudget;
+    private final int maxSegmentSize;
+    private long heapUsage;
+    private int spilledGraphs;
+
+    /**
+     * Creates a new spilling frontier.
+     * 
+     * @param environment
+     *     - The environment of the graphs which are stored in this frontier.
+     * @param scratchDir
+     *     - The directory to write segment files to. This directory is created if
+     *     it does not exist.
+     * @param heapBudget
+     *     - The estimated number of bytes the graphs within this frontier may use
+     *     on the heap before they are spilled to disk.
+     * @throws IllegalArgumentException
+     *     If the heap budget is <= 0.
+     * @throws UncheckedIOException
+     *     If the scratch directory could not be created.
+     */
+    public SpillingFrontier(Environment environment, Path scratchDir, long heapBudget)
+    {
+        this(environment, scratchDir, heapBudget, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a new spilling frontier with a custom maximum segment size.
+     * 
+     * @param environment
+     *     - The environment of the graphs which are stored in this frontier.
+     * @param scratchDir
+     *     - The directory to write segment files to. This directory is created if
+     *     it does not exist.
+     * @param heapBudget
+     *     - The estimated number of bytes the graphs within this frontier may use
+     *     on the heap before they are spilled to disk.
+     * @param maxSegmentSize
+     *     - The maximum number of bytes written to a single segment file. A spill
+     *     which is larger than this is split over several segment files. A segment
+     *     always contains at least one graph.
+     * @throws IllegalArgumentException
+     *     If the heap budget or the maximum segment size is <= 0.
+     * @throws UncheckedIOException
+     *     If the scratch directory could not be created.
+     */
+    public SpillingFrontier(Environment environment, Path scratchDir, long heapBudget, int maxSegmentSize)
+    {
+        if (heapBudget <= 0)
+            throw new IllegalArgumentException("Heap budget must be > 0!");
+
+        if (maxSegmentSize <= 0)
+            throw new IllegalArgumentException("Max segment size must be > 0!");
+
+        this.environment = environment;
+        this.scratchDir = scratchDir;
+        this.heapBudget = heapBudget;
+        this.maxSegmentSize = maxSegmentSize;
+
+        try
+        {
+            Files.createDirectories(scratchDir);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException("Failed to create scratch directory!", e);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     * 
+     * @throws UncheckedIOException
+     *     If the frontier needed to be spilled, and the segment file could not be
+     *     written.
+     */
+    @Override
+    public synchronized void add(NodeGraph graph)
+    {
+        memory.add(graph);
+        heapUsage += estimateSize(graph);
+
+        if (heapUsage > heapBudget)
+            spill();
+    }
+
+    @Override
+    public synchronized NodeGraph poll()
+    {
+        Segment best = null;
+        for (Segment segment : segments)
+            if (best == null || segment.isBefore(best.peekCost(), best.peekScore()))
+                best = segment;
+
+        NodeGraph head = memory.peek();
+        if (best == null
+                || (head != null && !best.isBefore(head.getSearchCost(), head.getHeuristicScore())))
+        {
+            NodeGraph graph = memory.poll();
+
+            if (graph != null)
+                heapUsage -= estimateSize(graph);
+
+            return graph;
+        }
+
+        NodeGraph graph = best.poll(environment);
+        spilledGraphs--;
+
+        if (best.isEmpty())
+        {
+            segments.remove(best);
+            best.delete();
+        }
+
+        return graph;
+    }
+
+    @Override
+    public synchronized void forEach(Consumer<NodeGraph> action)
+    {
+        memory.forEach(action);
+
+        for (Segment segment : segments)
+            segment.forEach(environment, action);
+    }
+
+    @Override
+    public synchronized int size()
+    {
+        return memory.size() + spilledGraphs;
+    }
+
+    /**
+     * Gets the number of node graphs within this frontier which are currently
+     * stored on disk.
+     * 
+     * @return The number of spilled node graphs.
+     */
+    public synchronized int getSpilledGraphCount()
+    {
+        return spilledGraphs;
+    }
+
+    /**
+     * Gets the number of segment files which currently exist for this frontier.
+     * 
+     * @return The number of segment files.
+     */
+    public synchronized int getSegmentCount()
+    {
+        return segments.size();
+    }
+
+    /**
+     * Gets the estimated number of bytes used by the node graphs within this
+     * frontier which are currently stored on the heap.
+     * 
+     * @return The estimated heap usage, in bytes.
+     */
+    public synchronized long getHeapUsage()
+    {
+        return heapUsage;
+    }
+
+    /**
+     * Removes all graphs from this frontier and deletes all segment files.
+     */
+    @Override
+    public synchronized void close()
+    {
+        for (Segment segment : segments)
+            segment.delete();
+
+        segments.clear();
+        memory.clear();
+        spilledGraphs = 0;
+        heapUsage = 0;
+    }
+
+    /**
+     * Estimates the number of heap bytes used by the given graph.
+     */
+    private int estimateSize(NodeGraph graph)
+    {
+        return GRAPH_OVERHEAD + graph.getEncodedLength();
+    }
+
+    /**
+     * Writes the half of the in-memory graphs which would be polled last to new
+     * segment files, starting a new segment whenever the current one would grow
+     * larger than the maximum segment size.
+     */
+    private void spill()
+    {
+        NodeGraph[] graphs = memory.toArray(new NodeGraph[memory.size()]);
+        int keep = graphs.length / 2;
+
+        if (keep == graphs.length)
+            return;
+
+        Arrays.sort(graphs);
+
+        List<Segment> written = new ArrayList<>();
+        try
+        {
+            int start = keep;
+            while (start < graphs.length)
+            {
+                long length = RECORD_HEADER + graphs[start].getEncodedLength();
+                int end = start + 1;
+
+                while (end < graphs.length)
+                {
+                    long next = length + RECORD_HEADER + graphs[end].getEncodedLength();
+                    if (next > maxSegmentSize)
+                        break;
+
+                    length = next;
+                    end++;
+                }
+
+                Path file = Files.createTempFile(scratchDir, "frontier-", ".seg");
+                written.add(Segment.write(file, Arrays.copyOfRange(graphs, start, end), length));
+                start = end;
+            }
+        }
+        catch (IOException e)
+        {
+            for (Segment segment : written)
+                segment.delete();
+
+            throw new UncheckedIOException("Failed to spill frontier to disk!", e);
+        }
+
+        memory.clear();
+        heapUsage = 0;
+        for (int i = 0; i < keep; i++)
+        {
+            memory.add(graphs[i]);
+            heapUsage += estimateSize(graphs[i]);
+        }
+
+        segments.addAll(written);
+        spilledGraphs += graphs.length - keep;
+
+        logger.debug("Spilled {} graphs to {} segments.", graphs.length - keep, written.size());
+    }
+
+    /**
+     * A segment is a single memory-mapped file containing node graphs, sorted in
+     * the order they are polled. Each graph is stored as its search cost, its
+     * heuristic score, its encoded length, and the encoded graph.
+     */
+    private static class Segment
+    {
+        /**
+         * Writes the given graphs to a new segment file of the given length. The
+         * graphs must already be sorted in the order they are polled.
+         */
+        static Segment write(Path file, NodeGraph[] graphs, long length) throws IOException
+        {
+            if (length > Integer.MAX_VALUE)
+                throw new IOException("Segment is too large to be mapped: " + length + " bytes!");
+
+            MappedByteBuffer buffer;
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE))
+            {
+                buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            }
+
+            for (NodeGraph graph : graphs)
+            {
+                buffer.putFloat(graph.getSearchCost());
+                buffer.putFloat(graph.getHeuristicScore());
+                buffer.putInt(graph.getEncodedLength());
+                graph.encode(buffer);
+            }
+
+            buffer.flip();
+            return new Segment(file, buffer, graphs.length);
+        }
+
+        private final Path file;
+        private final MappedByteBuffer buffer;
+        private int remaining;
+
+        private Segment(Path file, MappedByteBuffer buffer, int remaining)
+        {
+            this.file = file;
+            this.buffer = buffer;
+            this.remaining = remaining;
+        }
+
+        /**
+         * Gets the search cost of the next graph within this segment.
+         */
+        float peekCost()
+        {
+            return buffer.getFloat(buffer.position());
+        }
+
+        /**
+         * Gets the heuristic score of the next graph within this segment.
+         */
+        float peekScore()
+        {
+            return buffer.getFloat(buffer.position() + 4);
+        }
+
+        /**
+         * Checks whether the next graph within this segment is polled before a graph
+         * with the given search cost and heuristic score.
+         */
+        boolean isBefore(float cost, float score)
+        {
+            float nextCost = peekCost();
+            if (nextCost != cost)
+                return nextCost < cost;
+
+            return peekScore() > score;
+        }
+
+        /**
+         * Reads the next graph from this segment.
+         */
+        NodeGraph poll(Environment environment)
+        {
+            float cost = buffer.getFloat();
+            float score = buffer.getFloat();
+            int length = buffer.getInt();
+            remaining--;
+
+            return NodeGraph.decode(environment, buffer, length, score, cost);
+        }
+
+        /**
+         * Passes every graph which has not yet been read from this segment to the
+         * given action, without reading them.
+         */
+        void forEach(Environment environment, Consumer<NodeGraph> action)
+        {
+            ByteBuffer view = buffer.duplicate();
+
+            for (int i = 0; i < remaining; i++)
+            {
+                float cost = view.getFloat();
+                float score = view.getFloat();
+                int length = view.getInt();
+                action.accept(NodeGraph.decode(environment, view, length, score, cost));
+            }
+        }
+
+        /**
+         * Checks whether all graphs have been read from this segment.
+         */
+        boolean isEmpty()
+        {
+            return remaining == 0;
+        }
+
+        /**
+         * Deletes the file of this segment. If the file cannot be deleted while it
+         * is still mapped, it is deleted when the JVM exits instead.
+         */
+        void delete()
+        {
+            try
+            {
+                Files.deleteIfExists(file);
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to delete frontier segment {}, deleting on exit.", file, e);
+                file.toFile()
+                    .deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.whg.nghaste;
+
+/**
+ * The reason a search run was stopped.
+ * 
+ * @see NGHasteAlgorithm#awaitCompletion()
+ */
+public enum StopReason
+{
+    /**
+     * Every graph within the search space has been processed.
+     */
+    EXHAUSTED,
+
+    /**
+     * The search has found the maximum number of solutions of its budget.
+     */
+    SOLUTION_LIMIT,
+
+    /**
+     * The search has run for the maximum amount of time of its budget.
+     */
+    TIME_LIMIT,
+
+    /**
+     * The search has processed the maximum number of graphs of its budget.
+     */
+    GRAPH_LIMIT,
+
+    /**
+     * The used heap memory has exceeded the maximum of the search budget.
+     */
+    MEMORY_LIMIT,
+
+    /**
+     * The workers were disposed before the search finished.
+     */
+    DISPOSED,
+
+    /**
+     * Every worker of the search run was interrupted before the search finished.
+     */
+    INTERRUPTED
+}
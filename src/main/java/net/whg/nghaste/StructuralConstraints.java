@@ -0,0 +1,172 @@
+package net.whg.nghaste;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Structural constraints are a compiled set of limits on the structure of the
+ * graphs within an environment, collected from every {@link IStructuralAxiom}
+ * of the environment. Limits are stored by data type ID and function index of
+ * the environment's {@link FunctionTable}, so the search tree can check them
+ * with a single array lookup before creating a child graph.
+ * <p>
+ * The fan-out of an output plug is the number of connections leaving it, and
+ * is limited per data type. The number of instances of a function is the number
+ * of nodes using that function, and is limited per function. Limiting an input
+ * function to a single instance means that the existing instance is always
+ * reused rather than creating another, as connecting to an existing node is
+ * expanded separately from adding a new node. If a limit is declared multiple
+ * times, the smallest limit is used.
+ * <p>
+ * This class is immutable after the environment has been created.
+ */
+public final class StructuralConstraints
+{
+    /**
+     * The value returned for data types and functions which have no limit.
+     */
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final FunctionTable functionTable;
+    private final int[] maxFanOut;
+    private final int[] maxInstances;
+    private boolean fanOutLimited;
+    private boolean instancesLimited;
+    private boolean locked;
+
+    /**
+     * Compiles the structural constraints declared by all structural axioms within
+     * the given list.
+     * 
+     * @param functionTable
+     *     - The function table of the environment.
+     * @param axioms
+     *     - The axioms of the environment.
+     */
+    StructuralConstraints(FunctionTable functionTable, List<IAxiom> axioms)
+    {
+        this.functionTable = functionTable;
+
+        maxFanOut = new int[functionTable.getTypeCount()];
+        maxInstances = new int[functionTable.getFunctionCount()];
+        Arrays.fill(maxFanOut, UNLIMITED);
+        Arrays.fill(maxInstances, UNLIMITED);
+
+        for (IAxiom axiom : axioms)
+            if (axiom instanceof IStructuralAxiom)
+                ((IStructuralAxiom) axiom).declareConstraints(this);
+
+        locked = true;
+    }
+
+    /**
+     * Gets the function table which the type IDs and function indices of these
+     * constraints refer to.
+     * 
+     * @return The function table.
+     */
+    public FunctionTable getFunctionTable()
+    {
+        return functionTable;
+    }
+
+    /**
+     * Limits the number of connections which may leave any output plug of the
+     * given data type.
+     * 
+     * @param typeId
+     *     - The ID of the data type.
+     * @param limit
+     *     - The maximum number of connections per output plug.
+     * @throws IllegalArgumentException
+     *     If the limit is negative.
+     * @throws IllegalStateException
+     *     If the environment has already been created.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the type ID is not a valid ID within the function table.
+     */
+    public void limitFanOut(int typeId, int limit)
+    {
+        checkLimit(limit);
+
+        maxFanOut[typeId] = Math.min(maxFanOut[typeId], limit);
+        fanOutLimited = true;
+    }
+
+    /**
+     * Limits the number of nodes which may use the given function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @param limit
+     *     - The maximum number of nodes.
+     * @throws IllegalArgumentException
+     *     If the limit is negative.
+     * @throws IllegalStateException
+     *     If the environment has already been created.
+     * @throws ArrayIndexOutOfBoundsException
+     *     If the function index is not a valid index within the function table.
+     */
+    public void limitInstances(int function, int limit)
+    {
+        checkLimit(limit);
+
+        maxInstances[function] = Math.min(maxInstances[function], limit);
+        instancesLimited = true;
+    }
+
+    private void checkLimit(int limit)
+    {
+        if (locked)
+            throw new IllegalStateException("Constraints can only be declared while creating the environment!");
+
+        if (limit < 0)
+            throw new IllegalArgumentException("Limit cannot be negative!");
+    }
+
+    /**
+     * Gets the maximum number of connections which may leave an output plug of the
+     * given data type.
+     * 
+     * @param typeId
+     *     - The ID of the data type.
+     * @return The maximum fan-out, or {@link #UNLIMITED} if there is no limit.
+     */
+    public int getMaxFanOut(int typeId)
+    {
+        return maxFanOut[typeId];
+    }
+
+    /**
+     * Gets the maximum number of nodes which may use the given function.
+     * 
+     * @param function
+     *     - The index of the function.
+     * @return The maximum number of instances, or {@link #UNLIMITED} if there is
+     *     no limit.
+     */
+    public int getMaxInstances(int function)
+    {
+        return maxInstances[function];
+    }
+
+    /**
+     * Checks whether the fan-out of any data type is limited.
+     * 
+     * @return True if at least one fan-out limit was declared, false otherwise.
+     */
+    public boolean hasFanOutLimits()
+    {
+        return fanOutLimited;
+    }
+
+    /**
+     * Checks whether the number of instances of any function is limited.
+     * 
+     * @return True if at least one instance limit was declared, false otherwise.
+     */
+    public boolean hasInstanceLimits()
+    {
+        return instancesLimited;
+    }
+}
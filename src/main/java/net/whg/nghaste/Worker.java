@@ -1,5 +1,8 @@
 package net.whg.nghaste;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.locks.Lock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -8,25 +11,72 @@ import org.slf4j.LoggerFactory;
  * which serves the purpose of processing node graphs in a parallel manner by
  * pulling a node graph from the container, handling it, and passing all
  * children back into the container.
+ * <p>
+ * When searching depth first, children are pushed onto a local stack instead,
+ * and the container is only used when the local stack is empty. If the
+ * container runs out of graphs while the local stack still contains more than
+ * one graph, the shallowest graph of the local stack is donated to the
+ * container, so that idle workers are given new work.
+ * <p>
+ * Solutions are handed to the solution dispatcher while the graph is being
+ * processed, without waiting. Once the checkpoint lock has been released, the
+ * worker waits for the solution listeners to catch up if too many solutions are
+ * waiting to be delivered, so listeners may save checkpoints or stop the search
+ * without waiting on a worker which waits on them.
+ * <p>
+ * Workers stop once their search run is stopped, which they check after every
+ * graph. Idle workers wait on the run instead of sleeping, so they stop as soon
+ * as the run is stopped, and stop the run themselves once every graph of the
+ * search space has been processed. A worker which is interrupted while waiting
+ * stops as well. If every worker of the run has stopped this way, the last one
+ * stops the run.
  */
 class Worker extends Thread
 {
     private static final Logger logger = LoggerFactory.getLogger(Worker.class);
+    private static final long IDLE_NANOS = 1000000L;
 
     private final NodeContainer container;
-    private boolean running = true;
+    private final SearchMode mode;
+    private final IterativeDeepening deepening;
+    private final SearchRun run;
+    private volatile boolean running = true;
 
     /**
-     * Creates a new worker object.
+     * Creates a new worker object which searches best first.
      * 
      * @param container
      *     - The container to pull node graphs out of and store new node graphs
      *     into.
      */
     Worker(NodeContainer container)
+    {
+        this(container, SearchMode.BEST_FIRST, null, new SearchRun(container, new SearchBudget()));
+    }
+
+    /**
+     * Creates a new worker object.
+     * 
+     * @param container
+     *     - The container to pull node graphs out of and store new node graphs
+     *     into.
+     * @param mode
+     *     - The search mode to use.
+     * @param deepening
+     *     - The state of the iterative deepening search, or null if the search mode
+     *     is not {@link SearchMode#ITERATIVE_DEEPENING}.
+     * @param run
+     *     - The search run this worker belongs to. The worker stops once the run
+     *     is stopped.
+     */
+    Worker(NodeContainer container, SearchMode mode, IterativeDeepening deepening, SearchRun run)
     {
         this.container = container;
+        this.mode = mode;
+        this.deepening = deepening;
+        this.run = run;
 
+        run.addWorker();
         setDaemon(true);
         start();
     }
@@ -54,29 +104,136 @@ class Worker extends Thread
     @Override
     public void run()
     {
-        SearchTree searchTree = new SearchTree(container);
+        Deque<NodeGraph> stack = null;
+        SearchTree searchTree;
+
+        if (mode == SearchMode.BEST_FIRST)
+            searchTree = new SearchTree(container);
+        else
+        {
+            stack = new ArrayDeque<>();
+            container.addLocalStack(stack);
+            searchTree = new SearchTree(container, stack);
+        }
+
+        Lock lock = container.getCheckpointLock()
+                             .readLock();
+
+        int processed = 0;
 
-        while (running)
+        while (running && !run.isStopped())
         {
-            NodeGraph graph = container.getNodeGraph();
+            NodeGraph graph;
+
+            lock.lock();
+            try
+            {
+                graph = nextGraph(stack);
+
+                if (graph != null)
+                {
+                    if (deepening != null)
+                        searchTree.setDepthLimit(deepening.getDepthLimit());
+
+                    searchTree.placeNeighbors(graph);
+                    container.finishGraph();
+
+                    run.checkBudget();
+                    if (++processed % SearchRun.MEMORY_CHECK_INTERVAL == 0)
+                        run.checkMemory();
+
+                    if (stack != null && stack.size() > 1 && container.size() == 0)
+                        container.donateNodeGraph(stack.pollFirst());
+                }
+                else if (deepening != null)
+                    deepening.advance();
+            }
+            finally
+            {
+                lock.unlock();
+            }
+
+            if (graph != null && !awaitListeners())
+                break;
 
             if (graph == null)
             {
+                searchTree.flushStatistics();
+
+                if (container.getRemainingGraphs() == 0)
+                    run.stop(StopReason.EXHAUSTED);
+
                 try
                 {
-                    Thread.sleep(1);
+                    // Wakes up as soon as the run is stopped
+                    run.awaitStop(IDLE_NANOS);
                 }
                 catch (InterruptedException e)
                 {
-                    Thread.currentThread()
-                          .interrupt();
+                    // Waiting again would fail at once, so an interrupt stops the worker
+                    break;
                 }
+            }
+        }
 
-                continue;
+        searchTree.flushStatistics();
+
+        if (stack != null)
+        {
+            lock.lock();
+            try
+            {
+                container.removeLocalStack(stack);
             }
+            finally
+            {
+                lock.unlock();
+            }
+        }
+
+        run.removeWorker();
+    }
+
+    /**
+     * Waits until the solution dispatcher has space for more solutions, or this
+     * worker is stopped.
+     * 
+     * @return False if the worker was interrupted while waiting, true otherwise.
+     */
+    private boolean awaitListeners()
+    {
+        SolutionDispatcher dispatcher = container.getSolutionDispatcher();
+
+        try
+        {
+            while (running && !run.isStopped() && !dispatcher.awaitCapacity(IDLE_NANOS))
+                continue;
+
+            return true;
+        }
+        catch (InterruptedException e)
+        {
+            return false;
+        }
+    }
 
-            searchTree.placeNeighbors(graph);
-            container.finishGraph();
+    /**
+     * Takes the next graph to process from the local stack, or from the container
+     * if the local stack is empty.
+     */
+    private NodeGraph nextGraph(Deque<NodeGraph> stack)
+    {
+        if (stack != null)
+        {
+            NodeGraph graph = stack.pollLast();
+
+            if (graph != null)
+            {
+                container.trackSearchedGraph();
+                return graph;
+            }
         }
+
+        return container.getNodeGraph();
     }
 }
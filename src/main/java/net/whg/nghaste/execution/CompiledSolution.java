@@ -0,0 +1,113 @@
+package net.whg.nghaste.execution;
+
+import java.lang.invoke.MethodHandle;
+import net.whg.nghaste.IDataInstance;
+
+/**
+ * A compiled solution is a solution which has been composed into a single
+ * method handle by the {@link MethodHandleCompiler}.
+ * <p>
+ * This class is immutable, and may be used by multiple threads at once.
+ */
+public final class CompiledSolution
+{
+    private static final IDataInstance[] NO_PARAMETERS = new IDataInstance[0];
+
+    private final ExecutionPlan plan;
+    private final MethodHandle program;
+    private final MethodHandle parameterizedProgram;
+
+    /**
+     * Creates a new compiled solution.
+     * 
+     * @param plan
+     *     - The execution plan which was compiled.
+     * @param program
+     *     - The handle which runs every step of the plan.
+     * @param parameterizedProgram
+     *     - The handle which runs every step of the plan, except for the input
+     *     functions.
+     */
+    CompiledSolution(ExecutionPlan plan, MethodHandle program, MethodHandle parameterizedProgram)
+    {
+        this.plan = plan;
+        this.program = program;
+        this.parameterizedProgram = parameterizedProgram;
+    }
+
+    /**
+     * Gets the execution plan which was compiled.
+     * 
+     * @return The execution plan.
+     */
+    public ExecutionPlan getPlan()
+    {
+        return plan;
+    }
+
+    /**
+     * Gets the composed method handle of this solution, which takes the parameters
+     * of the plan and returns its results. Storing this handle within a static
+     * final field and calling it with {@link MethodHandle#invokeExact} allows
+     * HotSpot to inline the entire solution into the caller.
+     * 
+     * @return The method handle, of type {@code (IDataInstance[]) IDataInstance[]}.
+     */
+    public MethodHandle getMethodHandle()
+    {
+        return parameterizedProgram;
+    }
+
+    /**
+     * Evaluates the solution, calling the input functions to calculate the
+     * parameters.
+     * 
+     * @return The results of the solution, being the values passed to the output
+     *     function.
+     * @throws IllegalStateException
+     *     If a function returns the wrong number of outputs.
+     */
+    public IDataInstance[] evaluate()
+    {
+        return invoke(program, NO_PARAMETERS);
+    }
+
+    /**
+     * Evaluates the solution using the given parameters. The input functions are
+     * not called.
+     * 
+     * @param parameters
+     *     - The parameters, being the outputs of each input function of the plan,
+     *     in order. See {@link ExecutionPlan#getParameterType(int)}.
+     * @return The results of the solution, being the values passed to the output
+     *     function.
+     * @throws IllegalArgumentException
+     *     If the number of parameters does not match the plan.
+     * @throws IllegalStateException
+     *     If a function returns the wrong number of outputs.
+     */
+    public IDataInstance[] evaluate(IDataInstance[] parameters)
+    {
+        if (parameters.length != plan.parameterTypes.length)
+            throw new IllegalArgumentException(
+                    "Expected " + plan.parameterTypes.length + " parameters, but got " + parameters.length + "!");
+
+        return invoke(parameterizedProgram, parameters);
+    }
+
+    private static IDataInstance[] invoke(MethodHandle handle, IDataInstance[] parameters)
+    {
+        try
+        {
+            return (IDataInstance[]) handle.invokeExact(parameters);
+        }
+        catch (RuntimeException | Error e)
+        {
+            throw e;
+        }
+        catch (Throwable e)
+        {
+            throw new IllegalStateException("Function threw a checked exception!", e);
+        }
+    }
+}
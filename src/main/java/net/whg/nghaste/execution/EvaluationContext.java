@@ -0,0 +1,39 @@
+package net.whg.nghaste.execution;
+
+import net.whg.nghaste.IDataInstance;
+
+/**
+ * An evaluation context holds the mutable state of a single evaluation of an
+ * execution plan, being the value of every slot and the input array passed to
+ * each function. A context may be reused for any number of evaluations of the
+ * evaluator it was created by, so evaluating a solution does not allocate any
+ * memory beyond what the functions themselves allocate.
+ * <p>
+ * This class is not thread safe. Each thread should use its own context.
+ */
+public final class EvaluationContext
+{
+    final GraphEvaluator evaluator;
+    final IDataInstance[] slots;
+    final IDataInstance[][] arguments;
+    final IDataInstance[] results;
+
+    /**
+     * Creates a new evaluation context for the given evaluator.
+     * 
+     * @param evaluator
+     *     - The evaluator this context belongs to.
+     */
+    EvaluationContext(GraphEvaluator evaluator)
+    {
+        this.evaluator = evaluator;
+
+        ExecutionPlan plan = evaluator.getPlan();
+        slots = new IDataInstance[plan.slotCount];
+        results = new IDataInstance[plan.resultSlots.length];
+
+        arguments = new IDataInstance[plan.functions.length][];
+        for (int step = 0; step < arguments.length; step++)
+            arguments[step] = new IDataInstance[plan.inputSlots[step].length];
+    }
+}
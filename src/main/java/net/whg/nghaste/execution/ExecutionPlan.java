@@ -0,0 +1,348 @@
+package net.whg.nghaste.execution;
+
+import java.util.ArrayList;
+import java.util.List;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.IDataType;
+import net.whg.nghaste.IFunction;
+import net.whg.nghaste.InputFunction;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OutputFunction;
+
+/**
+ * An execution plan is a solution which has been flattened into a list of
+ * steps, where each step calls a single function of the solution. Steps are
+ * sorted in topological order, so the inputs of a step are always produced by
+ * earlier steps. Every output plug of every step is assigned a slot, and every
+ * input plug reads from the slot of the output plug it is connected to, so
+ * output plugs which are connected to multiple input plugs are resolved ahead
+ * of time.
+ * <p>
+ * The input functions of the solution are the parameters of the plan. They are
+ * always the first steps of the plan, ordered by node index, and their outputs
+ * are stored within the first slots. The inputs of the output function are the
+ * results of the plan. Nodes which are not connected to the output function are
+ * not part of the plan.
+ * <p>
+ * This class is immutable.
+ */
+public final class ExecutionPlan
+{
+    // Read directly by the evaluators of this package
+    final IFunction[] functions;
+    final int[] functionIndices;
+    final int[][] inputSlots;
+    final int[] outputSlots;
+    final int[] outputCounts;
+    final int parameterCount;
+    final IDataType[] parameterTypes;
+    final int[] resultSlots;
+    final IDataType[] resultTypes;
+    final int slotCount;
+
+    /**
+     * Compiles a solution into an execution plan.
+     * 
+     * @param solution
+     *     - The solution to compile.
+     * @return The execution plan of the solution.
+     * @throws IllegalArgumentException
+     *     If the graph has open plugs, or does not contain an output function.
+     */
+    public static ExecutionPlan compile(NodeGraph solution)
+    {
+        if (solution.countOpenPlugs() != 0)
+            throw new IllegalArgumentException("Graph is not a solution!");
+
+        return new ExecutionPlan(solution);
+    }
+
+    private ExecutionPlan(NodeGraph solution)
+    {
+        int nodeCount = solution.getNodeCount();
+        int[][] sourceNodes = new int[nodeCount][];
+        int[][] sourcePlugs = new int[nodeCount][];
+        int outputNode = -1;
+
+        for (int node = 0; node < nodeCount; node++)
+        {
+            IFunction function = solution.getNodeAsFunction(node);
+            sourceNodes[node] = new int[function.getInputs().length];
+            sourcePlugs[node] = new int[function.getInputs().length];
+
+            if (function instanceof OutputFunction)
+                outputNode = node;
+        }
+
+        if (outputNode == -1)
+            throw new IllegalArgumentException("Graph does not contain an output function!");
+
+        Connection connection = new Connection();
+        for (int i = 0; i < solution.getConnectionCount(); i++)
+        {
+            solution.getConnection(i, connection);
+            sourceNodes[connection.getInputNode()][connection.getInputPlug()] = connection.getOutputNode();
+            sourcePlugs[connection.getInputNode()][connection.getInputPlug()] = connection.getOutputPlug();
+        }
+
+        List<Integer> order = sortNodes(solution, sourceNodes, outputNode);
+        int stepCount = order.size();
+
+        functions = new IFunction[stepCount];
+        functionIndices = new int[stepCount];
+        inputSlots = new int[stepCount][];
+        outputSlots = new int[stepCount];
+        outputCounts = new int[stepCount];
+
+        int[] nodeSlots = new int[nodeCount];
+        int slots = 0;
+        int parameters = 0;
+
+        for (int step = 0; step < stepCount; step++)
+        {
+            int node = order.get(step);
+            functions[step] = solution.getNodeAsFunction(node);
+            functionIndices[step] = solution.getNodeType(node);
+            outputSlots[step] = slots;
+            outputCounts[step] = functions[step].getOutputs().length;
+            nodeSlots[node] = slots;
+            slots += outputCounts[step];
+
+            if (functions[step] instanceof InputFunction)
+                parameters++;
+        }
+
+        for (int step = 0; step < stepCount; step++)
+        {
+            int node = order.get(step);
+            inputSlots[step] = new int[sourceNodes[node].length];
+
+            for (int plug = 0; plug < inputSlots[step].length; plug++)
+                inputSlots[step][plug] = nodeSlots[sourceNodes[node][plug]] + sourcePlugs[node][plug];
+        }
+
+        parameterCount = parameters;
+        slotCount = slots;
+
+        int parameterSlots = parameters == stepCount ? slots : outputSlots[parameters];
+        parameterTypes = new IDataType[parameterSlots];
+        for (int step = 0; step < parameters; step++)
+        {
+            IDataType[] outputs = functions[step].getOutputs();
+            System.arraycopy(outputs, 0, parameterTypes, outputSlots[step], outputs.length);
+        }
+
+        resultSlots = new int[sourceNodes[outputNode].length];
+        for (int plug = 0; plug < resultSlots.length; plug++)
+            resultSlots[plug] = nodeSlots[sourceNodes[outputNode][plug]] + sourcePlugs[outputNode][plug];
+
+        resultTypes = solution.getNodeAsFunction(outputNode)
+                              .getInputs()
+                              .clone();
+    }
+
+    /**
+     * Sorts the nodes which the output node depends on in topological order, with
+     * all input functions first, ordered by node index.
+     */
+    private static List<Integer> sortNodes(NodeGraph solution, int[][] sourceNodes, int outputNode)
+    {
+        boolean[] visited = new boolean[solution.getNodeCount()];
+        List<Integer> order = new ArrayList<>();
+
+        visited[outputNode] = true;
+        for (int source : sourceNodes[outputNode])
+            visitNode(source, sourceNodes, visited, order);
+
+        List<Integer> sorted = new ArrayList<>();
+        for (int node = 0; node < visited.length; node++)
+            if (visited[node] && node != outputNode && solution.getNodeAsFunction(node) instanceof InputFunction)
+                sorted.add(node);
+
+        for (int node : order)
+            if (!(solution.getNodeAsFunction(node) instanceof InputFunction))
+                sorted.add(node);
+
+        return sorted;
+    }
+
+    /**
+     * Adds a node to the topological order after all nodes it depends on.
+     */
+    private static void visitNode(int node, int[][] sourceNodes, boolean[] visited, List<Integer> order)
+    {
+        if (visited[node])
+            return;
+
+        visited[node] = true;
+        for (int source : sourceNodes[node])
+            visitNode(source, sourceNodes, visited, order);
+
+        order.add(node);
+    }
+
+    /**
+     * Gets the number of steps within this plan.
+     * 
+     * @return The number of steps.
+     */
+    public int getStepCount()
+    {
+        return functions.length;
+    }
+
+    /**
+     * Gets the function called by the given step.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @return The function.
+     */
+    public IFunction getFunction(int step)
+    {
+        return functions[step];
+    }
+
+    /**
+     * Gets the index of the function called by the given step within the function
+     * list of the environment.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @return The function index.
+     */
+    public int getFunctionIndex(int step)
+    {
+        return functionIndices[step];
+    }
+
+    /**
+     * Gets the slot which the given input plug of a step reads from.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @param plug
+     *     - The index of the input plug of the function.
+     * @return The slot index.
+     */
+    public int getInputSlot(int step, int plug)
+    {
+        return inputSlots[step][plug];
+    }
+
+    /**
+     * Gets the number of inputs of the function called by the given step.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @return The number of inputs.
+     */
+    public int getInputCount(int step)
+    {
+        return inputSlots[step].length;
+    }
+
+    /**
+     * Gets the first slot which the outputs of a step are stored in. The outputs of
+     * a step are stored in consecutive slots.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @return The slot index of the first output.
+     */
+    public int getOutputSlot(int step)
+    {
+        return outputSlots[step];
+    }
+
+    /**
+     * Gets the number of outputs of the function called by the given step.
+     * 
+     * @param step
+     *     - The index of the step.
+     * @return The number of outputs.
+     */
+    public int getOutputCount(int step)
+    {
+        return outputCounts[step];
+    }
+
+    /**
+     * Gets the number of steps which call an input function. These are always the
+     * first steps of the plan.
+     * 
+     * @return The number of parameter steps.
+     */
+    public int getParameterStepCount()
+    {
+        return parameterCount;
+    }
+
+    /**
+     * Gets the number of parameters of this plan, being the number of outputs of
+     * all input functions. The parameters are stored within the first slots.
+     * 
+     * @return The number of parameters.
+     */
+    public int getParameterCount()
+    {
+        return parameterTypes.length;
+    }
+
+    /**
+     * Gets the data type of a parameter.
+     * 
+     * @param parameter
+     *     - The index of the parameter.
+     * @return The data type.
+     */
+    public IDataType getParameterType(int parameter)
+    {
+        return parameterTypes[parameter];
+    }
+
+    /**
+     * Gets the number of results of this plan, being the number of inputs of the
+     * output function.
+     * 
+     * @return The number of results.
+     */
+    public int getResultCount()
+    {
+        return resultSlots.length;
+    }
+
+    /**
+     * Gets the slot which the given result is read from.
+     * 
+     * @param result
+     *     - The index of the result.
+     * @return The slot index.
+     */
+    public int getResultSlot(int result)
+    {
+        return resultSlots[result];
+    }
+
+    /**
+     * Gets the data type of a result.
+     * 
+     * @param result
+     *     - The index of the result.
+     * @return The data type.
+     */
+    public IDataType getResultType(int result)
+    {
+        return resultTypes[result];
+    }
+
+    /**
+     * Gets the total number of slots, being the number of outputs of all steps.
+     * 
+     * @return The number of slots.
+     */
+    public int getSlotCount()
+    {
+        return slotCount;
+    }
+}
@@ -0,0 +1,95 @@
+package net.whg.nghaste.execution;
+
+/**
+ * A count-min sketch which estimates how often each key has been seen
+ * recently, using four 4-bit counters per key. Once the number of counted keys
+ * reaches ten times the capacity of the sketch, all counters are halved, so
+ * keys which were popular long ago are slowly forgotten.
+ * <p>
+ * This class is not thread safe.
+ */
+final class FrequencySketch
+{
+    private static final long[] SEEDS =
+            {0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L};
+    private static final long RESET_MASK = 0x7777777777777777L;
+
+    private final long[] table;
+    private final int tableMask;
+    private final int sampleSize;
+    private int size;
+
+    /**
+     * Creates a new frequency sketch.
+     * 
+     * @param capacity
+     *     - The number of keys the owning cache can hold.
+     */
+    FrequencySketch(int capacity)
+    {
+        int length = Integer.highestOneBit(Math.max(capacity, 1) * 2 - 1);
+
+        table = new long[length];
+        tableMask = length - 1;
+        sampleSize = Math.max(capacity, 1) * 10;
+    }
+
+    /**
+     * Gets the estimated number of times the given key has been seen, up to 15.
+     */
+    int frequency(int hash)
+    {
+        int start = (hash & 3) << 2;
+        int frequency = 15;
+
+        for (int i = 0; i < 4; i++)
+        {
+            int offset = (start + i) << 2;
+            int count = (int) ((table[indexOf(hash, i)] >>> offset) & 0xF);
+            frequency = Math.min(frequency, count);
+        }
+
+        return frequency;
+    }
+
+    /**
+     * Counts the given key once, halving all counters if the sample size has been
+     * reached.
+     */
+    void increment(int hash)
+    {
+        int start = (hash & 3) << 2;
+        boolean added = false;
+
+        for (int i = 0; i < 4; i++)
+        {
+            int index = indexOf(hash, i);
+            int offset = (start + i) << 2;
+
+            if (((table[index] >>> offset) & 0xF) != 0xF)
+            {
+                table[index] += 1L << offset;
+                added = true;
+            }
+        }
+
+        if (added && ++size >= sampleSize)
+            reset();
+    }
+
+    private void reset()
+    {
+        for (int i = 0; i < table.length; i++)
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+
+        size /= 2;
+    }
+
+    private int indexOf(int hash, int depth)
+    {
+        long h = (hash + SEEDS[depth]) * SEEDS[depth];
+        h += h >>> 32;
+
+        return (int) h & tableMask;
+    }
+}
@@ -0,0 +1,345 @@
+package net.whg.nghaste.execution;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.IFunction;
+
+/**
+ * The function cache remembers the outputs of functions for the inputs they
+ * were called with. As every function must return the same outputs for the
+ * same inputs, a function only needs to be called once for each distinct set of
+ * input values, across all solutions which are evaluated using this cache.
+ * Inputs are compared using {@link IDataInstance#valueEquals(IDataInstance)}
+ * and {@link IDataInstance#valueHashCode()}.
+ * <p>
+ * The cache is split into stripes, each with their own lock and an equal share
+ * of the maximum size. Each stripe uses a small admission window and a larger
+ * main area, both ordered from least to most recently used. New entries enter
+ * the window, and entries leaving the window only replace the least recently
+ * used entry of the main area if they have been requested more often recently,
+ * as estimated by a frequency sketch. This keeps frequently requested entries
+ * cached while many inputs are only seen once.
+ * <p>
+ * Functions are called outside of the lock, so a function may occasionally be
+ * called more than once for the same inputs when multiple threads request it
+ * at the same time. Cached output arrays are shared, and must not be modified.
+ * Function indices are only unique within a single environment, so a cache
+ * should only be used for the solutions of a single environment.
+ * <p>
+ * This class is thread safe.
+ */
+public final class FunctionCache
+{
+    private final Stripe[] stripes;
+    private final int stripeMask;
+    private final int maximumSize;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates a new function cache, using four stripes per available processor.
+     * 
+     * @param maximumSize
+     *     - The maximum number of cached function calls.
+     * @throws IllegalArgumentException
+     *     If the maximum size is not positive.
+     */
+    public FunctionCache(int maximumSize)
+    {
+        this(maximumSize, Runtime.getRuntime()
+                                 .availableProcessors()
+                * 4);
+    }
+
+    /**
+     * Creates a new function cache.
+     * 
+     * @param maximumSize
+     *     - The maximum number of cached function calls.
+     * @param stripeCount
+     *     - The number of stripes to split the cache into. This is rounded up to
+     *     the next power of two, and reduced to at most the maximum size.
+     * @throws IllegalArgumentException
+     *     If the maximum size or the stripe count is not positive.
+     */
+    public FunctionCache(int maximumSize, int stripeCount)
+    {
+        if (maximumSize <= 0)
+            throw new IllegalArgumentException("Maximum size must be positive!");
+
+        if (stripeCount <= 0)
+            throw new IllegalArgumentException("Stripe count must be positive!");
+
+        int count = Math.min(Integer.highestOneBit(stripeCount * 2 - 1), Integer.highestOneBit(maximumSize));
+
+        this.maximumSize = maximumSize;
+        stripes = new Stripe[count];
+        stripeMask = count - 1;
+
+        for (int i = 0; i < count; i++)
+            stripes[i] = new Stripe(maximumSize / count);
+    }
+
+    /**
+     * Gets the outputs of a function for the given inputs, calling the function
+     * only if the outputs are not cached yet.
+     * 
+     * @param functionIndex
+     *     - The index of the function within the environment.
+     * @param function
+     *     - The function.
+     * @param inputs
+     *     - The inputs to call the function with. This array is copied if the
+     *     outputs are cached, so it may be reused afterwards.
+     * @return The outputs of the function. This array is shared, and must not be
+     *     modified.
+     */
+    public IDataInstance[] execute(int functionIndex, IFunction function, IDataInstance[] inputs)
+    {
+        Key key = new Key(functionIndex, inputs);
+        Stripe stripe = stripes[spread(key.hash) & stripeMask];
+
+        IDataInstance[] outputs = stripe.get(key);
+        if (outputs != null)
+        {
+            hits.increment();
+            return outputs;
+        }
+
+        misses.increment();
+        outputs = function.execute(inputs);
+
+        if (outputs != null)
+            stripe.put(new Key(functionIndex, inputs.clone(), key.hash), outputs);
+
+        return outputs;
+    }
+
+    private static int spread(int hash)
+    {
+        return hash ^ (hash >>> 16);
+    }
+
+    /**
+     * Gets the maximum number of function calls this cache may hold.
+     * 
+     * @return The maximum size.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the number of function calls currently cached.
+     * 
+     * @return The number of cached function calls.
+     */
+    public int size()
+    {
+        int size = 0;
+
+        for (Stripe stripe : stripes)
+            size += stripe.size();
+
+        return size;
+    }
+
+    /**
+     * Gets the number of requests which were answered using a cached result.
+     * 
+     * @return The number of cache hits.
+     */
+    public long getHitCount()
+    {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of requests which called the function.
+     * 
+     * @return The number of cache misses.
+     */
+    public long getMissCount()
+    {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the fraction of requests which were answered using a cached result.
+     * 
+     * @return The hit rate, between 0 and 1, or NaN if nothing was requested yet.
+     */
+    public double getHitRate()
+    {
+        long hitCount = hits.sum();
+        long total = hitCount + misses.sum();
+
+        if (total == 0)
+            return Double.NaN;
+
+        return (double) hitCount / total;
+    }
+
+    /**
+     * Gets the number of function calls which were removed from this cache, or
+     * were not admitted into it, to stay within the maximum size.
+     * 
+     * @return The number of evictions.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.sum();
+    }
+
+    /**
+     * Removes all cached function calls. The metrics of this cache are kept.
+     */
+    public void clear()
+    {
+        for (Stripe stripe : stripes)
+            stripe.clear();
+    }
+
+    /**
+     * The key of a cached function call, being the function index and the values
+     * of its inputs.
+     */
+    private static final class Key
+    {
+        private final int function;
+        private final IDataInstance[] inputs;
+        private final int hash;
+
+        private Key(int function, IDataInstance[] inputs)
+        {
+            this(function, inputs, hashOf(function, inputs));
+        }
+
+        private Key(int function, IDataInstance[] inputs, int hash)
+        {
+            this.function = function;
+            this.inputs = inputs;
+            this.hash = hash;
+        }
+
+        private static int hashOf(int function, IDataInstance[] inputs)
+        {
+            int hash = function;
+
+            for (IDataInstance input : inputs)
+                hash = hash * 31 + input.valueHashCode();
+
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (this == obj)
+                return true;
+
+            if (!(obj instanceof Key))
+                return false;
+
+            Key other = (Key) obj;
+            if (hash != other.hash || function != other.function || inputs.length != other.inputs.length)
+                return false;
+
+            for (int i = 0; i < inputs.length; i++)
+                if (!inputs[i].valueEquals(other.inputs[i]))
+                    return false;
+
+            return true;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+
+    /**
+     * A single stripe of the cache, with its own lock, admission window, main
+     * area, and frequency sketch.
+     */
+    private final class Stripe
+    {
+        private final Map<Key, IDataInstance[]> window = new LinkedHashMap<>(16, 0.75f, true);
+        private final Map<Key, IDataInstance[]> main = new LinkedHashMap<>(16, 0.75f, true);
+        private final FrequencySketch sketch;
+        private final int windowCapacity;
+        private final int mainCapacity;
+
+        private Stripe(int capacity)
+        {
+            windowCapacity = Math.max(1, capacity / 100);
+            mainCapacity = capacity - windowCapacity;
+            sketch = new FrequencySketch(capacity);
+        }
+
+        private synchronized IDataInstance[] get(Key key)
+        {
+            sketch.increment(key.hash);
+
+            IDataInstance[] outputs = window.get(key);
+            if (outputs == null)
+                outputs = main.get(key);
+
+            return outputs;
+        }
+
+        private synchronized void put(Key key, IDataInstance[] outputs)
+        {
+            // Another thread may have cached the same call in the meantime
+            if (window.containsKey(key) || main.containsKey(key))
+                return;
+
+            window.put(key, outputs);
+            if (window.size() <= windowCapacity)
+                return;
+
+            Iterator<Map.Entry<Key, IDataInstance[]>> windowIterator = window.entrySet()
+                                                                             .iterator();
+            Map.Entry<Key, IDataInstance[]> candidate = windowIterator.next();
+            windowIterator.remove();
+
+            if (main.size() < mainCapacity)
+            {
+                main.put(candidate.getKey(), candidate.getValue());
+                return;
+            }
+
+            evictions.increment();
+            if (mainCapacity == 0)
+                return;
+
+            Iterator<Map.Entry<Key, IDataInstance[]>> mainIterator = main.entrySet()
+                                                                         .iterator();
+            Key victim = mainIterator.next()
+                                     .getKey();
+
+            if (sketch.frequency(candidate.getKey().hash) > sketch.frequency(victim.hash))
+            {
+                mainIterator.remove();
+                main.put(candidate.getKey(), candidate.getValue());
+            }
+        }
+
+        private synchronized int size()
+        {
+            return window.size() + main.size();
+        }
+
+        private synchronized void clear()
+        {
+            window.clear();
+            main.clear();
+        }
+    }
+}
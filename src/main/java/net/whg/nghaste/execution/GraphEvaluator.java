@@ -0,0 +1,214 @@
+package net.whg.nghaste.execution;
+
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.NodeGraph;
+
+/**
+ * The graph evaluator runs a solution as code. The solution is compiled once
+ * into an {@link ExecutionPlan}, and every evaluation then calls the functions
+ * of the plan in order, passing the values of the slots their inputs are
+ * connected to. All arrays used while evaluating are preallocated within an
+ * {@link EvaluationContext}, which may be reused for every evaluation.
+ * <p>
+ * The parameters of the solution, being the outputs of its input functions, may
+ * either be calculated by calling the input functions, or be given for each
+ * evaluation to run the same solution against many different inputs.
+ * <p>
+ * An evaluator may be given a {@link FunctionCache}, in which case every
+ * function other than the input functions is called through the cache, so
+ * functions which were already called with equal inputs, by this or any other
+ * solution sharing the cache, are not called again.
+ * <p>
+ * This class is immutable, and may be used by multiple threads at once, as long
+ * as each thread uses its own evaluation context.
+ */
+public final class GraphEvaluator
+{
+    private final ExecutionPlan plan;
+    private final FunctionCache cache;
+
+    /**
+     * Creates a new graph evaluator for the given solution.
+     * 
+     * @param solution
+     *     - The solution to evaluate.
+     * @throws IllegalArgumentException
+     *     If the graph has open plugs, or does not contain an output function.
+     */
+    public GraphEvaluator(NodeGraph solution)
+    {
+        this(ExecutionPlan.compile(solution), null);
+    }
+
+    /**
+     * Creates a new graph evaluator for the given solution, which calls functions
+     * through the given cache.
+     * 
+     * @param solution
+     *     - The solution to evaluate.
+     * @param cache
+     *     - The function cache to use, or null to always call the functions.
+     * @throws IllegalArgumentException
+     *     If the graph has open plugs, or does not contain an output function.
+     */
+    public GraphEvaluator(NodeGraph solution, FunctionCache cache)
+    {
+        this(ExecutionPlan.compile(solution), cache);
+    }
+
+    /**
+     * Creates a new graph evaluator for the given execution plan.
+     * 
+     * @param plan
+     *     - The execution plan to evaluate.
+     */
+    public GraphEvaluator(ExecutionPlan plan)
+    {
+        this(plan, null);
+    }
+
+    /**
+     * Creates a new graph evaluator for the given execution plan, which calls
+     * functions through the given cache.
+     * 
+     * @param plan
+     *     - The execution plan to evaluate.
+     * @param cache
+     *     - The function cache to use, or null to always call the functions.
+     */
+    public GraphEvaluator(ExecutionPlan plan, FunctionCache cache)
+    {
+        this.plan = plan;
+        this.cache = cache;
+    }
+
+    /**
+     * Gets the execution plan of this evaluator.
+     * 
+     * @return The execution plan.
+     */
+    public ExecutionPlan getPlan()
+    {
+        return plan;
+    }
+
+    /**
+     * Gets the function cache used by this evaluator.
+     * 
+     * @return The function cache, or null if functions are always called.
+     */
+    public FunctionCache getCache()
+    {
+        return cache;
+    }
+
+    /**
+     * Creates a new evaluation context to evaluate this solution with.
+     * 
+     * @return A new evaluation context.
+     */
+    public EvaluationContext newContext()
+    {
+        return new EvaluationContext(this);
+    }
+
+    /**
+     * Evaluates the solution, calling the input functions to calculate the
+     * parameters.
+     * 
+     * @param context
+     *     - The evaluation context to use.
+     * @return The results of the solution, being the values passed to the output
+     *     function. This array belongs to the context, and is overwritten by the
+     *     next evaluation using the same context.
+     * @throws IllegalArgumentException
+     *     If the context was not created by this evaluator.
+     * @throws IllegalStateException
+     *     If a function returns the wrong number of outputs.
+     */
+    public IDataInstance[] evaluate(EvaluationContext context)
+    {
+        checkContext(context);
+        return run(context, 0);
+    }
+
+    /**
+     * Evaluates the solution using the given parameters. The input functions are
+     * not called.
+     * 
+     * @param context
+     *     - The evaluation context to use.
+     * @param parameters
+     *     - The parameters, being the outputs of each input function of the plan,
+     *     in order. See {@link ExecutionPlan#getParameterType(int)}.
+     * @return The results of the solution, being the values passed to the output
+     *     function. This array belongs to the context, and is overwritten by the
+     *     next evaluation using the same context.
+     * @throws IllegalArgumentException
+     *     If the context was not created by this evaluator, or the number of
+     *     parameters does not match the plan.
+     * @throws IllegalStateException
+     *     If a function returns the wrong number of outputs.
+     */
+    public IDataInstance[] evaluate(EvaluationContext context, IDataInstance[] parameters)
+    {
+        checkContext(context);
+
+        if (parameters.length != plan.parameterTypes.length)
+            throw new IllegalArgumentException(
+                    "Expected " + plan.parameterTypes.length + " parameters, but got " + parameters.length + "!");
+
+        System.arraycopy(parameters, 0, context.slots, 0, parameters.length);
+        return run(context, plan.parameterCount);
+    }
+
+    private void checkContext(EvaluationContext context)
+    {
+        if (context.evaluator != this)
+            throw new IllegalArgumentException("Context was created by a different evaluator!");
+    }
+
+    /**
+     * Runs all steps of the plan, starting from the given step, and collects the
+     * results.
+     */
+    private IDataInstance[] run(EvaluationContext context, int firstStep)
+    {
+        IDataInstance[] slots = context.slots;
+
+        for (int step = firstStep; step < plan.functions.length; step++)
+        {
+            int[] inputs = plan.inputSlots[step];
+            IDataInstance[] arguments = context.arguments[step];
+
+            for (int i = 0; i < inputs.length; i++)
+                arguments[i] = slots[inputs[i]];
+
+            IDataInstance[] outputs;
+            if (cache == null || step < plan.parameterCount)
+                outputs = plan.functions[step].execute(arguments);
+            else
+                outputs = cache.execute(plan.functionIndices[step], plan.functions[step], arguments);
+
+            storeOutputs(step, outputs, slots);
+        }
+
+        IDataInstance[] results = context.results;
+        for (int i = 0; i < results.length; i++)
+            results[i] = slots[plan.resultSlots[i]];
+
+        return results;
+    }
+
+    /**
+     * Copies the outputs of a step into their slots.
+     */
+    private void storeOutputs(int step, IDataInstance[] outputs, IDataInstance[] slots)
+    {
+        int outputCount = plan.outputCounts[step];
+        if (outputs == null || outputs.length != outputCount)
+            throw new IllegalStateException("Function returned the wrong number of outputs!");
+
+        System.arraycopy(outputs, 0, slots, plan.outputSlots[step], outputCount);
+    }
+}
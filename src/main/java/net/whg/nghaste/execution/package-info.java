@@ -0,0 +1,7 @@
+/**
+ * This package contains the classes used to run solutions found by the
+ * algorithm as code. A solution is compiled once into an execution plan, which
+ * lists the functions of the solution in the order they must be called, and can
+ * then be evaluated any number of times, from any number of threads.
+ */
+package net.whg.nghaste.execution;
@@ -0,0 +1,25 @@
+package net.whg.nghaste.util;
+
+import net.whg.nghaste.FunctionTable;
+import net.whg.nghaste.IPlugSelector;
+import net.whg.nghaste.NodeGraph;
+
+/**
+ * This plug selector fills the open plug with the fewest possible producers
+ * first, where a producer is any function output plug which returns the data
+ * type of the open plug. Plugs with fewer options branch into fewer child
+ * graphs, and are more likely to lead to dead ends, so filling them first
+ * prunes invalid graphs earlier within the search tree.
+ */
+public final class FewestProducersPlugSelector implements IPlugSelector
+{
+    @Override
+    public int rankPlug(NodeGraph graph, int nodeIndex, int inputPlugIndex)
+    {
+        FunctionTable table = graph.getEnvironment()
+                                   .getFunctionTable();
+
+        int type = table.getInputType(graph.getNodeType(nodeIndex), inputPlugIndex);
+        return table.getProducerCount(type);
+    }
+}
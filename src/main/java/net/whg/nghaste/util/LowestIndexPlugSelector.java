@@ -0,0 +1,17 @@
+package net.whg.nghaste.util;
+
+import net.whg.nghaste.IPlugSelector;
+import net.whg.nghaste.NodeGraph;
+
+/**
+ * This plug selector gives every open plug the same rank, meaning the first
+ * open plug is always filled first, ordered by node index, then by plug index.
+ */
+public final class LowestIndexPlugSelector implements IPlugSelector
+{
+    @Override
+    public int rankPlug(NodeGraph graph, int nodeIndex, int inputPlugIndex)
+    {
+        return 0;
+    }
+}
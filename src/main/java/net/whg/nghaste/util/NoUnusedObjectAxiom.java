@@ -1,5 +1,6 @@
 package net.whg.nghaste.util;
 
+import net.whg.nghaste.FunctionTable;
 import net.whg.nghaste.IDataType;
 import net.whg.nghaste.ISolutionAxiom;
 import net.whg.nghaste.NodeGraph;
@@ -60,6 +61,12 @@ public final class NoUnusedObjectAxiom implements ISolutionAxiom
         return dataType.hashCode() + 123450912;
     }
 
+    @Override
+    public int getFingerprint(FunctionTable functionTable)
+    {
+        return functionTable.getTypeId(dataType);
+    }
+
     @Override
     public boolean equals(Object obj)
     {
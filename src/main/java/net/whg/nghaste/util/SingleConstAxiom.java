@@ -1,16 +1,25 @@
 package net.whg.nghaste.util;
 
-import net.whg.nghaste.IAxiom;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.FunctionTable;
+import net.whg.nghaste.IIncrementalAxiom;
+import net.whg.nghaste.IStructuralAxiom;
 import net.whg.nghaste.InputFunction;
 import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.StructuralConstraints;
 
 /**
  * This axiom is used to ensure that only at most a single instance of each
  * input function is present in a graph. Using duplicate constants only takes up
  * extra node slots in the graph, and increases the search space without
  * effecting the output of the graph in any way.
+ * <p>
+ * When validating a child graph incrementally, only the added node needs to be
+ * compared against the nodes of the parent graph. Every input function is also
+ * declared as a structural limit of a single instance, so the search tree
+ * never creates a second instance of an input function to begin with.
  */
-public final class SingleConstAxiom implements IAxiom
+public final class SingleConstAxiom implements IIncrementalAxiom, IStructuralAxiom
 {
     @Override
     public boolean isValid(NodeGraph graph)
@@ -32,6 +41,35 @@ public final class SingleConstAxiom implements IAxiom
         return true;
     }
 
+    @Override
+    public boolean isValid(NodeGraph parent, Connection connection, int addedNodeType)
+    {
+        if (addedNodeType == -1 || !parent.getEnvironment()
+                                          .getFunctionTable()
+                                          .isInputFunction(addedNodeType))
+            return true;
+
+        int nodeCount = parent.getNodeCount();
+        for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
+        {
+            if (parent.getNodeType(nodeIndex) == addedNodeType)
+                return false;
+        }
+
+        return true;
+    }
+
+    @Override
+    public void declareConstraints(StructuralConstraints constraints)
+    {
+        FunctionTable table = constraints.getFunctionTable();
+
+        int functionCount = table.getFunctionCount();
+        for (int function = 0; function < functionCount; function++)
+            if (table.isInputFunction(function))
+                constraints.limitInstances(function, 1);
+    }
+
     @Override
     public boolean equals(Object obj)
     {
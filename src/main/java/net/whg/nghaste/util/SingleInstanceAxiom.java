@@ -1,18 +1,45 @@
 package net.whg.nghaste.util;
 
-import net.whg.nghaste.IAxiom;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.FunctionTable;
 import net.whg.nghaste.IDataType;
+import net.whg.nghaste.IIncrementalAxiom;
+import net.whg.nghaste.IStructuralAxiom;
 import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.StructuralConstraints;
 
 /**
  * This axiom is wrapped around a specific data type to ensure that an output
  * plug connection may only connect to a single input plug. This axiom is
  * intended for use with data types which are intended to be reference types
  * rather than value types.
+ * <p>
+ * When validating a child graph incrementally, only the output plug of the
+ * added connection needs to be checked. The data type is also declared as a
+ * structural limit with a fan-out of one, so the search tree never creates a
+ * second connection from the same output plug to begin with. The data type is
+ * resolved to its interned type ID once per function table, so plugs are
+ * compared by their type IDs rather than by calling equals() on every check.
  */
-public final class SingleInstanceAxiom implements IAxiom
+public final class SingleInstanceAxiom implements IIncrementalAxiom, IStructuralAxiom
 {
+    /**
+     * The type ID of the data type within a specific function table.
+     */
+    private static final class ResolvedType
+    {
+        private final FunctionTable functionTable;
+        private final int typeId;
+
+        ResolvedType(FunctionTable functionTable, int typeId)
+        {
+            this.functionTable = functionTable;
+            this.typeId = typeId;
+        }
+    }
+
     private final IDataType dataType;
+    private volatile ResolvedType resolved;
 
     /**
      * Creates a new SingleInstance axiom. This axiom will ensure that, at most, one
@@ -32,17 +59,45 @@ public final class SingleInstanceAxiom implements IAxiom
         this.dataType = dataType;
     }
 
+    /**
+     * Gets the type ID of the data type within the given function table. The ID is
+     * cached, so it is only looked up again if the axiom is used with a different
+     * function table.
+     * 
+     * @param functionTable
+     *     - The function table to look up the data type in.
+     * @return The type ID, or -1 if no function uses the data type.
+     */
+    private int getTypeId(FunctionTable functionTable)
+    {
+        ResolvedType type = resolved;
+        if (type == null || type.functionTable != functionTable)
+        {
+            type = new ResolvedType(functionTable, functionTable.getTypeId(dataType));
+            resolved = type;
+        }
+
+        return type.typeId;
+    }
+
     @Override
     public boolean isValid(NodeGraph graph)
     {
+        FunctionTable functionTable = graph.getEnvironment()
+                                           .getFunctionTable();
+
+        int typeId = getTypeId(functionTable);
+        if (typeId == -1)
+            return true;
+
         int nodeCount = graph.getNodeCount();
         for (int nodeIndex = 0; nodeIndex < nodeCount; nodeIndex++)
         {
-            IDataType[] outputPlugs = graph.getNodeAsFunction(nodeIndex)
-                                           .getOutputs();
-            for (int plugIndex = 0; plugIndex < outputPlugs.length; plugIndex++)
+            int nodeType = graph.getNodeType(nodeIndex);
+            int outputCount = functionTable.getOutputCount(nodeType);
+            for (int plugIndex = 0; plugIndex < outputCount; plugIndex++)
             {
-                if (!outputPlugs[plugIndex].equals(dataType))
+                if (functionTable.getOutputType(nodeType, plugIndex) != typeId)
                     continue;
 
                 if (graph.getOutputConnectionCount(nodeIndex, plugIndex) > 1)
@@ -53,6 +108,40 @@ public final class SingleInstanceAxiom implements IAxiom
         return true;
     }
 
+    @Override
+    public boolean isValid(NodeGraph parent, Connection connection, int addedNodeType)
+    {
+        // A newly added node has no other connections yet
+        if (addedNodeType != -1)
+            return true;
+
+        FunctionTable functionTable = parent.getEnvironment()
+                                            .getFunctionTable();
+
+        int nodeIndex = connection.getOutputNode();
+        int plugIndex = connection.getOutputPlug();
+
+        if (functionTable.getOutputType(parent.getNodeType(nodeIndex), plugIndex) != getTypeId(functionTable))
+            return true;
+
+        return parent.getOutputConnectionCount(nodeIndex, plugIndex) == 0;
+    }
+
+    @Override
+    public void declareConstraints(StructuralConstraints constraints)
+    {
+        int typeId = getTypeId(constraints.getFunctionTable());
+
+        if (typeId != -1)
+            constraints.limitFanOut(typeId, 1);
+    }
+
+    @Override
+    public int getFingerprint(FunctionTable functionTable)
+    {
+        return getTypeId(functionTable);
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -0,0 +1,117 @@
+package net.whg.nghaste.benchmark;
+
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+/**
+ * A small benchmark for measuring the cost of cycle checks on deep, linear
+ * graphs. Each graph is a chain of addition nodes, where the second input of
+ * every node is left open. The time taken by the search tree to expand the
+ * graph, using the reachability table, is compared against the time taken by
+ * the recursive ancestor walk which was previously used to perform the same
+ * cycle checks. The maximum depth is chosen so that every child is rejected
+ * right away, so the expansion time is dominated by the cycle checks. This is
+ * not executed as part of the test suite, and should be run manually.
+ */
+public class AncestorBenchmark
+{
+    private static final int ITERATIONS = 2000;
+    private static final int[] CHAIN_LENGTHS = {8, 12, 16, 20};
+
+    public static void main(String[] args)
+    {
+        // Warm up
+        for (int length : CHAIN_LENGTHS)
+        {
+            measureExpansion(chain(length));
+            measureRecursiveWalk(chain(length));
+        }
+
+        for (int length : CHAIN_LENGTHS)
+        {
+            NodeGraph graph = chain(length);
+
+            System.out.printf("Chain of %2d nodes: expansion %10.1f us, recursive walk %10.1f us%n", length,
+                    measureExpansion(graph), measureRecursiveWalk(graph));
+        }
+    }
+
+    private static NodeGraph chain(int length)
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(length);
+        int add = env.getIndexOf(EnvironmentUtils.FUNC1_ADD);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        for (int i = 0; i < length; i++)
+            graph = graph.addConnectionAndNode(add, 0, i, 0);
+
+        return graph;
+    }
+
+    private static double measureExpansion(NodeGraph graph)
+    {
+        SearchTree tree = new SearchTree(new NodeContainer());
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+            tree.placeNeighbors(graph);
+
+        return (System.nanoTime() - start) / 1000.0 / ITERATIONS;
+    }
+
+    private static double measureRecursiveWalk(NodeGraph graph)
+    {
+        Connection connection = new Connection();
+        int found = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            int nodeCount = graph.getNodeCount();
+            for (int node = 0; node < nodeCount; node++)
+            {
+                int inputs = graph.getNodeAsFunction(node)
+                                  .getInputs().length;
+
+                for (int plug = 0; plug < inputs; plug++)
+                {
+                    if (graph.isInputConnected(node, plug))
+                        continue;
+
+                    for (int candidate = 0; candidate < nodeCount; candidate++)
+                        if (isParentOf(graph, connection, node, candidate))
+                            found++;
+                }
+            }
+        }
+
+        long time = System.nanoTime() - start;
+
+        if (found == 0)
+            throw new IllegalStateException("No cycles were detected!");
+
+        return time / 1000.0 / ITERATIONS;
+    }
+
+    private static boolean isParentOf(NodeGraph graph, Connection connection, int parentNode, int childNode)
+    {
+        if (parentNode == childNode)
+            return true;
+
+        int connectionCount = graph.getConnectionCount();
+        for (int connectionIndex = 0; connectionIndex < connectionCount; connectionIndex++)
+        {
+            graph.getConnection(connectionIndex, connection);
+
+            if (connection.getOutputNode() == parentNode
+                    && isParentOf(graph, connection, connection.getInputNode(), childNode))
+                return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,79 @@
+package net.whg.nghaste.benchmark;
+
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IFrontier;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OffHeapFrontier;
+import net.whg.nghaste.PriorityFrontier;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+/**
+ * A small benchmark for measuring the average number of heap bytes retained by
+ * each graph within the search frontier. This compares the flat graph layout
+ * against persistent graphs, the compact encoding and the off-heap frontier.
+ * This is not executed as part of the test suite, and should be run manually.
+ */
+public class GraphMemoryBenchmark
+{
+    private static final int FRONTIER_SIZE = 200000;
+    private static final int DEPTH = 12;
+
+    public static void main(String[] args)
+    {
+        // Breadth first, so the frontier grows quickly
+        Environment flat = EnvironmentUtils.quickEnvironment(DEPTH,
+                builder -> builder.addHeuristic(graph -> -graph.getConnectionCount()));
+        Environment persistent = EnvironmentUtils.quickEnvironment(DEPTH,
+                builder -> builder.addHeuristic(graph -> -graph.getConnectionCount())
+                                  .setPersistentGraphs(true));
+        Environment compact = EnvironmentUtils.quickEnvironment(DEPTH,
+                builder -> builder.addHeuristic(graph -> -graph.getConnectionCount())
+                                  .setCompactEncoding(true));
+
+        // Warm up
+        measure(flat, new PriorityFrontier());
+        measure(persistent, new PriorityFrontier());
+        measure(compact, new PriorityFrontier());
+        measure(compact, new OffHeapFrontier(compact));
+
+        System.out.printf("Flat graphs:       %.1f bytes per frontier graph%n", measure(flat, new PriorityFrontier()));
+        System.out.printf("Persistent graphs: %.1f bytes per frontier graph%n",
+                measure(persistent, new PriorityFrontier()));
+        System.out.printf("Compact encoding:  %.1f bytes per frontier graph%n",
+                measure(compact, new PriorityFrontier()));
+        System.out.printf("Off-heap frontier: %.1f bytes per frontier graph%n",
+                measure(compact, new OffHeapFrontier(compact)));
+    }
+
+    private static double measure(Environment env, IFrontier frontier)
+    {
+        long before = usedMemory();
+
+        NodeContainer container = new NodeContainer(frontier);
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        while (container.size() > 0 && container.size() < FRONTIER_SIZE)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        long after = usedMemory();
+        int size = container.size();
+
+        if (container.getNodeGraph() == null)
+            throw new IllegalStateException("Frontier was exhausted!");
+
+        return (after - before) / (double) size;
+    }
+
+    private static long usedMemory()
+    {
+        Runtime runtime = Runtime.getRuntime();
+
+        for (int i = 0; i < 3; i++)
+            System.gc();
+
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
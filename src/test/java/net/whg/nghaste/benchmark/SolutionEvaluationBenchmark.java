@@ -0,0 +1,187 @@
+package net.whg.nghaste.benchmark;
+
+import java.lang.invoke.MethodHandle;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.IFunction;
+import net.whg.nghaste.InputFunction;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.execution.CompiledSolution;
+import net.whg.nghaste.execution.EvaluationContext;
+import net.whg.nghaste.execution.GraphEvaluator;
+import net.whg.nghaste.execution.MethodHandleCompiler;
+import net.whg.nghaste.util.MathFunctions;
+import net.whg.nghaste.util.MathFunctions.Number;
+
+/**
+ * A small benchmark comparing three ways of running the same solution. The
+ * solution is a chain of alternating additions and multiplications, where the
+ * first input of the last operation is a parameter, and the second input of
+ * every operation is connected to a single shared parameter. The solution is
+ * run by an interpreter which walks the connections of the graph on every call,
+ * by the graph evaluator, and by the composed method handle, which is stored
+ * within a static final field so HotSpot may inline it. This is not executed as
+ * part of the test suite, and should be run manually.
+ */
+public class SolutionEvaluationBenchmark
+{
+    private static final int ITERATIONS = 1000000;
+    private static final int CHAIN_LENGTH = 16;
+    private static final NodeGraph SOLUTION = chain(CHAIN_LENGTH);
+    private static final MethodHandle COMPILED = MethodHandleCompiler.compile(SOLUTION)
+                                                                     .getMethodHandle();
+
+    public static void main(String[] args) throws Throwable
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(SOLUTION);
+        CompiledSolution compiled = MethodHandleCompiler.compile(SOLUTION);
+
+        int expected = MathFunctions.valueOf(compiled.evaluate(parameters(3))[0]);
+        if (MathFunctions.valueOf(interpret(SOLUTION, parameters(3))[0]) != expected
+                || MathFunctions.valueOf(evaluator.evaluate(evaluator.newContext(), parameters(3))[0]) != expected)
+            throw new IllegalStateException("Evaluators disagree!");
+
+        // Warm up
+        for (int i = 0; i < 5; i++)
+        {
+            measureInterpreter();
+            measureEvaluator(evaluator);
+            measureCompiled();
+        }
+
+        System.out.printf("Chain of %d operations:%n", CHAIN_LENGTH);
+        System.out.printf("  Interpreter:     %8.1f ns%n", measureInterpreter());
+        System.out.printf("  Graph evaluator: %8.1f ns%n", measureEvaluator(evaluator));
+        System.out.printf("  Method handle:   %8.1f ns%n", measureCompiled());
+    }
+
+    private static NodeGraph chain(int length)
+    {
+        Environment env = MathFunctions.mathEnvironment(length * 2 + 1);
+
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT);
+        for (int i = 0; i < length; i++)
+            graph = graph.addConnectionAndNode(i % 2 == 0 ? MathFunctions.ADD : MathFunctions.MULTIPLY, 0, i, 0);
+
+        graph = graph.addConnectionAndNode(MathFunctions.ONE, 0, length, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.TWO, 0, 1, 1);
+
+        int shared = length + 2;
+        for (int i = 2; i <= length; i++)
+            graph = graph.addConnection(shared, 0, i, 1);
+
+        return graph;
+    }
+
+    private static IDataInstance[] parameters(int seed)
+    {
+        return new IDataInstance[] {new Number(seed), new Number(seed + 1)};
+    }
+
+    private static double measureInterpreter()
+    {
+        IDataInstance[] parameters = parameters(0);
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS / 10; i++)
+        {
+            parameters[0] = new Number(i);
+            checksum += MathFunctions.valueOf(interpret(SOLUTION, parameters)[0]);
+        }
+
+        return finish(start, ITERATIONS / 10, checksum);
+    }
+
+    private static double measureEvaluator(GraphEvaluator evaluator)
+    {
+        EvaluationContext context = evaluator.newContext();
+        IDataInstance[] parameters = parameters(0);
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            parameters[0] = new Number(i);
+            checksum += MathFunctions.valueOf(evaluator.evaluate(context, parameters)[0]);
+        }
+
+        return finish(start, ITERATIONS, checksum);
+    }
+
+    private static double measureCompiled() throws Throwable
+    {
+        IDataInstance[] parameters = parameters(0);
+        long checksum = 0;
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++)
+        {
+            parameters[0] = new Number(i);
+            checksum += MathFunctions.valueOf(((IDataInstance[]) COMPILED.invokeExact(parameters))[0]);
+        }
+
+        return finish(start, ITERATIONS, checksum);
+    }
+
+    private static double finish(long start, int iterations, long checksum)
+    {
+        long time = System.nanoTime() - start;
+
+        // Keeps the results from being optimized away
+        if (checksum == 42)
+            System.out.println();
+
+        return (double) time / iterations;
+    }
+
+    /**
+     * Runs the solution by recursively walking the connections of the graph,
+     * starting from the output node.
+     */
+    private static IDataInstance[] interpret(NodeGraph graph, IDataInstance[] parameters)
+    {
+        return evaluateInputs(graph, 0, parameters, new Connection());
+    }
+
+    private static IDataInstance[] evaluateInputs(NodeGraph graph, int node, IDataInstance[] parameters,
+            Connection connection)
+    {
+        IDataInstance[] inputs = new IDataInstance[graph.getNodeAsFunction(node)
+                                                        .getInputs().length];
+
+        for (int i = 0; i < graph.getConnectionCount(); i++)
+        {
+            graph.getConnection(i, connection);
+            if (connection.getInputNode() != node)
+                continue;
+
+            int inputPlug = connection.getInputPlug();
+            int source = connection.getOutputNode();
+            int sourcePlug = connection.getOutputPlug();
+
+            inputs[inputPlug] = evaluateNode(graph, source, parameters, connection)[sourcePlug];
+        }
+
+        return inputs;
+    }
+
+    private static IDataInstance[] evaluateNode(NodeGraph graph, int node, IDataInstance[] parameters,
+            Connection connection)
+    {
+        IFunction function = graph.getNodeAsFunction(node);
+
+        if (function instanceof InputFunction)
+        {
+            int parameter = 0;
+            for (int i = 0; i < node; i++)
+                if (graph.getNodeAsFunction(i) instanceof InputFunction)
+                    parameter++;
+
+            return new IDataInstance[] {parameters[parameter]};
+        }
+
+        return function.execute(evaluateInputs(graph, node, parameters, connection));
+    }
+}
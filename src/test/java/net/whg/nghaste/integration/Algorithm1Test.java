@@ -2,11 +2,14 @@ package net.whg.nghaste.integration;
 
 import static org.awaitility.Awaitility.await;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 import java.util.concurrent.TimeUnit;
 import org.junit.Test;
+import net.whg.nghaste.BeamFrontier;
 import net.whg.nghaste.Environment;
 import net.whg.nghaste.NGHasteAlgorithm;
 import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OffHeapFrontier;
 import net.whg.nghaste.util.EnvironmentUtils;
 
 public class Algorithm1Test
@@ -46,4 +49,40 @@ public class Algorithm1Test
             assertEquals(31, algorithm.getSolutionCount());
         }
     }
+
+    @Test
+    public void test_multithreaded_offHeapFrontier()
+    {
+        for (int i = 0; i < 25; i++)
+        {
+            Environment env = EnvironmentUtils.quickEnvironment(3);
+            NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env, new OffHeapFrontier(env, 4096));
+
+            algorithm.startWorkers(3);
+            await().atMost(13, TimeUnit.SECONDS)
+                   .until(() -> algorithm.getRemainingGraphs() == 0);
+            algorithm.disposeWorkers();
+
+            assertEquals(31, algorithm.getSolutionCount());
+        }
+    }
+
+    @Test
+    public void test_multithreaded_beamFrontier()
+    {
+        for (int i = 0; i < 25; i++)
+        {
+            Environment env = EnvironmentUtils.quickEnvironment(5);
+            BeamFrontier frontier = new BeamFrontier(8);
+            NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env, frontier);
+
+            algorithm.startWorkers(3);
+            await().atMost(13, TimeUnit.SECONDS)
+                   .until(() -> algorithm.getRemainingGraphs() == 0);
+            algorithm.disposeWorkers();
+
+            assertEquals(0, frontier.size());
+            assertTrue(algorithm.getSolutionCount() > 0);
+        }
+    }
 }
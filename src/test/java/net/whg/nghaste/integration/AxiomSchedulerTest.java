@@ -0,0 +1,82 @@
+package net.whg.nghaste.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import net.whg.nghaste.AxiomScheduler;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IAxiom;
+import net.whg.nghaste.NGHasteAlgorithm;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class AxiomSchedulerTest
+{
+    private static final IAxiom SLOW_AXIOM = graph ->
+    {
+        long end = System.nanoTime() + 200000;
+        while (System.nanoTime() < end)
+            ;
+
+        return true;
+    };
+
+    private static final IAxiom CHEAP_AXIOM = graph ->
+    {
+        int nodeCount = graph.getNodeCount();
+        for (int i = 0; i < nodeCount; i++)
+            if (graph.getNodeAsFunction(i) == EnvironmentUtils.FUNC12_CONCAT)
+                return false;
+
+        return true;
+    };
+
+    @Test
+    public void cheapRejectingAxiom_checkedFirst()
+    {
+        NGHasteAlgorithm algorithm = search(true);
+
+        AxiomScheduler scheduler = algorithm.getAxiomScheduler();
+        assertEquals(2, scheduler.getAxiomCount());
+        assertArrayEquals(new int[] {1, 0}, scheduler.getOrder());
+
+        assertTrue(scheduler.getCallCount(0) > 0);
+        assertTrue(scheduler.getCallCount(1) > scheduler.getCallCount(0));
+        assertEquals(0, scheduler.getRejectionCount(0));
+        assertTrue(scheduler.getRejectionCount(1) > 0);
+        assertTrue(scheduler.getAverageNanos(0) > scheduler.getAverageNanos(1));
+        assertTrue(scheduler.getScore(1) > scheduler.getScore(0));
+    }
+
+    @Test
+    public void adaptiveOrdering_sameResults()
+    {
+        NGHasteAlgorithm adaptive = search(true);
+        NGHasteAlgorithm fixed = search(false);
+
+        assertNull(fixed.getAxiomScheduler());
+        assertEquals(fixed.getTotalGraphsSearched(), adaptive.getTotalGraphsSearched());
+        assertEquals(fixed.getSolutionCount(), adaptive.getSolutionCount());
+    }
+
+    private NGHasteAlgorithm search(boolean adaptiveAxiomOrdering)
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder ->
+        {
+            builder.addAxiom(SLOW_AXIOM);
+            builder.addAxiom(CHEAP_AXIOM);
+            builder.setAdaptiveAxiomOrdering(adaptiveAxiomOrdering);
+        });
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.startWorkers(1);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+
+        return algorithm;
+    }
+}
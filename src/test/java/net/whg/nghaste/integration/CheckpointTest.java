@@ -0,0 +1,184 @@
+package net.whg.nghaste.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NGHasteAlgorithm;
+import net.whg.nghaste.OffHeapFrontier;
+import net.whg.nghaste.SearchBudget;
+import net.whg.nghaste.SearchMode;
+import net.whg.nghaste.util.EnvironmentUtils;
+import net.whg.nghaste.util.SingleInstanceAxiom;
+
+public class CheckpointTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void checkpoint_whileRunning() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 100);
+        algorithm.saveCheckpoint(dir);
+        algorithm.disposeWorkers();
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        resumed.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> resumed.getRemainingGraphs() == 0);
+        resumed.disposeWorkers();
+
+        assertEquals(878, resumed.getSolutionCount());
+        assertEquals(1115, resumed.getTotalGraphsSearched());
+    }
+
+    @Test
+    public void checkpoint_beforeStart() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(3);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env, new OffHeapFrontier(env, 4096));
+        algorithm.saveCheckpoint(dir);
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, new OffHeapFrontier(env, 4096), dir);
+        assertEquals(1, resumed.getRemainingGraphs());
+
+        resumed.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> resumed.getRemainingGraphs() == 0);
+        resumed.disposeWorkers();
+
+        assertEquals(31, resumed.getSolutionCount());
+    }
+
+    @Test
+    public void resume_solutionsNotRetained_totalRestored() throws IOException, InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.setRetainSolutions(false);
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget().setMaxSolutions(100));
+        algorithm.awaitCompletion();
+        algorithm.saveCheckpoint(dir);
+
+        int found = algorithm.getTotalSolutionsFound();
+        assertEquals(0, algorithm.getSolutionCount());
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        resumed.setRetainSolutions(false);
+        assertEquals(found, resumed.getTotalSolutionsFound());
+
+        AtomicInteger delivered = new AtomicInteger();
+        resumed.addSolutionListener(solution -> delivered.incrementAndGet());
+        resumed.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget());
+        resumed.awaitCompletion();
+
+        assertEquals(878, resumed.getTotalSolutionsFound());
+        assertEquals(878 - found, delivered.get());
+        assertEquals(0, resumed.getSolutionCount());
+    }
+
+    @Test
+    public void checkpoint_replaced_oldFilesDeleted() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.saveCheckpoint(dir);
+
+        algorithm.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 100);
+        algorithm.disposeWorkers();
+        algorithm.saveCheckpoint(dir);
+
+        try (Stream<Path> files = Files.list(dir))
+        {
+            assertEquals(3, files.count());
+        }
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        assertEquals(algorithm.getSolutionCount(), resumed.getSolutionCount());
+        assertEquals(algorithm.getRemainingGraphs(), resumed.getRemainingGraphs());
+    }
+
+    @Test
+    public void checkpoint_interruptedWrite_olderCheckpointKept() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        Path dir = folder.newFolder()
+                         .toPath();
+        Path newer = folder.newFolder()
+                           .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.saveCheckpoint(dir);
+
+        algorithm.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 100);
+        algorithm.disposeWorkers();
+        algorithm.saveCheckpoint(newer);
+
+        // A newer checkpoint which failed before its state file was moved in place
+        try (Stream<Path> files = Files.list(newer))
+        {
+            for (Path file : (Iterable<Path>) files::iterator)
+                if (file.getFileName()
+                        .toString()
+                        .endsWith(".graphs"))
+                    Files.copy(file, dir.resolve(file.getFileName()));
+        }
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        assertEquals(0, resumed.getSolutionCount());
+        assertEquals(1, resumed.getRemainingGraphs());
+    }
+
+    @Test(expected = IOException.class)
+    public void resume_differentEnvironment() throws IOException
+    {
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        new NGHasteAlgorithm(EnvironmentUtils.quickEnvironment(5)).saveCheckpoint(dir);
+        NGHasteAlgorithm.resume(EnvironmentUtils.quickEnvironment(4), dir);
+    }
+
+    @Test(expected = IOException.class)
+    public void resume_differentAxiomParameter() throws IOException
+    {
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        Environment env = EnvironmentUtils.quickEnvironment(5,
+                builder -> builder.addAxiom(new SingleInstanceAxiom(EnvironmentUtils.DATA_TEXT)));
+        new NGHasteAlgorithm(env).saveCheckpoint(dir);
+
+        NGHasteAlgorithm.resume(EnvironmentUtils.quickEnvironment(5,
+                builder -> builder.addAxiom(new SingleInstanceAxiom(EnvironmentUtils.DATA_BOOL))), dir);
+    }
+}
@@ -0,0 +1,221 @@
+package net.whg.nghaste.integration;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NGHasteAlgorithm;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.PriorityFrontier;
+import net.whg.nghaste.SearchBudget;
+import net.whg.nghaste.SearchMode;
+import net.whg.nghaste.StopReason;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class SearchBudgetTest
+{
+    @Test(timeout = 10000)
+    public void noBudget_exhausted() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget());
+
+        assertEquals(StopReason.EXHAUSTED, algorithm.awaitCompletion());
+        assertEquals(0, algorithm.getRemainingGraphs());
+        assertEquals(878, algorithm.getSolutionCount());
+        assertEquals(0, algorithm.getWorkerCount());
+    }
+
+    @Test(timeout = 10000)
+    public void iterativeDeepening_exhausted() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(3, SearchMode.ITERATIVE_DEEPENING, new SearchBudget());
+
+        assertEquals(StopReason.EXHAUSTED, algorithm.awaitCompletion());
+        assertEquals(5, algorithm.getDepthLimit());
+    }
+
+    @Test(timeout = 10000)
+    public void idleWorker_interrupted_stops() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        // The root graph is never polled, so the worker stays idle
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env, new PriorityFrontier()
+        {
+            @Override
+            public NodeGraph poll()
+            {
+                return null;
+            }
+        });
+
+        algorithm.startWorkers(1);
+
+        Thread worker = Thread.getAllStackTraces()
+                              .keySet()
+                              .stream()
+                              .filter(thread -> thread.getClass()
+                                                      .getSimpleName()
+                                                      .equals("Worker"))
+                              .findAny()
+                              .get();
+
+        Thread.sleep(50);
+        worker.interrupt();
+        worker.join(1000);
+
+        assertFalse(worker.isAlive());
+        assertEquals(StopReason.INTERRUPTED, algorithm.getStopReason());
+        assertEquals(StopReason.INTERRUPTED, algorithm.awaitCompletion());
+        assertEquals(0, algorithm.getWorkerCount());
+    }
+
+    @Test(timeout = 10000)
+    public void solutionLimit() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(2, SearchMode.BEST_FIRST, new SearchBudget().setMaxSolutions(100));
+
+        assertEquals(StopReason.SOLUTION_LIMIT, algorithm.awaitCompletion());
+        assertTrue(algorithm.getTotalSolutionsFound() >= 100);
+        assertTrue(algorithm.getTotalSolutionsFound() < 200);
+        assertTrue(algorithm.getRemainingGraphs() > 0);
+    }
+
+    @Test(timeout = 10000)
+    public void graphLimit() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.DEPTH_FIRST, new SearchBudget().setMaxGraphs(50));
+
+        assertEquals(StopReason.GRAPH_LIMIT, algorithm.awaitCompletion());
+        assertEquals(50, algorithm.getTotalGraphsSearched());
+    }
+
+    @Test(timeout = 10000)
+    public void timeLimit() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(20);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        long start = System.nanoTime();
+        algorithm.startWorkers(2, SearchMode.BEST_FIRST, new SearchBudget().setMaxTime(100, TimeUnit.MILLISECONDS));
+
+        assertEquals(StopReason.TIME_LIMIT, algorithm.awaitCompletion());
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test(timeout = 10000)
+    public void memoryLimit() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(20);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget().setMaxHeapBytes(0));
+
+        assertEquals(StopReason.MEMORY_LIMIT, algorithm.awaitCompletion());
+    }
+
+    @Test(timeout = 10000)
+    public void resumedSearch_newBudget() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget().setMaxGraphs(20));
+        assertEquals(StopReason.GRAPH_LIMIT, algorithm.awaitCompletion());
+
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget().setMaxGraphs(30));
+        assertEquals(StopReason.GRAPH_LIMIT, algorithm.awaitCompletion());
+        assertEquals(50, algorithm.getTotalGraphsSearched());
+    }
+
+    @Test(timeout = 10000)
+    public void stoppedRun_newBudget_withoutDispose() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(2, SearchMode.BEST_FIRST, new SearchBudget().setMaxGraphs(20));
+        while (algorithm.getStopReason() == null)
+            Thread.sleep(1);
+
+        algorithm.startWorkers(2, SearchMode.BEST_FIRST, new SearchBudget());
+        assertEquals(StopReason.EXHAUSTED, algorithm.awaitCompletion());
+        assertEquals(878, algorithm.getSolutionCount());
+    }
+
+    @Test(timeout = 10000)
+    public void stoppedRun_startWorkers_continues() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget().setMaxGraphs(20));
+        while (algorithm.getStopReason() == null)
+            Thread.sleep(1);
+
+        algorithm.startWorkers(1);
+        assertEquals(StopReason.EXHAUSTED, algorithm.awaitCompletion());
+        assertEquals(878, algorithm.getSolutionCount());
+    }
+
+    @Test
+    public void disposed()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(20);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1);
+        assertEquals(null, algorithm.getStopReason());
+
+        algorithm.disposeWorkers();
+        assertEquals(StopReason.DISPOSED, algorithm.getStopReason());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void awaitCompletion_notStarted() throws InterruptedException
+    {
+        new NGHasteAlgorithm(EnvironmentUtils.quickEnvironment(5)).awaitCompletion();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void budget_workersActive()
+    {
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(EnvironmentUtils.quickEnvironment(20));
+
+        algorithm.startWorkers(1);
+        try
+        {
+            algorithm.startWorkers(1, SearchMode.BEST_FIRST, new SearchBudget());
+        }
+        finally
+        {
+            algorithm.disposeWorkers();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void budget_negativeSolutions_invalid()
+    {
+        new SearchBudget().setMaxSolutions(-2);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void budget_negativeTime_invalid()
+    {
+        new SearchBudget().setMaxTime(-1, TimeUnit.SECONDS);
+    }
+}
@@ -0,0 +1,273 @@
+package net.whg.nghaste.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.whg.nghaste.BeamFrontier;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.GraphHash;
+import net.whg.nghaste.GraphHasher;
+import net.whg.nghaste.IFrontier;
+import net.whg.nghaste.NGHasteAlgorithm;
+import net.whg.nghaste.OffHeapFrontier;
+import net.whg.nghaste.PriorityFrontier;
+import net.whg.nghaste.SearchMode;
+import net.whg.nghaste.SpillingFrontier;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class SearchModeTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void depthFirst()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.DEPTH_FIRST);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+
+        assertEquals(1115, algorithm.getTotalGraphsSearched());
+        assertEquals(878, algorithm.getSolutionCount());
+    }
+
+    @Test
+    public void depthFirst_multithreaded()
+    {
+        for (int i = 0; i < 25; i++)
+        {
+            Environment env = EnvironmentUtils.quickEnvironment(3);
+            NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+            algorithm.startWorkers(3, SearchMode.DEPTH_FIRST);
+            await().atMost(13, TimeUnit.SECONDS)
+                   .until(() -> algorithm.getRemainingGraphs() == 0);
+            algorithm.disposeWorkers();
+
+            assertEquals(31, algorithm.getSolutionCount());
+        }
+    }
+
+    @Test
+    public void depthFirst_checkpoint() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.startWorkers(1, SearchMode.DEPTH_FIRST);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 100);
+        algorithm.saveCheckpoint(dir);
+        algorithm.disposeWorkers();
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        resumed.startWorkers(1, SearchMode.DEPTH_FIRST);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> resumed.getRemainingGraphs() == 0);
+        resumed.disposeWorkers();
+
+        assertEquals(878, resumed.getSolutionCount());
+        assertEquals(1115, resumed.getTotalGraphsSearched());
+    }
+
+    @Test
+    public void iterativeDeepening()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.ITERATIVE_DEEPENING);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+
+        assertEquals(878, algorithm.getSolutionCount());
+        assertEquals(5, algorithm.getDepthLimit());
+
+        for (int i = 1; i < algorithm.getSolutionCount(); i++)
+            assertTrue(algorithm.getSolution(i - 1)
+                                .getConnectionCount() <= algorithm.getSolution(i)
+                                                                  .getConnectionCount());
+    }
+
+    @Test
+    public void iterativeDeepening_multithreaded()
+    {
+        for (int i = 0; i < 25; i++)
+        {
+            Environment env = EnvironmentUtils.quickEnvironment(3);
+            NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+            algorithm.startWorkers(3, SearchMode.ITERATIVE_DEEPENING);
+            await().atMost(13, TimeUnit.SECONDS)
+                   .until(() -> algorithm.getRemainingGraphs() == 0);
+            algorithm.disposeWorkers();
+
+            assertEquals(31, algorithm.getSolutionCount());
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void iterativeDeepening_startedSearch()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 10);
+        algorithm.disposeWorkers();
+
+        algorithm.startWorkers(1, SearchMode.ITERATIVE_DEEPENING);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void mixedSearchModes()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.DEPTH_FIRST);
+        try
+        {
+            algorithm.startWorkers(1, SearchMode.BEST_FIRST);
+        }
+        finally
+        {
+            algorithm.disposeWorkers();
+        }
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void iterativeDeepening_checkpoint() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(3);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        algorithm.startWorkers(1, SearchMode.ITERATIVE_DEEPENING);
+        algorithm.disposeWorkers();
+
+        algorithm.saveCheckpoint(folder.newFolder()
+                                       .toPath());
+    }
+
+    @Test
+    public void aStar_solutionsFoundInOrderOfSize()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        NGHasteAlgorithm algorithm = runAStar(env);
+
+        assertTrue(algorithm.getSolutionCount() > 0);
+        assertSolutionsInOrderOfSize(algorithm);
+    }
+
+    @Test
+    public void aStar_checkpoint() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> algorithm.getSolutionCount() >= 10);
+        algorithm.saveCheckpoint(dir);
+        algorithm.disposeWorkers();
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        resumed.startWorkers(1);
+        await().atMost(8, TimeUnit.SECONDS)
+               .until(() -> resumed.getRemainingGraphs() == 0);
+        resumed.disposeWorkers();
+
+        assertSolutionsInOrderOfSize(resumed);
+        assertEquals(solutionStructures(runAStar(env)), solutionStructures(resumed));
+    }
+
+    @Test
+    public void aStar_offHeapFrontier()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        NGHasteAlgorithm algorithm = runAStar(env, new OffHeapFrontier(env, 4096));
+
+        assertSolutionsInOrderOfSize(algorithm);
+        assertEquals(solutionStructures(runAStar(env)), solutionStructures(algorithm));
+    }
+
+    @Test
+    public void aStar_spillingFrontier() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        try (SpillingFrontier frontier = new SpillingFrontier(env, dir, 2048))
+        {
+            NGHasteAlgorithm algorithm = runAStar(env, frontier);
+
+            assertSolutionsInOrderOfSize(algorithm);
+            assertEquals(solutionStructures(runAStar(env)), solutionStructures(algorithm));
+        }
+    }
+
+    @Test
+    public void aStar_beamFrontier()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        NGHasteAlgorithm algorithm = runAStar(env, new BeamFrontier(25));
+
+        assertTrue(algorithm.getSolutionCount() > 0);
+        assertSolutionsInOrderOfSize(algorithm);
+    }
+
+    private NGHasteAlgorithm runAStar(Environment env)
+    {
+        return runAStar(env, new PriorityFrontier());
+    }
+
+    private NGHasteAlgorithm runAStar(Environment env, IFrontier frontier)
+    {
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env, frontier);
+
+        algorithm.startWorkers(1);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+
+        return algorithm;
+    }
+
+    private void assertSolutionsInOrderOfSize(NGHasteAlgorithm algorithm)
+    {
+        for (int i = 1; i < algorithm.getSolutionCount(); i++)
+            assertTrue(algorithm.getSolution(i - 1)
+                                .getConnectionCount() <= algorithm.getSolution(i)
+                                                                  .getConnectionCount());
+    }
+
+    private Set<GraphHash> solutionStructures(NGHasteAlgorithm algorithm)
+    {
+        GraphHasher hasher = new GraphHasher();
+        Set<GraphHash> structures = new HashSet<>();
+
+        for (int i = 0; i < algorithm.getSolutionCount(); i++)
+            structures.add(hasher.createHash(algorithm.getSolution(i)));
+
+        return structures;
+    }
+}
@@ -0,0 +1,286 @@
+package net.whg.nghaste.integration;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.ISolutionListener;
+import net.whg.nghaste.NGHasteAlgorithm;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchBudget;
+import net.whg.nghaste.SearchMode;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.StopReason;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class SolutionListenerTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private void runSearch(NGHasteAlgorithm algorithm)
+    {
+        algorithm.startWorkers(1);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+    }
+
+    @Test
+    public void listener_receivesEverySolution()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        Set<Thread> threads = Collections.synchronizedSet(new HashSet<>());
+        algorithm.addSolutionListener(solution ->
+        {
+            received.add(solution);
+            threads.add(Thread.currentThread());
+        });
+
+        runSearch(algorithm);
+
+        assertEquals(878, algorithm.getSolutionCount());
+        assertEquals(878, algorithm.getTotalSolutionsFound());
+        assertEquals(878, received.size());
+
+        for (int i = 0; i < received.size(); i++)
+            assertEquals(algorithm.getSolution(i), received.get(i));
+
+        assertEquals(1, threads.size());
+        assertNotEquals(Thread.currentThread(), threads.iterator()
+                                                       .next());
+    }
+
+    @Test
+    public void retainSolutions_disabled()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        algorithm.setRetainSolutions(false);
+
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        algorithm.addSolutionListener(received::add);
+
+        runSearch(algorithm);
+
+        assertEquals(0, algorithm.getSolutionCount());
+        assertEquals(878, algorithm.getTotalSolutionsFound());
+        assertEquals(878, received.size());
+    }
+
+    @Test
+    public void failingListener_searchContinues()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        algorithm.addSolutionListener(solution ->
+        {
+            throw new IllegalStateException("Test listener failure");
+        });
+        algorithm.addSolutionListener(received::add);
+
+        runSearch(algorithm);
+
+        assertEquals(878, algorithm.getSolutionCount());
+        assertEquals(878, received.size());
+    }
+
+    @Test
+    public void removedListener_receivesNothing()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        ISolutionListener listener = received::add;
+        algorithm.addSolutionListener(listener);
+        algorithm.removeSolutionListener(listener);
+        runSearch(algorithm);
+
+        assertEquals(878, algorithm.getSolutionCount());
+        assertEquals(0, received.size());
+    }
+
+    @Test
+    public void slowListener_workersWait() throws InterruptedException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        CountDownLatch latch = new CountDownLatch(1);
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        algorithm.addSolutionListener(solution ->
+        {
+            try
+            {
+                latch.await();
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+
+            received.add(solution);
+        });
+
+        algorithm.startWorkers(1);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getTotalSolutionsFound() >= NGHasteAlgorithm.SOLUTION_QUEUE_CAPACITY);
+        Thread.sleep(100);
+
+        // A full queue, including the solution within the listener, and the
+        // solutions of the last graph processed by the waiting worker
+        assertTrue(algorithm.getTotalSolutionsFound() <= NGHasteAlgorithm.SOLUTION_QUEUE_CAPACITY + 32);
+        assertTrue(algorithm.getRemainingGraphs() > 0);
+
+        latch.countDown();
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> algorithm.getRemainingGraphs() == 0);
+        algorithm.disposeWorkers();
+
+        assertEquals(5556, received.size());
+        assertEquals(5556, algorithm.getSolutionCount());
+    }
+
+    @Test
+    public void listener_disposeWorkers()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        AtomicBoolean stopped = new AtomicBoolean();
+        List<NodeGraph> received = Collections.synchronizedList(new ArrayList<>());
+        algorithm.addSolutionListener(solution ->
+        {
+            received.add(solution);
+
+            if (!stopped.getAndSet(true))
+                algorithm.disposeWorkers();
+        });
+
+        algorithm.startWorkers(1);
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> stopped.get() && algorithm.getWorkerCount() == 0);
+        algorithm.disposeWorkers();
+
+        assertEquals(StopReason.DISPOSED, algorithm.getStopReason());
+        assertTrue(algorithm.getRemainingGraphs() > 0);
+        assertEquals(algorithm.getTotalSolutionsFound(), received.size());
+    }
+
+    @Test
+    public void listener_awaitCompletion()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+
+        AtomicReference<StopReason> reason = new AtomicReference<>();
+        algorithm.addSolutionListener(solution ->
+        {
+            if (reason.get() != null)
+                return;
+
+            try
+            {
+                reason.set(algorithm.awaitCompletion());
+            }
+            catch (InterruptedException e)
+            {
+                Thread.currentThread()
+                      .interrupt();
+            }
+        });
+
+        // More solutions than fit within the queue while the listener waits
+        SearchBudget budget = new SearchBudget().setMaxSolutions(NGHasteAlgorithm.SOLUTION_QUEUE_CAPACITY * 2);
+        algorithm.startWorkers(1, SearchMode.BEST_FIRST, budget);
+
+        await().atMost(10, TimeUnit.SECONDS)
+               .until(() -> reason.get() != null);
+        algorithm.disposeWorkers();
+
+        assertEquals(StopReason.SOLUTION_LIMIT, reason.get());
+        assertEquals(0, algorithm.getWorkerCount());
+    }
+
+    @Test
+    public void listener_saveCheckpoint_fullQueue() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(6);
+        NGHasteAlgorithm algorithm = new NGHasteAlgorithm(env);
+        Path dir = folder.newFolder()
+                         .toPath();
+
+        AtomicBoolean saved = new AtomicBoolean();
+        algorithm.addSolutionListener(solution ->
+        {
+            if (saved.get())
+                return;
+
+            // Wait for the workers to fill the queue before saving
+            await().atMost(10, TimeUnit.SECONDS)
+                   .until(() -> algorithm.getTotalSolutionsFound() >= NGHasteAlgorithm.SOLUTION_QUEUE_CAPACITY);
+
+            try
+            {
+                algorithm.saveCheckpoint(dir);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+
+            saved.set(true);
+        });
+
+        algorithm.startWorkers(1);
+        await().atMost(20, TimeUnit.SECONDS)
+               .until(saved::get);
+        algorithm.disposeWorkers();
+
+        NGHasteAlgorithm resumed = NGHasteAlgorithm.resume(env, dir);
+        assertTrue(resumed.getSolutionCount() >= NGHasteAlgorithm.SOLUTION_QUEUE_CAPACITY);
+    }
+
+    @Test
+    public void noWorkers_deliveredOnCallingThread()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(3);
+        NodeContainer container = new NodeContainer();
+
+        List<Thread> threads = new ArrayList<>();
+        container.addSolutionListener(solution -> threads.add(Thread.currentThread()));
+
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+        while (container.size() > 0)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        assertEquals(31, threads.size());
+        for (Thread thread : threads)
+            assertEquals(Thread.currentThread(), thread);
+    }
+}
@@ -0,0 +1,160 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import net.whg.nghaste.BeamFrontier;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class BeamFrontierTest
+{
+    @Test
+    public void keepsBestGraphs()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        BeamFrontier frontier = new BeamFrontier(10);
+
+        for (int i = 0; i < 100; i++)
+        {
+            NodeGraph graph = NodeGraph.newGraph(env, 0);
+            graph.setHeuristicScore((i * 37) % 100);
+            frontier.add(graph);
+        }
+
+        assertEquals(10, frontier.size());
+        assertEquals(100, frontier.getAddedCount(0));
+        assertEquals(90, frontier.getDroppedCount(0));
+        assertEquals(90, frontier.drainDropped());
+        assertEquals(0, frontier.drainDropped());
+
+        for (int i = 99; i >= 90; i--)
+            assertEquals(i, frontier.poll()
+                                    .getHeuristicScore(),
+                    0f);
+
+        assertNull(frontier.poll());
+        assertEquals(10, frontier.getPolledCount(0));
+    }
+
+    @Test
+    public void keepsBestGraphs_searchCost()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        BeamFrontier frontier = new BeamFrontier(10);
+
+        // The graphs with the best heuristic scores have the highest search costs
+        for (int i = 0; i < 100; i++)
+        {
+            NodeGraph graph = NodeGraph.newGraph(env, 0);
+            graph.setHeuristicScore(i);
+            graph.setSearchCost(i);
+            frontier.add(graph);
+        }
+
+        assertEquals(10, frontier.size());
+
+        for (int i = 90; i < 100; i++)
+            assertEquals(i, frontier.poll()
+                                    .getHeuristicScore(),
+                    0f);
+
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    public void beamWidth_boundWhilePolling()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        BeamFrontier frontier = new BeamFrontier(4);
+
+        for (int i = 0; i < 4; i++)
+        {
+            NodeGraph graph = NodeGraph.newGraph(env, 0);
+            graph.setHeuristicScore(i);
+            frontier.add(graph);
+        }
+
+        assertEquals(3, frontier.poll()
+                                .getHeuristicScore(),
+                0f);
+
+        for (int i = 10; i < 14; i++)
+        {
+            NodeGraph graph = NodeGraph.newGraph(env, 0);
+            graph.setHeuristicScore(i);
+            frontier.add(graph);
+
+            assertTrue(frontier.getLevelSize(0) <= 4);
+        }
+
+        assertEquals(4, frontier.size());
+        assertEquals(4, frontier.getLevelSize(0));
+        assertEquals(3, frontier.drainDropped());
+
+        // The graphs waiting to be polled were discarded for the better graphs
+        for (int i = 13; i >= 10; i--)
+            assertEquals(i, frontier.poll()
+                                    .getHeuristicScore(),
+                    0f);
+
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    public void shallowLevelsFirst()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        BeamFrontier frontier = new BeamFrontier(4);
+
+        NodeGraph deep = NodeGraph.newGraph(env, 0)
+                                  .addConnectionAndNode(1, 0, 0, 0);
+        deep.setHeuristicScore(100f);
+        frontier.add(deep);
+
+        NodeGraph shallow = NodeGraph.newGraph(env, 0);
+        shallow.setHeuristicScore(-100f);
+        frontier.add(shallow);
+
+        assertEquals(2, frontier.getLevelCount());
+        assertEquals(1, frontier.getLevelSize(0));
+        assertEquals(1, frontier.getLevelSize(1));
+
+        assertEquals(shallow, frontier.poll());
+        assertEquals(deep, frontier.poll());
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    public void search_limitedWidth()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        BeamFrontier frontier = new BeamFrontier(5);
+        NodeContainer container = new NodeContainer(frontier);
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        while (container.size() > 0)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        assertTrue(container.getSolutionCount() > 0);
+        assertTrue(container.getSolutionCount() < 878);
+
+        for (int level = 0; level < frontier.getLevelCount(); level++)
+        {
+            assertTrue(frontier.getPolledCount(level) <= 5);
+            assertEquals(frontier.getAddedCount(level),
+                    frontier.getPolledCount(level) + frontier.getDroppedCount(level));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidWidth()
+    {
+        new BeamFrontier(0);
+    }
+}
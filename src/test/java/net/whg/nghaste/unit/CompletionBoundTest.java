@@ -0,0 +1,91 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import net.whg.nghaste.CompletionBound;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.EnvironmentBuilder;
+import net.whg.nghaste.FunctionTable;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class CompletionBoundTest
+{
+    @Test
+    public void constantsForEveryType_costOne()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        CompletionBound bound = env.getCompletionBound();
+
+        for (int type = 0; type < env.getFunctionTable()
+                                     .getTypeCount(); type++)
+            assertEquals(1, bound.getCost(type));
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        assertEquals(2, bound.estimateRemaining(graph));
+    }
+
+    @Test
+    public void noConstants_multipleHops()
+    {
+        Environment env = EnvironmentUtils.numberConstantOnly(5);
+        FunctionTable table = env.getFunctionTable();
+        CompletionBound bound = env.getCompletionBound();
+
+        assertEquals(1, bound.getCost(table.getTypeId(EnvironmentUtils.DATA_NUMBER)));
+        assertEquals(2, bound.getCost(table.getTypeId(EnvironmentUtils.DATA_TEXT)));
+        assertEquals(2, bound.getCost(table.getTypeId(EnvironmentUtils.DATA_BOOL)));
+    }
+
+    @Test
+    public void openPlugs_highestCostPlusOthers()
+    {
+        Environment env = EnvironmentUtils.numberConstantOnly(5);
+        CompletionBound bound = env.getCompletionBound();
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        assertEquals(1, bound.estimateRemaining(graph));
+
+        // A text plug needs a number to text node and a number constant
+        graph = graph.addConnectionAndNode(env.getIndexOf(EnvironmentUtils.FUNC10_STRING_LENGTH), 0, 0, 0);
+        assertEquals(2, bound.estimateRemaining(graph));
+
+        // Two text plugs can share the same number to text node
+        graph = graph.addConnectionAndNode(env.getIndexOf(EnvironmentUtils.FUNC12_CONCAT), 0, 1, 0);
+        assertEquals(2, bound.estimateRemaining(graph));
+
+        // Once a node outputs text, every text plug may connect to it
+        graph = graph.addConnectionAndNode(env.getIndexOf(EnvironmentUtils.FUNC6_INT_TO_TEXT), 0, 2, 0);
+        assertEquals(2, bound.estimateRemaining(graph));
+    }
+
+    @Test
+    public void solution_zero()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(2, 0, 0, 0);
+
+        assertEquals(0, env.getCompletionBound()
+                           .estimateRemaining(graph));
+    }
+
+    @Test
+    public void noProducer_unreachable()
+    {
+        Environment env = new EnvironmentBuilder().addFunction(EnvironmentUtils.FUNC0_NUM_OUT)
+                                                  .addFunction(EnvironmentUtils.FUNC2_NUM_CONST)
+                                                  .addFunction(EnvironmentUtils.FUNC5_BOOL_TO_INT)
+                                                  .build();
+        CompletionBound bound = env.getCompletionBound();
+
+        assertEquals(CompletionBound.UNREACHABLE, bound.getCost(env.getFunctionTable()
+                                                                   .getTypeId(EnvironmentUtils.DATA_BOOL)));
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(env.getIndexOf(EnvironmentUtils.FUNC5_BOOL_TO_INT), 0, 0, 0);
+        assertEquals(CompletionBound.UNREACHABLE, bound.estimateRemaining(graph));
+    }
+}
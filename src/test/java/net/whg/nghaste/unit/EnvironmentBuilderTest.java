@@ -1,9 +1,11 @@
 package net.whg.nghaste.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
+import java.util.Arrays;
 import org.junit.Test;
 import net.whg.nghaste.Environment;
 import net.whg.nghaste.EnvironmentBuilder;
@@ -14,6 +16,7 @@ import net.whg.nghaste.IFunction;
 import net.whg.nghaste.IHeuristic;
 import net.whg.nghaste.ISolutionAxiom;
 import net.whg.nghaste.OutputFunction;
+import net.whg.nghaste.PipelineStage;
 import net.whg.nghaste.util.EnvironmentUtils;
 
 public class EnvironmentBuilderTest
@@ -211,4 +214,66 @@ public class EnvironmentBuilderTest
         assertEquals(1, env.getHeuristics()
                            .size());
     }
+
+    @Test
+    public void pipeline_defaultOrder()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+
+        assertEquals(Arrays.asList(PipelineStage.DEPTH, PipelineStage.DUPLICATES, PipelineStage.AXIOMS,
+                PipelineStage.SOLUTION_AXIOMS), env.getPipeline());
+    }
+
+    @Test
+    public void pipeline_customOrder()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPipeline(PipelineStage.AXIOMS,
+                PipelineStage.DEPTH, PipelineStage.SOLUTION_AXIOMS, PipelineStage.DUPLICATES));
+
+        assertEquals(Arrays.asList(PipelineStage.AXIOMS, PipelineStage.DEPTH, PipelineStage.SOLUTION_AXIOMS,
+                PipelineStage.DUPLICATES), env.getPipeline());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pipeline_missingStage_invalid()
+    {
+        new EnvironmentBuilder().setPipeline(PipelineStage.DEPTH, PipelineStage.AXIOMS, PipelineStage.SOLUTION_AXIOMS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pipeline_repeatedStage_invalid()
+    {
+        new EnvironmentBuilder().setPipeline(PipelineStage.DEPTH, PipelineStage.DUPLICATES, PipelineStage.AXIOMS,
+                PipelineStage.SOLUTION_AXIOMS, PipelineStage.AXIOMS);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pipeline_nullStage_invalid()
+    {
+        new EnvironmentBuilder().setPipeline(PipelineStage.DEPTH, null, PipelineStage.AXIOMS,
+                PipelineStage.SOLUTION_AXIOMS);
+    }
+
+    @Test
+    public void aStarWeight()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1.5f));
+
+        assertEquals(1.5f, env.getAStarWeight(), 0f);
+        assertTrue(env.isAStarSearch());
+        assertFalse(EnvironmentUtils.quickEnvironment(5)
+                                    .isAStarSearch());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aStarWeight_negative_invalid()
+    {
+        new EnvironmentBuilder().setAStarWeight(-1f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void aStarWeight_nan_invalid()
+    {
+        new EnvironmentBuilder().setAStarWeight(Float.NaN);
+    }
 }
@@ -1,6 +1,7 @@
 package net.whg.nghaste.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
 import org.junit.Test;
 import net.whg.nghaste.Environment;
 import net.whg.nghaste.EnvironmentBuilder;
@@ -9,6 +10,8 @@ import net.whg.nghaste.IDataType;
 import net.whg.nghaste.IFunction;
 import net.whg.nghaste.InputFunction;
 import net.whg.nghaste.OutputFunction;
+import net.whg.nghaste.util.EnvironmentUtils;
+import net.whg.nghaste.util.SingleInstanceAxiom;
 
 public class EnvironmentTest
 {
@@ -18,9 +21,35 @@ public class EnvironmentTest
         {};
     }
 
+    private static class NamedType implements IDataType
+    {
+        private final String name;
+
+        NamedType(String name)
+        {
+            this.name = name;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof NamedType && ((NamedType) obj).name.equals(name);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return name.hashCode();
+        }
+    }
+
     private IFunction outputFunction()
     {
-        IDataType dataType = dataType();
+        return outputFunction(dataType());
+    }
+
+    private IFunction outputFunction(IDataType dataType)
+    {
         return new OutputFunction(new IDataType[] {dataType})
         {
             @Override
@@ -33,7 +62,11 @@ public class EnvironmentTest
 
     private IFunction inputFunction()
     {
-        IDataType dataType = dataType();
+        return inputFunction(dataType());
+    }
+
+    private IFunction inputFunction(IDataType dataType)
+    {
         return new InputFunction(new IDataType[] {dataType})
         {
             @Override
@@ -114,4 +147,99 @@ public class EnvironmentTest
 
         assertEquals(-1, env.getIndexOf(extra));
     }
+
+    @Test
+    public void fingerprint_stable()
+    {
+        Environment a = EnvironmentUtils.quickEnvironment(5);
+        Environment b = EnvironmentUtils.quickEnvironment(5);
+
+        assertEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_depth()
+    {
+        Environment a = EnvironmentUtils.quickEnvironment(5);
+        Environment b = EnvironmentUtils.quickEnvironment(6);
+
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_axioms()
+    {
+        Environment a = EnvironmentUtils.quickEnvironment(5);
+        Environment b = EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(graph -> true));
+
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_functionOrder()
+    {
+        IFunction func = function();
+        IFunction out = outputFunction();
+        IFunction in = inputFunction();
+
+        Environment a = new EnvironmentBuilder().addFunction(func)
+                                                .addFunction(out)
+                                                .addFunction(in)
+                                                .build();
+
+        Environment b = new EnvironmentBuilder().addFunction(out)
+                                                .addFunction(func)
+                                                .addFunction(in)
+                                                .build();
+
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_equalTypes()
+    {
+        IDataType shared = new NamedType("x");
+
+        Environment a = new EnvironmentBuilder().addFunction(outputFunction(new NamedType("x")))
+                                                .addFunction(inputFunction(new NamedType("x")))
+                                                .addFunction(inputFunction(new NamedType("y")))
+                                                .build();
+
+        Environment b = new EnvironmentBuilder().addFunction(outputFunction(shared))
+                                                .addFunction(inputFunction(shared))
+                                                .addFunction(inputFunction(new NamedType("y")))
+                                                .build();
+
+        assertEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_typeValues()
+    {
+        IDataType x = new NamedType("x");
+        IDataType y = new NamedType("y");
+
+        Environment a = new EnvironmentBuilder().addFunction(outputFunction(x))
+                                                .addFunction(inputFunction(x))
+                                                .addFunction(inputFunction(y))
+                                                .build();
+
+        Environment b = new EnvironmentBuilder().addFunction(outputFunction(y))
+                                                .addFunction(inputFunction(y))
+                                                .addFunction(inputFunction(x))
+                                                .build();
+
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+    }
+
+    @Test
+    public void fingerprint_axiomParameters()
+    {
+        Environment a = EnvironmentUtils.quickEnvironment(5,
+                builder -> builder.addAxiom(new SingleInstanceAxiom(EnvironmentUtils.DATA_TEXT)));
+        Environment b = EnvironmentUtils.quickEnvironment(5,
+                builder -> builder.addAxiom(new SingleInstanceAxiom(EnvironmentUtils.DATA_BOOL)));
+
+        assertNotEquals(a.getFingerprint(), b.getFingerprint());
+    }
 }
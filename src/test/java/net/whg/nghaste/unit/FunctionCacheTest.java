@@ -0,0 +1,215 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static net.whg.nghaste.util.MathFunctions.valueOf;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.execution.FunctionCache;
+import net.whg.nghaste.execution.GraphEvaluator;
+import net.whg.nghaste.util.MathFunctions;
+import net.whg.nghaste.util.MathFunctions.Number;
+import net.whg.nghaste.util.MathFunctions.Operator;
+
+public class FunctionCacheTest
+{
+    private static IDataInstance[] numbers(int a, int b)
+    {
+        return new IDataInstance[] {new Number(a), new Number(b)};
+    }
+
+    /**
+     * Builds the solution (1 + 2) * (1 + 2), where the output of the addition is
+     * connected to both inputs of the multiplication.
+     */
+    private static NodeGraph squaredSum(Environment env)
+    {
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT);
+        graph = graph.addConnectionAndNode(MathFunctions.MULTIPLY, 0, 0, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ADD, 0, 1, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ONE, 0, 2, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.TWO, 0, 2, 1);
+        graph = graph.addConnection(2, 0, 1, 1);
+
+        return graph;
+    }
+
+    /**
+     * Builds the solution 1 + 2.
+     */
+    private static NodeGraph sum(Environment env)
+    {
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT);
+        graph = graph.addConnectionAndNode(MathFunctions.ADD, 0, 0, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ONE, 0, 1, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.TWO, 0, 1, 1);
+
+        return graph;
+    }
+
+    @Test
+    public void execute_equalInputs_calledOnce()
+    {
+        FunctionCache cache = new FunctionCache(100);
+        Operator add = new Operator(false);
+
+        IDataInstance[] first = cache.execute(MathFunctions.ADD, add, numbers(3, 4));
+        IDataInstance[] second = cache.execute(MathFunctions.ADD, add, numbers(3, 4));
+
+        assertEquals(1, add.getCalls());
+        assertSame(first, second);
+        assertEquals(7, valueOf(second[0]));
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(0.5, cache.getHitRate(), 0.0);
+        assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void execute_differentFunctionIndex_notShared()
+    {
+        FunctionCache cache = new FunctionCache(100);
+        Operator add = new Operator(false);
+        Operator multiply = new Operator(true);
+
+        assertEquals(7, valueOf(cache.execute(MathFunctions.ADD, add, numbers(3, 4))[0]));
+        assertEquals(12, valueOf(cache.execute(MathFunctions.MULTIPLY, multiply, numbers(3, 4))[0]));
+
+        assertEquals(1, add.getCalls());
+        assertEquals(1, multiply.getCalls());
+        assertEquals(0, cache.getHitCount());
+    }
+
+    @Test
+    public void execute_reusedInputArray_keyCopied()
+    {
+        FunctionCache cache = new FunctionCache(100);
+        Operator add = new Operator(false);
+        IDataInstance[] inputs = numbers(3, 4);
+
+        cache.execute(MathFunctions.ADD, add, inputs);
+        inputs[0] = new Number(10);
+
+        assertEquals(14, valueOf(cache.execute(MathFunctions.ADD, add, inputs)[0]));
+        assertEquals(7, valueOf(cache.execute(MathFunctions.ADD, add, numbers(3, 4))[0]));
+        assertEquals(2, add.getCalls());
+    }
+
+    @Test
+    public void hitRate_nothingRequested_NaN()
+    {
+        assertTrue(Double.isNaN(new FunctionCache(10).getHitRate()));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_zeroSize()
+    {
+        new FunctionCache(0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void new_zeroStripes()
+    {
+        new FunctionCache(10, 0);
+    }
+
+    @Test
+    public void execute_manyKeys_sizeBounded()
+    {
+        FunctionCache cache = new FunctionCache(64, 4);
+        Operator add = new Operator(false);
+
+        for (int i = 0; i < 1000; i++)
+            cache.execute(MathFunctions.ADD, add, numbers(i, i));
+
+        assertTrue(cache.size() <= cache.getMaximumSize());
+        assertTrue(cache.getEvictionCount() > 0);
+        assertEquals(1000, add.getCalls());
+    }
+
+    @Test
+    public void execute_scan_frequentKeyKept()
+    {
+        FunctionCache cache = new FunctionCache(200, 1);
+        Operator add = new Operator(false);
+
+        for (int i = 0; i < 5000; i++)
+        {
+            cache.execute(MathFunctions.ADD, add, numbers(-1, -1));
+            cache.execute(MathFunctions.ADD, add, numbers(i, i));
+        }
+
+        // The frequent key is called once, and every key of the scan once
+        assertEquals(5001, add.getCalls());
+    }
+
+    @Test
+    public void evaluate_repeated_functionsCalledOnce()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+        Operator add = (Operator) env.getFunctions()
+                                     .get(MathFunctions.ADD);
+        Operator multiply = (Operator) env.getFunctions()
+                                          .get(MathFunctions.MULTIPLY);
+
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum(env), new FunctionCache(100));
+        for (int i = 0; i < 10; i++)
+            assertEquals(9, valueOf(evaluator.evaluate(evaluator.newContext())[0]));
+
+        assertEquals(1, add.getCalls());
+        assertEquals(1, multiply.getCalls());
+        assertEquals(18, evaluator.getCache()
+                                  .getHitCount());
+    }
+
+    @Test
+    public void evaluate_sharedCache_subexpressionReused()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+        Operator add = (Operator) env.getFunctions()
+                                     .get(MathFunctions.ADD);
+        FunctionCache cache = new FunctionCache(100);
+
+        GraphEvaluator sum = new GraphEvaluator(sum(env), cache);
+        GraphEvaluator squaredSum = new GraphEvaluator(squaredSum(env), cache);
+
+        assertEquals(3, valueOf(sum.evaluate(sum.newContext())[0]));
+        assertEquals(9, valueOf(squaredSum.evaluate(squaredSum.newContext())[0]));
+        assertEquals(1, add.getCalls());
+    }
+
+    @Test
+    public void evaluate_parameters_cachedByValue()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+        Operator add = (Operator) env.getFunctions()
+                                     .get(MathFunctions.ADD);
+
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum(env), new FunctionCache(100));
+
+        assertEquals(144, valueOf(evaluator.evaluate(evaluator.newContext(), numbers(5, 7))[0]));
+        assertEquals(16, valueOf(evaluator.evaluate(evaluator.newContext(), numbers(1, 3))[0]));
+        assertEquals(144, valueOf(evaluator.evaluate(evaluator.newContext(), numbers(5, 7))[0]));
+        assertEquals(2, add.getCalls());
+    }
+
+    @Test
+    public void clear_keepsMetrics()
+    {
+        FunctionCache cache = new FunctionCache(100);
+        Operator add = new Operator(false);
+
+        cache.execute(MathFunctions.ADD, add, numbers(1, 1));
+        cache.execute(MathFunctions.ADD, add, numbers(1, 1));
+        cache.clear();
+        cache.execute(MathFunctions.ADD, add, numbers(1, 1));
+
+        assertEquals(1, cache.size());
+        assertEquals(2, add.getCalls());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+    }
+}
@@ -0,0 +1,109 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.FunctionTable;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.IDataType;
+import net.whg.nghaste.IFunction;
+import net.whg.nghaste.InputFunction;
+import net.whg.nghaste.codeflow.ThreadDataType;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class FunctionTableTest
+{
+    @Test
+    public void typeIds_orderOfAppearance()
+    {
+        FunctionTable table = EnvironmentUtils.quickEnvironment()
+                                              .getFunctionTable();
+
+        assertEquals(3, table.getTypeCount());
+        assertEquals(0, table.getTypeId(EnvironmentUtils.DATA_NUMBER));
+        assertEquals(1, table.getTypeId(EnvironmentUtils.DATA_TEXT));
+        assertEquals(2, table.getTypeId(EnvironmentUtils.DATA_BOOL));
+        assertEquals(EnvironmentUtils.DATA_TEXT, table.getType(1));
+
+        assertEquals(-1, table.getTypeId(new IDataType()
+        {}));
+    }
+
+    @Test
+    public void plugs()
+    {
+        FunctionTable table = EnvironmentUtils.quickEnvironment()
+                                              .getFunctionTable();
+
+        assertEquals(13, table.getFunctionCount());
+
+        assertEquals(1, table.getInputCount(11));
+        assertEquals(3, table.getOutputCount(11));
+        assertEquals(0, table.getInputType(11, 0));
+        assertEquals(0, table.getOutputType(11, 2));
+
+        assertEquals(1, table.getInputCount(8));
+        assertEquals(1, table.getInputType(8, 0));
+        assertEquals(2, table.getOutputType(8, 0));
+
+        assertTrue(table.isOutputFunction(0));
+        assertFalse(table.isInputFunction(0));
+        assertTrue(table.isInputFunction(3));
+        assertFalse(table.isOutputFunction(3));
+        assertFalse(table.isInputFunction(1));
+    }
+
+    @Test
+    public void producers_sortedByFunctionThenPlug()
+    {
+        FunctionTable table = EnvironmentUtils.quickEnvironment()
+                                              .getFunctionTable();
+
+        int number = table.getTypeId(EnvironmentUtils.DATA_NUMBER);
+        int[] functions = {1, 2, 5, 7, 10, 11, 11, 11};
+        int[] plugs = {0, 0, 0, 0, 0, 0, 1, 2};
+
+        assertEquals(functions.length, table.getProducerCount(number));
+        for (int i = 0; i < functions.length; i++)
+        {
+            assertEquals(functions[i], table.getProducerFunction(number, i));
+            assertEquals(plugs[i], table.getProducerPlug(number, i));
+        }
+
+        int bool = table.getTypeId(EnvironmentUtils.DATA_BOOL);
+        assertEquals(3, table.getProducerCount(bool));
+        assertEquals(4, table.getProducerFunction(bool, 0));
+        assertEquals(8, table.getProducerFunction(bool, 1));
+        assertEquals(9, table.getProducerFunction(bool, 2));
+    }
+
+    @Test
+    public void equalTypes_shareId()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder ->
+        {
+            builder.addFunction(threadSource());
+            builder.addFunction(threadSource());
+        });
+
+        FunctionTable table = env.getFunctionTable();
+
+        assertEquals(4, table.getTypeCount());
+        assertEquals(table.getOutputType(13, 0), table.getOutputType(14, 0));
+        assertEquals(2, table.getProducerCount(table.getOutputType(13, 0)));
+    }
+
+    private IFunction threadSource()
+    {
+        return new InputFunction(new IDataType[] {new ThreadDataType()})
+        {
+            @Override
+            public IDataInstance[] execute(IDataInstance[] inputs)
+            {
+                return null;
+            }
+        };
+    }
+}
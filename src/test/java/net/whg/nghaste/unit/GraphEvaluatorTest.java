@@ -0,0 +1,142 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static net.whg.nghaste.util.MathFunctions.valueOf;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.execution.EvaluationContext;
+import net.whg.nghaste.execution.ExecutionPlan;
+import net.whg.nghaste.execution.GraphEvaluator;
+import net.whg.nghaste.util.MathFunctions;
+import net.whg.nghaste.util.MathFunctions.Number;
+
+public class GraphEvaluatorTest
+{
+    /**
+     * Builds the solution (1 + 2) * (1 + 2), where the output of the addition is
+     * connected to both inputs of the multiplication.
+     */
+    private NodeGraph squaredSum()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT);
+        graph = graph.addConnectionAndNode(MathFunctions.MULTIPLY, 0, 0, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ADD, 0, 1, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ONE, 0, 2, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.TWO, 0, 2, 1);
+        graph = graph.addConnection(2, 0, 1, 1);
+
+        return graph;
+    }
+
+    @Test
+    public void compile_topologicalOrder()
+    {
+        ExecutionPlan plan = ExecutionPlan.compile(squaredSum());
+
+        assertEquals(4, plan.getStepCount());
+        assertEquals(2, plan.getParameterStepCount());
+        assertEquals(2, plan.getParameterCount());
+        assertEquals(MathFunctions.ONE, plan.getFunctionIndex(0));
+        assertEquals(MathFunctions.TWO, plan.getFunctionIndex(1));
+        assertEquals(MathFunctions.ADD, plan.getFunctionIndex(2));
+        assertEquals(MathFunctions.MULTIPLY, plan.getFunctionIndex(3));
+
+        // Both inputs of the multiplication read the output of the addition
+        assertEquals(plan.getOutputSlot(2), plan.getInputSlot(3, 0));
+        assertEquals(plan.getOutputSlot(2), plan.getInputSlot(3, 1));
+        assertEquals(plan.getOutputSlot(3), plan.getResultSlot(0));
+        assertEquals(4, plan.getSlotCount());
+        assertSame(MathFunctions.NUMBER, plan.getResultType(0));
+    }
+
+    @Test
+    public void evaluate_inputFunctions()
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum());
+        EvaluationContext context = evaluator.newContext();
+
+        IDataInstance[] results = evaluator.evaluate(context);
+
+        assertEquals(1, results.length);
+        assertEquals(9, valueOf(results[0]));
+    }
+
+    @Test
+    public void evaluate_parameters_reusedContext()
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum());
+        EvaluationContext context = evaluator.newContext();
+
+        assertEquals(144, valueOf(evaluator.evaluate(context, new IDataInstance[] {new Number(5), new Number(7)})[0]));
+        assertEquals(0, valueOf(evaluator.evaluate(context, new IDataInstance[] {new Number(3), new Number(-3)})[0]));
+        assertEquals(9, valueOf(evaluator.evaluate(context)[0]));
+    }
+
+    @Test
+    public void evaluate_multithreaded() throws InterruptedException
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum());
+        AtomicBoolean failed = new AtomicBoolean();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++)
+        {
+            int offset = t;
+            Thread thread = new Thread(() ->
+            {
+                EvaluationContext context = evaluator.newContext();
+                IDataInstance[] parameters = new IDataInstance[2];
+
+                for (int i = 0; i < 10000; i++)
+                {
+                    parameters[0] = new Number(i);
+                    parameters[1] = new Number(offset);
+
+                    if (valueOf(evaluator.evaluate(context, parameters)[0]) != (i + offset) * (i + offset))
+                        failed.set(true);
+                }
+            });
+
+            thread.start();
+            threads.add(thread);
+        }
+
+        for (Thread thread : threads)
+            thread.join();
+
+        assertFalse(failed.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compile_openPlugs()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT)
+                                   .addConnectionAndNode(MathFunctions.ADD, 0, 0, 0);
+
+        new GraphEvaluator(graph);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void evaluate_wrongContext()
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum());
+        evaluator.evaluate(new GraphEvaluator(squaredSum()).newContext());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void evaluate_wrongParameterCount()
+    {
+        GraphEvaluator evaluator = new GraphEvaluator(squaredSum());
+        evaluator.evaluate(evaluator.newContext(), new IDataInstance[] {new Number(1)});
+    }
+}
@@ -0,0 +1,139 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.GraphFormat;
+import net.whg.nghaste.GraphReader;
+import net.whg.nghaste.GraphWriter;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class GraphFormatTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private List<NodeGraph> allGraphs(Environment env)
+    {
+        List<NodeGraph> graphs = new ArrayList<>();
+
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        while (container.size() > 0)
+        {
+            NodeGraph graph = container.getNodeGraph();
+            graph.setHeuristicScore(graphs.size());
+            graphs.add(graph);
+
+            tree.placeNeighbors(graph);
+        }
+
+        return graphs;
+    }
+
+    private void roundTrip(Environment env) throws IOException
+    {
+        List<NodeGraph> graphs = allGraphs(env);
+        Path file = folder.newFile()
+                          .toPath();
+
+        try (GraphWriter writer = new GraphWriter(env, FileChannel.open(file, StandardOpenOption.WRITE), 256))
+        {
+            for (NodeGraph graph : graphs)
+                writer.write(graph);
+
+            assertEquals(graphs.size(), writer.getGraphCount());
+        }
+
+        try (GraphReader reader = new GraphReader(env, FileChannel.open(file, StandardOpenOption.READ), 64))
+        {
+            for (NodeGraph graph : graphs)
+            {
+                NodeGraph read = reader.read();
+
+                assertEquals(graph, read);
+                assertEquals(graph.getHeuristicScore(), read.getHeuristicScore(), 0f);
+                assertEquals(graph.countOpenPlugs(), read.countOpenPlugs());
+            }
+
+            assertNull(reader.read());
+        }
+    }
+
+    @Test
+    public void roundTrip_file() throws IOException
+    {
+        roundTrip(EnvironmentUtils.quickEnvironment(5));
+    }
+
+    @Test
+    public void roundTrip_compactPersistent() throws IOException
+    {
+        roundTrip(EnvironmentUtils.quickEnvironment(5, builder -> builder.setCompactEncoding(true)
+                                                                         .setPersistentGraphs(true)));
+    }
+
+    @Test
+    public void roundTrip_byteBuffer() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph.setHeuristicScore(-3f);
+
+        ByteBuffer buffer = ByteBuffer.allocate(GraphFormat.HEADER_LENGTH + GraphFormat.getRecordLength(graph));
+        GraphFormat.writeHeader(buffer, env);
+        GraphFormat.writeGraph(buffer, graph);
+
+        assertEquals(0, buffer.remaining());
+        buffer.flip();
+
+        GraphFormat.readHeader(buffer, env);
+        assertEquals(buffer.remaining(), GraphFormat.peekRecordLength(buffer));
+        assertEquals(graph, GraphFormat.readGraph(buffer, env));
+    }
+
+    @Test(expected = IOException.class)
+    public void differentEnvironment() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        ByteBuffer buffer = ByteBuffer.allocate(GraphFormat.HEADER_LENGTH);
+        GraphFormat.writeHeader(buffer, env);
+        buffer.flip();
+
+        GraphFormat.readHeader(buffer, EnvironmentUtils.quickEnvironment(6));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedRecord() throws IOException
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+
+        ByteBuffer buffer = ByteBuffer.allocate(GraphFormat.getRecordLength(graph));
+        GraphFormat.writeGraph(buffer, graph);
+        buffer.flip();
+        buffer.limit(buffer.limit() - 1);
+
+        GraphFormat.readGraph(buffer, env);
+    }
+}
@@ -0,0 +1,112 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static net.whg.nghaste.util.MathFunctions.valueOf;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodType;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.EnvironmentBuilder;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.IDataType;
+import net.whg.nghaste.InputFunction;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OutputFunction;
+import net.whg.nghaste.execution.CompiledSolution;
+import net.whg.nghaste.execution.MethodHandleCompiler;
+import net.whg.nghaste.util.MathFunctions;
+import net.whg.nghaste.util.MathFunctions.Number;
+
+public class MethodHandleCompilerTest
+{
+    /**
+     * Builds the solution (1 + 2) * (1 + 2), where the output of the addition is
+     * connected to both inputs of the multiplication.
+     */
+    private NodeGraph squaredSum()
+    {
+        Environment env = MathFunctions.mathEnvironment(10);
+
+        NodeGraph graph = NodeGraph.newGraph(env, MathFunctions.OUTPUT);
+        graph = graph.addConnectionAndNode(MathFunctions.MULTIPLY, 0, 0, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ADD, 0, 1, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.ONE, 0, 2, 0);
+        graph = graph.addConnectionAndNode(MathFunctions.TWO, 0, 2, 1);
+        graph = graph.addConnection(2, 0, 1, 1);
+
+        return graph;
+    }
+
+    @Test
+    public void evaluate_inputFunctions()
+    {
+        CompiledSolution solution = MethodHandleCompiler.compile(squaredSum());
+
+        IDataInstance[] results = solution.evaluate();
+
+        assertEquals(1, results.length);
+        assertEquals(9, valueOf(results[0]));
+    }
+
+    @Test
+    public void evaluate_parameters()
+    {
+        CompiledSolution solution = MethodHandleCompiler.compile(squaredSum());
+
+        assertEquals(144, valueOf(solution.evaluate(new IDataInstance[] {new Number(5), new Number(7)})[0]));
+        assertEquals(0, valueOf(solution.evaluate(new IDataInstance[] {new Number(3), new Number(-3)})[0]));
+    }
+
+    @Test
+    public void methodHandle_invokeExact() throws Throwable
+    {
+        MethodHandle handle = MethodHandleCompiler.compile(squaredSum())
+                                                  .getMethodHandle();
+        assertEquals(MethodType.methodType(IDataInstance[].class, IDataInstance[].class), handle.type());
+
+        IDataInstance[] parameters = {new Number(4), new Number(1)};
+        IDataInstance[] results = (IDataInstance[]) handle.invokeExact(parameters);
+        assertEquals(25, valueOf(results[0]));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void evaluate_wrongParameterCount()
+    {
+        MethodHandleCompiler.compile(squaredSum())
+                            .evaluate(new IDataInstance[0]);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void evaluate_wrongOutputCount()
+    {
+        IDataType type = new IDataType()
+        {};
+
+        OutputFunction output = new OutputFunction(new IDataType[] {type})
+        {
+            @Override
+            public IDataInstance[] execute(IDataInstance[] inputs)
+            {
+                return new IDataInstance[0];
+            }
+        };
+
+        InputFunction brokenInput = new InputFunction(new IDataType[] {type})
+        {
+            @Override
+            public IDataInstance[] execute(IDataInstance[] inputs)
+            {
+                return new IDataInstance[0];
+            }
+        };
+
+        Environment env = new EnvironmentBuilder().addFunction(output)
+                                                  .addFunction(brokenInput)
+                                                  .build();
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0)
+                                   .addConnectionAndNode(1, 0, 0, 0);
+        MethodHandleCompiler.compile(graph)
+                            .evaluate();
+    }
+}
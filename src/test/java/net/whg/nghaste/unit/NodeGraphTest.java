@@ -1,6 +1,8 @@
 package net.whg.nghaste.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 import org.junit.Test;
@@ -8,7 +10,9 @@ import net.whg.nghaste.Connection;
 import net.whg.nghaste.Environment;
 import net.whg.nghaste.IDataType;
 import net.whg.nghaste.IFunction;
+import net.whg.nghaste.NodeContainer;
 import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchTree;
 import net.whg.nghaste.util.EnvironmentUtils;
 
 public class NodeGraphTest
@@ -132,4 +136,422 @@ public class NodeGraphTest
         NodeGraph graph = graph(1, 200);
         assertEquals(200, graph.getNodeType(0));
     }
+
+    @Test
+    public void persistent_matchesFlatGraph()
+    {
+        Environment flatEnv = EnvironmentUtils.quickEnvironment(5);
+        Environment persistentEnv = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+
+        NodeGraph flat = NodeGraph.newGraph(flatEnv, 0);
+        flat = flat.addConnectionAndNode(1, 0, 0, 0);
+        flat = flat.addConnectionAndNode(2, 0, 1, 0);
+        flat = flat.addConnection(2, 0, 1, 1);
+
+        NodeGraph persistent = NodeGraph.newGraph(persistentEnv, 0);
+        persistent = persistent.addConnectionAndNode(1, 0, 0, 0);
+        persistent = persistent.addConnectionAndNode(2, 0, 1, 0);
+        persistent = persistent.addConnection(2, 0, 1, 1);
+
+        assertTrue(persistent.isPersistent());
+        assertEquals(flat.getNodeCount(), persistent.getNodeCount());
+        assertEquals(flat.getConnectionCount(), persistent.getConnectionCount());
+        assertEquals(flat.countOpenPlugs(), persistent.countOpenPlugs());
+
+        for (int i = 0; i < flat.getNodeCount(); i++)
+            assertEquals(flat.getNodeType(i), persistent.getNodeType(i));
+
+        Connection a = new Connection();
+        Connection b = new Connection();
+        for (int i = 0; i < flat.getConnectionCount(); i++)
+        {
+            flat.getConnection(i, a);
+            persistent.getConnection(i, b);
+            assertEquals(a, b);
+        }
+
+        assertEquals(flat.hashCode(), persistent.hashCode());
+    }
+
+    @Test
+    public void persistent_equals()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+
+        NodeGraph root = NodeGraph.newGraph(env, 0);
+        NodeGraph a = root.addConnectionAndNode(1, 0, 0, 0)
+                          .addConnectionAndNode(2, 0, 1, 0);
+        NodeGraph b = root.addConnectionAndNode(1, 0, 0, 0)
+                          .addConnectionAndNode(2, 0, 1, 0);
+        NodeGraph c = root.addConnectionAndNode(1, 0, 0, 0)
+                          .addConnectionAndNode(3, 0, 1, 0);
+
+        assertTrue(a.isPersistent());
+        assertEquals(a, b);
+        assertEquals(a.hashCode(), b.hashCode());
+        assertEquals(a.hashCode(), a.hashCode());
+        assertFalse(a.equals(c));
+    }
+
+    @Test
+    public void persistent_parentUnchanged()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+
+        NodeGraph parent = NodeGraph.newGraph(env, 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+
+        NodeGraph child = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        assertEquals(2, parent.getNodeCount());
+        assertEquals(1, parent.getConnectionCount());
+        assertEquals(3, child.getNodeCount());
+        assertEquals(2, child.getConnectionCount());
+        assertEquals(2, child.getNodeType(2));
+    }
+
+    @Test
+    public void persistent_readsAfterParentFlattened()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+
+        NodeGraph parent = NodeGraph.newGraph(env, 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        NodeGraph child = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        tree.placeNeighbors(parent);
+
+        assertFalse(parent.isPersistent());
+        assertEquals(2, parent.getNodeCount());
+        assertEquals(1, parent.getNodeType(1));
+        assertEquals(3, child.getNodeCount());
+        assertEquals(2, child.getNodeType(2));
+    }
+
+    @Test
+    public void compact_matchesDefaultEncoding()
+    {
+        Environment defaultEnv = EnvironmentUtils.quickEnvironment(20);
+        Environment compactEnv = EnvironmentUtils.quickEnvironment(20, builder -> builder.setCompactEncoding(true));
+
+        NodeGraph a = NodeGraph.newGraph(defaultEnv, 0);
+        NodeGraph b = NodeGraph.newGraph(compactEnv, 0);
+
+        int[][] edits = {{1, 0, 0, 0}, {11, 2, 1, 0}, {12, 0, 1, 1}, {-1, 0, 2, 0}, {3, 0, 3, 1}, {-2, 0, 3, 0}};
+        for (int[] edit : edits)
+        {
+            if (edit[0] >= 0)
+            {
+                a = a.addConnectionAndNode(edit[0], edit[1], edit[2], edit[3]);
+                b = b.addConnectionAndNode(edit[0], edit[1], edit[2], edit[3]);
+            }
+            else
+            {
+                a = a.addConnection(-edit[0], edit[1], edit[2], edit[3]);
+                b = b.addConnection(-edit[0], edit[1], edit[2], edit[3]);
+            }
+        }
+
+        assertEquals(a.getNodeCount(), b.getNodeCount());
+        assertEquals(a.getConnectionCount(), b.getConnectionCount());
+
+        for (int i = 0; i < a.getNodeCount(); i++)
+            assertEquals(a.getNodeType(i), b.getNodeType(i));
+
+        Connection connA = new Connection();
+        Connection connB = new Connection();
+        for (int i = 0; i < a.getConnectionCount(); i++)
+        {
+            a.getConnection(i, connA);
+            b.getConnection(i, connB);
+            assertEquals(connA, connB);
+        }
+    }
+
+    @Test
+    public void compact_persistent_matchesFlatGraph()
+    {
+        Environment flatEnv = EnvironmentUtils.quickEnvironment(20, builder -> builder.setCompactEncoding(true));
+        Environment persistentEnv = EnvironmentUtils.quickEnvironment(20, builder -> builder.setCompactEncoding(true)
+                                                                                            .setPersistentGraphs(true));
+
+        NodeGraph flat = NodeGraph.newGraph(flatEnv, 0);
+        flat = flat.addConnectionAndNode(11, 2, 0, 0);
+        flat = flat.addConnectionAndNode(12, 0, 1, 0);
+        flat = flat.addConnection(1, 1, 2, 1);
+
+        NodeGraph persistent = NodeGraph.newGraph(persistentEnv, 0);
+        persistent = persistent.addConnectionAndNode(11, 2, 0, 0);
+        persistent = persistent.addConnectionAndNode(12, 0, 1, 0);
+        persistent = persistent.addConnection(1, 1, 2, 1);
+
+        assertEquals(flat.hashCode(), persistent.hashCode());
+
+        Connection conn = new Connection();
+        persistent.getConnection(2, conn);
+
+        assertEquals(1, conn.getOutputNode());
+        assertEquals(1, conn.getOutputPlug());
+        assertEquals(2, conn.getInputNode());
+        assertEquals(1, conn.getInputPlug());
+        assertEquals(11, conn.getOutputNodeType());
+        assertEquals(12, conn.getInputNodeType());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compact_tooManyConnections()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(2, builder -> builder.setCompactEncoding(true));
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph = graph.addConnectionAndNode(2, 0, 1, 0);
+        graph.addConnection(2, 0, 1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compact_persistent_tooManyConnections()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(2, builder -> builder.setCompactEncoding(true)
+                                                                                 .setPersistentGraphs(true));
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph = graph.addConnectionAndNode(2, 0, 1, 0);
+        graph.addConnectionAndNode(2, 0, 1, 1);
+    }
+
+    @Test
+    public void defaultEncoding_deeperThanMaxDepth()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(2);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph = graph.addConnectionAndNode(2, 0, 1, 0);
+        graph = graph.addConnection(2, 0, 1, 1);
+
+        assertEquals(3, graph.getConnectionCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void compact_valueTooLarge()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setCompactEncoding(true));
+        NodeGraph.newGraph(env, 16);
+    }
+
+    @Test
+    public void index_plugUsage()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph = graph.addConnectionAndNode(11, 1, 1, 0);
+        graph = graph.addConnection(2, 1, 1, 1);
+
+        assertTrue(graph.isInputConnected(0, 0));
+        assertTrue(graph.isInputConnected(1, 0));
+        assertTrue(graph.isInputConnected(1, 1));
+        assertFalse(graph.isInputConnected(2, 0));
+
+        assertEquals(0, graph.getOutputConnectionCount(2, 0));
+        assertEquals(2, graph.getOutputConnectionCount(2, 1));
+        assertEquals(0, graph.getOutputConnectionCount(2, 2));
+
+        assertEquals(0, graph.getIncomingConnectionCount(2));
+        assertEquals(2, graph.getOutgoingConnectionCount(2));
+        assertEquals(2, graph.getIncomingConnectionCount(1));
+        assertEquals(1, graph.getOutgoingConnectionCount(1));
+        assertEquals(1, graph.getIncomingConnectionCount(0));
+        assertEquals(0, graph.getOutgoingConnectionCount(0));
+    }
+
+    @Test
+    public void index_derivedFromParent()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+
+        NodeGraph parent = NodeGraph.newGraph(env, 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        assertFalse(parent.isInputConnected(1, 0));
+
+        // The parent index now exists, so the child derives its own from it
+        NodeGraph child = parent.addConnectionAndNode(11, 1, 1, 0);
+        child = child.addConnection(2, 1, 1, 1);
+
+        NodeGraph rebuilt = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(5), 0);
+        rebuilt = rebuilt.addConnectionAndNode(1, 0, 0, 0);
+        rebuilt = rebuilt.addConnectionAndNode(11, 1, 1, 0);
+        rebuilt = rebuilt.addConnection(2, 1, 1, 1);
+
+        assertFalse(parent.isInputConnected(1, 0));
+        assertEquals(1, parent.getOutgoingConnectionCount(1));
+
+        for (int node = 0; node < rebuilt.getNodeCount(); node++)
+        {
+            assertEquals(rebuilt.getIncomingConnectionCount(node), child.getIncomingConnectionCount(node));
+            assertEquals(rebuilt.getOutgoingConnectionCount(node), child.getOutgoingConnectionCount(node));
+
+            IFunction function = rebuilt.getNodeAsFunction(node);
+            for (int plug = 0; plug < function.getInputs().length; plug++)
+                assertEquals(rebuilt.isInputConnected(node, plug), child.isInputConnected(node, plug));
+
+            for (int plug = 0; plug < function.getOutputs().length; plug++)
+                assertEquals(rebuilt.getOutputConnectionCount(node, plug), child.getOutputConnectionCount(node, plug));
+        }
+    }
+
+    @Test
+    public void index_childQueries_matchRebuiltGraph()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph parent = NodeGraph.newGraph(env, 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(11, 1, 1, 0);
+        assertFalse(parent.isInputConnected(1, 1));
+
+        // The unqueried copy has no index, so its children build their own
+        NodeGraph unindexed = NodeGraph.newGraph(env, 0);
+        unindexed = unindexed.addConnectionAndNode(1, 0, 0, 0);
+        unindexed = unindexed.addConnectionAndNode(11, 1, 1, 0);
+
+        NodeGraph[] children = new NodeGraph[] {parent.addConnection(2, 1, 1, 1),
+                                                parent.addConnectionAndNode(2, 0, 1, 1),
+                                                parent.addConnectionAndNode(11, 2, 2, 0)};
+        NodeGraph[] rebuiltChildren = new NodeGraph[] {unindexed.addConnection(2, 1, 1, 1),
+                                                       unindexed.addConnectionAndNode(2, 0, 1, 1),
+                                                       unindexed.addConnectionAndNode(11, 2, 2, 0)};
+
+        for (int i = 0; i < children.length; i++)
+        {
+            NodeGraph child = children[i];
+            NodeGraph rebuilt = rebuiltChildren[i];
+
+            for (int node = 0; node < rebuilt.getNodeCount(); node++)
+            {
+                assertEquals(rebuilt.getIncomingConnectionCount(node), child.getIncomingConnectionCount(node));
+                assertEquals(rebuilt.getOutgoingConnectionCount(node), child.getOutgoingConnectionCount(node));
+
+                IFunction function = rebuilt.getNodeAsFunction(node);
+                for (int plug = 0; plug < function.getInputs().length; plug++)
+                    assertEquals(rebuilt.isInputConnected(node, plug), child.isInputConnected(node, plug));
+
+                for (int plug = 0; plug < function.getOutputs().length; plug++)
+                    assertEquals(rebuilt.getOutputConnectionCount(node, plug),
+                            child.getOutputConnectionCount(node, plug));
+            }
+        }
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void index_childQueries_inputPlug_outOfBounds()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph parent = NodeGraph.newGraph(env, 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        assertFalse(parent.isInputConnected(1, 0));
+
+        NodeGraph child = parent.addConnectionAndNode(2, 0, 1, 0);
+        child.isInputConnected(2, 0);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void index_inputPlug_outOfBounds()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph.isInputConnected(0, 1);
+    }
+
+    @Test
+    public void openPlugs_derivedFromParent()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        assertEquals(1, graph.countOpenPlugs());
+
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        assertEquals(2, graph.countOpenPlugs());
+
+        graph = graph.addConnectionAndNode(11, 1, 1, 0);
+        assertEquals(2, graph.countOpenPlugs());
+
+        graph = graph.addConnection(2, 1, 1, 1);
+        assertEquals(1, graph.countOpenPlugs());
+
+        NodeGraph scanned = NodeGraph.newGraph(env, 0);
+        scanned = scanned.addConnectionAndNode(1, 0, 0, 0);
+        scanned = scanned.addConnectionAndNode(11, 1, 1, 0);
+        scanned = scanned.addConnection(2, 1, 1, 1);
+        assertEquals(1, scanned.countOpenPlugs());
+    }
+
+    @Test
+    public void batchAllocation_matchesFlatGraphs()
+    {
+        Environment flatEnv = EnvironmentUtils.quickEnvironment(4);
+        Environment batchEnv = EnvironmentUtils.quickEnvironment(4, builder -> builder.setBatchAllocation(true));
+
+        NodeContainer flatContainer = solveAll(flatEnv);
+        NodeContainer batchContainer = solveAll(batchEnv);
+
+        assertEquals(flatContainer.getSolutionCount(), batchContainer.getSolutionCount());
+
+        for (int i = 0; i < flatContainer.getSolutionCount(); i++)
+        {
+            NodeGraph flat = flatContainer.getSolution(i);
+            NodeGraph batch = batchContainer.getSolution(i);
+
+            assertEquals(flat, batch);
+            assertEquals(flat.hashCode(), batch.hashCode());
+            assertEquals(flat.countOpenPlugs(), batch.countOpenPlugs());
+
+            Connection a = new Connection();
+            Connection b = new Connection();
+            for (int j = 0; j < flat.getConnectionCount(); j++)
+            {
+                flat.getConnection(j, a);
+                batch.getConnection(j, b);
+                assertEquals(a, b);
+            }
+        }
+    }
+
+    private NodeContainer solveAll(Environment env)
+    {
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        while (container.size() > 0)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        return container;
+    }
+
+    @Test
+    public void compareTo_searchCostBeforeHeuristic()
+    {
+        NodeGraph a = graph(2, 0);
+        NodeGraph b = graph(2, 0);
+
+        a.setHeuristicScore(1f);
+        b.setHeuristicScore(5f);
+        assertTrue(a.compareTo(b) > 0);
+
+        a.setSearchCost(2f);
+        b.setSearchCost(3f);
+        assertTrue(a.compareTo(b) < 0);
+
+        a.setSearchCost(3f);
+        assertTrue(a.compareTo(b) > 0);
+    }
 }
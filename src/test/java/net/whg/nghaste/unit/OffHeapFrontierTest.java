@@ -0,0 +1,148 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OffHeapFrontier;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class OffHeapFrontierTest
+{
+    @Test
+    public void pollOrder()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        OffHeapFrontier frontier = new OffHeapFrontier(env, 1024);
+
+        for (int i = 0; i < 1000; i++)
+        {
+            NodeGraph graph = NodeGraph.newGraph(env, 0);
+            graph.setHeuristicScore((float) Math.random());
+            frontier.add(graph);
+        }
+
+        assertEquals(1000, frontier.size());
+
+        float last = Float.MAX_VALUE;
+        while (frontier.size() > 0)
+        {
+            NodeGraph graph = frontier.poll();
+            assertTrue(graph.getHeuristicScore() <= last);
+
+            last = graph.getHeuristicScore();
+        }
+
+        assertNull(frontier.poll());
+    }
+
+    @Test
+    public void roundTrip()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+        OffHeapFrontier frontier = new OffHeapFrontier(env);
+
+        NodeGraph graph = NodeGraph.newGraph(env, 0);
+        graph = graph.addConnectionAndNode(1, 0, 0, 0);
+        graph = graph.addConnectionAndNode(2, 0, 1, 0);
+        graph = graph.addConnection(2, 0, 1, 1);
+        graph.setHeuristicScore(12.5f);
+
+        frontier.add(graph);
+        NodeGraph polled = frontier.poll();
+
+        assertEquals(graph, polled);
+        assertEquals(12.5f, polled.getHeuristicScore(), 0f);
+        assertEquals(3, polled.getNodeCount());
+        assertEquals(0, polled.countOpenPlugs());
+
+        Connection conn = new Connection();
+        polled.getConnection(2, conn);
+        assertEquals(2, conn.getOutputNode());
+        assertEquals(1, conn.getInputPlug());
+    }
+
+    @Test
+    public void slabsAreReused()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        OffHeapFrontier frontier = new OffHeapFrontier(env, 64);
+
+        int slabs = -1;
+        for (int round = 0; round < 10; round++)
+        {
+            for (int i = 0; i < 100; i++)
+                frontier.add(NodeGraph.newGraph(env, 0));
+
+            if (slabs == -1)
+                slabs = frontier.getSlabCount();
+
+            assertEquals(slabs, frontier.getSlabCount());
+
+            while (frontier.size() > 0)
+                frontier.poll();
+
+            assertTrue(frontier.getSlabCount() <= 2);
+        }
+    }
+
+    @Test
+    public void sparseSlabsAreCompacted()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        OffHeapFrontier frontier = new OffHeapFrontier(env, 256);
+
+        int maxSlabs = 0;
+        for (int round = 0; round < 500; round++)
+        {
+            NodeGraph low = NodeGraph.newGraph(env, 0);
+            low.setHeuristicScore(-round);
+            frontier.add(low);
+
+            for (int i = 0; i < 50; i++)
+            {
+                NodeGraph graph = NodeGraph.newGraph(env, 0);
+                graph.setHeuristicScore(1 + (float) Math.random());
+                frontier.add(graph);
+            }
+
+            for (int i = 0; i < 50; i++)
+                assertTrue(frontier.poll()
+                                   .getHeuristicScore() >= 1);
+
+            maxSlabs = Math.max(maxSlabs, frontier.getSlabCount());
+        }
+
+        assertEquals(500, frontier.size());
+        assertTrue("Slab count: " + maxSlabs, maxSlabs < 100);
+
+        float last = Float.MAX_VALUE;
+        while (frontier.size() > 0)
+        {
+            NodeGraph graph = frontier.poll();
+            assertTrue(graph.getHeuristicScore() <= last);
+            assertEquals(1, graph.getNodeCount());
+
+            last = graph.getHeuristicScore();
+        }
+
+        assertEquals(-499f, last, 0f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void slabTooSmall()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        new OffHeapFrontier(env, 4);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void sort_unsupported()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        new OffHeapFrontier(env).sort();
+    }
+}
@@ -3,13 +3,26 @@ package net.whg.nghaste.unit;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
+import java.util.HashSet;
+import java.util.Set;
 import org.junit.Test;
 import net.whg.nghaste.Environment;
+import net.whg.nghaste.GraphHash;
+import net.whg.nghaste.GraphHasher;
+import net.whg.nghaste.IAxiom;
 import net.whg.nghaste.IFunction;
+import net.whg.nghaste.InputFunction;
 import net.whg.nghaste.NodeContainer;
 import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.OffHeapFrontier;
+import net.whg.nghaste.PipelineMetrics;
+import net.whg.nghaste.PipelineStage;
 import net.whg.nghaste.SearchTree;
 import net.whg.nghaste.util.EnvironmentUtils;
+import net.whg.nghaste.util.FewestProducersPlugSelector;
+import net.whg.nghaste.util.LowestIndexPlugSelector;
+import net.whg.nghaste.util.SingleConstAxiom;
+import net.whg.nghaste.util.SingleInstanceAxiom;
 
 public class SearchTreeAxiomsTest
 {
@@ -55,6 +68,143 @@ public class SearchTreeAxiomsTest
         assertEquals(1109, graphCount);
     }
 
+    @Test
+    public void axioms_singleConstAxiom_incremental()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(new SingleConstAxiom()));
+        assertEquals(1109, countGraphs(env));
+    }
+
+    @Test
+    public void structuralConstraints_invalidChildrenNeverCreated()
+    {
+        int[] doubleConsts = new int[1];
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder ->
+        {
+            builder.addAxiom(new SingleConstAxiom());
+            builder.addAxiom(graph ->
+            {
+                int nodeCount = graph.getNodeCount();
+                for (int a = 0; a < nodeCount; a++)
+                    for (int b = a + 1; b < nodeCount; b++)
+                        if (graph.getNodeType(a) == graph.getNodeType(b)
+                                && graph.getNodeAsFunction(a) instanceof InputFunction)
+                            doubleConsts[0]++;
+
+                return true;
+            });
+        });
+
+        assertEquals(1109, countGraphs(env));
+        assertEquals(0, doubleConsts[0]);
+    }
+
+    @Test
+    public void axioms_singleInstanceAxiom_sameSolutionStructures()
+    {
+        SingleInstanceAxiom axiom = new SingleInstanceAxiom(EnvironmentUtils.DATA_NUMBER);
+        IAxiom fullAxiom = graph -> axiom.isValid(graph);
+
+        Environment structural = EnvironmentUtils.quickEnvironment(6, builder -> builder.addAxiom(axiom));
+        Environment full = EnvironmentUtils.quickEnvironment(6, builder -> builder.addAxiom(fullAxiom));
+
+        Set<GraphHash> expected = solutionStructures(full);
+        assertTrue(expected.size() < solutionStructures(EnvironmentUtils.quickEnvironment(6)).size());
+        assertEquals(expected, solutionStructures(structural));
+
+        // Skipped children no longer use up the duplicate counters of other graphs
+        assertTrue(countGraphs(structural) <= countGraphs(full));
+    }
+
+    @Test
+    public void pipeline_metricsCountEveryStage()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(new SingleConstAxiom()));
+
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            tree.placeNeighbors(container.getNodeGraph());
+        }
+
+        tree.flushStatistics();
+        PipelineMetrics metrics = container.getPipelineMetrics();
+
+        long entered = metrics.getEnteredCount(PipelineStage.DEPTH);
+        for (PipelineStage stage : env.getPipeline())
+        {
+            assertEquals(entered, metrics.getEnteredCount(stage));
+            entered -= metrics.getRejectedCount(stage);
+        }
+
+        // Every graph except for the root was added by the search tree
+        assertEquals(1109, graphCount);
+        assertEquals(graphCount - 1 + container.getSolutionCount(), entered);
+        assertTrue(metrics.getRejectedCount(PipelineStage.DUPLICATES) > 0);
+        assertEquals(0, metrics.getRejectedCount(PipelineStage.SOLUTION_AXIOMS));
+        assertTrue(metrics.getEstimatedNanos(PipelineStage.DUPLICATES) > 0);
+    }
+
+    @Test
+    public void pipeline_axiomsBeforeDuplicates_sameSolutionStructures()
+    {
+        IAxiom noDoubleConsts = graph -> new SingleConstAxiom().isValid(graph);
+        Environment expected = EnvironmentUtils.quickEnvironment(6, builder -> builder.addAxiom(noDoubleConsts));
+        Environment actual = EnvironmentUtils.quickEnvironment(6, builder ->
+        {
+            builder.addAxiom(noDoubleConsts);
+            builder.setPipeline(PipelineStage.AXIOMS, PipelineStage.DEPTH, PipelineStage.DUPLICATES,
+                    PipelineStage.SOLUTION_AXIOMS);
+        });
+
+        assertEquals(solutionStructures(expected), solutionStructures(actual));
+    }
+
+    @Test
+    public void completionBound_findsAllSolutions()
+    {
+        Set<GraphHash> expected = new HashSet<>();
+        GraphHasher hasher = new GraphHasher();
+
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(EnvironmentUtils.numberConstantOnly(7), 0));
+
+        while (container.size() > 0)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        for (int i = 0; i < container.getSolutionCount(); i++)
+            if (container.getSolution(i)
+                         .getConnectionCount() <= 5)
+                expected.add(hasher.createHash(container.getSolution(i)));
+
+        assertEquals(expected, solutionStructures(EnvironmentUtils.numberConstantOnly(5)));
+
+        // Only counting open plugs searches 1013 graphs
+        assertEquals(722, countGraphs(EnvironmentUtils.numberConstantOnly(5)));
+    }
+
+    private int countGraphs(Environment env)
+    {
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            tree.placeNeighbors(container.getNodeGraph());
+        }
+
+        return graphCount;
+    }
+
     @Test
     public void allGraphs_5deep_controlTest()
     {
@@ -75,6 +225,210 @@ public class SearchTreeAxiomsTest
         assertEquals(878, container.getSolutionCount());
     }
 
+    @Test
+    public void allGraphs_5deep_persistentGraphs()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setPersistentGraphs(true));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(1115, graphCount);
+        assertEquals(878, container.getSolutionCount());
+    }
+
+    @Test
+    public void allGraphs_5deep_compactEncoding()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setCompactEncoding(true));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(1115, graphCount);
+        assertEquals(878, container.getSolutionCount());
+    }
+
+    @Test
+    public void allGraphs_5deep_offHeapFrontier()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+        NodeContainer container = new NodeContainer(new OffHeapFrontier(env, 4096));
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(1115, graphCount);
+        assertEquals(878, container.getSolutionCount());
+    }
+
+    @Test
+    public void allGraphs_5deep_batchAllocation()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setBatchAllocation(true));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(1115, graphCount);
+        assertEquals(878, container.getSolutionCount());
+    }
+
+    @Test
+    public void allGraphs_5deep_batchAllocation_compactPersistent()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setBatchAllocation(true)
+                                                                                 .setCompactEncoding(true)
+                                                                                 .setPersistentGraphs(true));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(1115, graphCount);
+        assertEquals(878, container.getSolutionCount());
+    }
+
+    @Test
+    public void allGraphs_5deep_lowestIndexPlugSelector()
+    {
+        Environment env =
+                EnvironmentUtils.quickEnvironment(5, builder -> builder.setPlugSelector(new LowestIndexPlugSelector()));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(838, graphCount);
+        assertEquals(877, container.getSolutionCount());
+        assertEquals(0, container.getDuplicateFinder()
+                                 .getRemainingDuplicateTypes());
+    }
+
+    @Test
+    public void allGraphs_5deep_fewestProducersPlugSelector()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5,
+                builder -> builder.setPlugSelector(new FewestProducersPlugSelector()));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphCount = 0;
+        while (container.size() > 0)
+        {
+            graphCount++;
+            NodeGraph g = container.getNodeGraph();
+            tree.placeNeighbors(g);
+        }
+
+        assertEquals(802, graphCount);
+        assertEquals(877, container.getSolutionCount());
+    }
+
+    @Test
+    public void plugSelector_findsSameSolutionStructures()
+    {
+        Set<GraphHash> expected = solutionStructures(EnvironmentUtils.quickEnvironment(6));
+        Set<GraphHash> actual = solutionStructures(EnvironmentUtils.quickEnvironment(6,
+                builder -> builder.setPlugSelector(new FewestProducersPlugSelector())));
+
+        assertEquals(963, expected.size());
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void aStar_findsSameSolutionStructures()
+    {
+        Set<GraphHash> expected = solutionStructures(EnvironmentUtils.quickEnvironment(5));
+
+        assertEquals(expected, solutionStructures(EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f))));
+        assertEquals(expected, solutionStructures(EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(2.5f))));
+    }
+
+    @Test
+    public void aStar_firstSolutionIsSmallest()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder -> builder.setAStarWeight(1f));
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        int graphs = 0;
+        while (container.getSolutionCount() == 0)
+        {
+            tree.placeNeighbors(container.getNodeGraph());
+            graphs++;
+        }
+
+        // The smallest solution only connects a number constant to the output
+        assertEquals(1, container.getSolution(0)
+                                 .getConnectionCount());
+        assertTrue(graphs < 10);
+    }
+
+    private Set<GraphHash> solutionStructures(Environment env)
+    {
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+        while (container.size() > 0)
+            tree.placeNeighbors(container.getNodeGraph());
+
+        GraphHasher hasher = new GraphHasher();
+        Set<GraphHash> structures = new HashSet<>();
+        for (int i = 0; i < container.getSolutionCount(); i++)
+            structures.add(hasher.createHash(container.getSolution(i)));
+
+        return structures;
+    }
+
     @Test
     public void solutionAxioms_textCastException()
     {
@@ -1,11 +1,13 @@
 package net.whg.nghaste.unit;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.List;
 import org.junit.Test;
+import net.whg.nghaste.Connection;
 import net.whg.nghaste.Environment;
 import net.whg.nghaste.IDataType;
 import net.whg.nghaste.IFunction;
@@ -141,4 +143,60 @@ public class SearchTreeTest
             assertEquals(0, container.getSolution(i)
                                      .countOpenPlugs());
     }
+
+    @Test
+    public void deepChain_noCycles()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(20);
+        int add = env.getIndexOf(EnvironmentUtils.FUNC1_ADD);
+
+        NodeGraph chain = NodeGraph.newGraph(env, 0);
+        for (int i = 0; i < 6; i++)
+            chain = chain.addConnectionAndNode(add, 0, i, 0);
+
+        NodeContainer container = new NodeContainer();
+        SearchTree tree = new SearchTree(container);
+        tree.placeNeighbors(chain);
+
+        int newConnections = 0;
+        while (container.size() > 0)
+        {
+            NodeGraph g = container.getNodeGraph();
+            assertFalse(hasCycle(g));
+
+            if (g.getNodeCount() == chain.getNodeCount())
+                newConnections++;
+        }
+
+        assertTrue(newConnections > 0);
+    }
+
+    private boolean hasCycle(NodeGraph graph)
+    {
+        for (int node = 0; node < graph.getNodeCount(); node++)
+            if (reaches(graph, node, node, 0))
+                return true;
+
+        return false;
+    }
+
+    private boolean reaches(NodeGraph graph, int from, int to, int steps)
+    {
+        if (steps > graph.getConnectionCount())
+            return true;
+
+        Connection conn = new Connection();
+        for (int i = 0; i < graph.getConnectionCount(); i++)
+        {
+            graph.getConnection(i, conn);
+
+            if (conn.getOutputNode() != from)
+                continue;
+
+            if (conn.getInputNode() == to || reaches(graph, conn.getInputNode(), to, steps + 1))
+                return true;
+        }
+
+        return false;
+    }
 }
@@ -5,6 +5,7 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
+import net.whg.nghaste.Connection;
 import net.whg.nghaste.NodeGraph;
 import net.whg.nghaste.util.EnvironmentUtils;
 import net.whg.nghaste.util.SingleConstAxiom;
@@ -36,6 +37,38 @@ public class SingleConstAxiomTest
         assertFalse((axiom.isValid(graph)));
     }
 
+    @Test
+    public void incremental_newConst()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        SingleConstAxiom axiom = new SingleConstAxiom();
+        Connection connection = new Connection();
+
+        connection.set(3, 0, 1, 1, 2, 1);
+        assertFalse(axiom.isValid(parent, connection, 2));
+        assertFalse(axiom.isValid(parent.addConnectionAndNode(2, 0, 1, 1)));
+
+        connection.set(3, 0, 1, 1, 5, 1);
+        assertTrue(axiom.isValid(parent, connection, 5));
+        assertTrue(axiom.isValid(parent.addConnectionAndNode(5, 0, 1, 1)));
+    }
+
+    @Test
+    public void incremental_newConnection()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        Connection connection = new Connection();
+        connection.set(2, 0, 1, 1, 2, 1);
+
+        assertTrue(new SingleConstAxiom().isValid(parent, connection, -1));
+    }
+
     @Test
     public void equals_sameInstance()
     {
@@ -5,6 +5,8 @@ import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertTrue;
 import org.junit.Test;
+import net.whg.nghaste.Connection;
+import net.whg.nghaste.IDataType;
 import net.whg.nghaste.NodeGraph;
 import net.whg.nghaste.util.EnvironmentUtils;
 import net.whg.nghaste.util.SingleInstanceAxiom;
@@ -35,6 +37,65 @@ public class SingleInstanceAxiomTest
         assertFalse((axiom.isValid(graph)));
     }
 
+    @Test
+    public void incremental_secondConnection_notValid()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        SingleInstanceAxiom axiom = new SingleInstanceAxiom(EnvironmentUtils.DATA_NUMBER);
+        Connection connection = new Connection();
+        connection.set(2, 0, 1, 1, 2, 1);
+
+        assertFalse(axiom.isValid(parent, connection, -1));
+        assertFalse(axiom.isValid(parent.addConnection(2, 0, 1, 1)));
+    }
+
+    @Test
+    public void incremental_otherDataType_isValid()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        SingleInstanceAxiom axiom = new SingleInstanceAxiom(EnvironmentUtils.DATA_BOOL);
+        Connection connection = new Connection();
+        connection.set(2, 0, 1, 1, 2, 1);
+
+        assertTrue(axiom.isValid(parent, connection, -1));
+        assertTrue(axiom.isValid(parent.addConnection(2, 0, 1, 1)));
+    }
+
+    @Test
+    public void incremental_newNode_isValid()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+
+        SingleInstanceAxiom axiom = new SingleInstanceAxiom(EnvironmentUtils.DATA_NUMBER);
+        Connection connection = new Connection();
+        connection.set(2, 0, 1, 0, 2, 1);
+
+        assertTrue(axiom.isValid(parent, connection, 2));
+    }
+
+    @Test
+    public void unusedDataType_isValid()
+    {
+        NodeGraph parent = NodeGraph.newGraph(EnvironmentUtils.quickEnvironment(), 0);
+        parent = parent.addConnectionAndNode(1, 0, 0, 0);
+        parent = parent.addConnectionAndNode(2, 0, 1, 0);
+
+        SingleInstanceAxiom axiom = new SingleInstanceAxiom(new IDataType()
+        {});
+        Connection connection = new Connection();
+        connection.set(2, 0, 1, 1, 2, 1);
+
+        assertTrue(axiom.isValid(parent, connection, -1));
+        assertTrue(axiom.isValid(parent.addConnection(2, 0, 1, 1)));
+    }
+
     @Test
     public void equals_sameInstance()
     {
@@ -0,0 +1,152 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.io.File;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.NodeContainer;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.SearchTree;
+import net.whg.nghaste.SpillingFrontier;
+import net.whg.nghaste.util.EnvironmentUtils;
+
+public class SpillingFrontierTest
+{
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void spill_pollOrder() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        File dir = folder.newFolder();
+
+        try (SpillingFrontier frontier = new SpillingFrontier(env, dir.toPath(), 2000))
+        {
+            for (int i = 0; i < 1000; i++)
+            {
+                NodeGraph graph = NodeGraph.newGraph(env, 0);
+                graph.setHeuristicScore((float) Math.random());
+                frontier.add(graph);
+            }
+
+            assertEquals(1000, frontier.size());
+            assertTrue(frontier.getSpilledGraphCount() > 0);
+            assertTrue(frontier.getHeapUsage() <= 2000);
+            assertEquals(frontier.getSegmentCount(), dir.list().length);
+
+            float last = Float.MAX_VALUE;
+            while (frontier.size() > 0)
+            {
+                NodeGraph graph = frontier.poll();
+                assertTrue(graph.getHeuristicScore() <= last);
+
+                last = graph.getHeuristicScore();
+            }
+
+            assertNull(frontier.poll());
+            assertEquals(0, frontier.getSegmentCount());
+            assertEquals(0, dir.list().length);
+        }
+    }
+
+    @Test
+    public void spill_splitIntoSegments() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        File dir = folder.newFolder();
+
+        try (SpillingFrontier frontier = new SpillingFrontier(env, dir.toPath(), 2000, 100))
+        {
+            int added = 0;
+            while (frontier.getSpilledGraphCount() == 0)
+            {
+                NodeGraph graph = NodeGraph.newGraph(env, 0);
+                graph.setHeuristicScore((float) Math.random());
+                frontier.add(graph);
+                added++;
+            }
+
+            assertTrue(frontier.getSegmentCount() > 1);
+            assertEquals(frontier.getSegmentCount(), dir.list().length);
+            assertEquals(added, frontier.size());
+
+            float last = Float.MAX_VALUE;
+            while (frontier.size() > 0)
+            {
+                NodeGraph graph = frontier.poll();
+                assertTrue(graph.getHeuristicScore() <= last);
+
+                last = graph.getHeuristicScore();
+            }
+
+            assertEquals(0, frontier.getSegmentCount());
+            assertEquals(0, dir.list().length);
+        }
+    }
+
+    @Test
+    public void close_deletesSegments() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        File dir = folder.newFolder();
+
+        SpillingFrontier frontier = new SpillingFrontier(env, dir.toPath(), 500);
+        for (int i = 0; i < 100; i++)
+            frontier.add(NodeGraph.newGraph(env, 0));
+
+        assertTrue(dir.list().length > 0);
+
+        frontier.close();
+        assertEquals(0, frontier.size());
+        assertEquals(0, dir.list().length);
+    }
+
+    @Test
+    public void allGraphs_5deep() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5);
+
+        try (SpillingFrontier frontier = new SpillingFrontier(env, folder.newFolder()
+                                                                         .toPath(),
+                10000))
+        {
+            NodeContainer container = new NodeContainer(frontier);
+            SearchTree tree = new SearchTree(container);
+            container.addNodeGraph(NodeGraph.newGraph(env, 0));
+
+            int graphCount = 0;
+            while (container.size() > 0)
+            {
+                graphCount++;
+                NodeGraph g = container.getNodeGraph();
+                tree.placeNeighbors(g);
+            }
+
+            assertEquals(1115, graphCount);
+            assertEquals(878, container.getSolutionCount());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroSegmentSize() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        new SpillingFrontier(env, folder.newFolder()
+                                        .toPath(),
+                2000, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void zeroBudget() throws Exception
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        new SpillingFrontier(env, folder.newFolder()
+                                        .toPath(),
+                0);
+    }
+}
@@ -0,0 +1,124 @@
+package net.whg.nghaste.unit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.IDataType;
+import net.whg.nghaste.IStructuralAxiom;
+import net.whg.nghaste.NodeGraph;
+import net.whg.nghaste.StructuralConstraints;
+import net.whg.nghaste.util.EnvironmentUtils;
+import net.whg.nghaste.util.SingleConstAxiom;
+import net.whg.nghaste.util.SingleInstanceAxiom;
+
+public class StructuralConstraintsTest
+{
+    @Test
+    public void noStructuralAxioms_unlimited()
+    {
+        StructuralConstraints constraints = EnvironmentUtils.quickEnvironment()
+                                                            .getStructuralConstraints();
+
+        assertFalse(constraints.hasFanOutLimits());
+        assertFalse(constraints.hasInstanceLimits());
+        assertEquals(StructuralConstraints.UNLIMITED, constraints.getMaxFanOut(0));
+        assertEquals(StructuralConstraints.UNLIMITED, constraints.getMaxInstances(2));
+    }
+
+    @Test
+    public void singleConstAxiom_limitsInputFunctions()
+    {
+        StructuralConstraints constraints =
+                EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(new SingleConstAxiom()))
+                                .getStructuralConstraints();
+
+        assertTrue(constraints.hasInstanceLimits());
+        assertFalse(constraints.hasFanOutLimits());
+        assertEquals(1, constraints.getMaxInstances(2));
+        assertEquals(1, constraints.getMaxInstances(3));
+        assertEquals(1, constraints.getMaxInstances(4));
+        assertEquals(StructuralConstraints.UNLIMITED, constraints.getMaxInstances(0));
+        assertEquals(StructuralConstraints.UNLIMITED, constraints.getMaxInstances(1));
+    }
+
+    @Test
+    public void singleInstanceAxiom_limitsFanOut()
+    {
+        StructuralConstraints constraints = EnvironmentUtils
+                .quickEnvironment(5, builder -> builder.addAxiom(new SingleInstanceAxiom(EnvironmentUtils.DATA_TEXT)))
+                .getStructuralConstraints();
+
+        assertTrue(constraints.hasFanOutLimits());
+        assertFalse(constraints.hasInstanceLimits());
+        assertEquals(StructuralConstraints.UNLIMITED, constraints.getMaxFanOut(0));
+        assertEquals(1, constraints.getMaxFanOut(1));
+    }
+
+    @Test
+    public void unknownDataType_noLimit()
+    {
+        IDataType unknown = new IDataType()
+        {};
+
+        StructuralConstraints constraints =
+                EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(new SingleInstanceAxiom(unknown)))
+                                .getStructuralConstraints();
+
+        assertFalse(constraints.hasFanOutLimits());
+    }
+
+    @Test
+    public void multipleLimits_smallestIsUsed()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment(5, builder ->
+        {
+            builder.addAxiom(instanceLimit(1, 3));
+            builder.addAxiom(instanceLimit(1, 2));
+            builder.addAxiom(instanceLimit(1, 4));
+        });
+
+        assertEquals(2, env.getStructuralConstraints()
+                           .getMaxInstances(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void declareAfterCreation()
+    {
+        Environment env = EnvironmentUtils.quickEnvironment();
+        env.getStructuralConstraints()
+           .limitInstances(1, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeLimit()
+    {
+        EnvironmentUtils.quickEnvironment(5, builder -> builder.addAxiom(instanceLimit(1, -1)));
+    }
+
+    private IStructuralAxiom instanceLimit(int function, int limit)
+    {
+        return new IStructuralAxiom()
+        {
+            @Override
+            public boolean isValid(NodeGraph graph)
+            {
+                int count = 0;
+
+                int nodeCount = graph.getNodeCount();
+                for (int i = 0; i < nodeCount; i++)
+                    if (graph.getNodeType(i) == function)
+                        count++;
+
+                return count <= limit;
+            }
+
+            @Override
+            public void declareConstraints(StructuralConstraints constraints)
+            {
+                constraints.limitInstances(function, limit);
+            }
+        };
+    }
+}
@@ -112,6 +112,16 @@ public class EnvironmentUtils
         return builder.build();
     }
 
+    public static Environment numberConstantOnly(int size)
+    {
+        EnvironmentBuilder builder = new EnvironmentBuilder().setMaxDepth(size);
+        for (IFunction function : buildFunctionList())
+            if (function != FUNC3_TEXT_CONST && function != FUNC4_BOOL_CONST)
+                builder.addFunction(function);
+
+        return builder.build();
+    }
+
     public static List<IFunction> buildFunctionList()
     {
         List<IFunction> functions = new ArrayList<>();
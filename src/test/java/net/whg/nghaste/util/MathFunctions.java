@@ -0,0 +1,128 @@
+package net.whg.nghaste.util;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import net.whg.nghaste.Environment;
+import net.whg.nghaste.EnvironmentBuilder;
+import net.whg.nghaste.IDataInstance;
+import net.whg.nghaste.IDataType;
+import net.whg.nghaste.IFunction;
+import net.whg.nghaste.InputFunction;
+import net.whg.nghaste.OutputFunction;
+
+public class MathFunctions
+{
+    public static final IDataType NUMBER = new IDataType()
+    {};
+
+    public static final int OUTPUT = 0;
+    public static final int ADD = 1;
+    public static final int MULTIPLY = 2;
+    public static final int ONE = 3;
+    public static final int TWO = 4;
+
+    public static class Number implements IDataInstance
+    {
+        private final int value;
+
+        public Number(int value)
+        {
+            this.value = value;
+        }
+
+        public int getValue()
+        {
+            return value;
+        }
+
+        @Override
+        public IDataType getType()
+        {
+            return NUMBER;
+        }
+
+        @Override
+        public boolean valueEquals(IDataInstance other)
+        {
+            return other instanceof Number && ((Number) other).value == value;
+        }
+
+        @Override
+        public int valueHashCode()
+        {
+            return value;
+        }
+    }
+
+    public static class Operator implements IFunction
+    {
+        private final boolean multiply;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        public Operator(boolean multiply)
+        {
+            this.multiply = multiply;
+        }
+
+        public int getCalls()
+        {
+            return calls.get();
+        }
+
+        @Override
+        public IDataType[] getInputs()
+        {
+            return new IDataType[] {NUMBER, NUMBER};
+        }
+
+        @Override
+        public IDataType[] getOutputs()
+        {
+            return new IDataType[] {NUMBER};
+        }
+
+        @Override
+        public IDataInstance[] execute(IDataInstance[] inputs)
+        {
+            calls.incrementAndGet();
+
+            int a = ((Number) inputs[0]).getValue();
+            int b = ((Number) inputs[1]).getValue();
+            return new IDataInstance[] {new Number(multiply ? a * b : a + b)};
+        }
+    }
+
+    public static Environment mathEnvironment(int depth)
+    {
+        return new EnvironmentBuilder().setMaxDepth(depth)
+                                       .addFunction(new OutputFunction(new IDataType[] {NUMBER})
+                                       {
+                                           @Override
+                                           public IDataInstance[] execute(IDataInstance[] inputs)
+                                           {
+                                               return new IDataInstance[0];
+                                           }
+                                       })
+                                       .addFunction(new Operator(false))
+                                       .addFunction(new Operator(true))
+                                       .addFunction(constant(1))
+                                       .addFunction(constant(2))
+                                       .build();
+    }
+
+    public static int valueOf(IDataInstance instance)
+    {
+        return ((Number) instance).getValue();
+    }
+
+    private static IFunction constant(int value)
+    {
+        return new InputFunction(new IDataType[] {NUMBER})
+        {
+            @Override
+            public IDataInstance[] execute(IDataInstance[] inputs)
+            {
+                return new IDataInstance[] {new Number(value)};
+            }
+        };
+    }
+}